@@ -0,0 +1,76 @@
+package com.skillswap.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.util.MimeType;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * STOMP message converter for CBOR payloads (application/cbor, or binary frames tagged codec=cbor)
+ * Lets clients that negotiated the compact codec send CBOR frames to @MessageMapping handlers
+ */
+public class CborMessageConverter extends AbstractMessageConverter {
+
+    public static final MimeType APPLICATION_CBOR = new MimeType("application", "cbor");
+
+    // Spring only sends binary WebSocket frames for application/octet-stream; any other
+    // content type goes out as a text frame, which would corrupt the CBOR bytes
+    public static final MimeType CBOR_FRAME = new MimeType("application", "octet-stream", Map.of("codec", "cbor"));
+
+    private final ObjectMapper cborMapper;
+
+    public CborMessageConverter() {
+        this(new CBORMapper());
+    }
+
+    public CborMessageConverter(ObjectMapper cborMapper) {
+        super(APPLICATION_CBOR);
+        this.cborMapper = cborMapper;
+        // Only used when the frame explicitly declares a CBOR content type
+        setStrictContentTypeMatch(true);
+    }
+
+    /**
+     * Whether a frame declares a CBOR payload, either as application/cbor or as a binary CBOR frame
+     */
+    public static boolean isCbor(MimeType contentType) {
+        return contentType != null && (contentType.equalsTypeAndSubtype(APPLICATION_CBOR)
+                || (contentType.equalsTypeAndSubtype(CBOR_FRAME)
+                        && "cbor".equalsIgnoreCase(contentType.getParameter("codec"))));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return true;
+    }
+
+    @Override
+    protected boolean supportsMimeType(MessageHeaders headers) {
+        // Plain application/octet-stream stays with the default byte[] converter
+        return isCbor(getMimeType(headers));
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        try {
+            return cborMapper.readValue((byte[]) message.getPayload(), targetClass);
+        } catch (IOException e) {
+            throw new MessageConversionException(message, "Could not read CBOR payload: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        try {
+            return cborMapper.writeValueAsBytes(payload);
+        } catch (IOException e) {
+            throw new MessageConversionException("Could not write CBOR payload: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.skillswap.backend.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound channel interceptor for the per-connection compact codec
+ * Clients opt in with the STOMP CONNECT header "x-skillswap-codec: cbor"; outbound JSON frames for
+ * those sessions are re-encoded as CBOR without the profile fields the client already has by id
+ */
+@Component
+public class CompactCodecInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompactCodecInterceptor.class);
+
+    public static final String CODEC_HEADER = "x-skillswap-codec";
+    public static final String CODEC_CBOR = "cbor";
+
+    // Profile fields repeated on every chat frame; compact clients resolve them from senderId/receiverId
+    private static final List<String> REDUNDANT_FIELDS = List.of("senderName", "senderAvatar", "receiverName");
+
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborMapper = new CBORMapper();
+
+    private final DistributionSummary jsonFrameBytes;
+    private final DistributionSummary cborFrameBytes;
+    private final Timer encodeTimer;
+
+    private final Map<String, Boolean> compactSessions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CompactCodecInterceptor(MeterRegistry meterRegistry, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+
+        this.jsonFrameBytes = frameBytesSummary(meterRegistry, "json");
+        this.cborFrameBytes = frameBytesSummary(meterRegistry, "cbor");
+        this.encodeTimer = Timer.builder("skillswap.websocket.codec.encode")
+                .description("Time spent re-encoding outbound JSON frames for compact sessions")
+                .tag("codec", CODEC_CBOR)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String sessionId = accessor.getSessionId();
+        if (sessionId == null) {
+            return message;
+        }
+
+        // JSON payload serialized once by the template or the cluster relay
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] json)
+                || !isJson(accessor.getContentType())) {
+            return message;
+        }
+
+        jsonFrameBytes.record(json.length);
+        if (!compactSessions.containsKey(sessionId)) {
+            return message;
+        }
+
+        try {
+            long start = System.nanoTime();
+            byte[] compact = encodeCompact(json);
+            encodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            cborFrameBytes.record(compact.length);
+
+            SimpMessageHeaderAccessor compactAccessor = SimpMessageHeaderAccessor.wrap(message);
+            compactAccessor.setHeader(MessageHeaders.CONTENT_TYPE, CborMessageConverter.CBOR_FRAME);
+            return MessageBuilder.createMessage(compact, compactAccessor.getMessageHeaders());
+        } catch (IOException e) {
+            logger.debug("Sending JSON frame to compact session {}: payload could not be re-encoded", sessionId);
+            return message;
+        }
+    }
+
+    /**
+     * Inbound interceptor that records the codec requested in the STOMP CONNECT frame
+     */
+    public ChannelInterceptor negotiationInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+                if (StompCommand.CONNECT.equals(accessor.getCommand()) && accessor.getSessionId() != null
+                        && CODEC_CBOR.equalsIgnoreCase(accessor.getFirstNativeHeader(CODEC_HEADER))) {
+                    compactSessions.put(accessor.getSessionId(), Boolean.TRUE);
+                }
+                return message;
+            }
+        };
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        compactSessions.remove(event.getSessionId());
+    }
+
+    /**
+     * Parse an outbound payload regardless of the codec it was encoded with
+     */
+    public JsonNode readTree(Message<?> message) throws IOException {
+        byte[] payload = (byte[]) message.getPayload();
+        MimeType contentType = SimpMessageHeaderAccessor.wrap(message).getContentType();
+        if (CborMessageConverter.isCbor(contentType)) {
+            return cborMapper.readTree(payload);
+        }
+        return objectMapper.readTree(payload);
+    }
+
+    public int getCompactSessionCount() {
+        return compactSessions.size();
+    }
+
+    /**
+     * Transcode a JSON frame to CBOR token by token, skipping the redundant top-level fields;
+     * no intermediate tree, so the cost per compact session stays close to a single JSON pass
+     */
+    byte[] encodeCompact(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = objectMapper.getFactory().createParser(json);
+             JsonGenerator generator = cborMapper.getFactory().createGenerator(out)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new IOException("Empty payload");
+            }
+            if (token != JsonToken.START_OBJECT) {
+                generator.copyCurrentStructure(parser);
+            } else {
+                generator.writeStartObject();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if (REDUNDANT_FIELDS.contains(field)) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    generator.writeFieldName(field);
+                    generator.copyCurrentStructure(parser);
+                }
+                generator.writeEndObject();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private boolean isJson(MimeType contentType) {
+        return contentType == null || contentType.isCompatibleWith(MimeTypeUtils.APPLICATION_JSON);
+    }
+
+    private DistributionSummary frameBytesSummary(MeterRegistry meterRegistry, String codec) {
+        return DistributionSummary.builder("skillswap.websocket.codec.frame.bytes")
+                .description("Outbound frame payload size per codec")
+                .baseUnit("bytes")
+                .tag("codec", codec)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
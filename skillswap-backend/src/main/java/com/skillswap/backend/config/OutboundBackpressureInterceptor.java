@@ -0,0 +1,285 @@
+package com.skillswap.backend.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbound channel interceptor that bounds the frames queued per WebSocket session
+ * Escalates as the session falls behind: drop typing/presence, coalesce, then disconnect
+ */
+@Component
+public class OutboundBackpressureInterceptor implements ExecutorChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundBackpressureInterceptor.class);
+
+    private static final String SUPERSEDED_HEADER = "skillswapCoalesceKey";
+
+    // Frames that can be lost without consequence (the next one replaces them)
+    private static final List<String> EPHEMERAL_DESTINATIONS = List.of(
+            "typing", "presence", "user.status", "video-quality-report");
+
+    // Frames where only the latest value per subject matters
+    private static final List<String> COALESCIBLE_DESTINATIONS = List.of(
+            "read-receipts", "video-connection-status", "video-media-control");
+
+    /**
+     * How far the interceptor may escalate when a session falls behind
+     */
+    public enum OverflowPolicy {
+        DROP_EPHEMERAL, COALESCE, DISCONNECT
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final CompactCodecInterceptor compactCodecInterceptor;
+
+    private final DistributionSummary queueDepthMessages;
+    private final DistributionSummary queueDepthBytes;
+    private final Counter droppedEphemeral;
+    private final Counter coalesced;
+    private final Counter droppedOverflow;
+    private final Counter disconnected;
+
+    private final Map<String, SessionQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${skillswap.websocket.outbound.max-queued-messages:1000}")
+    private int maxQueuedMessages;
+
+    @Value("${skillswap.websocket.outbound.max-queued-bytes:1048576}")
+    private long maxQueuedBytes;
+
+    @Value("${skillswap.websocket.outbound.overflow-policy:DISCONNECT}")
+    private OverflowPolicy overflowPolicy;
+
+    @Autowired
+    public OutboundBackpressureInterceptor(MeterRegistry meterRegistry, CompactCodecInterceptor compactCodecInterceptor) {
+        this.meterRegistry = meterRegistry;
+        this.compactCodecInterceptor = compactCodecInterceptor;
+
+        this.queueDepthMessages = DistributionSummary.builder("skillswap.websocket.outbound.queue.depth")
+                .description("Frames queued for a WebSocket session when a new frame is enqueued")
+                .baseUnit("messages")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        this.queueDepthBytes = DistributionSummary.builder("skillswap.websocket.outbound.queue.bytes")
+                .description("Bytes queued for a WebSocket session when a new frame is enqueued")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        this.droppedEphemeral = overflowCounter("drop_ephemeral");
+        this.coalesced = overflowCounter("coalesce");
+        this.droppedOverflow = overflowCounter("drop_overflow");
+        this.disconnected = overflowCounter("disconnect");
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String sessionId = accessor.getSessionId();
+        if (sessionId == null || accessor.getMessageType() != SimpMessageType.MESSAGE) {
+            return message;
+        }
+
+        SessionQueue queue = queues.computeIfAbsent(sessionId, id -> new SessionQueue());
+        long size = payloadSize(message);
+        long depth = queue.messages.get();
+        long bytes = queue.bytes.get();
+        double pressure = Math.max((double) depth / maxQueuedMessages, (double) bytes / maxQueuedBytes);
+        String destination = accessor.getDestination() != null ? accessor.getDestination() : "";
+
+        // 1. Half-full queue: typing/presence frames are dropped
+        if (pressure >= 0.5 && matches(destination, EPHEMERAL_DESTINATIONS)) {
+            droppedEphemeral.increment();
+            return null;
+        }
+
+        // 2. From 75%: "latest value wins" frames supersede the pending ones
+        String coalesceKey = null;
+        if (pressure >= 0.75 && overflowPolicy.compareTo(OverflowPolicy.COALESCE) >= 0
+                && matches(destination, COALESCIBLE_DESTINATIONS)) {
+            coalesceKey = destination + ":" + subjectOf(message);
+        }
+
+        // 3. Full queue: disconnect the slow client or drop the frame
+        if (depth + 1 > maxQueuedMessages || bytes + size > maxQueuedBytes) {
+            if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                disconnect(sessionId, depth, bytes);
+            } else {
+                droppedOverflow.increment();
+            }
+            return null;
+        }
+
+        queue.messages.incrementAndGet();
+        queue.bytes.addAndGet(size);
+        queueDepthMessages.record(depth + 1);
+        queueDepthBytes.record(bytes + size);
+
+        if (coalesceKey != null) {
+            long sequence = queue.sequence.incrementAndGet();
+            queue.latestByKey.put(coalesceKey, sequence);
+            accessor = SimpMessageHeaderAccessor.wrap(message);
+            accessor.setHeader(SUPERSEDED_HEADER, coalesceKey + "#" + sequence);
+            return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+        }
+        return message;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (!sent) {
+            release(message);
+        }
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        Object marker = message.getHeaders().get(SUPERSEDED_HEADER);
+        if (marker != null) {
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+            SessionQueue queue = sessionId != null ? queues.get(sessionId) : null;
+            if (queue != null) {
+                String value = marker.toString();
+                int separator = value.lastIndexOf('#');
+                String key = value.substring(0, separator);
+                long sequence = Long.parseLong(value.substring(separator + 1));
+                Long latest = queue.latestByKey.get(key);
+                if (latest != null && latest != sequence) {
+                    // A newer frame for the same subject is already queued
+                    coalesced.increment();
+                    release(message);
+                    return null;
+                }
+                queue.latestByKey.remove(key, sequence);
+            }
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        release(message);
+    }
+
+    /**
+     * Decorator that keeps a handle on each WebSocket session so slow consumers can be closed
+     */
+    public WebSocketHandlerDecoratorFactory sessionTrackingDecoratorFactory() {
+        return new WebSocketHandlerDecoratorFactory() {
+            @Override
+            public WebSocketHandler decorate(WebSocketHandler handler) {
+                return new WebSocketHandlerDecorator(handler) {
+                    @Override
+                    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                        sessions.put(session.getId(), session);
+                        super.afterConnectionEstablished(session);
+                    }
+
+                    @Override
+                    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                        sessions.remove(session.getId());
+                        queues.remove(session.getId());
+                        super.afterConnectionClosed(session, closeStatus);
+                    }
+                };
+            }
+        };
+    }
+
+    private void release(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) {
+            return;
+        }
+        SessionQueue queue = queues.get(sessionId);
+        if (queue != null && SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+            queue.messages.decrementAndGet();
+            queue.bytes.addAndGet(-payloadSize(message));
+        }
+    }
+
+    private void disconnect(String sessionId, long depth, long bytes) {
+        WebSocketSession session = sessions.get(sessionId);
+        if (session == null || !session.isOpen()) {
+            return;
+        }
+        logger.warn("Closing slow WebSocket session {} ({} frames / {} bytes queued)", sessionId, depth, bytes);
+        disconnected.increment();
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            logger.debug("Error closing slow WebSocket session {}", sessionId, e);
+        }
+    }
+
+    private String subjectOf(Message<?> message) {
+        try {
+            if (message.getPayload() instanceof byte[]) {
+                // Frames may already be CBOR-encoded for compact sessions
+                JsonNode json = compactCodecInterceptor.readTree(message);
+                for (String field : List.of("sessionId", "receiverId", "userId", "senderId")) {
+                    if (json.hasNonNull(field)) {
+                        return json.get(field).asText();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Outbound payload is not JSON/CBOR, coalescing by destination only");
+        }
+        return "";
+    }
+
+    private boolean matches(String destination, List<String> fragments) {
+        for (String fragment : fragments) {
+            if (destination.contains(fragment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long payloadSize(Message<?> message) {
+        return message.getPayload() instanceof byte[] payload ? payload.length : 0;
+    }
+
+    private Counter overflowCounter(String action) {
+        return Counter.builder("skillswap.websocket.outbound.overflow")
+                .description("Outbound frames affected by slow-consumer protection")
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+
+    private static class SessionQueue {
+        private final AtomicLong messages = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong sequence = new AtomicLong();
+        private final Map<String, Long> latestByKey = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,60 @@
+package com.skillswap.backend.config;
+
+import com.skillswap.backend.service.PresenceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+
+/**
+ * Inbound channel interceptor that feeds the presence service
+ * Every inbound frame (including STOMP heartbeats) refreshes the session deadline
+ */
+@Component
+public class PresenceChannelInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceChannelInterceptor.class);
+
+    @Autowired
+    @Lazy
+    private PresenceService presenceService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId != null) {
+            presenceService.heartbeat(sessionId);
+        }
+        return message;
+    }
+
+    @EventListener
+    public void onSessionConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (user == null || sessionId == null) {
+            return;
+        }
+
+        try {
+            presenceService.sessionConnected(Long.valueOf(user.getName()), sessionId);
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring presence for non-numeric principal: {}", user.getName());
+        }
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        presenceService.sessionDisconnected(event.getSessionId());
+    }
+}
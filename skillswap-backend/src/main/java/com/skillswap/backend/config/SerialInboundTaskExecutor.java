@@ -0,0 +1,156 @@
+package com.skillswap.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Inbound channel executor that runs each frame on a virtual thread, serialized per sender
+ * Frames from the same user (or session when anonymous) are chained so handlers see them in order,
+ * while blocking JPA calls for one user no longer hold a slot of the shared inbound pool.
+ * On runtimes without virtual threads (Java 17) it falls back to a fixed platform-thread pool.
+ * Frames accepted but not yet finished are bounded: past the limit a frame is rejected on the caller thread
+ * before it joins any chain, so an accepted frame is never dropped mid-stream and never runs inline.
+ */
+public class SerialInboundTaskExecutor extends ThreadPoolTaskExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SerialInboundTaskExecutor.class);
+
+    private final ExecutorService workers;
+
+    private final int maxPendingFrames;
+
+    private final AtomicInteger pendingFrames = new AtomicInteger();
+
+    // Tail of the pending chain per sender; removed once the sender goes idle
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    public SerialInboundTaskExecutor(int fallbackMaxThreads, int maxPendingFrames) {
+        this.workers = createWorkers(fallbackMaxThreads);
+        this.maxPendingFrames = maxPendingFrames;
+        setThreadNamePrefix("clientInboundChannel-");
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (pendingFrames.incrementAndGet() > maxPendingFrames) {
+            pendingFrames.decrementAndGet();
+            throw new RejectedExecutionException("Inbound STOMP frame rejected: " + maxPendingFrames + " frames pending");
+        }
+
+        String key = senderKey(task);
+        if (key == null) {
+            dispatch(() -> runGuarded(task), null, null);
+            return;
+        }
+
+        // Swap in this frame as the sender's tail; the previous tail (if any) submits it when done.
+        // Nothing is submitted inside the map update.
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous = tails.put(key, done);
+        Runnable step = () -> runGuarded(task);
+
+        if (previous == null) {
+            dispatch(step, key, done);
+        } else {
+            previous.whenComplete((result, ex) -> dispatch(step, key, done));
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        workers.shutdown();
+        super.shutdown();
+    }
+
+    public int getActiveSenderCount() {
+        return tails.size();
+    }
+
+    private void dispatch(Runnable step, String key, CompletableFuture<Void> done) {
+        Runnable tracked = () -> {
+            try {
+                step.run();
+            } finally {
+                finish(key, done);
+            }
+        };
+        try {
+            workers.execute(tracked);
+        } catch (RejectedExecutionException ex) {
+            // Only after shutdown: release the frame so the sender's chain does not hang
+            finish(key, done);
+            logger.debug("Inbound STOMP frame discarded, executor shut down");
+        }
+    }
+
+    private void finish(String key, CompletableFuture<Void> done) {
+        pendingFrames.decrementAndGet();
+        if (done != null) {
+            tails.remove(key, done);
+            done.complete(null);
+        }
+    }
+
+    private void runGuarded(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable ex) {
+            // Keep the chain alive: a failing frame must not stall the sender's next frames
+            logger.error("Error handling inbound STOMP frame", ex);
+        }
+    }
+
+    private String senderKey(Runnable task) {
+        if (!(task instanceof MessageHandlingRunnable runnable)) {
+            return null;
+        }
+        Message<?> message = runnable.getMessage();
+        Principal user = SimpMessageHeaderAccessor.getUser(message.getHeaders());
+        if (user != null) {
+            return "user:" + user.getName();
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId != null ? "session:" + sessionId : null;
+    }
+
+    private ExecutorService createWorkers(int fallbackMaxThreads) {
+        try {
+            // Java 21+: resolved reflectively so the code still compiles and runs on Java 17
+            ExecutorService virtual = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            logger.info("Inbound STOMP frames dispatched on virtual threads");
+            return virtual;
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Virtual threads not available on Java {}, using up to {} platform threads for inbound frames",
+                    Runtime.version().feature(), fallbackMaxThreads);
+            AtomicInteger counter = new AtomicInteger();
+            // Queue bounded by maxPendingFrames; extra frames never run on the caller thread
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(fallbackMaxThreads, fallbackMaxThreads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "clientInboundChannel-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+}
@@ -1,36 +1,120 @@
 package com.skillswap.backend.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private PresenceChannelInterceptor presenceChannelInterceptor;
+
+    @Autowired
+    private OutboundBackpressureInterceptor outboundBackpressureInterceptor;
+
+    @Autowired
+    private CompactCodecInterceptor compactCodecInterceptor;
+
+    @Value("${skillswap.presence.heartbeat-interval-ms:15000}")
+    private long heartbeatIntervalMillis;
+
+    @Value("${skillswap.websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimitMillis;
+
+    @Value("${skillswap.websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${skillswap.websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${skillswap.websocket.inbound.virtual-threads:false}")
+    private boolean inboundVirtualThreads;
+
+    @Value("${skillswap.websocket.inbound.fallback-max-threads:200}")
+    private int inboundFallbackMaxThreads;
+
+    @Value("${skillswap.websocket.inbound.max-pending-frames:10000}")
+    private int inboundMaxPendingFrames;
+
+    private TaskScheduler messageBrokerTaskScheduler;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Configurar broker simple en memoria para temas
-        config.enableSimpleBroker("/topic", "/queue");
-        
+        // Con heartbeats habilitados para detectar clientes desconectados (presencia)
+        config.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[]{heartbeatIntervalMillis, heartbeatIntervalMillis})
+                .setTaskScheduler(messageBrokerTaskScheduler);
+
         // Prefijo para destinos de aplicación
         config.setApplicationDestinationPrefixes("/app");
-        
+
         // Prefijo para mensajes dirigidos a usuarios específicos
         config.setUserDestinationPrefix("/user");
     }
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Cada frame entrante (incluidos heartbeats) refresca la presencia de la sesión
+        // El CONNECT indica además si el cliente quiere el codec compacto
+        registration.interceptors(presenceChannelInterceptor, compactCodecInterceptor.negotiationInterceptor());
+
+        // Opcional: un hilo virtual por frame, en serie por remitente para conservar el orden
+        if (inboundVirtualThreads) {
+            registration.taskExecutor(new SerialInboundTaskExecutor(inboundFallbackMaxThreads, inboundMaxPendingFrames));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Primero el codec compacto, para que el límite por sesión cuente los bytes reales
+        // Límite de frames/bytes pendientes por sesión para clientes lentos
+        registration.interceptors(compactCodecInterceptor, outboundBackpressureInterceptor);
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // Frames entrantes en CBOR de clientes con codec compacto; se mantienen los conversores por defecto
+        messageConverters.add(new CborMessageConverter());
+        return true;
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Límites del buffer de envío por sesión: si se superan, la sesión se cierra
+        registration.setSendTimeLimit(sendTimeLimitMillis)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                .addDecoratorFactory(outboundBackpressureInterceptor.sessionTrackingDecoratorFactory());
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // Endpoint para conexión WebSocket con fallback a SockJS
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*") // En producción, especificar dominios exactos
                 .withSockJS();
-        
+
         // Endpoint adicional sin SockJS para conexiones nativas
         registry.addEndpoint("/ws-native")
                 .setAllowedOriginPatterns("*");
     }
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy TaskScheduler messageBrokerTaskScheduler) {
+        this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+    }
 }
@@ -0,0 +1,105 @@
+package com.skillswap.backend.controller;
+
+import com.skillswap.backend.service.AttachmentService;
+import com.skillswap.backend.service.AttachmentStorage.StoredAttachment;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/chat/attachments")
+@PreAuthorize("hasRole('USER')")
+public class AttachmentController {
+
+    @Autowired
+    private AttachmentService attachmentService;
+
+    /**
+     * Subir adjunto: el cuerpo de la petición es el fichero (sin multipart)
+     */
+    @PostMapping
+    public ResponseEntity<?> uploadAttachment(
+            @RequestParam String filename,
+            HttpServletRequest request) {
+        try {
+            StoredAttachment stored = attachmentService.upload(
+                    request.getInputStream(), filename, request.getContentLengthLong());
+
+            // La extensión viaja en la URL: el mismo contenido subido con otro nombre no cambia el tipo servido
+            String extension = attachmentService.extensionOf(filename);
+            return ResponseEntity.ok(Map.of(
+                    "id", stored.getId(),
+                    "url", "/api/chat/attachments/" + stored.getId() + "." + extension,
+                    "contentType", attachmentService.contentTypeFor(extension),
+                    "size", stored.getSize()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Descargar adjunto ({id}.{extensión}), con soporte de cabecera Range.
+     * Siempre como descarga y sin sniffing, para que el navegador no lo interprete como HTML
+     */
+    @GetMapping("/{file}")
+    public void downloadAttachment(
+            @PathVariable String file,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            HttpServletResponse response) throws IOException {
+        int dot = file.indexOf('.');
+        String id = dot >= 0 ? file.substring(0, dot) : file;
+        String extension = dot >= 0 ? attachmentService.extensionOf(file) : null;
+
+        StoredAttachment attachment;
+        long[] bounds;
+        try {
+            attachment = attachmentService.getAttachment(id);
+        } catch (RuntimeException e) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        try {
+            bounds = attachmentService.resolveRange(range, attachment.getSize());
+        } catch (RuntimeException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + attachment.getSize());
+            response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return;
+        }
+
+        long start = bounds != null ? bounds[0] : 0;
+        long length = bounds != null ? bounds[1] - bounds[0] + 1 : attachment.getSize();
+
+        response.setStatus(bounds != null ? HttpStatus.PARTIAL_CONTENT.value() : HttpStatus.OK.value());
+        response.setContentType(attachmentService.contentTypeFor(extension));
+        response.setContentLengthLong(length);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(extension != null ? id + "." + extension : id)
+                .build()
+                .toString());
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, "\"" + attachment.getId() + "\"");
+        // El contenido es inmutable: el id es su hash
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable");
+        if (bounds != null) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes " + bounds[0] + "-" + bounds[1] + "/" + attachment.getSize());
+        }
+
+        WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+        attachmentService.transferTo(id, start, length, target);
+        response.flushBuffer();
+    }
+}
@@ -2,8 +2,13 @@ package com.skillswap.backend.controller;
 
 import com.skillswap.backend.dto.ChatMessageDTO;
 import com.skillswap.backend.model.ChatMessage;
+import com.skillswap.backend.monitoring.ChatMetricsService;
 import com.skillswap.backend.service.ChatService;
+import com.skillswap.backend.service.ChatSyncService;
+import com.skillswap.backend.service.PresenceService;
+import com.skillswap.backend.service.SystemBroadcastService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -20,6 +25,18 @@ public class ChatController {
     @Autowired
     private ChatService chatService;
 
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private ChatSyncService chatSyncService;
+
+    @Autowired
+    private ChatMetricsService chatMetricsService;
+
+    @Autowired
+    private SystemBroadcastService systemBroadcastService;
+
     /**
      * Enviar mensaje
      */
@@ -109,6 +126,19 @@ public class ChatController {
         return ResponseEntity.ok(Map.of("unreadCount", unreadCount));
     }
 
+    /**
+     * Sincronización incremental: cambios posteriores a la última secuencia del cliente
+     */
+    @GetMapping("/sync")
+    public ResponseEntity<Map<String, Object>> sync(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "500") int limit,
+            Authentication authentication) {
+        
+        Long userId = getUserIdFromAuth(authentication);
+        return ResponseEntity.ok(chatSyncService.sync(userId, since, limit));
+    }
+
     /**
      * Buscar mensajes por contenido
      */
@@ -192,18 +222,57 @@ public class ChatController {
     }
 
     /**
-     * Obtener información de presencia de usuarios (online/offline)
+     * Difundir un mensaje del sistema a un segmento de usuarios (solo para administradores)
+     */
+    @PostMapping("/system/broadcast")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> createSystemBroadcast(
+            @RequestBody SystemBroadcastRequest request,
+            Authentication authentication) {
+        
+        Long adminId = getUserIdFromAuth(authentication);
+        SystemBroadcastService.BroadcastSegment segment = request.getSegment() != null
+                ? request.getSegment() : new SystemBroadcastService.BroadcastSegment();
+        return ResponseEntity.ok(systemBroadcastService.createBroadcast(request.getContent(), segment, adminId));
+    }
+
+    /**
+     * Progreso de una difusión del sistema
+     */
+    @GetMapping("/system/broadcast/{broadcastId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getSystemBroadcast(@PathVariable Long broadcastId) {
+        return ResponseEntity.ok(systemBroadcastService.getProgress(broadcastId));
+    }
+
+    /**
+     * Obtener información de presencia de un contacto (online/offline/away)
      */
     @GetMapping("/presence/{userId}")
-    public ResponseEntity<Map<String, Object>> getUserPresence(@PathVariable Long userId) {
-        // TODO: Implementar sistema de presencia real
-        // Por ahora devolver datos mock
-        Map<String, Object> presence = Map.of(
-                "userId", userId,
-                "status", "online", // online, offline, away
-                "lastSeen", System.currentTimeMillis()
-        );
-        return ResponseEntity.ok(presence);
+    public ResponseEntity<Map<String, Object>> getUserPresence(
+            @PathVariable Long userId,
+            Authentication authentication) {
+        
+        Long viewerId = getUserIdFromAuth(authentication);
+        if (!presenceService.isContact(viewerId, userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Solo puedes consultar la presencia de tus contactos"));
+        }
+        return ResponseEntity.ok(presenceService.getPresence(userId));
+    }
+
+    /**
+     * Obtener presencia de toda una lista de contactos en una sola llamada
+     * (los ids que no son contactos del usuario se omiten)
+     */
+    @PostMapping("/presence/batch")
+    public ResponseEntity<Map<Long, Map<String, Object>>> getUsersPresence(
+            @RequestBody Map<String, List<Long>> request,
+            Authentication authentication) {
+        
+        Long viewerId = getUserIdFromAuth(authentication);
+        List<Long> userIds = request.getOrDefault("userIds", List.of());
+        return ResponseEntity.ok(presenceService.getContactPresence(viewerId, userIds));
     }
 
     /**
@@ -212,18 +281,24 @@ public class ChatController {
     @GetMapping("/admin/metrics")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Map<String, Object>> getChatMetrics() {
-        // TODO: Implementar métricas reales
-        Map<String, Object> metrics = Map.of(
-                "totalMessages", 0,
-                "activeConversations", 0,
-                "averageResponseTime", 0,
-                "mostActiveUsers", List.of()
-        );
-        return ResponseEntity.ok(metrics);
+        // Estado en memoria alimentado por ChatService: sin consultas agregadas sobre chat_message
+        return ResponseEntity.ok(chatMetricsService.getMetrics());
     }
 
     private Long getUserIdFromAuth(Authentication authentication) {
         // Asumir que el principal contiene el ID del usuario
         return Long.valueOf(authentication.getName());
     }
+
+    // Clase para request de difusión
+    public static class SystemBroadcastRequest {
+        private String content;
+        private SystemBroadcastService.BroadcastSegment segment;
+
+        public String getContent() { return content; }
+        public void setContent(String content) { this.content = content; }
+
+        public SystemBroadcastService.BroadcastSegment getSegment() { return segment; }
+        public void setSegment(SystemBroadcastService.BroadcastSegment segment) { this.segment = segment; }
+    }
 }
@@ -2,6 +2,9 @@ package com.skillswap.backend.controller;
 
 import com.skillswap.backend.model.ChatMessage;
 import com.skillswap.backend.service.ChatService;
+import com.skillswap.backend.service.ClusterMessageRelay;
+import com.skillswap.backend.service.PresenceService;
+import com.skillswap.backend.service.ReadReceiptAggregator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,8 +12,8 @@ import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.annotation.SubscribeMapping;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
@@ -25,7 +28,13 @@ public class ChatWebSocketController {
     private ChatService chatService;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ClusterMessageRelay messageRelay;
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private ReadReceiptAggregator readReceiptAggregator;
 
     /**
      * Manejar mensajes enviados por WebSocket
@@ -89,10 +98,13 @@ public class ChatWebSocketController {
         try {
             Long receiverId = getUserIdFromPrincipal(principal);
             Long senderId = Long.valueOf(readData.get("senderId").toString());
+            Long upToMessageId = readData.get("messageId") != null
+                    ? Long.valueOf(readData.get("messageId").toString()) : null;
             
-            chatService.markMessagesAsRead(senderId, receiverId);
+            // Se acumula y se aplica en lote junto con las demás lecturas del mismo par
+            readReceiptAggregator.markAsRead(senderId, receiverId, upToMessageId);
             
-            logger.info("Messages marked as read by user {} from user {}", receiverId, senderId);
+            logger.debug("Messages marked as read by user {} from user {}", receiverId, senderId);
             
         } catch (Exception e) {
             logger.error("Error marking messages as read", e);
@@ -100,24 +112,19 @@ public class ChatWebSocketController {
     }
 
     /**
-     * Manejar presencia de usuario (online/offline)
+     * Manejar presencia de usuario (online/away)
+     * El cambio se publica solo a usuarios relacionados a través del servicio de presencia
      */
     @MessageMapping("/user.status")
-    @SendTo("/topic/user.status")
-    public Map<String, Object> updateUserStatus(@Payload Map<String, Object> statusData, Principal principal) {
+    public void updateUserStatus(@Payload Map<String, Object> statusData, Principal principal) {
         try {
             Long userId = getUserIdFromPrincipal(principal);
-            String status = statusData.get("status").toString(); // "online", "offline", "away"
+            String status = statusData.get("status").toString(); // "online", "away"
             
-            return Map.of(
-                    "userId", userId,
-                    "status", status,
-                    "timestamp", System.currentTimeMillis()
-            );
+            presenceService.updateStatus(userId, PresenceService.PresenceStatus.valueOf(status.toUpperCase()));
             
         } catch (Exception e) {
             logger.error("Error updating user status", e);
-            return Map.of("error", "Error updating user status");
         }
     }
 
@@ -144,24 +151,20 @@ public class ChatWebSocketController {
 
     /**
      * Manejar conexión de usuario
+     * La sesión ya se registra al recibir el CONNECT; aquí se vuelve a "online" si estaba ausente
      */
     @MessageMapping("/user.connect")
-    @SendTo("/topic/user.connect")
-    public Map<String, Object> userConnect(Principal principal) {
+    public void userConnect(Principal principal, SimpMessageHeaderAccessor headerAccessor) {
         try {
             Long userId = getUserIdFromPrincipal(principal);
             
-            logger.info("User {} connected to WebSocket", userId);
+            presenceService.sessionConnected(userId, headerAccessor.getSessionId());
+            presenceService.updateStatus(userId, PresenceService.PresenceStatus.ONLINE);
             
-            return Map.of(
-                    "userId", userId,
-                    "status", "connected",
-                    "timestamp", System.currentTimeMillis()
-            );
+            logger.info("User {} connected to WebSocket", userId);
             
         } catch (Exception e) {
             logger.error("Error handling user connection", e);
-            return Map.of("error", "Error handling user connection");
         }
     }
 
@@ -169,22 +172,16 @@ public class ChatWebSocketController {
      * Manejar desconexión de usuario
      */
     @MessageMapping("/user.disconnect")
-    @SendTo("/topic/user.disconnect")
-    public Map<String, Object> userDisconnect(Principal principal) {
+    public void userDisconnect(Principal principal, SimpMessageHeaderAccessor headerAccessor) {
         try {
             Long userId = getUserIdFromPrincipal(principal);
             
-            logger.info("User {} disconnected from WebSocket", userId);
+            presenceService.sessionDisconnected(headerAccessor.getSessionId());
             
-            return Map.of(
-                    "userId", userId,
-                    "status", "disconnected",
-                    "timestamp", System.currentTimeMillis()
-            );
+            logger.info("User {} disconnected from WebSocket", userId);
             
         } catch (Exception e) {
             logger.error("Error handling user disconnection", e);
-            return Map.of("error", "Error handling user disconnection");
         }
     }
 
@@ -210,7 +207,7 @@ public class ChatWebSocketController {
             );
             
             // Notificar al receptor específico
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                     receiverId.toString(),
                     "/queue/video-call",
                     callNotification
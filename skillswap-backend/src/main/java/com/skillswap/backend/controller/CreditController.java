@@ -1,6 +1,12 @@
 package com.skillswap.backend.controller;
 
 import com.skillswap.backend.model.CreditTransaction;
+import com.skillswap.backend.service.CreditBulkGrantService;
+import com.skillswap.backend.service.CreditEventService;
+import com.skillswap.backend.service.CreditIdempotencyService;
+import com.skillswap.backend.service.CreditLotService;
+import com.skillswap.backend.service.CreditReconciliationService;
+import com.skillswap.backend.service.CreditRollupService;
 import com.skillswap.backend.service.CreditService;
 import com.skillswap.backend.service.UserService;
 import com.skillswap.backend.security.JwtTokenProvider;
@@ -9,10 +15,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -20,9 +30,31 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class CreditController {
 
+    // Los reintentos de compras y transferencias llevan la misma clave
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     @Autowired
     private CreditService creditService;
 
+    @Autowired
+    private CreditIdempotencyService creditIdempotencyService;
+
+    @Autowired
+    private CreditReconciliationService creditReconciliationService;
+
+    @Autowired
+    private CreditRollupService creditRollupService;
+
+    @Autowired
+    private CreditEventService creditEventService;
+
+    @Autowired
+    private CreditLotService creditLotService;
+
+    @Autowired
+    private CreditBulkGrantService creditBulkGrantService;
+
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
@@ -35,7 +67,12 @@ public class CreditController {
             com.skillswap.backend.model.User user = getUserById(userId);
             
             BigDecimal balance = creditService.getUserBalance(user);
-            return ResponseEntity.ok(Map.of("balance", balance));
+            BigDecimal available = creditService.getAvailableBalance(user);
+            return ResponseEntity.ok(Map.of(
+                "balance", balance,
+                "availableBalance", available,
+                "reservedCredits", balance.subtract(available)
+            ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -78,19 +115,114 @@ public class CreditController {
         }
     }
 
+    // Balance del usuario en un momento dado (reproducido desde el registro de eventos)
+    @GetMapping("/balance/at")
+    public ResponseEntity<?> getBalanceAt(
+            @RequestHeader("Authorization") String token,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        try {
+            Long userId = jwtTokenProvider.getUserIdFromToken(token.substring(7));
+            com.skillswap.backend.model.User user = getUserById(userId);
+
+            return ResponseEntity.ok(Map.of("balance", creditEventService.getBalanceAt(user, at), "at", at));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Movimientos de un periodo con el balance tras cada uno
+    @GetMapping("/events")
+    public ResponseEntity<?> getEventHistory(
+            @RequestHeader("Authorization") String token,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            Long userId = jwtTokenProvider.getUserIdFromToken(token.substring(7));
+            com.skillswap.backend.model.User user = getUserById(userId);
+
+            return ResponseEntity.ok(creditEventService.getHistory(user, from, to));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Estadísticas mensuales del usuario (agregados precalculados)
+    @GetMapping("/stats/monthly")
+    public ResponseEntity<?> getMonthlyStatistics(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(defaultValue = "12") int months) {
+        try {
+            Long userId = jwtTokenProvider.getUserIdFromToken(token.substring(7));
+            com.skillswap.backend.model.User user = getUserById(userId);
+
+            return ResponseEntity.ok(creditRollupService.getMonthlyStatistics(user, Math.min(months, 120)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Balance diario del usuario (para gráficos)
+    @GetMapping("/stats/daily")
+    public ResponseEntity<?> getDailyBalanceHistory(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(defaultValue = "30") int days) {
+        try {
+            Long userId = jwtTokenProvider.getUserIdFromToken(token.substring(7));
+            com.skillswap.backend.model.User user = getUserById(userId);
+
+            return ResponseEntity.ok(creditRollupService.getDailyBalanceHistory(user, Math.min(days, 366)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Créditos que vencen en los próximos días, por lote mensual
+    @GetMapping("/expiring")
+    public ResponseEntity<?> getExpiringCredits(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(defaultValue = "30") int days) {
+        try {
+            Long userId = jwtTokenProvider.getUserIdFromToken(token.substring(7));
+            com.skillswap.backend.model.User user = getUserById(userId);
+
+            return ResponseEntity.ok(creditLotService.getExpiringCredits(user, Math.min(Math.max(days, 0), 366)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Top usuarios por créditos ganados enseñando
+    @GetMapping("/leaderboard")
+    public ResponseEntity<?> getTopEarners(@RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(creditRollupService.getTopEarners(Math.min(limit, 500)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     // Transferir créditos a otro usuario
     @PostMapping("/transfer")
     public ResponseEntity<?> transferCredits(
             @RequestHeader("Authorization") String token,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @RequestBody TransferCreditsRequest request) {
         try {
             Long fromUserId = jwtTokenProvider.getUserIdFromToken(token.substring(7));
             com.skillswap.backend.model.User fromUser = getUserById(fromUserId);
             com.skillswap.backend.model.User toUser = getUserById(request.getToUserId());
 
-            creditService.transferCredits(fromUser, toUser, request.getAmount(), request.getDescription());
+            boolean replayed = false;
+            if (idempotencyKey == null) {
+                creditService.transferCredits(fromUser, toUser, request.getAmount(), request.getDescription());
+            } else {
+                replayed = creditIdempotencyService.execute(CreditIdempotencyService.TRANSFER, fromUserId, idempotencyKey,
+                    fingerprint(request.getToUserId(), request.getAmount(), request.getDescription()),
+                    () -> creditService.transferCredits(fromUser, toUser, request.getAmount(), request.getDescription()))
+                    .replayed();
+            }
             
-            return ResponseEntity.ok(Map.of(
+            return okResponse(replayed).body(Map.of(
                 "message", "Transferencia completada exitosamente",
                 "amount", request.getAmount(),
                 "recipient", toUser.getFirstName() + " " + toUser.getLastName()
@@ -104,6 +236,7 @@ public class CreditController {
     @PostMapping("/purchase")
     public ResponseEntity<?> purchaseCredits(
             @RequestHeader("Authorization") String token,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @RequestBody PurchaseCreditsRequest request) {
         try {
             Long userId = jwtTokenProvider.getUserIdFromToken(token.substring(7));
@@ -114,6 +247,19 @@ public class CreditController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Pago no válido"));
             }
 
+            if (idempotencyKey != null) {
+                // Un reintento devuelve la compra original tal cual, con el balance de entonces
+                CreditIdempotencyService.IdempotentResult result = creditIdempotencyService.execute(
+                    CreditIdempotencyService.PURCHASE, userId, idempotencyKey,
+                    fingerprint(request.getAmount(), request.getPaymentReference()),
+                    () -> creditService.purchaseCredits(user, request.getAmount(), request.getPaymentReference()));
+                return okResponse(result.replayed()).body(Map.of(
+                    "message", "Créditos comprados exitosamente",
+                    "transaction", result.transaction(),
+                    "newBalance", result.transaction().getBalanceAfter()
+                ));
+            }
+
             CreditTransaction transaction = creditService.purchaseCredits(
                 user, request.getAmount(), request.getPaymentReference());
             
@@ -142,6 +288,7 @@ public class CreditController {
             return ResponseEntity.ok(Map.of(
                 "hasSufficientCredits", hasSufficientCredits,
                 "currentBalance", currentBalance,
+                "availableBalance", creditService.getAvailableBalance(user),
                 "requiredAmount", amount
             ));
         } catch (Exception e) {
@@ -149,6 +296,101 @@ public class CreditController {
         }
     }
 
+    // Conciliar balances materializados contra el ledger (solo administradores)
+    @PostMapping("/admin/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> reconcileBalances() {
+        try {
+            return ResponseEntity.ok(creditReconciliationService.reconcile());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Recalcular los agregados de créditos desde el ledger (solo administradores)
+    @PostMapping("/admin/rollups/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> backfillRollups() {
+        try {
+            return ResponseEntity.ok(creditRollupService.startBackfill());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/admin/rollups/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getRollupBackfillStatus() {
+        return ResponseEntity.ok(creditRollupService.getBackfillStatus());
+    }
+
+    // Construir los lotes de créditos desde el ledger (solo administradores)
+    @PostMapping("/admin/lots/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> backfillLots() {
+        try {
+            return ResponseEntity.ok(creditLotService.startBackfill());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/admin/lots/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getLotBackfillStatus() {
+        return ResponseEntity.ok(creditLotService.getBackfillStatus());
+    }
+
+    // Abonar créditos a una cohorte de usuarios (solo administradores); con dryRun solo se calcula el coste
+    @PostMapping("/admin/grants")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> createGrantCampaign(
+            @RequestHeader("Authorization") String token,
+            @RequestBody BulkGrantRequest request) {
+        try {
+            Long adminId = jwtTokenProvider.getUserIdFromToken(token.substring(7));
+            CreditBulkGrantService.Cohort cohort = new CreditBulkGrantService.Cohort(request.getUserIds(),
+                    request.getUserType(), request.getCountry(), request.getRegisteredAfter(),
+                    request.getRegisteredBefore(), request.getActiveSince(), request.isAllUsers());
+            return ResponseEntity.ok(creditBulkGrantService.createCampaign(request.getName(), request.getType(),
+                    request.getAmount(), request.getDescription(), cohort, request.isDryRun(), adminId));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/admin/grants/{campaignId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getGrantCampaign(@PathVariable Long campaignId) {
+        try {
+            return ResponseEntity.ok(creditBulkGrantService.getCampaignStatus(campaignId));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Verificar el registro de eventos contra instantáneas y balances (solo administradores)
+    @PostMapping("/admin/events/verify")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> verifyEventLog() {
+        try {
+            return ResponseEntity.ok(creditEventService.verify());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Compactar el registro de eventos (solo administradores)
+    @PostMapping("/admin/events/compact")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> compactEventLog() {
+        try {
+            return ResponseEntity.ok(creditEventService.compact());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @Autowired
     private UserService userService;
 
@@ -158,6 +400,22 @@ public class CreditController {
             .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
     }
 
+    // Respuesta 200 marcada si repite el resultado de una petición anterior
+    private ResponseEntity.BodyBuilder okResponse(boolean replayed) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        return replayed ? builder.header(IDEMPOTENT_REPLAYED_HEADER, "true") : builder;
+    }
+
+    // Datos de la petición ligados a la clave de idempotencia (10 y 10.00 son el mismo monto)
+    private String fingerprint(Object... parts) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (Object part : parts) {
+            Object normalized = part instanceof BigDecimal amount ? amount.stripTrailingZeros().toPlainString() : part;
+            fingerprint.append(normalized).append('|');
+        }
+        return fingerprint.toString();
+    }
+
     // Método auxiliar para validar pagos (se integraría con el proveedor de pagos)
     private boolean isValidPayment(String paymentReference) {
         // Esta sería la implementación real con el proveedor de pagos
@@ -233,4 +491,121 @@ public class CreditController {
             this.paymentMethod = paymentMethod;
         }
     }
+
+    public static class BulkGrantRequest {
+        private String name;
+        private CreditTransaction.TransactionType type; // Por defecto ADMIN_ADJUSTMENT
+        private BigDecimal amount; // Importe por usuario
+        private String description;
+        private boolean dryRun;
+
+        // Cohorte: ids explícitos y/o filtros (AND); allUsers para todos los usuarios activos
+        private List<Long> userIds;
+        private com.skillswap.backend.model.User.UserType userType;
+        private String country;
+        private LocalDateTime registeredAfter;
+        private LocalDateTime registeredBefore;
+        private LocalDateTime activeSince;
+        private boolean allUsers;
+
+        // Constructors
+        public BulkGrantRequest() {}
+
+        // Getters y Setters
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public CreditTransaction.TransactionType getType() {
+            return type;
+        }
+
+        public void setType(CreditTransaction.TransactionType type) {
+            this.type = type;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(String description) {
+            this.description = description;
+        }
+
+        public boolean isDryRun() {
+            return dryRun;
+        }
+
+        public void setDryRun(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        public List<Long> getUserIds() {
+            return userIds;
+        }
+
+        public void setUserIds(List<Long> userIds) {
+            this.userIds = userIds;
+        }
+
+        public com.skillswap.backend.model.User.UserType getUserType() {
+            return userType;
+        }
+
+        public void setUserType(com.skillswap.backend.model.User.UserType userType) {
+            this.userType = userType;
+        }
+
+        public String getCountry() {
+            return country;
+        }
+
+        public void setCountry(String country) {
+            this.country = country;
+        }
+
+        public LocalDateTime getRegisteredAfter() {
+            return registeredAfter;
+        }
+
+        public void setRegisteredAfter(LocalDateTime registeredAfter) {
+            this.registeredAfter = registeredAfter;
+        }
+
+        public LocalDateTime getRegisteredBefore() {
+            return registeredBefore;
+        }
+
+        public void setRegisteredBefore(LocalDateTime registeredBefore) {
+            this.registeredBefore = registeredBefore;
+        }
+
+        public LocalDateTime getActiveSince() {
+            return activeSince;
+        }
+
+        public void setActiveSince(LocalDateTime activeSince) {
+            this.activeSince = activeSince;
+        }
+
+        public boolean isAllUsers() {
+            return allUsers;
+        }
+
+        public void setAllUsers(boolean allUsers) {
+            this.allUsers = allUsers;
+        }
+    }
 }
@@ -1,11 +1,11 @@
 package com.skillswap.backend.controller;
 
 import com.skillswap.backend.dto.VideoSessionDTO;
+import com.skillswap.backend.service.ClusterMessageRelay;
 import com.skillswap.backend.service.VideoSessionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
 
@@ -19,7 +19,7 @@ public class VideoSessionWebSocketController {
     private VideoSessionService videoSessionService;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ClusterMessageRelay messageRelay;
 
     // Manejo de ofertas WebRTC
     @MessageMapping("/video.offer")
@@ -30,7 +30,7 @@ public class VideoSessionWebSocketController {
         // Verificar que el usuario tiene acceso a la sesión
         if (sessionId != null && targetUser != null) {
             // Reenviar la oferta al usuario objetivo
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                 targetUser,
                 "/queue/video-offer",
                 offer
@@ -46,7 +46,7 @@ public class VideoSessionWebSocketController {
         
         if (sessionId != null && targetUser != null) {
             // Reenviar la respuesta al usuario objetivo
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                 targetUser,
                 "/queue/video-answer",
                 answer
@@ -62,7 +62,7 @@ public class VideoSessionWebSocketController {
         
         if (sessionId != null && targetUser != null) {
             // Reenviar el candidato ICE al usuario objetivo
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                 targetUser,
                 "/queue/video-ice-candidate",
                 candidate
@@ -110,7 +110,7 @@ public class VideoSessionWebSocketController {
         
         if (sessionId != null && targetUser != null) {
             // Notificar el estado de conexión al otro usuario
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                 targetUser,
                 "/queue/video-connection-status",
                 Map.of(
@@ -130,7 +130,7 @@ public class VideoSessionWebSocketController {
         Boolean isSharing = (Boolean) shareData.get("isSharing");
         
         if (sessionId != null && targetUser != null) {
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                 targetUser,
                 "/queue/video-screen-share",
                 Map.of(
@@ -151,7 +151,7 @@ public class VideoSessionWebSocketController {
         Boolean videoEnabled = (Boolean) mediaControl.get("videoEnabled");
         
         if (sessionId != null && targetUser != null) {
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                 targetUser,
                 "/queue/video-media-control",
                 Map.of(
@@ -173,7 +173,7 @@ public class VideoSessionWebSocketController {
         String errorCode = (String) error.get("code");
         
         if (sessionId != null && targetUser != null) {
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                 targetUser,
                 "/queue/video-error",
                 Map.of(
@@ -196,7 +196,7 @@ public class VideoSessionWebSocketController {
         if (sessionId != null && targetUser != null) {
             // Opcional: guardar reporte de calidad en la base de datos
             // También reenviar al otro usuario para información
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                 targetUser,
                 "/queue/video-quality-report",
                 qualityReport
@@ -211,7 +211,7 @@ public class VideoSessionWebSocketController {
         String targetUser = (String) whiteboardData.get("targetUser");
         
         if (sessionId != null && targetUser != null) {
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                 targetUser,
                 "/queue/video-whiteboard",
                 whiteboardData
@@ -227,7 +227,7 @@ public class VideoSessionWebSocketController {
         String message = (String) chatMessage.get("message");
         
         if (sessionId != null && targetUser != null && message != null) {
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                 targetUser,
                 "/queue/video-chat",
                 Map.of(
@@ -248,7 +248,7 @@ public class VideoSessionWebSocketController {
         Boolean isRecording = (Boolean) recordingData.get("isRecording");
         
         if (sessionId != null && targetUser != null) {
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                 targetUser,
                 "/queue/video-recording",
                 Map.of(
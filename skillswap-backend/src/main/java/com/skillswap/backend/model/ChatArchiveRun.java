@@ -0,0 +1,147 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Ejecución del archivado de mensajes de chat.
+ * Solo el nodo que la reclama escribe segmentos; fija la fecha de corte y guarda el último
+ * mensaje archivado para que una ejecución interrumpida se reanude desde ahí. Hay una ejecución
+ * por día: la clave única sobre run_date impide que dos nodos la creen a la vez.
+ */
+@Entity
+@Table(name = "chat_archive_run",
+       uniqueConstraints = @UniqueConstraint(name = "uk_chat_archive_run_date", columnNames = "run_date"))
+public class ChatArchiveRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_date", nullable = false)
+    private LocalDate runDate;
+
+    @Column(name = "cutoff", nullable = false)
+    private LocalDateTime cutoff; // Se archivan los mensajes enviados antes de esta fecha
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private RunStatus status = RunStatus.PENDING;
+
+    @Column(name = "last_message_id", nullable = false)
+    private Long lastMessageId = 0L;
+
+    @Column(name = "archived_count", nullable = false)
+    private Long archivedCount = 0L;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Constructores
+    public ChatArchiveRun() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public ChatArchiveRun(LocalDate runDate, LocalDateTime cutoff) {
+        this();
+        this.runDate = runDate;
+        this.cutoff = cutoff;
+    }
+
+    // Enums
+    public enum RunStatus {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getRunDate() {
+        return runDate;
+    }
+
+    public void setRunDate(LocalDate runDate) {
+        this.runDate = runDate;
+    }
+
+    public LocalDateTime getCutoff() {
+        return cutoff;
+    }
+
+    public void setCutoff(LocalDateTime cutoff) {
+        this.cutoff = cutoff;
+    }
+
+    public RunStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(RunStatus status) {
+        this.status = status;
+    }
+
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(Long lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public Long getArchivedCount() {
+        return archivedCount;
+    }
+
+    public void setArchivedCount(Long archivedCount) {
+        this.archivedCount = archivedCount;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
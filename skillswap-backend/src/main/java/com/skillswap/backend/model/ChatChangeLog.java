@@ -0,0 +1,133 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada del registro de cambios de chat por usuario.
+ * sequence es la secuencia de sincronización del usuario (ver UserChatSequence): crece de forma
+ * monótona por usuario y el cliente guarda la última recibida para pedir solo los cambios posteriores.
+ */
+@Entity
+@Table(name = "chat_change_log",
+       uniqueConstraints = @UniqueConstraint(name = "uk_chat_change_log_user_seq", columnNames = {"user_id", "sequence"}),
+       indexes = {
+           @Index(name = "idx_chat_change_log_message", columnList = "message_id"),
+           @Index(name = "idx_chat_change_log_created", columnList = "created_at")
+       })
+public class ChatChangeLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "sequence", nullable = false)
+    private Long sequence;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 30)
+    private ChangeType changeType;
+
+    @Column(name = "message_id")
+    private Long messageId;
+
+    @Column(name = "counterpart_id")
+    private Long counterpartId;
+
+    @Column(name = "up_to_message_id")
+    private Long upToMessageId; // Solo lecturas: null = toda la conversación
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Constructores
+    public ChatChangeLog() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public ChatChangeLog(Long userId, ChangeType changeType, Long messageId, Long counterpartId) {
+        this();
+        this.userId = userId;
+        this.changeType = changeType;
+        this.messageId = messageId;
+        this.counterpartId = counterpartId;
+    }
+
+    // Enums
+    public enum ChangeType {
+        MESSAGE_CREATED,
+        MESSAGE_EDITED,
+        MESSAGE_DELETED,
+        MESSAGES_READ,          // El usuario leyó los mensajes de counterpartId
+        MESSAGES_READ_BY_PEER   // counterpartId leyó los mensajes del usuario
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+
+    public void setChangeType(ChangeType changeType) {
+        this.changeType = changeType;
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
+
+    public Long getCounterpartId() {
+        return counterpartId;
+    }
+
+    public void setCounterpartId(Long counterpartId) {
+        this.counterpartId = counterpartId;
+    }
+
+    public Long getUpToMessageId() {
+        return upToMessageId;
+    }
+
+    public void setUpToMessageId(Long upToMessageId) {
+        this.upToMessageId = upToMessageId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
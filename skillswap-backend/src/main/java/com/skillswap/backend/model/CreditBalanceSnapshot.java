@@ -0,0 +1,111 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Estado acumulado de un usuario tras un evento concreto de su registro de créditos.
+ * Se escribe cada N eventos para que las consultas de balance reproduzcan como mucho N eventos.
+ */
+@Entity
+@Table(name = "credit_balance_snapshot", indexes = {
+    @Index(name = "uk_credit_snapshot_user_sequence", columnList = "user_id, sequence_number", unique = true),
+    @Index(name = "idx_credit_snapshot_user_time", columnList = "user_id, event_at")
+})
+public class CreditBalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "sequence_number", nullable = false)
+    private Long sequenceNumber; // Último evento incluido
+
+    @Column(name = "balance", nullable = false, precision = 12, scale = 2)
+    private BigDecimal balance;
+
+    @Column(name = "total_earned", nullable = false, precision = 12, scale = 2)
+    private BigDecimal totalEarned;
+
+    @Column(name = "total_spent", nullable = false, precision = 12, scale = 2)
+    private BigDecimal totalSpent;
+
+    @Column(name = "event_at", nullable = false)
+    private LocalDateTime eventAt; // Momento del último evento incluido
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Constructores
+    public CreditBalanceSnapshot() {}
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public void setSequenceNumber(Long sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public BigDecimal getTotalEarned() {
+        return totalEarned;
+    }
+
+    public void setTotalEarned(BigDecimal totalEarned) {
+        this.totalEarned = totalEarned;
+    }
+
+    public BigDecimal getTotalSpent() {
+        return totalSpent;
+    }
+
+    public void setTotalSpent(BigDecimal totalSpent) {
+        this.totalSpent = totalSpent;
+    }
+
+    public LocalDateTime getEventAt() {
+        return eventAt;
+    }
+
+    public void setEventAt(LocalDateTime eventAt) {
+        this.eventAt = eventAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,55 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Total histórico de créditos ganados enseñando, una fila por usuario.
+ * El índice por total permite leer el ranking global sin agregar el ledger.
+ */
+@Entity
+@Table(name = "credit_earner_total", indexes = {
+    @Index(name = "idx_credit_earner_total_earned", columnList = "teaching_earned")
+})
+public class CreditEarnerTotal {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "teaching_earned", nullable = false, precision = 12, scale = 2)
+    private BigDecimal teachingEarned = BigDecimal.ZERO;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructores
+    public CreditEarnerTotal() {}
+
+    // Getters y Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public BigDecimal getTeachingEarned() {
+        return teachingEarned;
+    }
+
+    public void setTeachingEarned(BigDecimal teachingEarned) {
+        this.teachingEarned = teachingEarned;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
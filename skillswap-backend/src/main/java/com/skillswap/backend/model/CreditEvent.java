@@ -0,0 +1,75 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Evento del registro de créditos: solo se añade, nunca se modifica ni se borra.
+ * Cada usuario tiene su propia secuencia (1, 2, 3...) asignada con su balance bloqueado; el balance
+ * en cualquier punto es la suma de sus eventos, partiendo de la instantánea más cercana.
+ */
+@Entity
+@Immutable
+@Table(name = "credit_event", indexes = {
+    @Index(name = "uk_credit_event_user_sequence", columnList = "user_id, sequence_number", unique = true),
+    @Index(name = "idx_credit_event_user_time", columnList = "user_id, occurred_at")
+})
+public class CreditEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
+    @Column(name = "sequence_number", nullable = false, updatable = false)
+    private Long sequenceNumber;
+
+    @Column(name = "event_type", nullable = false, updatable = false, length = 30)
+    private String eventType; // Tipo de la transacción de origen (EARNED_TEACHING, EXPIRATION...)
+
+    @Column(name = "amount", nullable = false, updatable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "transaction_id", updatable = false)
+    private Long transactionId; // Fila de credit_transaction que originó el evento
+
+    @Column(name = "occurred_at", nullable = false, updatable = false)
+    private LocalDateTime occurredAt;
+
+    // Constructores
+    public CreditEvent() {}
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+}
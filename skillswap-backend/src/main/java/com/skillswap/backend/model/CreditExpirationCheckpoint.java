@@ -0,0 +1,103 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Avance de una partición de usuarios dentro de una ejecución de expiración.
+ * Se actualiza en la misma transacción que cada bloque procesado.
+ */
+@Entity
+@Table(name = "credit_expiration_checkpoint",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"run_id", "partition_index"}))
+public class CreditExpirationCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "partition_index", nullable = false)
+    private Integer partitionIndex;
+
+    @Column(name = "last_transaction_id", nullable = false)
+    private Long lastTransactionId = 0L; // Checkpoint: lotes con id mayor quedan pendientes
+
+    @Column(name = "expired_count", nullable = false)
+    private Long expiredCount = 0L;
+
+    @Column(name = "completed", nullable = false)
+    private Boolean completed = false;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructores
+    public CreditExpirationCheckpoint() {}
+
+    public CreditExpirationCheckpoint(Long runId, int partitionIndex) {
+        this.runId = runId;
+        this.partitionIndex = partitionIndex;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getRunId() {
+        return runId;
+    }
+
+    public void setRunId(Long runId) {
+        this.runId = runId;
+    }
+
+    public Integer getPartitionIndex() {
+        return partitionIndex;
+    }
+
+    public void setPartitionIndex(Integer partitionIndex) {
+        this.partitionIndex = partitionIndex;
+    }
+
+    public Long getLastTransactionId() {
+        return lastTransactionId;
+    }
+
+    public void setLastTransactionId(Long lastTransactionId) {
+        this.lastTransactionId = lastTransactionId;
+    }
+
+    public Long getExpiredCount() {
+        return expiredCount;
+    }
+
+    public void setExpiredCount(Long expiredCount) {
+        this.expiredCount = expiredCount;
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(Boolean completed) {
+        this.completed = completed;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
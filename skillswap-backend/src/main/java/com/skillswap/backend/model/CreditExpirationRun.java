@@ -0,0 +1,133 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ejecución del proceso de expiración de créditos.
+ * Fija la fecha de corte y el número de particiones para que una ejecución interrumpida
+ * se reanude con los mismos criterios; el avance de cada partición vive en CreditExpirationCheckpoint.
+ */
+@Entity
+@Table(name = "credit_expiration_run")
+public class CreditExpirationRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "cutoff", nullable = false)
+    private LocalDateTime cutoff; // Expiran los créditos con expires_at anterior a esta fecha
+
+    @Column(name = "partitions", nullable = false)
+    private Integer partitions;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private RunStatus status = RunStatus.PENDING;
+
+    @Column(name = "expired_count", nullable = false)
+    private Long expiredCount = 0L;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Constructores
+    public CreditExpirationRun() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public CreditExpirationRun(LocalDateTime cutoff, int partitions) {
+        this();
+        this.cutoff = cutoff;
+        this.partitions = partitions;
+    }
+
+    // Enums
+    public enum RunStatus {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getCutoff() {
+        return cutoff;
+    }
+
+    public void setCutoff(LocalDateTime cutoff) {
+        this.cutoff = cutoff;
+    }
+
+    public Integer getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(Integer partitions) {
+        this.partitions = partitions;
+    }
+
+    public RunStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(RunStatus status) {
+        this.status = status;
+    }
+
+    public Long getExpiredCount() {
+        return expiredCount;
+    }
+
+    public void setExpiredCount(Long expiredCount) {
+        this.expiredCount = expiredCount;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,218 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Campaña de abono masivo de créditos (promociones, referidos).
+ * Fija el importe, el tipo y la fecha de expiración para todos los destinatarios, que se guardan en
+ * CreditGrantRecipient al crearla; lastUserId es el checkpoint del recorrido y se avanza en la misma
+ * transacción que cada bloque abonado, así que una campaña interrumpida se reanuda sin repetir abonos.
+ */
+@Entity
+@Table(name = "credit_grant_campaign")
+public class CreditGrantCampaign {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "name", nullable = false, length = 100)
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "transaction_type", nullable = false, length = 30)
+    private CreditTransaction.TransactionType transactionType;
+
+    @Column(name = "amount", nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount; // Importe por usuario
+
+    @Column(name = "description", length = 500)
+    private String description;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt; // Misma expiración para todos los abonos de la campaña
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private CampaignStatus status = CampaignStatus.PENDING;
+
+    @Column(name = "total_users", nullable = false)
+    private Long totalUsers = 0L;
+
+    @Column(name = "granted_users", nullable = false)
+    private Long grantedUsers = 0L;
+
+    @Column(name = "granted_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal grantedAmount = BigDecimal.ZERO;
+
+    @Column(name = "last_user_id", nullable = false)
+    private Long lastUserId = 0L; // Checkpoint: destinatarios con id mayor quedan pendientes
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @Column(name = "created_by")
+    private Long createdBy;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Constructores
+    public CreditGrantCampaign() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Enums
+    public enum CampaignStatus {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public CreditTransaction.TransactionType getTransactionType() {
+        return transactionType;
+    }
+
+    public void setTransactionType(CreditTransaction.TransactionType transactionType) {
+        this.transactionType = transactionType;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public CampaignStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(CampaignStatus status) {
+        this.status = status;
+    }
+
+    public Long getTotalUsers() {
+        return totalUsers;
+    }
+
+    public void setTotalUsers(Long totalUsers) {
+        this.totalUsers = totalUsers;
+    }
+
+    public Long getGrantedUsers() {
+        return grantedUsers;
+    }
+
+    public void setGrantedUsers(Long grantedUsers) {
+        this.grantedUsers = grantedUsers;
+    }
+
+    public BigDecimal getGrantedAmount() {
+        return grantedAmount;
+    }
+
+    public void setGrantedAmount(BigDecimal grantedAmount) {
+        this.grantedAmount = grantedAmount;
+    }
+
+    public Long getLastUserId() {
+        return lastUserId;
+    }
+
+    public void setLastUserId(Long lastUserId) {
+        this.lastUserId = lastUserId;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public Long getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(Long createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,51 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Destinatario de una campaña de abono masivo; la cohorte se fija al crear la campaña.
+ * Se escribe con INSERT ... SELECT y se recorre por (campaign_id, user_id).
+ */
+@Entity
+@Table(name = "credit_grant_recipient",
+       uniqueConstraints = @UniqueConstraint(name = "uk_credit_grant_recipient", columnNames = {"campaign_id", "user_id"}))
+public class CreditGrantRecipient {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "campaign_id", nullable = false)
+    private Long campaignId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Constructores
+    public CreditGrantRecipient() {}
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCampaignId() {
+        return campaignId;
+    }
+
+    public void setCampaignId(Long campaignId) {
+        this.campaignId = campaignId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+}
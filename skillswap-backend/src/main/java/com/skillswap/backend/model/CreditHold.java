@@ -0,0 +1,154 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Reserva de créditos del aprendiz para una sesión de video aceptada.
+ * Mientras está activa, su importe cuenta en UserCredits.reservedCredits y no se puede gastar;
+ * al terminar la sesión se captura y al cancelarla o vencer se libera. El índice (status, expires_at)
+ * permite recorrer las reservas vencidas en orden de vencimiento y liberarlas por bloques.
+ */
+@Entity
+@Table(name = "credit_hold", indexes = {
+    @Index(name = "idx_credit_hold_expiration", columnList = "status, expires_at"),
+    @Index(name = "uk_credit_hold_video_session", columnList = "video_session_id", unique = true),
+    @Index(name = "idx_credit_hold_user", columnList = "user_id")
+})
+public class CreditHold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "video_session_id", nullable = false)
+    private VideoSession videoSession;
+
+    @Column(name = "amount", nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private HoldStatus status = HoldStatus.ACTIVE;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "captured_amount", precision = 10, scale = 2)
+    private BigDecimal capturedAmount; // Lo cobrado al capturar (como máximo el importe reservado)
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "resolved_at")
+    private LocalDateTime resolvedAt;
+
+    // Constructores
+    public CreditHold() {}
+
+    public CreditHold(User user, VideoSession videoSession, BigDecimal amount, LocalDateTime expiresAt) {
+        this.user = user;
+        this.videoSession = videoSession;
+        this.amount = amount;
+        this.expiresAt = expiresAt;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Métodos de utilidad
+    public boolean isActive() {
+        return status == HoldStatus.ACTIVE;
+    }
+
+    public void resolve(HoldStatus status) {
+        this.status = status;
+        this.resolvedAt = LocalDateTime.now();
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public VideoSession getVideoSession() {
+        return videoSession;
+    }
+
+    public void setVideoSession(VideoSession videoSession) {
+        this.videoSession = videoSession;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public HoldStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(HoldStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public BigDecimal getCapturedAmount() {
+        return capturedAmount;
+    }
+
+    public void setCapturedAmount(BigDecimal capturedAmount) {
+        this.capturedAmount = capturedAmount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getResolvedAt() {
+        return resolvedAt;
+    }
+
+    public void setResolvedAt(LocalDateTime resolvedAt) {
+        this.resolvedAt = resolvedAt;
+    }
+
+    // Enums
+    public enum HoldStatus {
+        ACTIVE,     // Créditos reservados
+        CAPTURED,   // Cobrada al terminar la sesión
+        RELEASED,   // Liberada por cancelación
+        EXPIRED     // Liberada por vencimiento
+    }
+}
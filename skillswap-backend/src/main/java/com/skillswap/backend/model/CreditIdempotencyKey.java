@@ -0,0 +1,108 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Clave de idempotencia de una operación de créditos (compra o transferencia).
+ * Se inserta en la misma transacción que el movimiento del ledger; el índice único hace que
+ * un reintento concurrente con la misma clave espere y falle en lugar de duplicar el movimiento.
+ */
+@Entity
+@Table(name = "credit_idempotency_key", indexes = {
+    @Index(name = "uk_credit_idempotency_reference", columnList = "reference_type, reference_id", unique = true),
+    @Index(name = "idx_credit_idempotency_created", columnList = "created_at")
+})
+public class CreditIdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "reference_type", nullable = false, length = 30)
+    private String referenceType; // "PURCHASE", "TRANSFER"
+
+    @Column(name = "reference_id", nullable = false, length = 150)
+    private String referenceId; // "<userId>:<Idempotency-Key>"
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash; // SHA-256 de los datos de la petición original
+
+    @Column(name = "transaction_id")
+    private Long transactionId; // Movimiento resultante (en transferencias, el de salida)
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Constructores
+    public CreditIdempotencyKey() {}
+
+    public CreditIdempotencyKey(String referenceType, String referenceId, Long userId, String requestHash) {
+        this.referenceType = referenceType;
+        this.referenceId = referenceId;
+        this.userId = userId;
+        this.requestHash = requestHash;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getReferenceType() {
+        return referenceType;
+    }
+
+    public void setReferenceType(String referenceType) {
+        this.referenceType = referenceType;
+    }
+
+    public String getReferenceId() {
+        return referenceId;
+    }
+
+    public void setReferenceId(String referenceId) {
+        this.referenceId = referenceId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(Long transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
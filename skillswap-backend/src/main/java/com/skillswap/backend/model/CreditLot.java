@@ -0,0 +1,102 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Lote de créditos de un usuario que vencen en el mismo mes.
+ * Los abonos con fecha de expiración suman al lote de su mes y los cargos consumen primero el lote
+ * que vence antes (FIFO). Un lote vence al cierre de su mes y se borra al expirar o al agotarse,
+ * así que la tarea nocturna solo recorre los lotes que realmente vencen.
+ */
+@Entity
+@Table(name = "credit_lot",
+       uniqueConstraints = @UniqueConstraint(name = "uk_credit_lot", columnNames = {"user_id", "expiry_month"}),
+       indexes = @Index(name = "idx_credit_lot_expiry", columnList = "expiry_month"))
+public class CreditLot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "expiry_month", nullable = false)
+    private LocalDate expiryMonth; // Primer día del mes en que vencen los créditos
+
+    @Column(name = "granted_amount", nullable = false, precision = 12, scale = 2)
+    private BigDecimal grantedAmount = BigDecimal.ZERO;
+
+    @Column(name = "remaining_amount", nullable = false, precision = 12, scale = 2)
+    private BigDecimal remainingAmount = BigDecimal.ZERO;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructores
+    public CreditLot() {}
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDate getExpiryMonth() {
+        return expiryMonth;
+    }
+
+    public void setExpiryMonth(LocalDate expiryMonth) {
+        this.expiryMonth = expiryMonth;
+    }
+
+    public BigDecimal getGrantedAmount() {
+        return grantedAmount;
+    }
+
+    public void setGrantedAmount(BigDecimal grantedAmount) {
+        this.grantedAmount = grantedAmount;
+    }
+
+    public BigDecimal getRemainingAmount() {
+        return remainingAmount;
+    }
+
+    public void setRemainingAmount(BigDecimal remainingAmount) {
+        this.remainingAmount = remainingAmount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
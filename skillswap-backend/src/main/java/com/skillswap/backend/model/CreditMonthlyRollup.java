@@ -0,0 +1,122 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Agregado mensual de movimientos de créditos por usuario.
+ * Se actualiza en la misma transacción que cada movimiento del ledger (con el balance del usuario
+ * bloqueado), así que los paneles leen una fila por mes en lugar de agregar el ledger completo.
+ */
+@Entity
+@Table(name = "credit_monthly_rollup", uniqueConstraints =
+       @UniqueConstraint(name = "uk_credit_monthly_rollup", columnNames = {"user_id", "rollup_month"}))
+public class CreditMonthlyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "rollup_month", nullable = false)
+    private LocalDate rollupMonth; // Primer día del mes
+
+    @Column(name = "earned", nullable = false, precision = 12, scale = 2)
+    private BigDecimal earned = BigDecimal.ZERO;
+
+    @Column(name = "spent", nullable = false, precision = 12, scale = 2)
+    private BigDecimal spent = BigDecimal.ZERO;
+
+    @Column(name = "net", nullable = false, precision = 12, scale = 2)
+    private BigDecimal net = BigDecimal.ZERO;
+
+    @Column(name = "teaching_earned", nullable = false, precision = 12, scale = 2)
+    private BigDecimal teachingEarned = BigDecimal.ZERO;
+
+    @Column(name = "transaction_count", nullable = false)
+    private Long transactionCount = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructores
+    public CreditMonthlyRollup() {}
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDate getRollupMonth() {
+        return rollupMonth;
+    }
+
+    public void setRollupMonth(LocalDate rollupMonth) {
+        this.rollupMonth = rollupMonth;
+    }
+
+    public BigDecimal getEarned() {
+        return earned;
+    }
+
+    public void setEarned(BigDecimal earned) {
+        this.earned = earned;
+    }
+
+    public BigDecimal getSpent() {
+        return spent;
+    }
+
+    public void setSpent(BigDecimal spent) {
+        this.spent = spent;
+    }
+
+    public BigDecimal getNet() {
+        return net;
+    }
+
+    public void setNet(BigDecimal net) {
+        this.net = net;
+    }
+
+    public BigDecimal getTeachingEarned() {
+        return teachingEarned;
+    }
+
+    public void setTeachingEarned(BigDecimal teachingEarned) {
+        this.teachingEarned = teachingEarned;
+    }
+
+    public Long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(Long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
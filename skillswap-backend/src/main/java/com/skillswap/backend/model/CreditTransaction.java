@@ -9,7 +9,9 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "credit_transaction")
+@Table(name = "credit_transaction", indexes = {
+    @Index(name = "idx_credit_transaction_expiration", columnList = "status, expires_at")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class CreditTransaction {
 
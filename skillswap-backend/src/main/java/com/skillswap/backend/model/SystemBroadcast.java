@@ -0,0 +1,155 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Difusión masiva de un mensaje del sistema a un segmento de usuarios.
+ * Guarda el último usuario procesado para poder reanudar el envío tras una caída.
+ */
+@Entity
+@Table(name = "system_broadcast")
+public class SystemBroadcast {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "content", nullable = false, columnDefinition = "TEXT")
+    private String content;
+
+    @Column(name = "segment", nullable = false, columnDefinition = "TEXT")
+    private String segment; // JSON con la lista de ids o los filtros del segmento
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private BroadcastStatus status = BroadcastStatus.PENDING;
+
+    @Column(name = "last_user_id", nullable = false)
+    private Long lastUserId = 0L; // Checkpoint: usuarios con id mayor quedan pendientes
+
+    @Column(name = "delivered_count", nullable = false)
+    private Long deliveredCount = 0L;
+
+    @Column(name = "created_by")
+    private Long createdBy;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Constructores
+    public SystemBroadcast() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public SystemBroadcast(String content, String segment, Long createdBy) {
+        this();
+        this.content = content;
+        this.segment = segment;
+        this.createdBy = createdBy;
+    }
+
+    // Enums
+    public enum BroadcastStatus {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public String getSegment() {
+        return segment;
+    }
+
+    public void setSegment(String segment) {
+        this.segment = segment;
+    }
+
+    public BroadcastStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(BroadcastStatus status) {
+        this.status = status;
+    }
+
+    public Long getLastUserId() {
+        return lastUserId;
+    }
+
+    public void setLastUserId(Long lastUserId) {
+        this.lastUserId = lastUserId;
+    }
+
+    public Long getDeliveredCount() {
+        return deliveredCount;
+    }
+
+    public void setDeliveredCount(Long deliveredCount) {
+        this.deliveredCount = deliveredCount;
+    }
+
+    public Long getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(Long createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,56 @@
+package com.skillswap.backend.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Contador de sincronización de chat, una fila por usuario.
+ * Cada entrada del registro de cambios toma la siguiente secuencia con un UPDATE sobre esta fila,
+ * de modo que las secuencias de un usuario se confirman en orden. compactedThrough es la secuencia
+ * más alta que la compactación ya eliminó: un cliente por debajo debe hacer una carga completa.
+ */
+@Entity
+@Table(name = "user_chat_sequence")
+public class UserChatSequence {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "last_sequence", nullable = false)
+    private Long lastSequence = 0L;
+
+    @Column(name = "compacted_through", nullable = false)
+    private Long compactedThrough = 0L;
+
+    // Constructores
+    public UserChatSequence() {}
+
+    public UserChatSequence(Long userId) {
+        this.userId = userId;
+    }
+
+    // Getters y Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getLastSequence() {
+        return lastSequence;
+    }
+
+    public void setLastSequence(Long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+
+    public Long getCompactedThrough() {
+        return compactedThrough;
+    }
+
+    public void setCompactedThrough(Long compactedThrough) {
+        this.compactedThrough = compactedThrough;
+    }
+}
@@ -0,0 +1,307 @@
+package com.skillswap.backend.monitoring;
+
+import com.skillswap.backend.repository.ChatMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chat Metrics Service
+ * Streaming chat analytics fed by ChatService events once their transaction commits; the admin dashboard
+ * never queries chat_message. totalMessages is the cluster-wide row count, refreshed in the background.
+ * Every other value covers only the traffic handled by this node since it started; the cluster-wide
+ * sent/deleted totals are the skillswap.chat.messages.* counters summed across nodes by the metrics backend.
+ */
+@Service
+public class ChatMetricsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMetricsService.class);
+
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int WINDOW_MINUTES = 24 * 60;
+    private static final int RESPONSE_WINDOW_MINUTES = 60;
+    private static final long MAX_RESPONSE_TIME_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int TOP_K_CAPACITY = 200;
+    private static final int TOP_K_REPORTED = 10;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    private final Counter sentCounter;
+    private final Counter deletedCounter;
+
+    private final AtomicLong totalMessages = new AtomicLong();
+    private final AtomicLong sentMessages = new AtomicLong();
+    private final AtomicLong deletedMessages = new AtomicLong();
+
+    private final ConversationActivity conversationActivity = new ConversationActivity(WINDOW_MINUTES);
+
+    // Oldest unanswered message per directed pair "sender:receiver"
+    private final Map<String, Long> awaitingReply = new ConcurrentHashMap<>();
+
+    // One-minute interval histograms of response time, kept for the last hour
+    private final Recorder responseTimeRecorder = new Recorder(MAX_RESPONSE_TIME_MILLIS, 3);
+    private final Histogram[] responseTimeIntervals = new Histogram[RESPONSE_WINDOW_MINUTES];
+    private int responseTimeCursor;
+
+    private final SpaceSavingTopK mostActiveUsers = new SpaceSavingTopK(TOP_K_CAPACITY);
+
+    public ChatMetricsService(MeterRegistry meterRegistry) {
+        this.sentCounter = Counter.builder("skillswap.chat.messages.sent")
+                .description("Chat messages sent through this node")
+                .register(meterRegistry);
+        this.deletedCounter = Counter.builder("skillswap.chat.messages.deleted")
+                .description("Chat messages deleted through this node")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Refresh the cluster-wide message total; requests only read in-memory state
+     */
+    @Scheduled(fixedDelayString = "${skillswap.chat.metrics.total-refresh-ms:300000}")
+    public void refreshTotal() {
+        try {
+            totalMessages.set(chatMessageRepository.count());
+        } catch (Exception e) {
+            logger.warn("Could not refresh chat message total", e);
+        }
+    }
+
+    public void recordMessageSent(Long senderId, Long receiverId, long sentAtMillis) {
+        afterCommit(() -> messageSent(senderId, receiverId, sentAtMillis));
+    }
+
+    public void recordMessageDeleted() {
+        afterCommit(() -> {
+            deletedMessages.incrementAndGet();
+            deletedCounter.increment();
+        });
+    }
+
+    private void messageSent(Long senderId, Long receiverId, long sentAtMillis) {
+        sentMessages.incrementAndGet();
+        sentCounter.increment();
+        if (senderId == null) {
+            return; // system messages do not count towards user activity
+        }
+
+        conversationActivity.touch(conversationKey(senderId, receiverId), sentAtMillis);
+        mostActiveUsers.offer(senderId);
+
+        // A message from B to A answers the oldest pending message from A to B
+        Long askedAt = awaitingReply.remove(receiverId + ":" + senderId);
+        if (askedAt != null) {
+            long responseTime = sentAtMillis - askedAt;
+            if (responseTime >= 0 && responseTime <= MAX_RESPONSE_TIME_MILLIS) {
+                responseTimeRecorder.recordValue(responseTime);
+            }
+        }
+        awaitingReply.putIfAbsent(senderId + ":" + receiverId, sentAtMillis);
+    }
+
+    // A rolled-back send or delete must not show up in the analytics
+    private void afterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    /**
+     * Rotate the response-time window and drop stale state
+     */
+    @Scheduled(fixedRate = 60_000)
+    public void rotate() {
+        Histogram interval = responseTimeRecorder.getIntervalHistogram();
+        synchronized (responseTimeIntervals) {
+            responseTimeIntervals[responseTimeCursor] = interval;
+            responseTimeCursor = (responseTimeCursor + 1) % RESPONSE_WINDOW_MINUTES;
+        }
+
+        long cutoff = System.currentTimeMillis() - MAX_RESPONSE_TIME_MILLIS;
+        awaitingReply.values().removeIf(askedAt -> askedAt < cutoff);
+        conversationActivity.prune(System.currentTimeMillis());
+    }
+
+    public Map<String, Object> getMetrics() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("totalMessages", totalMessages.get());
+        // Everything below is local to this node
+        metrics.put("scope", "node");
+        metrics.put("sentMessages", sentMessages.get());
+        metrics.put("deletedMessages", deletedMessages.get());
+
+        Map<String, Object> active = new LinkedHashMap<>();
+        active.put("last5m", conversationActivity.activeWithin(now, 5));
+        active.put("last1h", conversationActivity.activeWithin(now, 60));
+        active.put("last24h", conversationActivity.activeWithin(now, WINDOW_MINUTES));
+        metrics.put("activeConversations", active);
+
+        Histogram window = responseTimeWindow();
+        metrics.put("averageResponseTime", window.getTotalCount() > 0 ? Math.round(window.getMean()) : 0);
+        Map<String, Object> responseTime = new LinkedHashMap<>();
+        responseTime.put("count", window.getTotalCount());
+        responseTime.put("p50", window.getValueAtPercentile(50));
+        responseTime.put("p90", window.getValueAtPercentile(90));
+        responseTime.put("p99", window.getValueAtPercentile(99));
+        responseTime.put("max", window.getMaxValue());
+        responseTime.put("unit", "ms");
+        responseTime.put("window", "1h");
+        metrics.put("responseTime", responseTime);
+
+        metrics.put("mostActiveUsers", mostActiveUsers.top(TOP_K_REPORTED));
+        return metrics;
+    }
+
+    private Histogram responseTimeWindow() {
+        Histogram window = new Histogram(MAX_RESPONSE_TIME_MILLIS, 3);
+        synchronized (responseTimeIntervals) {
+            for (Histogram interval : responseTimeIntervals) {
+                if (interval != null) {
+                    window.add(interval);
+                }
+            }
+        }
+        return window;
+    }
+
+    private String conversationKey(Long userId1, Long userId2) {
+        return Math.min(userId1, userId2) + ":" + Math.max(userId1, userId2);
+    }
+
+    /**
+     * Distinct conversations active over sliding windows
+     * Each conversation sits in the minute bucket of its latest message, so a window count is a bucket sum
+     */
+    private static class ConversationActivity {
+        private final int[] buckets;
+        private final Map<String, Long> lastMinute = new HashMap<>();
+
+        ConversationActivity(int minutes) {
+            this.buckets = new int[minutes];
+        }
+
+        synchronized void touch(String conversation, long timestampMillis) {
+            long minute = timestampMillis / MINUTE_MILLIS;
+            Long previous = lastMinute.put(conversation, minute);
+            if (previous != null) {
+                if (previous == minute) {
+                    return;
+                }
+                if (minute - previous < buckets.length) {
+                    buckets[(int) (previous % buckets.length)]--;
+                }
+            }
+            buckets[(int) (minute % buckets.length)]++;
+        }
+
+        synchronized long activeWithin(long nowMillis, int minutes) {
+            long currentMinute = nowMillis / MINUTE_MILLIS;
+            long count = 0;
+            for (int i = 0; i < Math.min(minutes, buckets.length); i++) {
+                count += buckets[(int) ((currentMinute - i) % buckets.length)];
+            }
+            return count;
+        }
+
+        synchronized void prune(long nowMillis) {
+            long currentMinute = nowMillis / MINUTE_MILLIS;
+            Iterator<Map.Entry<String, Long>> it = lastMinute.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Long> entry = it.next();
+                if (currentMinute - entry.getValue() >= buckets.length - 1) {
+                    // Release the slot before the ring wraps around onto it
+                    buckets[(int) (entry.getValue() % buckets.length)]--;
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Space-saving top-K sketch (Metwally et al.)
+     * Tracks at most capacity users; a new user evicts the minimum and inherits its count as error bound
+     */
+    private static class SpaceSavingTopK {
+        private final int capacity;
+        private final Map<Long, Counter> counters = new HashMap<>();
+        private final TreeSet<Counter> ordered = new TreeSet<>((a, b) -> a.count != b.count
+                ? Long.compare(a.count, b.count)
+                : Long.compare(a.item, b.item));
+
+        SpaceSavingTopK(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void offer(Long item) {
+            Counter counter = counters.get(item);
+            if (counter == null) {
+                if (counters.size() < capacity) {
+                    counter = new Counter(item, 0, 0);
+                } else {
+                    Counter min = ordered.pollFirst();
+                    counters.remove(min.item);
+                    counter = new Counter(item, min.count, min.count);
+                }
+                counters.put(item, counter);
+            } else {
+                ordered.remove(counter);
+            }
+            counter.count++;
+            ordered.add(counter);
+        }
+
+        synchronized List<Map<String, Object>> top(int k) {
+            List<Map<String, Object>> result = new ArrayList<>(k);
+            for (Counter counter : ordered.descendingSet()) {
+                if (result.size() == k) {
+                    break;
+                }
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("userId", counter.item);
+                entry.put("messages", counter.count);
+                entry.put("maxOvercount", counter.error);
+                result.add(entry);
+            }
+            return result;
+        }
+
+        private static class Counter {
+            private final long item;
+            private long count;
+            private final long error;
+
+            Counter(long item, long count, long error) {
+                this.item = item;
+                this.count = count;
+                this.error = error;
+            }
+        }
+    }
+}
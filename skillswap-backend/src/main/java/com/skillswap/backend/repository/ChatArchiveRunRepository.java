@@ -0,0 +1,48 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.ChatArchiveRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ChatArchiveRunRepository extends JpaRepository<ChatArchiveRun, Long> {
+
+    /**
+     * Reclamar una ejecución pendiente o abandonada (heartbeat vencido) para este nodo
+     */
+    @Modifying
+    @Query("UPDATE ChatArchiveRun r SET r.status = 'RUNNING', r.heartbeatAt = :now WHERE r.id = :id AND " +
+           "(r.status = 'PENDING' OR (r.status = 'RUNNING' AND (r.heartbeatAt IS NULL OR r.heartbeatAt < :staleBefore)))")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Ejecuciones que hay que reanudar, la más antigua primero
+     */
+    @Query("SELECT r.id FROM ChatArchiveRun r WHERE r.status = 'PENDING' OR " +
+           "(r.status = 'RUNNING' AND (r.heartbeatAt IS NULL OR r.heartbeatAt < :staleBefore)) ORDER BY r.id ASC")
+    List<Long> findResumableIds(@Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Hay una ejecución viva en algún nodo
+     */
+    @Query("SELECT COUNT(r) > 0 FROM ChatArchiveRun r WHERE r.status = 'RUNNING' AND r.heartbeatAt >= :staleBefore")
+    boolean existsActiveRun(@Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Avanzar el punto de control tras un bloque; 0 filas si otro nodo ya tomó la ejecución
+     */
+    @Modifying
+    @Query("UPDATE ChatArchiveRun r SET r.lastMessageId = :lastMessageId, r.archivedCount = r.archivedCount + :archived, " +
+           "r.heartbeatAt = :now WHERE r.id = :id AND r.status = 'RUNNING' AND r.lastMessageId = :afterId")
+    int advance(@Param("id") Long id,
+                @Param("afterId") Long afterId,
+                @Param("lastMessageId") Long lastMessageId,
+                @Param("archived") long archived,
+                @Param("now") LocalDateTime now);
+}
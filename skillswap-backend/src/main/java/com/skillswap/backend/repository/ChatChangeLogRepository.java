@@ -0,0 +1,40 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.ChatChangeLog;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ChatChangeLogRepository extends JpaRepository<ChatChangeLog, Long> {
+
+    /**
+     * Cambios de un usuario posteriores a una secuencia, en orden
+     */
+    @Query("SELECT c FROM ChatChangeLog c WHERE c.userId = :userId AND c.sequence > :since ORDER BY c.sequence ASC")
+    List<ChatChangeLog> findChangesSince(@Param("userId") Long userId,
+                                         @Param("since") Long since,
+                                         Pageable pageable);
+
+    /**
+     * Descartar entradas de creación/edición de un mensaje ya eliminado
+     */
+    @Modifying
+    @Query("DELETE FROM ChatChangeLog c WHERE c.messageId = :messageId AND c.changeType IN :changeTypes")
+    int deleteSupersededChanges(@Param("messageId") Long messageId,
+                                @Param("changeTypes") Collection<ChatChangeLog.ChangeType> changeTypes);
+
+    /**
+     * Eliminar entradas antiguas (compactación)
+     */
+    @Modifying
+    @Query("DELETE FROM ChatChangeLog c WHERE c.createdAt < :cutoffDate")
+    int deleteOlderThan(@Param("cutoffDate") LocalDateTime cutoffDate);
+}
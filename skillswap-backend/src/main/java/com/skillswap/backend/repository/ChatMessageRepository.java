@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -34,6 +35,14 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
            "ORDER BY cm.sentAt ASC")
     List<ChatMessage> findBySkillMatchId(@Param("skillMatchId") Long skillMatchId);
 
+    /**
+     * Cargar mensajes por id junto con remitente y receptor en una sola consulta
+     */
+    @Query("SELECT cm FROM ChatMessage cm " +
+           "LEFT JOIN FETCH cm.sender LEFT JOIN FETCH cm.receiver LEFT JOIN FETCH cm.skillMatch " +
+           "WHERE cm.id IN :ids")
+    List<ChatMessage> findAllWithUsersByIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Buscar conversaciones activas de un usuario (últimos mensajes)
      */
@@ -47,6 +56,14 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
            "ORDER BY cm.sentAt DESC")
     List<ChatMessage> findActiveConversationsForUser(@Param("userId") Long userId);
 
+    /**
+     * Ids de los usuarios con los que un usuario tiene conversación
+     */
+    @Query("SELECT DISTINCT CASE WHEN cm.sender.id = :userId THEN cm.receiver.id ELSE cm.sender.id END " +
+           "FROM ChatMessage cm WHERE " +
+           "(cm.sender.id = :userId OR cm.receiver.id = :userId)")
+    List<Long> findConversationPartnerIds(@Param("userId") Long userId);
+
     /**
      * Contar mensajes no leídos para un usuario
      */
@@ -73,6 +90,51 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
                           @Param("receiverId") Long receiverId, 
                           @Param("readAt") LocalDateTime readAt);
 
+    /**
+     * Marcar como leídos los mensajes de una conversación hasta un id máximo
+     */
+    @Modifying
+    @Query("UPDATE ChatMessage cm SET cm.isRead = true, cm.readAt = :readAt WHERE " +
+           "cm.sender.id = :senderId AND cm.receiver.id = :receiverId AND cm.isRead = false " +
+           "AND cm.id <= :maxMessageId")
+    int markMessagesAsReadUpTo(@Param("senderId") Long senderId,
+                               @Param("receiverId") Long receiverId,
+                               @Param("maxMessageId") Long maxMessageId,
+                               @Param("readAt") LocalDateTime readAt);
+
+    /**
+     * Receptor de un mensaje si pertenece al remitente indicado (sin cargar la entidad)
+     */
+    @Query("SELECT cm.receiver.id FROM ChatMessage cm WHERE cm.id = :messageId AND cm.sender.id = :senderId")
+    Long findReceiverIdOfOwnMessage(@Param("messageId") Long messageId, @Param("senderId") Long senderId);
+
+    /**
+     * Editar un mensaje propio dentro de la ventana de edición
+     */
+    @Modifying
+    @Query("UPDATE ChatMessage cm SET cm.content = :content, cm.isEdited = true, cm.editedAt = :editedAt WHERE " +
+           "cm.id = :messageId AND cm.sender.id = :senderId AND cm.sentAt >= :editableSince")
+    int editOwnMessage(@Param("messageId") Long messageId,
+                       @Param("senderId") Long senderId,
+                       @Param("content") String content,
+                       @Param("editedAt") LocalDateTime editedAt,
+                       @Param("editableSince") LocalDateTime editableSince);
+
+    /**
+     * Columnas de un mensaje sin cargar remitente, receptor ni sesión: [receiverId, skillMatchId, messageType,
+     * isRead, sentAt, readAt, attachmentUrl, attachmentType, metadata]
+     */
+    @Query("SELECT cm.receiver.id, cm.skillMatch.id, cm.messageType, cm.isRead, cm.sentAt, cm.readAt, " +
+           "cm.attachmentUrl, cm.attachmentType, cm.metadata FROM ChatMessage cm WHERE cm.id = :messageId")
+    List<Object[]> findScalarsById(@Param("messageId") Long messageId);
+
+    /**
+     * Eliminar un mensaje propio
+     */
+    @Modifying
+    @Query("DELETE FROM ChatMessage cm WHERE cm.id = :messageId AND cm.sender.id = :senderId")
+    int deleteOwnMessage(@Param("messageId") Long messageId, @Param("senderId") Long senderId);
+
     /**
      * Buscar mensajes por tipo
      */
@@ -125,6 +187,17 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     @Query("DELETE FROM ChatMessage cm WHERE cm.sentAt < :cutoffDate")
     int deleteOldMessages(@Param("cutoffDate") LocalDateTime cutoffDate);
 
+    /**
+     * Siguiente bloque de mensajes a archivar (paginación por clave sobre el id)
+     */
+    @Query("SELECT cm FROM ChatMessage cm " +
+           "LEFT JOIN FETCH cm.sender LEFT JOIN FETCH cm.receiver " +
+           "WHERE cm.sentAt < :cutoffDate AND cm.id > :afterId " +
+           "ORDER BY cm.id ASC")
+    List<ChatMessage> findArchivableChunk(@Param("cutoffDate") LocalDateTime cutoffDate,
+                                          @Param("afterId") Long afterId,
+                                          Pageable pageable);
+
     /**
      * Buscar mensajes con archivos adjuntos
      */
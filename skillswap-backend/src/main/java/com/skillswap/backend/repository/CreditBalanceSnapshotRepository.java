@@ -0,0 +1,38 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.CreditBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CreditBalanceSnapshotRepository extends JpaRepository<CreditBalanceSnapshot, Long> {
+
+    // Instantánea anterior a un evento (base para la siguiente)
+    Optional<CreditBalanceSnapshot> findFirstByUserIdAndSequenceNumberLessThanOrderBySequenceNumberDesc(
+            Long userId, Long sequenceNumber);
+
+    // Instantánea más cercana a un momento dado
+    Optional<CreditBalanceSnapshot> findFirstByUserIdAndEventAtLessThanEqualOrderBySequenceNumberDesc(
+            Long userId, LocalDateTime eventAt);
+
+    Optional<CreditBalanceSnapshot> findFirstByUserIdOrderBySequenceNumberDesc(Long userId);
+
+    List<CreditBalanceSnapshot> findByUserIdInOrderByUserIdAscSequenceNumberAsc(Collection<Long> userIds);
+
+    // Instantáneas antiguas de un bloque de usuarios (compactación): [id, userId, eventAt]
+    @Query("SELECT s.id, s.userId, s.eventAt FROM CreditBalanceSnapshot s " +
+           "WHERE s.userId IN :userIds AND s.eventAt < :before ORDER BY s.userId ASC, s.sequenceNumber ASC")
+    List<Object[]> findOlderThan(@Param("userIds") Collection<Long> userIds, @Param("before") LocalDateTime before);
+
+    @Modifying
+    @Query("DELETE FROM CreditBalanceSnapshot s WHERE s.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,52 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.CreditEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Solo lecturas: los eventos se añaden por JDBC en CreditEventService
+ */
+@Repository
+public interface CreditEventRepository extends JpaRepository<CreditEvent, Long> {
+
+    @Query("SELECT MAX(e.sequenceNumber) FROM CreditEvent e WHERE e.userId = :userId")
+    Optional<Long> findLastSequence(@Param("userId") Long userId);
+
+    // Totales de un tramo de la secuencia: [balance, ganado, gastado, último evento]
+    @Query("SELECT COALESCE(SUM(e.amount), 0), " +
+           "COALESCE(SUM(CASE WHEN e.amount > 0 THEN e.amount ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN e.amount < 0 THEN ABS(e.amount) ELSE 0 END), 0), " +
+           "MAX(e.occurredAt) " +
+           "FROM CreditEvent e WHERE e.userId = :userId AND e.sequenceNumber > :afterSequence " +
+           "AND e.sequenceNumber <= :upToSequence")
+    List<Object[]> summarizeRange(@Param("userId") Long userId,
+                                  @Param("afterSequence") Long afterSequence,
+                                  @Param("upToSequence") Long upToSequence);
+
+    // Eventos posteriores a una instantánea hasta un momento dado (reproducción)
+    @Query("SELECT e FROM CreditEvent e WHERE e.userId = :userId AND e.sequenceNumber > :afterSequence " +
+           "AND e.occurredAt <= :until ORDER BY e.sequenceNumber ASC")
+    List<CreditEvent> findForReplay(@Param("userId") Long userId,
+                                    @Param("afterSequence") Long afterSequence,
+                                    @Param("until") LocalDateTime until);
+
+    // Recorrido por clave de los usuarios con eventos (compactación y verificación)
+    @Query("SELECT DISTINCT e.userId FROM CreditEvent e WHERE e.userId > :afterId ORDER BY e.userId ASC")
+    List<Long> findUserIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Última secuencia de cada usuario con eventos: [userId, secuencia]
+    @Query("SELECT e.userId, MAX(e.sequenceNumber) FROM CreditEvent e WHERE e.userId IN :userIds GROUP BY e.userId")
+    List<Object[]> findLastSequences(@Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT DISTINCT e.userId FROM CreditEvent e WHERE e.userId IN :userIds")
+    List<Long> findUserIdsWithEvents(@Param("userIds") Collection<Long> userIds);
+}
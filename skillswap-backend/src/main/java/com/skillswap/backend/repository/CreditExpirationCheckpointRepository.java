@@ -0,0 +1,35 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.CreditExpirationCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CreditExpirationCheckpointRepository extends JpaRepository<CreditExpirationCheckpoint, Long> {
+
+    List<CreditExpirationCheckpoint> findByRunIdOrderByPartitionIndexAsc(Long runId);
+
+    /**
+     * Avanzar el checkpoint tras confirmar un bloque
+     */
+    @Modifying
+    @Query("UPDATE CreditExpirationCheckpoint c SET c.lastTransactionId = :lastTransactionId, " +
+           "c.expiredCount = c.expiredCount + :expired, c.updatedAt = :now WHERE c.id = :id")
+    int advance(@Param("id") Long id,
+                @Param("lastTransactionId") Long lastTransactionId,
+                @Param("expired") long expired,
+                @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CreditExpirationCheckpoint c SET c.completed = true, c.updatedAt = :now WHERE c.id = :id")
+    int markCompleted(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Query("SELECT COALESCE(SUM(c.expiredCount), 0) FROM CreditExpirationCheckpoint c WHERE c.runId = :runId")
+    long sumExpiredByRunId(@Param("runId") Long runId);
+}
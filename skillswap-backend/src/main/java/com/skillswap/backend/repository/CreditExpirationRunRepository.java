@@ -0,0 +1,40 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.CreditExpirationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CreditExpirationRunRepository extends JpaRepository<CreditExpirationRun, Long> {
+
+    /**
+     * Reclamar una ejecución pendiente o abandonada (heartbeat vencido) para este nodo
+     */
+    @Modifying
+    @Query("UPDATE CreditExpirationRun r SET r.status = 'RUNNING', r.heartbeatAt = :now WHERE r.id = :id AND " +
+           "(r.status = 'PENDING' OR (r.status = 'RUNNING' AND (r.heartbeatAt IS NULL OR r.heartbeatAt < :staleBefore)))")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Ejecuciones que hay que reanudar, la más antigua primero
+     */
+    @Query("SELECT r.id FROM CreditExpirationRun r WHERE r.status = 'PENDING' OR " +
+           "(r.status = 'RUNNING' AND (r.heartbeatAt IS NULL OR r.heartbeatAt < :staleBefore)) ORDER BY r.id ASC")
+    List<Long> findResumableIds(@Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Hay una ejecución viva en algún nodo
+     */
+    @Query("SELECT COUNT(r) > 0 FROM CreditExpirationRun r WHERE r.status = 'RUNNING' AND r.heartbeatAt >= :staleBefore")
+    boolean existsActiveRun(@Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Query("UPDATE CreditExpirationRun r SET r.heartbeatAt = :now WHERE r.id = :id")
+    int heartbeat(@Param("id") Long id, @Param("now") LocalDateTime now);
+}
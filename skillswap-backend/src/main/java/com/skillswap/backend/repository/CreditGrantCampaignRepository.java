@@ -0,0 +1,55 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.CreditGrantCampaign;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CreditGrantCampaignRepository extends JpaRepository<CreditGrantCampaign, Long> {
+
+    /**
+     * Reclamar una campaña pendiente o abandonada (heartbeat vencido) para este nodo
+     */
+    @Modifying
+    @Query("UPDATE CreditGrantCampaign c SET c.status = 'RUNNING', c.heartbeatAt = :now, " +
+           "c.startedAt = COALESCE(c.startedAt, :now) WHERE c.id = :id AND " +
+           "(c.status = 'PENDING' OR (c.status = 'RUNNING' AND (c.heartbeatAt IS NULL OR c.heartbeatAt < :staleBefore)))")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Campañas que hay que reanudar, la más antigua primero
+     */
+    @Query("SELECT c.id FROM CreditGrantCampaign c WHERE c.status = 'PENDING' OR " +
+           "(c.status = 'RUNNING' AND (c.heartbeatAt IS NULL OR c.heartbeatAt < :staleBefore)) ORDER BY c.id ASC")
+    List<Long> findResumableIds(@Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Avanzar el checkpoint en la misma transacción que el bloque abonado; solo si sigue donde lo dejó
+     * este nodo (0 filas si otro nodo retomó la campaña entretanto)
+     */
+    @Modifying
+    @Query("UPDATE CreditGrantCampaign c SET c.lastUserId = :lastUserId, c.grantedUsers = c.grantedUsers + :users, " +
+           "c.grantedAmount = c.grantedAmount + :amount, c.heartbeatAt = :now WHERE c.id = :id AND c.lastUserId = :afterId")
+    int advance(@Param("id") Long id,
+                @Param("afterId") Long afterId,
+                @Param("lastUserId") Long lastUserId,
+                @Param("users") long users,
+                @Param("amount") BigDecimal amount,
+                @Param("now") LocalDateTime now);
+
+    /**
+     * Devolver a PENDING una campaña interrumpida en este nodo para que cualquier nodo la retome en su
+     * siguiente escaneo; solo si sigue en el checkpoint que dejó este nodo
+     */
+    @Modifying
+    @Query("UPDATE CreditGrantCampaign c SET c.status = 'PENDING', c.heartbeatAt = NULL " +
+           "WHERE c.id = :id AND c.status = 'RUNNING' AND c.lastUserId = :afterId")
+    int release(@Param("id") Long id, @Param("afterId") Long afterId);
+}
@@ -0,0 +1,26 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.CreditGrantRecipient;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Lecturas de los destinatarios de una campaña; se insertan por JDBC en CreditBulkGrantService
+ */
+@Repository
+public interface CreditGrantRecipientRepository extends JpaRepository<CreditGrantRecipient, Long> {
+
+    // Siguiente bloque de destinatarios de la campaña (recorrido por clave)
+    @Query("SELECT r.userId FROM CreditGrantRecipient r WHERE r.campaignId = :campaignId AND r.userId > :afterId " +
+           "ORDER BY r.userId ASC")
+    List<Long> findUserIdsAfter(@Param("campaignId") Long campaignId,
+                                @Param("afterId") Long afterId,
+                                Pageable pageable);
+
+    long countByCampaignId(Long campaignId);
+}
@@ -0,0 +1,44 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.CreditHold;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CreditHoldRepository extends JpaRepository<CreditHold, Long> {
+
+    @Query("SELECT h FROM CreditHold h WHERE h.videoSession.id = :videoSessionId")
+    Optional<CreditHold> findByVideoSessionId(@Param("videoSessionId") Long videoSessionId);
+
+    @Query("SELECT h.user.id FROM CreditHold h WHERE h.videoSession.id = :videoSessionId")
+    Optional<Long> findUserIdByVideoSessionId(@Param("videoSessionId") Long videoSessionId);
+
+    // Siguiente bloque de reservas vencidas en orden de vencimiento (índice status, expires_at): [id, userId]
+    @Query("SELECT h.id, h.user.id FROM CreditHold h " +
+           "WHERE h.status = com.skillswap.backend.model.CreditHold$HoldStatus.ACTIVE AND h.expiresAt < :now " +
+           "ORDER BY h.expiresAt ASC, h.id ASC")
+    List<Object[]> findExpiredActiveChunk(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Releer tras bloquear los balances: solo las que siguen activas: [id, userId, amount]
+    @Query("SELECT h.id, h.user.id, h.amount FROM CreditHold h " +
+           "WHERE h.id IN :ids AND h.status = com.skillswap.backend.model.CreditHold$HoldStatus.ACTIVE")
+    List<Object[]> findActiveByIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE CreditHold h SET h.status = com.skillswap.backend.model.CreditHold$HoldStatus.EXPIRED, " +
+           "h.resolvedAt = :now WHERE h.id IN :ids")
+    int markExpired(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Query("SELECT h FROM CreditHold h WHERE h.user.id = :userId " +
+           "AND h.status = com.skillswap.backend.model.CreditHold$HoldStatus.ACTIVE ORDER BY h.expiresAt ASC")
+    List<CreditHold> findActiveByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,22 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.CreditIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface CreditIdempotencyKeyRepository extends JpaRepository<CreditIdempotencyKey, Long> {
+
+    Optional<CreditIdempotencyKey> findByReferenceTypeAndReferenceId(String referenceType, String referenceId);
+
+    // Purga de claves más antiguas que la ventana de retención
+    @Modifying
+    @Query("DELETE FROM CreditIdempotencyKey k WHERE k.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,67 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.CreditLot;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lecturas de los lotes de créditos; las escrituras van por JDBC en CreditLotService y
+ * CreditExpirationService, siempre con el balance del usuario bloqueado
+ */
+@Repository
+public interface CreditLotRepository extends JpaRepository<CreditLot, Long> {
+
+    // Lotes de un usuario en orden de consumo: [id, expiryMonth, remainingAmount]
+    @Query("SELECT l.id, l.expiryMonth, l.remainingAmount FROM CreditLot l WHERE l.userId = :userId " +
+           "ORDER BY l.expiryMonth ASC")
+    List<Object[]> findBucketsByUserId(@Param("userId") Long userId);
+
+    // Lotes que vencen dentro de una ventana de meses [fromMonth, toMonth)
+    @Query("SELECT l FROM CreditLot l WHERE l.userId = :userId AND l.expiryMonth >= :fromMonth " +
+           "AND l.expiryMonth < :toMonth ORDER BY l.expiryMonth ASC")
+    List<CreditLot> findExpiring(@Param("userId") Long userId,
+                                 @Param("fromMonth") LocalDate fromMonth,
+                                 @Param("toMonth") LocalDate toMonth);
+
+    // Bloque de lotes vencidos de una partición de usuarios (recorrido por clave): [id, userId]
+    @Query("SELECT l.id, l.userId FROM CreditLot l WHERE l.expiryMonth < :cutoffMonth AND l.id > :afterId " +
+           "AND MOD(l.userId, :partitions) = :partition ORDER BY l.id ASC")
+    List<Object[]> findExpiredChunk(@Param("cutoffMonth") LocalDate cutoffMonth,
+                                    @Param("afterId") Long afterId,
+                                    @Param("partitions") int partitions,
+                                    @Param("partition") int partition,
+                                    Pageable pageable);
+
+    // Lotes del bloque que siguen pendientes: [id, userId, expiryMonth, remainingAmount]
+    @Query("SELECT l.id, l.userId, l.expiryMonth, l.remainingAmount FROM CreditLot l WHERE l.id IN :ids " +
+           "ORDER BY l.userId ASC, l.expiryMonth ASC")
+    List<Object[]> findPendingByIds(@Param("ids") Collection<Long> ids);
+
+    // Usuarios con créditos que caducan, recorridos por clave (backfill)
+    @Query("SELECT DISTINCT ct.user.id FROM CreditTransaction ct WHERE ct.expiresAt IS NOT NULL " +
+           "AND ct.user.id > :afterId ORDER BY ct.user.id ASC")
+    List<Long> findUserIdsWithExpiringCreditsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Ledger de varios usuarios en orden de inserción para reconstruir sus lotes:
+    // [userId, id, type, amount, expiresAt, referenceType, referenceId, createdAt]
+    @Query("SELECT ct.user.id, ct.id, ct.type, ct.amount, ct.expiresAt, ct.referenceType, ct.referenceId, ct.createdAt " +
+           "FROM CreditTransaction ct " +
+           "WHERE ct.user.id IN :userIds AND ct.status IN ('COMPLETED', 'EXPIRED') ORDER BY ct.user.id ASC, ct.id ASC")
+    List<Object[]> findReplayEntries(@Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("DELETE FROM CreditLot l WHERE l.userId IN :userIds")
+    int deleteByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("DELETE FROM CreditLot l WHERE l.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,59 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.CreditDailyRollup;
+import com.skillswap.backend.model.CreditEarnerTotal;
+import com.skillswap.backend.model.CreditMonthlyRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lecturas y limpieza de los agregados de créditos; las escrituras incrementales van por JDBC
+ * en CreditRollupService
+ */
+@Repository
+public interface CreditRollupRepository extends JpaRepository<CreditDailyRollup, Long> {
+
+    @Query("SELECT r FROM CreditDailyRollup r WHERE r.userId = :userId AND r.rollupDate >= :from " +
+           "ORDER BY r.rollupDate DESC")
+    List<CreditDailyRollup> findDailySince(@Param("userId") Long userId, @Param("from") LocalDate from);
+
+    @Query("SELECT r FROM CreditMonthlyRollup r WHERE r.userId = :userId ORDER BY r.rollupMonth DESC")
+    List<CreditMonthlyRollup> findMonthly(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT t FROM CreditEarnerTotal t WHERE t.teachingEarned > 0 ORDER BY t.teachingEarned DESC, t.userId ASC")
+    List<CreditEarnerTotal> findTopEarners(Pageable pageable);
+
+    // Usuarios con movimientos en el ledger, recorridos por clave (backfill)
+    @Query("SELECT DISTINCT ct.user.id FROM CreditTransaction ct WHERE ct.user.id > :afterId ORDER BY ct.user.id ASC")
+    List<Long> findLedgerUserIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Agregado del ledger por usuario y día: [userId, year, month, day, earned, spent, teachingEarned, count]
+    @Query("SELECT ct.user.id, YEAR(ct.createdAt), MONTH(ct.createdAt), DAY(ct.createdAt), " +
+           "COALESCE(SUM(CASE WHEN ct.amount > 0 THEN ct.amount ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN ct.amount < 0 THEN ABS(ct.amount) ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN ct.type = com.skillswap.backend.model.CreditTransaction$TransactionType.EARNED_TEACHING " +
+           "THEN ct.amount ELSE 0 END), 0), COUNT(ct) " +
+           "FROM CreditTransaction ct WHERE ct.user.id IN :userIds AND ct.status IN ('COMPLETED', 'EXPIRED') " +
+           "GROUP BY ct.user.id, YEAR(ct.createdAt), MONTH(ct.createdAt), DAY(ct.createdAt)")
+    List<Object[]> summarizeLedgerByUserAndDay(@Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("DELETE FROM CreditDailyRollup r WHERE r.userId IN :userIds")
+    int deleteDailyByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("DELETE FROM CreditMonthlyRollup r WHERE r.userId IN :userIds")
+    int deleteMonthlyByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("DELETE FROM CreditEarnerTotal t WHERE t.userId IN :userIds")
+    int deleteEarnerTotalsByUserIds(@Param("userIds") Collection<Long> userIds);
+}
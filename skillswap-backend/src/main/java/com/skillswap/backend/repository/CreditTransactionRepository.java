@@ -10,8 +10,11 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CreditTransactionRepository extends JpaRepository<CreditTransaction, Long> {
@@ -29,18 +32,41 @@ public interface CreditTransactionRepository extends JpaRepository<CreditTransac
     @Query("SELECT COALESCE(SUM(ct.amount), 0) FROM CreditTransaction ct WHERE ct.user = :user AND ct.status = 'COMPLETED'")
     BigDecimal calculateUserBalance(@Param("user") User user);
 
+    // Totales del ledger por usuario: balance, ganado y gastado
+    // Los créditos EXPIRED siguen sumando: su expiración ya figura como un movimiento negativo
+    @Query("SELECT ct.user.id, COALESCE(SUM(ct.amount), 0), " +
+           "COALESCE(SUM(CASE WHEN ct.amount > 0 THEN ct.amount ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN ct.amount < 0 THEN ABS(ct.amount) ELSE 0 END), 0) " +
+           "FROM CreditTransaction ct WHERE ct.user.id IN :userIds AND ct.status IN ('COMPLETED', 'EXPIRED') " +
+           "GROUP BY ct.user.id")
+    List<Object[]> summarizeLedgerByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    // Movimientos del ledger de un usuario en orden de inserción (siembra del registro de eventos):
+    // [id, type, amount, createdAt]
+    @Query("SELECT ct.id, ct.type, ct.amount, ct.createdAt FROM CreditTransaction ct " +
+           "WHERE ct.user.id = :userId AND ct.status IN ('COMPLETED', 'EXPIRED') AND ct.id > :afterId " +
+           "ORDER BY ct.id ASC")
+    List<Object[]> findLedgerEntriesAfter(@Param("userId") Long userId,
+                                          @Param("afterId") Long afterId,
+                                          Pageable pageable);
+
     // Transacciones pendientes
     List<CreditTransaction> findByUserAndStatusOrderByCreatedAtAsc(User user, CreditTransaction.TransactionStatus status);
 
-    // Créditos ganados por enseñar
-    @Query("SELECT COALESCE(SUM(ct.amount), 0) FROM CreditTransaction ct WHERE ct.user = :user " +
-           "AND ct.status = 'COMPLETED' AND ct.type = 'EARNED_TEACHING'")
-    BigDecimal getTotalEarnedCredits(@Param("user") User user);
-
-    // Créditos gastados aprendiendo
-    @Query("SELECT COALESCE(SUM(ABS(ct.amount)), 0) FROM CreditTransaction ct WHERE ct.user = :user " +
-           "AND ct.status = 'COMPLETED' AND ct.type = 'SPENT_LEARNING'")
-    BigDecimal getTotalSpentCredits(@Param("user") User user);
+    // Estadísticas de un usuario en una sola pasada: [ganado enseñando, gastado aprendiendo, balance del ledger,
+    // importe por expirar en la ventana de meses [fromMonth, toMonth), lotes por expirar, balance materializado o null]
+    @Query("SELECT COALESCE(SUM(CASE WHEN ct.status = 'COMPLETED' AND ct.type = 'EARNED_TEACHING' THEN ct.amount ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN ct.status = 'COMPLETED' AND ct.type = 'SPENT_LEARNING' THEN ABS(ct.amount) ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN ct.status IN ('COMPLETED', 'EXPIRED') THEN ct.amount ELSE 0 END), 0), " +
+           "(SELECT COALESCE(SUM(l.remainingAmount), 0) FROM CreditLot l WHERE l.userId = :userId " +
+           "AND l.expiryMonth >= :fromMonth AND l.expiryMonth < :toMonth), " +
+           "(SELECT COUNT(l) FROM CreditLot l WHERE l.userId = :userId " +
+           "AND l.expiryMonth >= :fromMonth AND l.expiryMonth < :toMonth), " +
+           "(SELECT uc.currentBalance FROM UserCredits uc WHERE uc.user.id = :userId) " +
+           "FROM CreditTransaction ct WHERE ct.user.id = :userId")
+    List<Object[]> summarizeUserStatistics(@Param("userId") Long userId,
+                                           @Param("fromMonth") LocalDate fromMonth,
+                                           @Param("toMonth") LocalDate toMonth);
 
     // Transacciones en un rango de fechas
     @Query("SELECT ct FROM CreditTransaction ct WHERE ct.user = :user " +
@@ -52,31 +78,29 @@ public interface CreditTransactionRepository extends JpaRepository<CreditTransac
     // Transacciones por referencia (skill match, video session, etc.)
     List<CreditTransaction> findByReferenceIdAndReferenceTypeOrderByCreatedAtDesc(String referenceId, String referenceType);
 
-    // Créditos próximos a expirar
-    @Query("SELECT ct FROM CreditTransaction ct WHERE ct.user = :user AND ct.status = 'COMPLETED' " +
-           "AND ct.expiresAt IS NOT NULL AND ct.expiresAt BETWEEN :now AND :expirationWindow")
-    List<CreditTransaction> findExpiringCredits(@Param("user") User user,
-                                               @Param("now") LocalDateTime now,
-                                               @Param("expirationWindow") LocalDateTime expirationWindow);
-
-    // Créditos expirados no procesados
-    @Query("SELECT ct FROM CreditTransaction ct WHERE ct.status = 'COMPLETED' " +
-           "AND ct.expiresAt IS NOT NULL AND ct.expiresAt < :now")
-    List<CreditTransaction> findExpiredCredits(@Param("now") LocalDateTime now);
-
-    // Estadísticas mensuales de un usuario
-    @Query("SELECT DATE_FORMAT(ct.createdAt, '%Y-%m') as month, " +
-           "SUM(CASE WHEN ct.amount > 0 THEN ct.amount ELSE 0 END) as earned, " +
-           "SUM(CASE WHEN ct.amount < 0 THEN ABS(ct.amount) ELSE 0 END) as spent " +
-           "FROM CreditTransaction ct WHERE ct.user = :user AND ct.status = 'COMPLETED' " +
-           "GROUP BY DATE_FORMAT(ct.createdAt, '%Y-%m') ORDER BY month DESC")
-    List<Object[]> getMonthlyStatistics(@Param("user") User user);
-
-    // Top usuarios por créditos ganados
-    @Query("SELECT ct.user, SUM(ct.amount) as totalEarned FROM CreditTransaction ct " +
-           "WHERE ct.status = 'COMPLETED' AND ct.type = 'EARNED_TEACHING' " +
-           "GROUP BY ct.user ORDER BY totalEarned DESC")
-    List<Object[]> getTopEarners(Pageable pageable);
+    // Filas de expiración recién insertadas por bloque: [id, userId, referenceId (lote expirado), amount]
+    @Query("SELECT ct.id, ct.user.id, ct.referenceId, ct.amount FROM CreditTransaction ct " +
+           "WHERE ct.user.id IN :userIds AND ct.referenceType = 'CREDIT_LOT' AND ct.referenceId IN :referenceIds " +
+           "ORDER BY ct.id ASC")
+    List<Object[]> findExpirationEntries(@Param("userIds") Collection<Long> userIds,
+                                         @Param("referenceIds") Collection<String> referenceIds);
+
+    // Abonos de una campaña a un bloque de usuarios (ids generados por el batch): [id, userId]
+    @Query("SELECT ct.id, ct.user.id FROM CreditTransaction ct WHERE ct.user.id IN :userIds " +
+           "AND ct.referenceType = 'CREDIT_CAMPAIGN' AND ct.referenceId = :campaignId ORDER BY ct.id ASC")
+    List<Object[]> findCampaignEntries(@Param("campaignId") String campaignId,
+                                       @Param("userIds") Collection<Long> userIds);
+
+    // Movimientos ya registrados para una sesión de video: [id, userId, type, amount]
+    @Query("SELECT ct.id, ct.user.id, ct.type, ct.amount FROM CreditTransaction ct " +
+           "WHERE ct.videoSession.id = :videoSessionId ORDER BY ct.id ASC")
+    List<Object[]> findSessionEntries(@Param("videoSessionId") Long videoSessionId);
+
+    // Nombres de las habilidades de un match en una sola consulta (descripciones de la liquidación):
+    // [habilidad enseñada, habilidad aprendida]
+    @Query("SELECT ts.name, ls.name FROM SkillMatch sm JOIN sm.teacherSkill tus JOIN tus.skill ts " +
+           "JOIN sm.learnerSkill lus JOIN lus.skill ls WHERE sm.id = :skillMatchId")
+    List<Object[]> findSkillNamesBySkillMatchId(@Param("skillMatchId") Long skillMatchId);
 
     // Transacciones recientes del sistema
     @Query("SELECT ct FROM CreditTransaction ct WHERE ct.status = 'COMPLETED' " +
@@ -92,21 +116,20 @@ public interface CreditTransactionRepository extends JpaRepository<CreditTransac
            "AND ct.createdAt >= :since ORDER BY ct.createdAt DESC")
     List<CreditTransaction> getFailedTransactionsSince(@Param("since") LocalDateTime since);
 
+    // Transacción con su usuario cargado (respuestas repetidas por idempotencia)
+    @Query("SELECT ct FROM CreditTransaction ct JOIN FETCH ct.user WHERE ct.id = :id")
+    Optional<CreditTransaction> findByIdWithUser(@Param("id") Long id);
+
     // Verificar si existe transacción para una referencia específica
     boolean existsByReferenceIdAndReferenceTypeAndType(String referenceId, String referenceType, CreditTransaction.TransactionType type);
 
     // Buscar transacciones por skill match
-    List<CreditTransaction> findBySkillMatchOrderByCreatedAtDesc(Long skillMatchId);
+    @Query("SELECT ct FROM CreditTransaction ct WHERE ct.skillMatch.id = :skillMatchId ORDER BY ct.createdAt DESC")
+    List<CreditTransaction> findBySkillMatchOrderByCreatedAtDesc(@Param("skillMatchId") Long skillMatchId);
 
     // Buscar transacciones por video session
-    List<CreditTransaction> findByVideoSessionOrderByCreatedAtDesc(Long videoSessionId);
-
-    // Balance diario del usuario (para gráficos)
-    @Query("SELECT DATE(ct.processedAt) as date, " +
-           "SUM(ct.amount) OVER (ORDER BY DATE(ct.processedAt)) as runningBalance " +
-           "FROM CreditTransaction ct WHERE ct.user = :user AND ct.status = 'COMPLETED' " +
-           "GROUP BY DATE(ct.processedAt) ORDER BY date DESC")
-    List<Object[]> getDailyBalanceHistory(@Param("user") User user, Pageable pageable);
+    @Query("SELECT ct FROM CreditTransaction ct WHERE ct.videoSession.id = :videoSessionId ORDER BY ct.createdAt DESC")
+    List<CreditTransaction> findByVideoSessionOrderByCreatedAtDesc(@Param("videoSessionId") Long videoSessionId);
 
     // Créditos ganados por categoría de habilidad
     @Query("SELECT s.category, SUM(ct.amount) FROM CreditTransaction ct " +
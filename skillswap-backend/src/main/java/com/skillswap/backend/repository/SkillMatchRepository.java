@@ -131,6 +131,15 @@ public interface SkillMatchRepository extends JpaRepository<SkillMatch, Long> {
            "sm.status IN ('PENDING', 'ACCEPTED', 'ACTIVE')")
     boolean existsActiveMatchBetweenUsers(@Param("userId1") Long userId1, @Param("userId2") Long userId2);
 
+    /**
+     * Ids de los usuarios con los que un usuario tiene un match vigente
+     */
+    @Query("SELECT DISTINCT CASE WHEN sm.teacherUser.id = :userId THEN sm.learnerUser.id ELSE sm.teacherUser.id END " +
+           "FROM SkillMatch sm WHERE " +
+           "(sm.teacherUser.id = :userId OR sm.learnerUser.id = :userId) AND " +
+           "sm.status IN ('PENDING', 'ACCEPTED', 'ACTIVE', 'IN_PROGRESS')")
+    List<Long> findMatchPartnerIds(@Param("userId") Long userId);
+
     /**
      * Encuentra el match más reciente para un usuario
      */
@@ -0,0 +1,52 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.SystemBroadcast;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SystemBroadcastRepository extends JpaRepository<SystemBroadcast, Long> {
+
+    /**
+     * Reclamar una difusión pendiente o abandonada (heartbeat vencido) para este nodo
+     */
+    @Modifying
+    @Query("UPDATE SystemBroadcast b SET b.status = 'RUNNING', b.heartbeatAt = :now WHERE b.id = :id AND " +
+           "(b.status = 'PENDING' OR (b.status = 'RUNNING' AND (b.heartbeatAt IS NULL OR b.heartbeatAt < :staleBefore)))")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Difusiones que hay que reanudar
+     */
+    @Query("SELECT b.id FROM SystemBroadcast b WHERE b.status = 'PENDING' OR " +
+           "(b.status = 'RUNNING' AND (b.heartbeatAt IS NULL OR b.heartbeatAt < :staleBefore))")
+    List<Long> findResumableIds(@Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Avanzar el checkpoint tras confirmar un bloque, solo si sigue donde lo dejó este ejecutor:
+     * 0 filas significa que otro nodo reclamó la difusión y ya avanzó
+     */
+    @Modifying
+    @Query("UPDATE SystemBroadcast b SET b.lastUserId = :lastUserId, " +
+           "b.deliveredCount = b.deliveredCount + :delivered, b.heartbeatAt = :now " +
+           "WHERE b.id = :id AND b.status = 'RUNNING' AND b.lastUserId = :afterId")
+    int advanceCheckpoint(@Param("id") Long id,
+                          @Param("afterId") Long afterId,
+                          @Param("lastUserId") Long lastUserId,
+                          @Param("delivered") long delivered,
+                          @Param("now") LocalDateTime now);
+
+    /**
+     * Cerrar la difusión si este ejecutor sigue siendo el dueño del checkpoint
+     */
+    @Modifying
+    @Query("UPDATE SystemBroadcast b SET b.status = 'COMPLETED', b.completedAt = :now " +
+           "WHERE b.id = :id AND b.status = 'RUNNING' AND b.lastUserId = :afterId")
+    int complete(@Param("id") Long id, @Param("afterId") Long afterId, @Param("now") LocalDateTime now);
+}
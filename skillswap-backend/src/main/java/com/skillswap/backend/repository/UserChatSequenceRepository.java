@@ -0,0 +1,61 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.UserChatSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserChatSequenceRepository extends JpaRepository<UserChatSequence, Long> {
+
+    /**
+     * Crear el contador de un usuario; falla por clave duplicada si otra transacción ya lo creó
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_chat_sequence (user_id, last_sequence, compacted_through) " +
+                   "SELECT :userId, 0, 0 WHERE NOT EXISTS (SELECT 1 FROM user_chat_sequence WHERE user_id = :userId)",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId);
+
+    /**
+     * Reservar count secuencias; la fila queda bloqueada hasta el fin de la transacción
+     */
+    @Modifying
+    @Query("UPDATE UserChatSequence s SET s.lastSequence = s.lastSequence + :count WHERE s.userId = :userId")
+    int increment(@Param("userId") Long userId, @Param("count") long count);
+
+    /**
+     * Bloquear los contadores de varios usuarios en orden de usuario: [userId, lastSequence]
+     */
+    @Query(value = "SELECT user_id, last_sequence FROM user_chat_sequence WHERE user_id IN (:userIds) " +
+                   "ORDER BY user_id FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockCounters(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Reservar una secuencia para cada usuario de la lista; sus filas ya están bloqueadas por quien llama
+     */
+    @Modifying
+    @Query("UPDATE UserChatSequence s SET s.lastSequence = s.lastSequence + 1 WHERE s.userId IN :userIds")
+    int incrementAll(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Contador y marca de compactación de un usuario: [lastSequence, compactedThrough]
+     */
+    @Query("SELECT s.lastSequence, s.compactedThrough FROM UserChatSequence s WHERE s.userId = :userId")
+    List<Object[]> findCursorBounds(@Param("userId") Long userId);
+
+    /**
+     * Avanzar la marca de compactación de los usuarios con entradas anteriores al corte
+     */
+    @Modifying
+    @Query("UPDATE UserChatSequence s SET s.compactedThrough = " +
+           "(SELECT MAX(c.sequence) FROM ChatChangeLog c WHERE c.userId = s.userId AND c.createdAt < :cutoffDate) " +
+           "WHERE EXISTS (SELECT 1 FROM ChatChangeLog c WHERE c.userId = s.userId AND c.createdAt < :cutoffDate)")
+    int markCompactedBefore(@Param("cutoffDate") LocalDateTime cutoffDate);
+}
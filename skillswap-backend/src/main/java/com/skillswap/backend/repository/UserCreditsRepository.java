@@ -0,0 +1,79 @@
+package com.skillswap.backend.repository;
+
+import com.skillswap.backend.model.UserCredits;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserCreditsRepository extends JpaRepository<UserCredits, Long> {
+
+    // Balance materializado (una sola fila por usuario)
+    @Query("SELECT uc.currentBalance FROM UserCredits uc WHERE uc.user.id = :userId")
+    Optional<BigDecimal> findCurrentBalanceByUserId(@Param("userId") Long userId);
+
+    // Disponible = balance materializado menos créditos reservados por sesiones aceptadas
+    @Query("SELECT uc.currentBalance - uc.reservedCredits FROM UserCredits uc WHERE uc.user.id = :userId")
+    Optional<BigDecimal> findAvailableBalanceByUserId(@Param("userId") Long userId);
+
+    // Fila bloqueada: los movimientos del ledger esperan a que termine la verificación
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT uc FROM UserCredits uc WHERE uc.user.id = :userId")
+    Optional<UserCredits> findByUserIdForUpdate(@Param("userId") Long userId);
+
+    // Bloquear varios balances con una sola consulta, en orden de usuario: [userId, currentBalance, reservedCredits]
+    @Query(value = "SELECT user_id, current_balance, reserved_credits FROM user_credits WHERE user_id IN (:userIds) " +
+                   "ORDER BY user_id FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockBalancesByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    // Usuarios de la lista que ya tienen balance materializado
+    @Query("SELECT uc.user.id FROM UserCredits uc WHERE uc.user.id IN :userIds")
+    List<Long> findUserIdsIn(@Param("userIds") Collection<Long> userIds);
+
+    // Sembrar el balance de un usuario; falla por clave duplicada si otra transacción ya lo creó
+    @Modifying
+    @Query(value = "INSERT INTO user_credits (user_id, current_balance, total_earned, total_spent, lifetime_earnings, " +
+                   "pending_credits, reserved_credits, created_at, updated_at) " +
+                   "SELECT :userId, :balance, :earned, :spent, :earned, 0, 0, :now, :now " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM user_credits WHERE user_id = :userId)", nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId,
+                       @Param("balance") BigDecimal balance,
+                       @Param("earned") BigDecimal earned,
+                       @Param("spent") BigDecimal spent,
+                       @Param("now") LocalDateTime now);
+
+    // Aplicar un movimiento del ledger de forma atómica; bloquea la fila hasta el commit
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserCredits uc SET uc.currentBalance = uc.currentBalance + :amount, " +
+           "uc.totalEarned = uc.totalEarned + :earned, uc.lifetimeEarnings = uc.lifetimeEarnings + :earned, " +
+           "uc.totalSpent = uc.totalSpent + :spent, uc.lastTransactionAt = :now, uc.updatedAt = :now " +
+           "WHERE uc.user.id = :userId")
+    int applyMovement(@Param("userId") Long userId,
+                      @Param("amount") BigDecimal amount,
+                      @Param("earned") BigDecimal earned,
+                      @Param("spent") BigDecimal spent,
+                      @Param("now") LocalDateTime now);
+
+    // Reservar (delta positivo) o liberar (negativo) créditos; la fila ya está bloqueada por quien llama
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserCredits uc SET uc.reservedCredits = uc.reservedCredits + :delta, uc.updatedAt = :now " +
+           "WHERE uc.user.id = :userId")
+    int adjustReserved(@Param("userId") Long userId,
+                       @Param("delta") BigDecimal delta,
+                       @Param("now") LocalDateTime now);
+
+    // Recorrido por clave para la conciliación
+    @Query("SELECT uc FROM UserCredits uc JOIN FETCH uc.user WHERE uc.id > :afterId ORDER BY uc.id ASC")
+    List<UserCredits> findChunkAfter(@Param("afterId") Long afterId, Pageable pageable);
+}
@@ -1,12 +1,14 @@
 package com.skillswap.backend.repository;
 
 import com.skillswap.backend.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -193,4 +195,28 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     @Query("UPDATE User u SET u.phoneVerificationToken = NULL WHERE u.id = :userId")
     void clearPhoneVerificationToken(@Param("userId") Long userId);
+
+    /**
+     * Next chunk of active user ids matching a broadcast segment (keyset on id)
+     */
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId AND u.accountStatus = 'ACTIVE' " +
+           "AND (:userType IS NULL OR u.userType = :userType) " +
+           "AND (:country IS NULL OR u.country = :country) " +
+           "AND (:language IS NULL OR u.language = :language) " +
+           "AND (:premiumOnly = false OR u.isPremium = true) " +
+           "AND (:activeSince IS NULL OR u.lastActiveAt > :activeSince) " +
+           "ORDER BY u.id ASC")
+    List<Long> findSegmentUserIds(@Param("afterId") Long afterId,
+                                  @Param("userType") User.UserType userType,
+                                  @Param("country") String country,
+                                  @Param("language") String language,
+                                  @Param("premiumOnly") boolean premiumOnly,
+                                  @Param("activeSince") LocalDateTime activeSince,
+                                  Pageable pageable);
+
+    /**
+     * Active users among the given ids, in id order
+     */
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids AND u.accountStatus = 'ACTIVE' ORDER BY u.id ASC")
+    List<Long> findActiveIdsIn(@Param("ids") Collection<Long> ids);
 }
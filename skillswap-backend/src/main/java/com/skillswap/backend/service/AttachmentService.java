@@ -0,0 +1,134 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.service.AttachmentStorage.StoredAttachment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio de adjuntos de chat: validación, subida en streaming y descarga por rangos.
+ * El Content-Type nunca viene del cliente: se deriva de la extensión validada, y como el contenido
+ * se comparte entre subidas idénticas, se resuelve en cada descarga a partir de la extensión de la URL.
+ */
+@Service
+public class AttachmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentService.class);
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    // Tipos que se sirven tal cual; cualquier otra extensión permitida se sirve como binario
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "jpg", "image/jpeg",
+            "jpeg", "image/jpeg",
+            "png", "image/png",
+            "gif", "image/gif",
+            "pdf", "application/pdf",
+            "txt", "text/plain",
+            "doc", "application/msword",
+            "docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document"
+    );
+
+    @Autowired
+    private AttachmentStorage attachmentStorage;
+
+    @Value("${skillswap.storage.max-file-size:10485760}")
+    private long maxFileSize;
+
+    @Value("${skillswap.storage.allowed-types:jpg,jpeg,png,pdf,doc,docx}")
+    private String allowedTypes;
+
+    /**
+     * Guardar un adjunto leyendo el cuerpo de la petición sin cargarlo en memoria
+     */
+    public StoredAttachment upload(InputStream content, String filename, long contentLength) throws IOException {
+        if (contentLength > maxFileSize) {
+            throw new RuntimeException("Attachment exceeds maximum size of " + maxFileSize + " bytes");
+        }
+        if (filename == null || !allowedExtensions().contains(extensionOf(filename))) {
+            throw new RuntimeException("Attachment type not allowed: " + filename);
+        }
+
+        StoredAttachment stored = attachmentStorage.store(content, maxFileSize);
+        logger.info("Attachment {} stored ({} bytes, deduplicated: {})", stored.getId(), stored.getSize(), stored.isDeduplicated());
+        return stored;
+    }
+
+    public StoredAttachment getAttachment(String id) throws IOException {
+        return attachmentStorage.find(id)
+                .orElseThrow(() -> new RuntimeException("Attachment not found: " + id));
+    }
+
+    /**
+     * Resolver la cabecera Range (un único rango) contra el tamaño del adjunto.
+     * Devuelve null si no hay rango o no es soportado (se sirve el fichero completo).
+     */
+    public long[] resolveRange(String rangeHeader, long size) {
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=") || rangeHeader.contains(",")) {
+            return null;
+        }
+        String spec = rangeHeader.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                // Sufijo: los últimos N bytes
+                long suffix = Long.parseLong(spec.substring(1));
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? size - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), size - 1);
+            }
+            if (start > end || start >= size) {
+                throw new RuntimeException("Range not satisfiable: " + rangeHeader);
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Content-Type a servir: el de la extensión pedida si está permitida; si no, binario
+     */
+    public String contentTypeFor(String extension) {
+        return extension != null && allowedExtensions().contains(extension.toLowerCase(Locale.ROOT))
+                ? contentTypeOf(extension.toLowerCase(Locale.ROOT))
+                : DEFAULT_CONTENT_TYPE;
+    }
+
+    public String extensionOf(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot >= 0 ? filename.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    public long transferTo(String id, long position, long count, WritableByteChannel target) throws IOException {
+        return attachmentStorage.transferTo(id, position, count, target);
+    }
+
+    private Set<String> allowedExtensions() {
+        return Arrays.stream(allowedTypes.split(","))
+                .map(type -> type.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+    }
+
+    private String contentTypeOf(String extension) {
+        return CONTENT_TYPES.getOrDefault(extension, DEFAULT_CONTENT_TYPE);
+    }
+}
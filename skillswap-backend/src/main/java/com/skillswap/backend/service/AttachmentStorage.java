@@ -0,0 +1,58 @@
+package com.skillswap.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Optional;
+
+/**
+ * Almacenamiento de adjuntos de chat direccionado por contenido.
+ * El id de un adjunto es el SHA-256 de sus bytes, de modo que subir dos veces el mismo
+ * fichero no duplica el almacenamiento. Las implementaciones deben escribir y servir los
+ * datos en streaming, sin cargar el fichero completo en memoria. Solo se guardan los bytes:
+ * el tipo depende de cada referencia (extensión) y lo resuelve AttachmentService.
+ */
+public interface AttachmentStorage {
+
+    /**
+     * Guardar el contenido leído del stream, abortando si supera maxBytes
+     */
+    StoredAttachment store(InputStream content, long maxBytes) throws IOException;
+
+    /**
+     * Obtener los metadatos de un adjunto almacenado
+     */
+    Optional<StoredAttachment> find(String id) throws IOException;
+
+    /**
+     * Copiar count bytes desde position al canal de destino
+     */
+    long transferTo(String id, long position, long count, WritableByteChannel target) throws IOException;
+
+    /**
+     * Metadatos de un adjunto almacenado
+     */
+    class StoredAttachment {
+        private final String id;
+        private final long size;
+        private final boolean deduplicated;
+
+        public StoredAttachment(String id, long size, boolean deduplicated) {
+            this.id = id;
+            this.size = size;
+            this.deduplicated = deduplicated;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public boolean isDeduplicated() {
+            return deduplicated;
+        }
+    }
+}
@@ -0,0 +1,504 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.dto.ChatMessageDTO;
+import com.skillswap.backend.model.ChatArchiveRun;
+import com.skillswap.backend.model.ChatMessage;
+import com.skillswap.backend.repository.ChatArchiveRunRepository;
+import com.skillswap.backend.repository.ChatMessageRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Archivado de mensajes de chat antiguos.
+ * Los mensajes con más de N días se mueven de la base de datos a ficheros de segmento
+ * por conversación (solo se añaden datos), en bloques comprimidos con un índice disperso
+ * de una entrada por bloque. La lectura de una conversación que cruza el límite entre
+ * datos calientes y archivados mapea los segmentos en memoria y solo descomprime los
+ * bloques necesarios.
+ * Cada pasada es una ejecución reclamada por un solo nodo (ChatArchiveRun). Los segmentos se
+ * leen desde cualquier nodo, así que el directorio debe ser un volumen compartido por todo el
+ * cluster y se exige una ruta absoluta al activar el archivado.
+ */
+@Service
+public class ChatArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatArchiveService.class);
+
+    private static final String INDEX_FILE = "index.idx";
+    private static final int INDEX_ENTRY_BYTES = 40;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private ChatArchiveRunRepository runRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${skillswap.chat.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${skillswap.chat.archive.after-days:180}")
+    private int archiveAfterDays;
+
+    @Value("${skillswap.chat.archive.dir:./archive/chat}")
+    private String archiveDir;
+
+    @Value("${skillswap.chat.archive.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${skillswap.chat.archive.block-size:64}")
+    private int blockSize;
+
+    @Value("${skillswap.chat.archive.segment-max-bytes:67108864}")
+    private long segmentMaxBytes;
+
+    @Value("${skillswap.chat.archive.stale-after-minutes:10}")
+    private int staleAfterMinutes;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Un directorio relativo sería local a cada nodo: los mensajes archivados por un nodo
+     * no se podrían leer desde los demás
+     */
+    @PostConstruct
+    public void checkArchiveDir() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path dir = Paths.get(archiveDir);
+        if (!dir.isAbsolute()) {
+            throw new IllegalStateException("skillswap.chat.archive.dir debe ser una ruta absoluta en un volumen " +
+                    "compartido por todos los nodos: " + archiveDir);
+        }
+        Files.createDirectories(dir);
+        if (!Files.isWritable(dir)) {
+            throw new IllegalStateException("No se puede escribir en el directorio de archivo de chat: " + archiveDir);
+        }
+    }
+
+    /**
+     * Mover a segmentos los mensajes anteriores al corte, en bloques por clave.
+     * Reanuda una ejecución abandonada o crea una nueva si ningún nodo está archivando.
+     */
+    @Scheduled(cron = "${skillswap.chat.archive.cron:0 0 4 * * ?}") // Diariamente a las 4 AM
+    public void archiveOldMessages() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            LocalDateTime staleBefore = LocalDateTime.now().minusMinutes(staleAfterMinutes);
+            List<Long> resumable = runRepository.findResumableIds(staleBefore);
+            if (!resumable.isEmpty()) {
+                resumable.forEach(this::run);
+                return;
+            }
+            if (runRepository.existsActiveRun(staleBefore)) {
+                logger.info("Chat archiving already running on another node");
+                return;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            Long runId;
+            try {
+                runId = transactionTemplate.execute(status -> runRepository.saveAndFlush(
+                        new ChatArchiveRun(now.toLocalDate(), now.minusDays(archiveAfterDays))).getId());
+            } catch (DataIntegrityViolationException e) {
+                logger.info("Chat archiving for {} already started on another node", now.toLocalDate());
+                return;
+            }
+            run(runId);
+        } catch (Exception e) {
+            logger.error("Error starting chat archiving", e);
+        }
+    }
+
+    private void run(Long runId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status ->
+                runRepository.claim(runId, now, now.minusMinutes(staleAfterMinutes)));
+        if (claimed == null || claimed == 0) {
+            logger.debug("Chat archive run {} already claimed or finished", runId);
+            return;
+        }
+
+        ChatArchiveRun run = runRepository.findById(runId).orElseThrow();
+        LocalDateTime cutoff = run.getCutoff();
+        long afterId = run.getLastMessageId();
+        long archived = 0;
+
+        logger.info("Chat archive run {}: archiving messages sent before {} from message {}", runId, cutoff, afterId);
+        try {
+            while (true) {
+                List<ChatMessage> chunk = chatMessageRepository.findArchivableChunk(cutoff, afterId, PageRequest.of(0, chunkSize));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                long chunkAfterId = afterId;
+                long lastId = chunk.get(chunk.size() - 1).getId();
+
+                // Primero se escriben los segmentos; si el borrado falla, el índice evita duplicados
+                appendChunk(chunk);
+
+                List<Long> ids = chunk.stream().map(ChatMessage::getId).collect(Collectors.toList());
+                Boolean advanced = transactionTemplate.execute(status -> {
+                    if (runRepository.advance(runId, chunkAfterId, lastId, ids.size(), LocalDateTime.now()) == 0) {
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                    chatMessageRepository.deleteAllByIdInBatch(ids);
+                    return true;
+                });
+                if (!Boolean.TRUE.equals(advanced)) {
+                    logger.warn("Chat archive run {} was taken over by another node, stopping at message {}", runId, afterId);
+                    return;
+                }
+                afterId = lastId;
+                archived += chunk.size();
+            }
+
+            transactionTemplate.executeWithoutResult(status -> runRepository.findById(runId).ifPresent(finished -> {
+                finished.setStatus(ChatArchiveRun.RunStatus.COMPLETED);
+                finished.setCompletedAt(LocalDateTime.now());
+                runRepository.save(finished);
+            }));
+            logger.info("Chat archive run {} completed: {} messages archived", runId, archived);
+        } catch (Exception e) {
+            logger.error("Chat archive run {} failed at message {}", runId, afterId, e);
+            transactionTemplate.executeWithoutResult(status -> runRepository.findById(runId).ifPresent(failed -> {
+                failed.setStatus(ChatArchiveRun.RunStatus.FAILED);
+                failed.setErrorMessage(e.getMessage() != null && e.getMessage().length() > 500
+                        ? e.getMessage().substring(0, 500) : e.getMessage());
+                runRepository.save(failed);
+            }));
+        }
+    }
+
+    /**
+     * Leer mensajes archivados de una conversación, del más reciente al más antiguo
+     *
+     * @param offset mensajes archivados a saltar desde el más reciente
+     * @param limit  máximo de mensajes a devolver
+     */
+    public List<ChatMessageDTO> readConversation(Long userId1, Long userId2, long offset, int limit) {
+        List<ChatMessageDTO> result = new ArrayList<>();
+        Path conversationDir = conversationDir(userId1, userId2);
+        if (limit <= 0 || !Files.exists(conversationDir.resolve(INDEX_FILE))) {
+            return result;
+        }
+
+        try {
+            List<IndexEntry> index = readIndex(conversationDir);
+            long skip = offset;
+            for (int i = index.size() - 1; i >= 0 && result.size() < limit; i--) {
+                IndexEntry entry = index.get(i);
+                // El índice disperso permite saltar bloques completos sin descomprimirlos
+                if (skip >= entry.count) {
+                    skip -= entry.count;
+                    continue;
+                }
+                List<ChatMessageDTO> block = readBlock(conversationDir, entry);
+                for (int j = block.size() - 1 - (int) skip; j >= 0 && result.size() < limit; j--) {
+                    result.add(block.get(j));
+                }
+                skip = 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading chat archive for " + conversationDir, e);
+        }
+        return result;
+    }
+
+    private void appendChunk(List<ChatMessage> chunk) throws IOException {
+        Map<String, List<ChatMessage>> byConversation = new TreeMap<>();
+        for (ChatMessage message : chunk) {
+            Long senderId = message.getSender() != null ? message.getSender().getId() : null;
+            Long receiverId = message.getReceiver().getId();
+            byConversation.computeIfAbsent(conversationKey(senderId, receiverId), k -> new ArrayList<>()).add(message);
+        }
+
+        for (Map.Entry<String, List<ChatMessage>> entry : byConversation.entrySet()) {
+            appendConversation(conversationDir(entry.getKey()), entry.getValue());
+        }
+    }
+
+    private void appendConversation(Path dir, List<ChatMessage> messages) throws IOException {
+        Files.createDirectories(dir);
+        List<IndexEntry> index = readIndex(dir);
+        long lastArchivedId = index.isEmpty() ? 0 : index.get(index.size() - 1).lastId;
+
+        List<ChatMessage> pending = new ArrayList<>();
+        for (ChatMessage message : messages) {
+            if (message.getId() > lastArchivedId) {
+                pending.add(message);
+            }
+        }
+
+        int segment = index.isEmpty() ? 0 : index.get(index.size() - 1).segment;
+        for (int from = 0; from < pending.size(); from += blockSize) {
+            List<ChatMessage> block = pending.subList(from, Math.min(from + blockSize, pending.size()));
+            byte[] raw = encodeBlock(block);
+            byte[] compressed = compress(raw);
+
+            Path segmentFile = segmentFile(dir, segment);
+            if (Files.exists(segmentFile) && Files.size(segmentFile) + compressed.length > segmentMaxBytes) {
+                segmentFile = segmentFile(dir, ++segment);
+            }
+
+            long offset;
+            try (FileChannel channel = FileChannel.open(segmentFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                offset = channel.size();
+                channel.write(ByteBuffer.wrap(compressed));
+                channel.force(false);
+            }
+
+            // La entrada de índice se escribe después del bloque: un lector nunca ve un bloque incompleto
+            ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_BYTES)
+                    .putInt(segment)
+                    .putLong(offset)
+                    .putInt(compressed.length)
+                    .putInt(raw.length)
+                    .putInt(block.size())
+                    .putLong(block.get(0).getId())
+                    .putLong(block.get(block.size() - 1).getId());
+            indexEntry.flip();
+            try (FileChannel channel = FileChannel.open(dir.resolve(INDEX_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                channel.write(indexEntry);
+                channel.force(false);
+            }
+        }
+    }
+
+    private List<IndexEntry> readIndex(Path dir) throws IOException {
+        Path indexFile = dir.resolve(INDEX_FILE);
+        List<IndexEntry> entries = new ArrayList<>();
+        if (!Files.exists(indexFile)) {
+            return entries;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+        // Una entrada incompleta al final (escritura interrumpida) se ignora
+        while (buffer.remaining() >= INDEX_ENTRY_BYTES) {
+            entries.add(new IndexEntry(buffer.getInt(), buffer.getLong(), buffer.getInt(), buffer.getInt(),
+                    buffer.getInt(), buffer.getLong(), buffer.getLong()));
+        }
+        return entries;
+    }
+
+    private List<ChatMessageDTO> readBlock(Path dir, IndexEntry entry) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile(dir, entry.segment), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, entry.offset, entry.length);
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(mapped);
+                byte[] raw = new byte[entry.rawLength];
+                int read = 0;
+                while (read < raw.length && !inflater.finished()) {
+                    read += inflater.inflate(raw, read, raw.length - read);
+                }
+                return decodeBlock(raw);
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupted chat archive block at offset " + entry.offset, e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    private byte[] encodeBlock(List<ChatMessage> block) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(block.size());
+        for (ChatMessage message : block) {
+            out.writeLong(message.getId());
+            writeNullableLong(out, message.getSender() != null ? message.getSender().getId() : null);
+            writeString(out, message.getSender() != null ? message.getSender().getDisplayNameOrFullName() : null);
+            writeString(out, message.getSender() != null ? message.getSender().getProfilePictureUrl() : null);
+            out.writeLong(message.getReceiver().getId());
+            writeString(out, message.getReceiver().getDisplayNameOrFullName());
+            writeNullableLong(out, message.getSkillMatch() != null ? message.getSkillMatch().getId() : null);
+            writeString(out, message.getContent());
+            writeString(out, message.getMessageType().name());
+            out.writeBoolean(Boolean.TRUE.equals(message.getIsRead()));
+            writeNullableLong(out, toEpochMillis(message.getSentAt()));
+            writeNullableLong(out, toEpochMillis(message.getReadAt()));
+            writeNullableLong(out, toEpochMillis(message.getEditedAt()));
+            out.writeBoolean(Boolean.TRUE.equals(message.getIsEdited()));
+            writeString(out, message.getAttachmentUrl());
+            writeString(out, message.getAttachmentType());
+            writeString(out, message.getMetadata());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private List<ChatMessageDTO> decodeBlock(byte[] raw) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        int count = in.readInt();
+        List<ChatMessageDTO> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ChatMessageDTO dto = new ChatMessageDTO();
+            dto.setId(in.readLong());
+            dto.setSenderId(readNullableLong(in));
+            dto.setSenderName(readString(in));
+            dto.setSenderAvatar(readString(in));
+            dto.setReceiverId(in.readLong());
+            dto.setReceiverName(readString(in));
+            dto.setSkillMatchId(readNullableLong(in));
+            dto.setContent(readString(in));
+            dto.setMessageType(ChatMessage.MessageType.valueOf(readString(in)));
+            dto.setIsRead(in.readBoolean());
+            dto.setSentAt(fromEpochMillis(readNullableLong(in)));
+            dto.setReadAt(fromEpochMillis(readNullableLong(in)));
+            dto.setEditedAt(fromEpochMillis(readNullableLong(in)));
+            dto.setIsEdited(in.readBoolean());
+            dto.setAttachmentUrl(readString(in));
+            dto.setAttachmentType(readString(in));
+            dto.setMetadata(readString(in));
+            messages.add(dto);
+        }
+        return messages;
+    }
+
+    private byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private Path conversationDir(Long userId1, Long userId2) {
+        return conversationDir(conversationKey(userId1, userId2));
+    }
+
+    private Path conversationDir(String conversationKey) {
+        // Un nivel de reparto para no acumular miles de directorios en la raíz
+        String bucket = String.format("%02x", conversationKey.hashCode() & 0xff);
+        return Paths.get(archiveDir, bucket, conversationKey);
+    }
+
+    private String conversationKey(Long userId1, Long userId2) {
+        // Los mensajes del sistema no tienen remitente: se archivan con id 0
+        long a = userId1 != null ? userId1 : 0L;
+        long b = userId2 != null ? userId2 : 0L;
+        return Math.min(a, b) + "_" + Math.max(a, b);
+    }
+
+    private Path segmentFile(Path dir, int segment) {
+        return dir.resolve(String.format("segment-%05d.dat", segment));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeNullableLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readNullableLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static Long toEpochMillis(LocalDateTime value) {
+        return value != null ? value.toInstant(ZoneOffset.UTC).toEpochMilli() : null;
+    }
+
+    private static LocalDateTime fromEpochMillis(Long value) {
+        return value != null ? LocalDateTime.ofInstant(Instant.ofEpochMilli(value), ZoneOffset.UTC) : null;
+    }
+
+    /**
+     * Entrada del índice disperso: un bloque comprimido dentro de un segmento
+     */
+    private static class IndexEntry {
+        private final int segment;
+        private final long offset;
+        private final int length;
+        private final int rawLength;
+        private final int count;
+        private final long firstId;
+        private final long lastId;
+
+        IndexEntry(int segment, long offset, int length, int rawLength, int count, long firstId, long lastId) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.rawLength = rawLength;
+            this.count = count;
+            this.firstId = firstId;
+            this.lastId = lastId;
+        }
+    }
+}
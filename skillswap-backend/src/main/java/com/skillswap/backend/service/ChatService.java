@@ -4,6 +4,7 @@ import com.skillswap.backend.dto.ChatMessageDTO;
 import com.skillswap.backend.model.ChatMessage;
 import com.skillswap.backend.model.SkillMatch;
 import com.skillswap.backend.model.User;
+import com.skillswap.backend.monitoring.ChatMetricsService;
 import com.skillswap.backend.repository.ChatMessageRepository;
 import com.skillswap.backend.repository.SkillMatchRepository;
 import com.skillswap.backend.repository.UserRepository;
@@ -13,11 +14,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -38,7 +39,19 @@ public class ChatService {
     private SkillMatchRepository skillMatchRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ClusterMessageRelay messageRelay;
+
+    @Autowired
+    private ChatSyncService chatSyncService;
+
+    @Autowired
+    private ChatArchiveService chatArchiveService;
+
+    @Autowired
+    private ChatMetricsService chatMetricsService;
+
+    @Autowired
+    private PresenceService presenceService;
 
     /**
      * Enviar mensaje y notificar por WebSocket
@@ -74,6 +87,9 @@ public class ChatService {
         
         ChatMessage savedMessage = chatMessageRepository.save(message);
         ChatMessageDTO messageDTO = new ChatMessageDTO(savedMessage);
+        chatSyncService.recordMessageCreated(savedMessage);
+        chatMetricsService.recordMessageSent(senderId, receiverId, System.currentTimeMillis());
+        presenceService.recordContact(senderId, receiverId);
 
         // Notificar por WebSocket
         notifyMessageReceived(messageDTO);
@@ -91,9 +107,17 @@ public class ChatService {
         Pageable pageable = PageRequest.of(page, size);
         Page<ChatMessage> messages = chatMessageRepository.findConversationBetweenUsers(userId1, userId2, pageable);
         
-        return messages.getContent().stream()
+        List<ChatMessageDTO> result = messages.getContent().stream()
                 .map(ChatMessageDTO::new)
                 .collect(Collectors.toList());
+        
+        // La página cruza el límite de datos calientes: completar con mensajes archivados
+        if (result.size() < size && chatArchiveService.isEnabled()) {
+            long archivedOffset = Math.max(0, (long) page * size - messages.getTotalElements());
+            result.addAll(chatArchiveService.readConversation(userId1, userId2, archivedOffset, size - result.size()));
+        }
+        
+        return result;
     }
 
     /**
@@ -136,13 +160,32 @@ public class ChatService {
         int updatedCount = chatMessageRepository.markMessagesAsRead(senderId, receiverId, LocalDateTime.now());
         
         if (updatedCount > 0) {
+            chatSyncService.recordMessagesRead(senderId, receiverId, null);
             // Notificar que los mensajes han sido leídos
-            notifyMessagesRead(senderId, receiverId);
+            notifyMessagesRead(senderId, receiverId, null);
         }
         
         logger.info("{} messages marked as read", updatedCount);
     }
 
+    /**
+     * Aplicar un lote de confirmaciones de lectura acumuladas para un par remitente/receptor.
+     * Un único UPDATE hasta el mayor id leído y una sola notificación al remitente.
+     */
+    public int applyReadReceipts(Long senderId, Long receiverId, Long upToMessageId) {
+        int updatedCount = chatMessageRepository.markMessagesAsReadUpTo(
+                senderId, receiverId, upToMessageId, LocalDateTime.now());
+        
+        if (updatedCount > 0) {
+            chatSyncService.recordMessagesRead(senderId, receiverId, upToMessageId);
+            notifyMessagesRead(senderId, receiverId, upToMessageId);
+        }
+        
+        logger.debug("{} messages marked as read from {} to {} up to message {}", 
+                    updatedCount, senderId, receiverId, upToMessageId);
+        return updatedCount;
+    }
+
     /**
      * Obtener conteo de mensajes no leídos
      */
@@ -190,53 +233,59 @@ public class ChatService {
 
     /**
      * Editar mensaje
+     * La propiedad y la ventana de 24 horas se comprueban en el propio UPDATE; después solo se leen
+     * las columnas del mensaje, sin los usuarios: el remitente ya tiene su nombre y el del receptor
      */
     public ChatMessageDTO editMessage(Long messageId, Long userId, String newContent) {
         logger.info("Editing message {} by user {}", messageId, userId);
         
-        ChatMessage message = chatMessageRepository.findById(messageId)
-                .orElseThrow(() -> new RuntimeException("Message not found: " + messageId));
-        
-        // Verificar que el usuario es el remitente
-        if (!message.getSender().getId().equals(userId)) {
-            throw new RuntimeException("Only the sender can edit the message");
-        }
-        
         // No permitir editar mensajes muy antiguos (por ejemplo, más de 24 horas)
-        if (message.getSentAt().isBefore(LocalDateTime.now().minusDays(1))) {
-            throw new RuntimeException("Cannot edit messages older than 24 hours");
+        LocalDateTime editedAt = LocalDateTime.now();
+        int updated = chatMessageRepository.editOwnMessage(messageId, userId, newContent, editedAt, editedAt.minusDays(1));
+        if (updated == 0) {
+            throw rejectedEdit(messageId, userId);
         }
         
-        message.setContent(newContent);
-        message.markAsEdited();
+        Object[] row = chatMessageRepository.findScalarsById(messageId).get(0);
+        ChatMessageDTO edited = new ChatMessageDTO();
+        edited.setId(messageId);
+        edited.setSenderId(userId);
+        edited.setReceiverId((Long) row[0]);
+        edited.setSkillMatchId((Long) row[1]);
+        edited.setContent(newContent);
+        edited.setMessageType((ChatMessage.MessageType) row[2]);
+        edited.setIsRead((Boolean) row[3]);
+        edited.setSentAt((LocalDateTime) row[4]);
+        edited.setReadAt((LocalDateTime) row[5]);
+        edited.setIsEdited(true);
+        edited.setEditedAt(editedAt);
+        edited.setAttachmentUrl((String) row[6]);
+        edited.setAttachmentType((String) row[7]);
+        edited.setMetadata((String) row[8]);
         
-        ChatMessage savedMessage = chatMessageRepository.save(message);
-        ChatMessageDTO messageDTO = new ChatMessageDTO(savedMessage);
+        chatSyncService.recordMessageEdited(messageId, userId, edited.getReceiverId());
+        notifyMessageEdited(edited);
         
-        // Notificar edición por WebSocket
-        notifyMessageEdited(messageDTO);
-        
-        return messageDTO;
+        return edited;
     }
 
     /**
      * Eliminar mensaje
+     * El DELETE condicional decide; el receptor se lee antes porque el borrado no puede devolverlo
+     * de forma portable (H2 y PostgreSQL) y hace falta para la sincronización y la notificación
      */
     public void deleteMessage(Long messageId, Long userId) {
         logger.info("Deleting message {} by user {}", messageId, userId);
         
-        ChatMessage message = chatMessageRepository.findById(messageId)
-                .orElseThrow(() -> new RuntimeException("Message not found: " + messageId));
-        
-        // Verificar que el usuario es el remitente
-        if (!message.getSender().getId().equals(userId)) {
-            throw new RuntimeException("Only the sender can delete the message");
+        Long receiverId = chatMessageRepository.findReceiverIdOfOwnMessage(messageId, userId);
+        if (receiverId == null || chatMessageRepository.deleteOwnMessage(messageId, userId) == 0) {
+            throw rejectedChange(messageId, "delete");
         }
-        
-        chatMessageRepository.delete(message);
+        chatSyncService.recordMessageDeleted(messageId, userId, receiverId);
+        chatMetricsService.recordMessageDeleted();
         
         // Notificar eliminación por WebSocket
-        notifyMessageDeleted(messageId, message.getReceiver().getId());
+        notifyMessageDeleted(messageId, receiverId);
     }
 
     /**
@@ -262,6 +311,8 @@ public class ChatService {
         
         ChatMessage savedMessage = chatMessageRepository.save(message);
         ChatMessageDTO messageDTO = new ChatMessageDTO(savedMessage);
+        chatSyncService.recordMessageCreated(savedMessage);
+        chatMetricsService.recordMessageSent(null, receiverId, System.currentTimeMillis());
         
         // Notificar por WebSocket
         notifyMessageReceived(messageDTO);
@@ -269,19 +320,34 @@ public class ChatService {
         return messageDTO;
     }
 
+    // Solo se consulta cuando el UPDATE no tocó ninguna fila, para elegir el error
+    private RuntimeException rejectedEdit(Long messageId, Long userId) {
+        if (chatMessageRepository.findReceiverIdOfOwnMessage(messageId, userId) != null) {
+            return new RuntimeException("Cannot edit messages older than 24 hours");
+        }
+        return rejectedChange(messageId, "edit");
+    }
+
+    private RuntimeException rejectedChange(Long messageId, String action) {
+        if (!chatMessageRepository.existsById(messageId)) {
+            return new RuntimeException("Message not found: " + messageId);
+        }
+        return new RuntimeException("Only the sender can " + action + " the message");
+    }
+
     // Métodos privados para notificaciones WebSocket
 
     private void notifyMessageReceived(ChatMessageDTO messageDTO) {
         try {
             // Enviar al receptor específico
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                     messageDTO.getReceiverId().toString(),
                     "/queue/messages",
                     messageDTO
             );
             
             // También enviar confirmación al remitente
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                     messageDTO.getSenderId().toString(),
                     "/queue/message-sent",
                     messageDTO
@@ -291,16 +357,18 @@ public class ChatService {
         }
     }
 
-    private void notifyMessagesRead(Long senderId, Long receiverId) {
+    private void notifyMessagesRead(Long senderId, Long receiverId, Long upToMessageId) {
         try {
-            Map<String, Object> readNotification = Map.of(
-                    "type", "messages_read",
-                    "senderId", senderId,
-                    "receiverId", receiverId,
-                    "timestamp", LocalDateTime.now()
-            );
+            Map<String, Object> readNotification = new HashMap<>();
+            readNotification.put("type", "messages_read");
+            readNotification.put("senderId", senderId);
+            readNotification.put("receiverId", receiverId);
+            readNotification.put("timestamp", LocalDateTime.now());
+            if (upToMessageId != null && upToMessageId != Long.MAX_VALUE) {
+                readNotification.put("upToMessageId", upToMessageId);
+            }
             
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                     senderId.toString(),
                     "/queue/read-receipts",
                     readNotification
@@ -312,7 +380,7 @@ public class ChatService {
 
     private void notifyMessageEdited(ChatMessageDTO messageDTO) {
         try {
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                     messageDTO.getReceiverId().toString(),
                     "/queue/message-edited",
                     messageDTO
@@ -330,7 +398,7 @@ public class ChatService {
                     "timestamp", LocalDateTime.now()
             );
             
-            messagingTemplate.convertAndSendToUser(
+            messageRelay.convertAndSendToUser(
                     receiverId.toString(),
                     "/queue/message-deleted",
                     deleteNotification
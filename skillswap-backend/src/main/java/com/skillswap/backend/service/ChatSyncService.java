@@ -0,0 +1,265 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.dto.ChatMessageDTO;
+import com.skillswap.backend.model.ChatChangeLog;
+import com.skillswap.backend.model.ChatChangeLog.ChangeType;
+import com.skillswap.backend.model.ChatMessage;
+import com.skillswap.backend.repository.ChatChangeLogRepository;
+import com.skillswap.backend.repository.ChatMessageRepository;
+import com.skillswap.backend.repository.UserChatSequenceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Sincronización incremental de chat.
+ * ChatService registra cada mutación en un log por usuario; un cliente que se reconecta
+ * pide los cambios posteriores a su última secuencia y recibe una respuesta compacta
+ * (cada mensaje una sola vez en su último estado, lecturas agrupadas por conversación).
+ * Las secuencias son propias de cada usuario y se reservan con la fila de UserChatSequence
+ * bloqueada, así que se confirman en orden y un cursor nunca salta un cambio aún sin confirmar.
+ */
+@Service
+@Transactional
+public class ChatSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatSyncService.class);
+
+    private static final int MAX_SYNC_LIMIT = 1000;
+
+    @Autowired
+    private ChatChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private UserChatSequenceRepository sequenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${skillswap.chat.sync.retention-days:7}")
+    private int retentionDays;
+
+    /**
+     * Registrar un mensaje nuevo para remitente y receptor
+     */
+    public void recordMessageCreated(ChatMessage message) {
+        Long senderId = message.getSender() != null ? message.getSender().getId() : null;
+        Long receiverId = message.getReceiver().getId();
+        List<ChatChangeLog> entries = new ArrayList<>(2);
+        entries.add(new ChatChangeLog(receiverId, ChangeType.MESSAGE_CREATED, message.getId(), senderId));
+        if (senderId != null) {
+            entries.add(new ChatChangeLog(senderId, ChangeType.MESSAGE_CREATED, message.getId(), receiverId));
+        }
+        append(entries);
+    }
+
+    /**
+     * Registrar la edición de un mensaje
+     */
+    public void recordMessageEdited(Long messageId, Long senderId, Long receiverId) {
+        append(List.of(
+                new ChatChangeLog(receiverId, ChangeType.MESSAGE_EDITED, messageId, senderId),
+                new ChatChangeLog(senderId, ChangeType.MESSAGE_EDITED, messageId, receiverId)));
+    }
+
+    /**
+     * Registrar la eliminación de un mensaje; las entradas previas del mensaje quedan obsoletas
+     */
+    public void recordMessageDeleted(Long messageId, Long senderId, Long receiverId) {
+        changeLogRepository.deleteSupersededChanges(messageId,
+                List.of(ChangeType.MESSAGE_CREATED, ChangeType.MESSAGE_EDITED));
+        append(List.of(
+                new ChatChangeLog(receiverId, ChangeType.MESSAGE_DELETED, messageId, senderId),
+                new ChatChangeLog(senderId, ChangeType.MESSAGE_DELETED, messageId, receiverId)));
+    }
+
+    /**
+     * Registrar que receiverId leyó los mensajes de senderId (hasta upToMessageId si se indica)
+     */
+    public void recordMessagesRead(Long senderId, Long receiverId, Long upToMessageId) {
+        Long bound = upToMessageId != null && upToMessageId != Long.MAX_VALUE ? upToMessageId : null;
+
+        ChatChangeLog readerEntry = new ChatChangeLog(receiverId, ChangeType.MESSAGES_READ, null, senderId);
+        readerEntry.setUpToMessageId(bound);
+        ChatChangeLog senderEntry = new ChatChangeLog(senderId, ChangeType.MESSAGES_READ_BY_PEER, null, receiverId);
+        senderEntry.setUpToMessageId(bound);
+        append(List.of(readerEntry, senderEntry));
+    }
+
+    /**
+     * Obtener los cambios del usuario posteriores a la secuencia indicada
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> sync(Long userId, long since, int limit) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_SYNC_LIMIT);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        List<Object[]> bounds = sequenceRepository.findCursorBounds(userId);
+        long latest = bounds.isEmpty() ? 0L : (Long) bounds.get(0)[0];
+        long compactedThrough = bounds.isEmpty() ? 0L : (Long) bounds.get(0)[1];
+        if (since <= 0 || since < compactedThrough || since > latest) {
+            // Cliente nuevo, con cambios ya compactados o con un cursor que no es de este usuario:
+            // debe hacer una carga completa
+            response.put("resetRequired", true);
+            response.put("sequence", latest);
+            response.put("unreadCount", chatMessageRepository.countUnreadMessagesForUser(userId));
+            return response;
+        }
+
+        // Se pide una entrada extra para saber si quedan más cambios
+        List<ChatChangeLog> changes = changeLogRepository.findChangesSince(userId, since, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = changes.size() > pageSize;
+        if (hasMore) {
+            changes = changes.subList(0, pageSize);
+        }
+
+        Set<Long> upsertedIds = new LinkedHashSet<>();
+        Set<Long> deletedIds = new LinkedHashSet<>();
+        Map<String, Map<String, Object>> reads = new LinkedHashMap<>();
+        long sequence = since;
+
+        for (ChatChangeLog change : changes) {
+            sequence = change.getSequence();
+            switch (change.getChangeType()) {
+                case MESSAGE_CREATED, MESSAGE_EDITED -> upsertedIds.add(change.getMessageId());
+                case MESSAGE_DELETED -> {
+                    upsertedIds.remove(change.getMessageId());
+                    deletedIds.add(change.getMessageId());
+                }
+                case MESSAGES_READ -> mergeRead(reads, change.getCounterpartId(), userId, change.getUpToMessageId());
+                case MESSAGES_READ_BY_PEER -> mergeRead(reads, userId, change.getCounterpartId(), change.getUpToMessageId());
+            }
+        }
+
+        List<ChatMessageDTO> messages = new ArrayList<>(upsertedIds.size());
+        if (!upsertedIds.isEmpty()) {
+            for (ChatMessage message : chatMessageRepository.findAllWithUsersByIdIn(upsertedIds)) {
+                messages.add(new ChatMessageDTO(message));
+            }
+            messages.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+        }
+
+        response.put("resetRequired", false);
+        response.put("sequence", sequence);
+        response.put("hasMore", hasMore);
+        response.put("messages", messages);
+        response.put("deletedMessageIds", deletedIds);
+        response.put("readReceipts", reads.values());
+        response.put("unreadCount", chatMessageRepository.countUnreadMessagesForUser(userId));
+        return response;
+    }
+
+    /**
+     * Compactar el registro de cambios eliminando entradas fuera de la retención
+     */
+    @Scheduled(cron = "0 30 3 * * ?") // Diariamente a las 3:30 AM
+    public void compactChangeLog() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        // La marca por usuario se fija antes de borrar: los cursores por debajo pasan a carga completa
+        sequenceRepository.markCompactedBefore(cutoff);
+        int deleted = changeLogRepository.deleteOlderThan(cutoff);
+        logger.info("Compacted chat change log: {} entries older than {} removed", deleted, cutoff);
+    }
+
+    /**
+     * Asignar a cada entrada la siguiente secuencia de su usuario y guardarlas.
+     * Los contadores se bloquean en orden de usuario para que dos envíos cruzados no se esperen mutuamente.
+     */
+    private void append(List<ChatChangeLog> entries) {
+        Map<Long, List<ChatChangeLog>> byUser = new TreeMap<>();
+        for (ChatChangeLog entry : entries) {
+            byUser.computeIfAbsent(entry.getUserId(), id -> new ArrayList<>()).add(entry);
+        }
+
+        for (Map.Entry<Long, List<ChatChangeLog>> userEntries : byUser.entrySet()) {
+            Long userId = userEntries.getKey();
+            List<ChatChangeLog> pending = userEntries.getValue();
+            long last = reserveSequences(userId, pending.size());
+            long next = last - pending.size();
+            for (ChatChangeLog entry : pending) {
+                entry.setSequence(++next);
+            }
+        }
+        changeLogRepository.saveAll(entries);
+    }
+
+    /**
+     * Reservar la siguiente secuencia de cada usuario de un bloque (difusiones masivas): un bloqueo de los
+     * contadores en orden de usuario y un solo UPDATE en lugar de dos sentencias por usuario. Devuelve la
+     * secuencia asignada a cada usuario; se llama dentro de la transacción que inserta las entradas
+     */
+    public Map<Long, Long> reserveNextSequences(Collection<Long> userIds) {
+        Map<Long, Long> sequences = new HashMap<>();
+        List<Object[]> counters = sequenceRepository.lockCounters(userIds);
+        if (counters.size() < userIds.size()) {
+            List<Long> missing = new ArrayList<>(userIds);
+            counters.forEach(counter -> missing.remove(Long.valueOf(((Number) counter[0]).longValue())));
+            missing.forEach(this::createSequence);
+            counters = sequenceRepository.lockCounters(userIds);
+        }
+        for (Object[] counter : counters) {
+            sequences.put(((Number) counter[0]).longValue(), ((Number) counter[1]).longValue() + 1);
+        }
+        sequenceRepository.incrementAll(userIds);
+        return sequences;
+    }
+
+    // UPDATE sobre el contador (bloquea la fila); la primera vez se crea en su propia transacción
+    private long reserveSequences(Long userId, int count) {
+        if (sequenceRepository.increment(userId, count) == 0) {
+            createSequence(userId);
+            sequenceRepository.increment(userId, count);
+        }
+        return (Long) sequenceRepository.findCursorBounds(userId).get(0)[0];
+    }
+
+    private void createSequence(Long userId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transactionTemplate.executeWithoutResult(status -> sequenceRepository.insertIfAbsent(userId));
+        } catch (DataIntegrityViolationException e) {
+            // Otra transacción creó el contador a la vez
+            logger.debug("Chat sequence for user {} already created", userId);
+        }
+    }
+
+    private void mergeRead(Map<String, Map<String, Object>> reads, Long senderId, Long readerId, Long upToMessageId) {
+        Map<String, Object> read = reads.computeIfAbsent(senderId + ":" + readerId, key -> {
+            Map<String, Object> value = new HashMap<>();
+            value.put("senderId", senderId);
+            value.put("readerId", readerId);
+            return value;
+        });
+        // null = toda la conversación leída, domina sobre cualquier límite
+        if (read.containsKey("upToMessageId") && read.get("upToMessageId") == null) {
+            return;
+        }
+        Long current = (Long) read.get("upToMessageId");
+        read.put("upToMessageId", upToMessageId == null ? null
+                : current == null ? upToMessageId : Math.max(current, upToMessageId));
+    }
+}
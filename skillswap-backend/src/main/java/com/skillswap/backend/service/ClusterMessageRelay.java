@@ -0,0 +1,14 @@
+package com.skillswap.backend.service;
+
+/**
+ * Envío de mensajes a destinos de usuario independiente del nodo.
+ * El broker simple solo alcanza sesiones conectadas a esta JVM; las implementaciones
+ * se encargan de hacer llegar el mensaje al nodo que tiene la sesión del usuario.
+ */
+public interface ClusterMessageRelay {
+
+    /**
+     * Enviar un payload a /user/{user}{destination} en cualquier nodo del cluster
+     */
+    void convertAndSendToUser(String user, String destination, Object payload);
+}
@@ -0,0 +1,32 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.service.PresenceService.PresenceStatus;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Estado de presencia compartido entre nodos.
+ * Cada nodo publica el estado que tiene un usuario según sus sesiones locales y consulta el
+ * que tiene en los demás nodos; las implementaciones deciden dónde se guarda.
+ */
+public interface ClusterPresenceRegistry {
+
+    /**
+     * Estado de un usuario en otros nodos (OFFLINE si no tiene sesiones en ninguno)
+     */
+    record RemotePresence(PresenceStatus status, Long lastSeen) {
+    }
+
+    /**
+     * Publicar el estado del usuario en este nodo y devolver el que tiene en los demás nodos vivos.
+     * version ordena las escrituras de este nodo: devuelve null si ya había una más reciente
+     */
+    RemotePresence update(Long userId, PresenceStatus localStatus, long version, long timestamp);
+
+    /**
+     * Estado en los demás nodos de una lista de usuarios en una sola llamada; los usuarios sin
+     * datos se omiten
+     */
+    Map<Long, RemotePresence> lookup(Collection<Long> userIds);
+}
@@ -0,0 +1,553 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.model.CreditGrantCampaign;
+import com.skillswap.backend.model.CreditTransaction;
+import com.skillswap.backend.model.User;
+import com.skillswap.backend.repository.CreditGrantCampaignRepository;
+import com.skillswap.backend.repository.CreditGrantRecipientRepository;
+import com.skillswap.backend.repository.CreditTransactionRepository;
+import com.skillswap.backend.repository.UserCreditsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Abonos masivos de créditos para promociones y campañas de referidos.
+ * Al crear la campaña la cohorte queda fijada en credit_grant_recipient con INSERT ... SELECT sobre los
+ * usuarios activos (ids explícitos y/o filtros). La campaña se procesa en segundo plano por bloques de
+ * destinatarios en orden de id; cada bloque, en una transacción, bloquea los balances en orden de usuario,
+ * inserta sus filas del ledger con un batch JDBC, suma el abono a user_credits con un batch de UPDATE,
+ * actualiza lotes, agregados y eventos por lotes y avanza el checkpoint de la campaña. Entre bloques se
+ * respeta un ritmo objetivo de usuarios por segundo para no acaparar la base de datos. Una campaña
+ * interrumpida vuelve a PENDING y todos los nodos buscan periódicamente campañas pendientes o abandonadas.
+ * El modo de prueba calcula la cohorte, el coste y la duración estimada sin escribir nada.
+ */
+@Service
+public class CreditBulkGrantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreditBulkGrantService.class);
+
+    private static final String REFERENCE_TYPE = "CREDIT_CAMPAIGN";
+
+    // Ids explícitos por sentencia al materializar o contar la cohorte
+    private static final int COHORT_ID_BATCH = 1000;
+
+    private static final Set<CreditTransaction.TransactionType> GRANT_TYPES = EnumSet.of(
+            CreditTransaction.TransactionType.BONUS_REGISTRATION,
+            CreditTransaction.TransactionType.BONUS_REFERRAL,
+            CreditTransaction.TransactionType.BONUS_COMPLETION,
+            CreditTransaction.TransactionType.ADMIN_ADJUSTMENT);
+
+    private static final String INSERT_GRANT_SQL =
+            "INSERT INTO credit_transaction (user_id, amount, type, status, description, reference_id, reference_type, " +
+            "balance_before, balance_after, expires_at, processed_at, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_BALANCE_SQL =
+            "UPDATE user_credits SET current_balance = current_balance + ?, total_earned = total_earned + ?, " +
+            "lifetime_earnings = lifetime_earnings + ?, last_transaction_at = ?, updated_at = ? WHERE user_id = ?";
+
+    private static final String INSERT_RECIPIENTS_SQL =
+            "INSERT INTO credit_grant_recipient (campaign_id, user_id) SELECT ?, u.id FROM users u WHERE ";
+
+    private static final String COUNT_COHORT_SQL = "SELECT COUNT(*) FROM users u WHERE ";
+
+    @Autowired
+    private CreditGrantCampaignRepository campaignRepository;
+
+    @Autowired
+    private CreditGrantRecipientRepository recipientRepository;
+
+    @Autowired
+    private CreditTransactionRepository creditTransactionRepository;
+
+    @Autowired
+    private UserCreditsRepository userCreditsRepository;
+
+    @Autowired
+    private CreditService creditService;
+
+    @Autowired
+    private CreditLotService creditLotService;
+
+    @Autowired
+    private CreditRollupService creditRollupService;
+
+    @Autowired
+    private CreditEventService creditEventService;
+
+    @Autowired
+    private CreditStatisticsService creditStatisticsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${skillswap.credits.bulk-grants.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${skillswap.credits.bulk-grants.target-users-per-second:2000}")
+    private int targetUsersPerSecond;
+
+    @Value("${skillswap.credits.bulk-grants.stale-after-minutes:10}")
+    private int staleAfterMinutes;
+
+    // Una campaña a la vez por nodo
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "credit-bulk-grant");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Campañas encoladas o en curso en este nodo: el escaneo periódico no las vuelve a encolar
+    private final Set<Long> scheduled = ConcurrentHashMap.newKeySet();
+    private final AtomicLong pendingUsers = new AtomicLong();
+
+    private Counter grantedUsers;
+    private Counter grantedAmount;
+    private Timer chunkTimer;
+
+    @PostConstruct
+    public void init() {
+        grantedUsers = Counter.builder("skillswap.credits.grants.users")
+                .description("Users credited by bulk grant campaigns")
+                .register(meterRegistry);
+        grantedAmount = Counter.builder("skillswap.credits.grants.amount")
+                .description("Credits granted by bulk grant campaigns")
+                .register(meterRegistry);
+        chunkTimer = Timer.builder("skillswap.credits.grants.chunk.duration")
+                .description("Time to grant one chunk of a bulk grant campaign")
+                .register(meterRegistry);
+        Gauge.builder("skillswap.credits.grants.pending.users", pendingUsers, AtomicLong::get)
+                .description("Users still to be credited by the campaign running on this node")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reanudar campañas pendientes, interrumpidas o abandonadas por un nodo caído, al arrancar y
+     * periódicamente mientras el nodo sigue vivo
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${skillswap.credits.bulk-grants.resume-interval-ms:60000}",
+               fixedDelayString = "${skillswap.credits.bulk-grants.resume-interval-ms:60000}")
+    public void resumePendingCampaigns() {
+        try {
+            for (Long id : campaignRepository.findResumableIds(LocalDateTime.now().minusMinutes(staleAfterMinutes))) {
+                if (submit(id)) {
+                    logger.info("Resuming bulk credit grant campaign {}", id);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error resuming bulk credit grant campaigns", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        // La campaña interrumpida vuelve a PENDING antes de que se cierre el pool de conexiones
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private boolean submit(Long campaignId) {
+        if (!scheduled.add(campaignId)) {
+            return false;
+        }
+        try {
+            executor.submit(() -> {
+                try {
+                    run(campaignId);
+                } finally {
+                    scheduled.remove(campaignId);
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            scheduled.remove(campaignId);
+            throw e;
+        }
+    }
+
+    /**
+     * Crear una campaña y lanzarla en segundo plano; con dryRun solo se calcula la cohorte y el coste
+     */
+    public Map<String, Object> createCampaign(String name, CreditTransaction.TransactionType type, BigDecimal amount,
+                                              String description, Cohort cohort, boolean dryRun, Long createdBy) {
+        CreditTransaction.TransactionType grantType = type != null ? type : CreditTransaction.TransactionType.ADMIN_ADJUSTMENT;
+        if (name == null || name.trim().isEmpty()) {
+            throw new RuntimeException("El nombre de la campaña es obligatorio");
+        }
+        if (!GRANT_TYPES.contains(grantType)) {
+            throw new RuntimeException("Tipo de movimiento no permitido en una campaña: " + grantType);
+        }
+        if (amount == null || Credits.of(amount).signum() <= 0) {
+            throw new RuntimeException("El monto debe ser mayor a cero");
+        }
+        if (cohort == null || cohort.isEmpty()) {
+            throw new RuntimeException("La cohorte está vacía: indica usuarios, filtros o allUsers");
+        }
+        Credits perUser = Credits.of(amount);
+
+        if (dryRun) {
+            long eligible = countCohort(cohort);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("dryRun", true);
+            result.put("requestedUsers", cohort.userIds() != null ? new TreeSet<>(cohort.userIds()).size() : null);
+            result.put("eligibleUsers", eligible);
+            result.put("amountPerUser", perUser.toBigDecimal());
+            result.put("totalAmount", perUser.times(eligible).toBigDecimal());
+            result.put("chunks", (eligible + chunkSize - 1) / Math.max(chunkSize, 1));
+            result.put("targetUsersPerSecond", targetUsersPerSecond);
+            result.put("estimatedSeconds", targetUsersPerSecond > 0 ? (eligible + targetUsersPerSecond - 1) / targetUsersPerSecond : null);
+            return result;
+        }
+
+        // La cohorte, el importe y la expiración quedan fijados para toda la campaña
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long campaignId = transactionTemplate.execute(status -> {
+            CreditGrantCampaign campaign = new CreditGrantCampaign();
+            campaign.setName(name.trim());
+            campaign.setTransactionType(grantType);
+            campaign.setAmount(perUser.toBigDecimal());
+            campaign.setDescription(description != null && !description.trim().isEmpty() ? description.trim() : name.trim());
+            campaign.setExpiresAt(LocalDateTime.now().plusMonths(CreditService.CREDIT_EXPIRATION_MONTHS));
+            campaign.setCreatedBy(createdBy);
+            campaign = campaignRepository.save(campaign);
+            campaign.setTotalUsers(insertRecipients(campaign.getId(), cohort));
+            return campaignRepository.save(campaign).getId();
+        });
+
+        logger.info("Created bulk credit grant campaign {} '{}'", campaignId, name);
+        submit(campaignId);
+        return getCampaignStatus(campaignId);
+    }
+
+    /**
+     * Avance de una campaña: porcentaje, ritmo real y tiempo restante estimado
+     */
+    public Map<String, Object> getCampaignStatus(Long campaignId) {
+        CreditGrantCampaign campaign = campaignRepository.findById(campaignId)
+                .orElseThrow(() -> new RuntimeException("Campaña no encontrada: " + campaignId));
+
+        long total = campaign.getTotalUsers();
+        long granted = campaign.getGrantedUsers();
+        Double usersPerSecond = null;
+        Long remainingSeconds = null;
+        if (campaign.getStartedAt() != null && granted > 0) {
+            LocalDateTime until = campaign.getCompletedAt() != null ? campaign.getCompletedAt() : LocalDateTime.now();
+            long millis = Math.max(Duration.between(campaign.getStartedAt(), until).toMillis(), 1);
+            usersPerSecond = BigDecimal.valueOf(granted * 1000.0 / millis).setScale(1, RoundingMode.HALF_UP).doubleValue();
+            if (campaign.getStatus() == CreditGrantCampaign.CampaignStatus.RUNNING) {
+                remainingSeconds = (long) Math.ceil((total - granted) / Math.max(usersPerSecond, 0.1));
+            }
+        }
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("id", campaign.getId());
+        status.put("name", campaign.getName());
+        status.put("type", campaign.getTransactionType());
+        status.put("amountPerUser", campaign.getAmount());
+        status.put("expiresAt", campaign.getExpiresAt());
+        status.put("status", campaign.getStatus());
+        status.put("totalUsers", total);
+        status.put("grantedUsers", granted);
+        status.put("grantedAmount", campaign.getGrantedAmount());
+        status.put("progressPercent", total > 0
+                ? BigDecimal.valueOf(granted * 100.0 / total).setScale(1, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+        status.put("usersPerSecond", usersPerSecond);
+        status.put("estimatedSecondsRemaining", remainingSeconds);
+        status.put("createdAt", campaign.getCreatedAt());
+        status.put("startedAt", campaign.getStartedAt());
+        status.put("completedAt", campaign.getCompletedAt());
+        status.put("errorMessage", campaign.getErrorMessage());
+        return status;
+    }
+
+    private void run(Long campaignId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        LocalDateTime claimedAt = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status ->
+                campaignRepository.claim(campaignId, claimedAt, claimedAt.minusMinutes(staleAfterMinutes)));
+        if (claimed == null || claimed == 0) {
+            logger.debug("Bulk credit grant campaign {} already claimed or finished", campaignId);
+            return;
+        }
+
+        CreditGrantCampaign campaign = campaignRepository.findById(campaignId).orElseThrow();
+        long afterId = campaign.getLastUserId();
+        pendingUsers.set(campaign.getTotalUsers() - campaign.getGrantedUsers());
+        logger.info("Bulk credit grant campaign {}: {} of {} users pending", campaignId,
+                   pendingUsers.get(), campaign.getTotalUsers());
+
+        long start = System.nanoTime();
+        long processed = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final long cursor = afterId;
+                List<Long> userIds = transactionTemplate.execute(status ->
+                        recipientRepository.findUserIdsAfter(campaignId, cursor, PageRequest.of(0, chunkSize)));
+                if (userIds == null || userIds.isEmpty()) {
+                    break;
+                }
+                long chunkStart = System.nanoTime();
+                // Abonos, balances y checkpoint se confirman juntos
+                transactionTemplate.executeWithoutResult(status -> grantChunk(campaign, cursor, userIds));
+                chunkTimer.record(System.nanoTime() - chunkStart, TimeUnit.NANOSECONDS);
+
+                afterId = userIds.get(userIds.size() - 1);
+                processed += userIds.size();
+                pendingUsers.addAndGet(-userIds.size());
+                pace(start, processed);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                CreditGrantCampaign finished = campaignRepository.findById(campaignId).orElseThrow();
+                finished.setStatus(CreditGrantCampaign.CampaignStatus.COMPLETED);
+                finished.setCompletedAt(LocalDateTime.now());
+                campaignRepository.save(finished);
+            });
+            logger.info("Bulk credit grant campaign {} completed: {} users credited in this run", campaignId, processed);
+        } catch (InterruptedException e) {
+            releaseInterrupted(campaignId, afterId);
+        } catch (CampaignTakenOverException e) {
+            // Otro nodo la reclamó por heartbeat vencido y la sigue él: ni fallo ni reintento aquí
+            logger.warn("Bulk credit grant campaign {} was taken over by another node, stopping here", campaignId);
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // Una consulta cortada por el apagado del nodo no es un fallo de la campaña
+                releaseInterrupted(campaignId, afterId);
+                return;
+            }
+            logger.error("Bulk credit grant campaign {} failed after user {}", campaignId, afterId, e);
+            transactionTemplate.executeWithoutResult(status -> campaignRepository.findById(campaignId).ifPresent(failed -> {
+                failed.setStatus(CreditGrantCampaign.CampaignStatus.FAILED);
+                failed.setErrorMessage(e.getMessage() != null && e.getMessage().length() > 500
+                        ? e.getMessage().substring(0, 500) : e.getMessage());
+                campaignRepository.save(failed);
+            }));
+        } finally {
+            pendingUsers.set(0);
+        }
+    }
+
+    // Devolver la campaña a PENDING con el hilo sin marca de interrupción (la conexión no se obtiene
+    // con el hilo interrumpido) y restaurar la marca después
+    private void releaseInterrupted(Long campaignId, long afterId) {
+        Thread.interrupted();
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            Integer released = transactionTemplate.execute(status -> campaignRepository.release(campaignId, afterId));
+            logger.info("Bulk credit grant campaign {} interrupted after user {}{}", campaignId, afterId,
+                       released != null && released > 0 ? ", back to PENDING" : "");
+        } catch (Exception e) {
+            logger.warn("Bulk credit grant campaign {} interrupted after user {}, it will resume once its heartbeat is stale",
+                       campaignId, afterId, e);
+        } finally {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Abonar un bloque de destinatarios con sus balances bloqueados en orden de usuario
+     */
+    private void grantChunk(CreditGrantCampaign campaign, long afterId, List<Long> userIds) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+        Credits amount = Credits.of(campaign.getAmount());
+        Credits chunkTotal = amount.times(userIds.size());
+
+        // El checkpoint se avanza primero: bloquea la fila de la campaña y descarta un bloque ya abonado por otro nodo
+        if (campaignRepository.advance(campaign.getId(), afterId, userIds.get(userIds.size() - 1),
+                userIds.size(), chunkTotal.toBigDecimal(), now) == 0) {
+            throw new CampaignTakenOverException(campaign.getId());
+        }
+
+        Map<Long, Credits> balances = lockBalances(new TreeSet<>(userIds));
+        String referenceId = campaign.getId().toString();
+        String type = campaign.getTransactionType().name();
+        Timestamp expiresAt = campaign.getExpiresAt() != null ? Timestamp.valueOf(campaign.getExpiresAt()) : null;
+
+        List<Object[]> rows = new ArrayList<>(userIds.size());
+        List<Object[]> balanceRows = new ArrayList<>(userIds.size());
+        Map<Long, CreditRollupService.Totals> totalsByUser = new TreeMap<>();
+        for (Long userId : userIds) {
+            Credits balanceBefore = balances.get(userId);
+            rows.add(new Object[]{userId, amount.toBigDecimal(), type, CreditTransaction.TransactionStatus.COMPLETED.name(),
+                    campaign.getDescription(), referenceId, REFERENCE_TYPE, balanceBefore.toBigDecimal(),
+                    balanceBefore.plus(amount).toBigDecimal(), expiresAt, timestamp, timestamp, timestamp});
+            balanceRows.add(new Object[]{amount.toBigDecimal(), amount.toBigDecimal(), amount.toBigDecimal(),
+                    timestamp, timestamp, userId});
+            totalsByUser.put(userId, new CreditRollupService.Totals(amount, Credits.ZERO, Credits.ZERO, 1));
+        }
+        jdbcTemplate.batchUpdate(INSERT_GRANT_SQL, rows);
+        jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, balanceRows);
+
+        creditLotService.grantAll(userIds, amount, campaign.getExpiresAt());
+        creditRollupService.recordAll(now.toLocalDate(), totalsByUser);
+
+        // Eventos con los ids generados por el batch, uno por usuario
+        Map<Long, CreditEventService.PendingEvent> events = new HashMap<>();
+        for (Object[] entry : creditTransactionRepository.findCampaignEntries(referenceId, userIds)) {
+            events.put((Long) entry[1], new CreditEventService.PendingEvent(type, amount, (Long) entry[0], now));
+        }
+        creditEventService.appendEach(events);
+        userIds.forEach(creditStatisticsService::invalidate);
+
+        grantedUsers.increment(userIds.size());
+        grantedAmount.increment(chunkTotal.toBigDecimal().doubleValue());
+        logger.debug("Bulk credit grant campaign {}: credited {} users up to user {}",
+                    campaign.getId(), userIds.size(), userIds.get(userIds.size() - 1));
+    }
+
+    // Esperar lo necesario para no superar el ritmo objetivo desde el inicio de la ejecución
+    private void pace(long startNanos, long processed) throws InterruptedException {
+        if (targetUsersPerSecond <= 0) {
+            return;
+        }
+        long expectedMillis = processed * 1000 / targetUsersPerSecond;
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (expectedMillis > elapsedMillis) {
+            Thread.sleep(expectedMillis - elapsedMillis);
+        }
+    }
+
+    // Fijar los destinatarios de la campaña; devuelve cuántos usuarios entraron
+    private long insertRecipients(Long campaignId, Cohort cohort) {
+        long inserted = 0;
+        for (List<Long> ids : idBatches(cohort)) {
+            List<Object> params = new ArrayList<>();
+            params.add(campaignId);
+            String where = cohortFilter(cohort, ids, params);
+            inserted += jdbcTemplate.update(INSERT_RECIPIENTS_SQL + where, params.toArray());
+        }
+        return inserted;
+    }
+
+    private long countCohort(Cohort cohort) {
+        long count = 0;
+        for (List<Long> ids : idBatches(cohort)) {
+            List<Object> params = new ArrayList<>();
+            String where = cohortFilter(cohort, ids, params);
+            Long batch = jdbcTemplate.queryForObject(COUNT_COHORT_SQL + where, Long.class, params.toArray());
+            count += batch != null ? batch : 0;
+        }
+        return count;
+    }
+
+    // Ids explícitos sin repetir, en bloques; una sola pasada sin ids si la cohorte es solo por filtros
+    private List<List<Long>> idBatches(Cohort cohort) {
+        if (cohort.userIds() == null || cohort.userIds().isEmpty()) {
+            return Collections.singletonList(null);
+        }
+        List<Long> ids = new ArrayList<>(new TreeSet<>(cohort.userIds()));
+        List<List<Long>> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += COHORT_ID_BATCH) {
+            batches.add(ids.subList(from, Math.min(from + COHORT_ID_BATCH, ids.size())));
+        }
+        return batches;
+    }
+
+    // Condición sobre users para la cohorte; solo cuentas activas
+    private String cohortFilter(Cohort cohort, List<Long> ids, List<Object> params) {
+        StringBuilder where = new StringBuilder("u.account_status = 'ACTIVE'");
+        if (ids != null) {
+            where.append(" AND u.id IN (").append(String.join(", ", Collections.nCopies(ids.size(), "?"))).append(')');
+            params.addAll(ids);
+        }
+        if (cohort.userType() != null) {
+            where.append(" AND u.user_type = ?");
+            params.add(cohort.userType().name());
+        }
+        if (cohort.country() != null && !cohort.country().isBlank()) {
+            where.append(" AND u.country = ?");
+            params.add(cohort.country());
+        }
+        if (cohort.registeredAfter() != null) {
+            where.append(" AND u.created_at >= ?");
+            params.add(Timestamp.valueOf(cohort.registeredAfter()));
+        }
+        if (cohort.registeredBefore() != null) {
+            where.append(" AND u.created_at < ?");
+            params.add(Timestamp.valueOf(cohort.registeredBefore()));
+        }
+        if (cohort.activeSince() != null) {
+            where.append(" AND u.last_active_at >= ?");
+            params.add(Timestamp.valueOf(cohort.activeSince()));
+        }
+        return where.toString();
+    }
+
+    private Map<Long, Credits> lockBalances(TreeSet<Long> userIds) {
+        // Usuarios sin fila materializada: se siembran desde el ledger antes del bloqueo
+        creditService.ensureBalances(userIds);
+        Map<Long, Credits> balances = new HashMap<>();
+        for (Object[] row : userCreditsRepository.lockBalancesByUserIds(userIds)) {
+            balances.put(((Number) row[0]).longValue(), Credits.fromNumber(row[1]));
+        }
+        return balances;
+    }
+
+    /**
+     * Cohorte de una campaña: ids explícitos y/o filtros sobre los usuarios activos, combinados con AND.
+     * Sin ids ni filtros hay que pedir allUsers de forma explícita
+     */
+    public record Cohort(List<Long> userIds, User.UserType userType, String country, LocalDateTime registeredAfter,
+                         LocalDateTime registeredBefore, LocalDateTime activeSince, boolean allUsers) {
+
+        boolean isEmpty() {
+            return !allUsers && (userIds == null || userIds.isEmpty()) && userType == null
+                    && (country == null || country.isBlank()) && registeredAfter == null
+                    && registeredBefore == null && activeSince == null;
+        }
+    }
+
+    // El checkpoint de la campaña avanzó desde otro nodo mientras este abonaba el bloque
+    private static class CampaignTakenOverException extends RuntimeException {
+        CampaignTakenOverException(Long campaignId) {
+            super("La campaña " + campaignId + " fue retomada por otro nodo");
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.model.CreditBalanceSnapshot;
+import com.skillswap.backend.model.CreditEvent;
+import com.skillswap.backend.model.CreditTransaction;
+import com.skillswap.backend.model.User;
+import com.skillswap.backend.repository.CreditBalanceSnapshotRepository;
+import com.skillswap.backend.repository.CreditEventRepository;
+import com.skillswap.backend.repository.CreditRollupRepository;
+import com.skillswap.backend.repository.CreditTransactionRepository;
+import com.skillswap.backend.repository.UserCreditsRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Registro de eventos de créditos con instantáneas periódicas.
+ * Cada movimiento del ledger añade un evento inmutable a la secuencia de su usuario, en la misma
+ * transacción y con el balance bloqueado; cada N eventos se guarda una instantánea del estado
+ * acumulado. El balance en un momento dado y el historial se obtienen reproduciendo los eventos
+ * desde la instantánea más cercana, como mucho N eventos.
+ * Los usuarios con movimientos anteriores al registro se siembran desde el ledger la primera vez.
+ */
+@Service
+public class CreditEventService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreditEventService.class);
+
+    private static final int MAX_REPORTED_MISMATCHES = 100;
+    private static final int SEED_PAGE_SIZE = 1000;
+
+    private static final String INSERT_EVENT_SQL =
+            "INSERT INTO credit_event (user_id, sequence_number, event_type, amount, transaction_id, occurred_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_SNAPSHOT_SQL =
+            "INSERT INTO credit_balance_snapshot (user_id, sequence_number, balance, total_earned, total_spent, " +
+            "event_at, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String REPLAY_EVENTS_SQL =
+            "SELECT user_id, sequence_number, amount FROM credit_event " +
+            "WHERE user_id BETWEEN ? AND ? ORDER BY user_id, sequence_number";
+
+    private static final String MATERIALIZED_BALANCES_SQL =
+            "SELECT user_id, current_balance FROM user_credits WHERE user_id BETWEEN ? AND ?";
+
+    @Autowired
+    private CreditEventRepository eventRepository;
+
+    @Autowired
+    private CreditBalanceSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private CreditTransactionRepository creditTransactionRepository;
+
+    @Autowired
+    private CreditRollupRepository rollupRepository;
+
+    @Autowired
+    private UserCreditsRepository userCreditsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${skillswap.credits.events.snapshot-every:100}")
+    private int snapshotEvery;
+
+    @Value("${skillswap.credits.events.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${skillswap.credits.events.snapshot-retention-days:90}")
+    private int snapshotRetentionDays;
+
+    @Value("${skillswap.credits.events.history-limit:1000}")
+    private int historyLimit;
+
+    /**
+     * Añadir el evento de un movimiento recién guardado; se llama con el balance del usuario bloqueado
+     */
+    void append(CreditTransaction transaction) {
+        if (transaction.getStatus() != CreditTransaction.TransactionStatus.COMPLETED) {
+            return;
+        }
+        LocalDateTime occurredAt = transaction.getCreatedAt() != null ? transaction.getCreatedAt() : LocalDateTime.now();
+        appendAll(transaction.getUser().getId(), List.of(new PendingEvent(transaction.getType().name(),
+                Credits.of(transaction.getAmount()), transaction.getId(), occurredAt)));
+    }
+
+    /**
+     * Añadir varios eventos de un usuario (p. ej. un bloque de expiración); balance bloqueado por quien llama
+     */
+    void appendAll(Long userId, List<PendingEvent> events) {
+        Long last = eventRepository.findLastSequence(userId).orElse(null);
+        if (last == null) {
+            // Primer evento del usuario: el ledger ya contiene estos movimientos y se siembra completo
+            seedFromLedger(userId);
+            return;
+        }
+
+        long sequence = last;
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (PendingEvent event : events) {
+            sequence++;
+            rows.add(new Object[]{userId, sequence, event.type(), event.amount().toBigDecimal(),
+                    event.transactionId(), Timestamp.valueOf(event.occurredAt())});
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, rows);
+        meterRegistry.counter("skillswap.credits.events.appended").increment(rows.size());
+
+        // Una instantánea por cada múltiplo de N alcanzado
+        for (long snapshotAt = (last / snapshotEvery + 1) * snapshotEvery; snapshotAt <= sequence; snapshotAt += snapshotEvery) {
+            writeSnapshot(userId, snapshotAt);
+        }
+    }
+
+    /**
+     * Añadir un evento por usuario para un bloque de usuarios (abonos masivos); balances bloqueados por
+     * quien llama. Los usuarios aún sin eventos no se siembran aquí: su ledger ya incluye el movimiento
+     * y se siembran completos en la primera lectura o en la compactación
+     */
+    void appendEach(Map<Long, PendingEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(events.size());
+        Map<Long, Long> snapshotsAt = new HashMap<>();
+        for (Object[] last : eventRepository.findLastSequences(events.keySet())) {
+            Long userId = (Long) last[0];
+            long sequence = ((Number) last[1]).longValue() + 1;
+            PendingEvent event = events.get(userId);
+            rows.add(new Object[]{userId, sequence, event.type(), event.amount().toBigDecimal(),
+                    event.transactionId(), Timestamp.valueOf(event.occurredAt())});
+            if (sequence % snapshotEvery == 0) {
+                snapshotsAt.put(userId, sequence);
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, rows);
+        meterRegistry.counter("skillswap.credits.events.appended").increment(rows.size());
+        snapshotsAt.forEach(this::writeSnapshot);
+    }
+
+    // Balance del usuario en un momento dado
+    public BigDecimal getBalanceAt(User user, LocalDateTime at) {
+        ensureSeeded(user.getId());
+        CreditBalanceSnapshot snapshot = snapshotRepository
+                .findFirstByUserIdAndEventAtLessThanEqualOrderBySequenceNumberDesc(user.getId(), at)
+                .orElse(null);
+        State state = State.of(snapshot);
+        for (CreditEvent event : eventRepository.findForReplay(user.getId(), state.sequence, at)) {
+            state.apply(event.getSequenceNumber(), Credits.of(event.getAmount()));
+        }
+        return state.balance.toBigDecimal();
+    }
+
+    /**
+     * Historial de movimientos con el balance tras cada uno, reproducido desde la instantánea anterior a from
+     */
+    public List<Map<String, Object>> getHistory(User user, LocalDateTime from, LocalDateTime to) {
+        if (from.isAfter(to)) {
+            throw new RuntimeException("La fecha inicial no puede ser posterior a la final");
+        }
+        ensureSeeded(user.getId());
+        CreditBalanceSnapshot snapshot = snapshotRepository
+                .findFirstByUserIdAndEventAtLessThanEqualOrderBySequenceNumberDesc(user.getId(), from)
+                .orElse(null);
+        State state = State.of(snapshot);
+
+        List<Map<String, Object>> history = new ArrayList<>();
+        for (CreditEvent event : eventRepository.findForReplay(user.getId(), state.sequence, to)) {
+            Credits amount = Credits.of(event.getAmount());
+            state.apply(event.getSequenceNumber(), amount);
+            if (event.getOccurredAt().isBefore(from)) {
+                continue;
+            }
+            if (history.size() >= historyLimit) {
+                break;
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("sequence", event.getSequenceNumber());
+            entry.put("type", event.getEventType());
+            entry.put("amount", amount.toBigDecimal());
+            entry.put("balanceAfter", state.balance.toBigDecimal());
+            entry.put("transactionId", event.getTransactionId());
+            entry.put("occurredAt", event.getOccurredAt());
+            history.add(entry);
+        }
+        return history;
+    }
+
+    // Compactación (tarea programada)
+    @Scheduled(cron = "${skillswap.credits.events.compaction-cron:0 45 4 * * ?}") // Diariamente a las 4:45 AM
+    public void scheduledCompaction() {
+        try {
+            compact();
+        } catch (Exception e) {
+            logger.error("Error compacting the credit event log", e);
+        }
+    }
+
+    /**
+     * Sembrar los usuarios del ledger que aún no tienen eventos y aligerar las instantáneas antiguas:
+     * pasado el periodo de retención se conserva la última de cada usuario y mes
+     */
+    public Map<String, Object> compact() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long seeded = 0;
+        long deleted = 0;
+
+        long afterId = 0;
+        while (true) {
+            final long cursor = afterId;
+            List<Long> userIds = transactionTemplate.execute(status ->
+                    rollupRepository.findLedgerUserIdsAfter(cursor, PageRequest.of(0, chunkSize)));
+            if (userIds == null || userIds.isEmpty()) {
+                break;
+            }
+            Integer chunkSeeded = transactionTemplate.execute(status -> seedMissing(userIds));
+            seeded += chunkSeeded != null ? chunkSeeded : 0;
+            afterId = userIds.get(userIds.size() - 1);
+        }
+
+        LocalDateTime before = LocalDateTime.now().minusDays(snapshotRetentionDays);
+        afterId = 0;
+        while (true) {
+            final long cursor = afterId;
+            List<Long> userIds = transactionTemplate.execute(status ->
+                    eventRepository.findUserIdsAfter(cursor, PageRequest.of(0, chunkSize)));
+            if (userIds == null || userIds.isEmpty()) {
+                break;
+            }
+            Integer chunkDeleted = transactionTemplate.execute(status -> thinSnapshots(userIds, before));
+            deleted += chunkDeleted != null ? chunkDeleted : 0;
+            afterId = userIds.get(userIds.size() - 1);
+        }
+
+        logger.info("Credit event log compaction: seeded {} users, removed {} old snapshots", seeded, deleted);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("seededUsers", seeded);
+        report.put("deletedSnapshots", deleted);
+        report.put("completedAt", LocalDateTime.now());
+        return report;
+    }
+
+    /**
+     * Reconstruir todos los balances desde los eventos y compararlos con las instantáneas,
+     * la continuidad de cada secuencia y el balance materializado
+     */
+    public Map<String, Object> verify() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Verification verification = new Verification();
+
+        long afterId = 0;
+        while (true) {
+            final long cursor = afterId;
+            List<Long> userIds = transactionTemplate.execute(status ->
+                    eventRepository.findUserIdsAfter(cursor, PageRequest.of(0, chunkSize)));
+            if (userIds == null || userIds.isEmpty()) {
+                break;
+            }
+            List<Long> candidates = transactionTemplate.execute(status -> verifyChunk(userIds, verification));
+
+            // Diferencias con el balance materializado: puede haber un movimiento en curso, se confirman con la fila bloqueada
+            if (candidates != null) {
+                for (Long userId : candidates) {
+                    transactionTemplate.executeWithoutResult(status -> verifyMaterialized(userId, verification));
+                }
+            }
+            afterId = userIds.get(userIds.size() - 1);
+        }
+
+        meterRegistry.counter("skillswap.credits.events.verification.mismatches").increment(verification.mismatched);
+        if (verification.mismatched > 0) {
+            logger.warn("Credit event verification found {} mismatches over {} users", verification.mismatched, verification.users);
+        } else {
+            logger.info("Credit event verification checked {} users, {} events and {} snapshots, all consistent",
+                       verification.users, verification.events, verification.snapshots);
+        }
+        return verification.toMap();
+    }
+
+    // Reproducir los eventos del bloque comparando cada instantánea; devuelve los usuarios cuyo balance
+    // final no coincide con user_credits
+    private List<Long> verifyChunk(List<Long> userIds, Verification verification) {
+        Map<Long, Deque<CreditBalanceSnapshot>> snapshots = new HashMap<>();
+        for (CreditBalanceSnapshot snapshot : snapshotRepository.findByUserIdInOrderByUserIdAscSequenceNumberAsc(userIds)) {
+            snapshots.computeIfAbsent(snapshot.getUserId(), id -> new ArrayDeque<>()).add(snapshot);
+        }
+
+        Map<Long, State> states = new LinkedHashMap<>();
+        jdbcTemplate.query(REPLAY_EVENTS_SQL, rs -> {
+            Long userId = rs.getLong(1);
+            long sequence = rs.getLong(2);
+            State state = states.computeIfAbsent(userId, id -> new State());
+            if (sequence != state.sequence + 1) {
+                verification.mismatch(userId, "SEQUENCE_GAP", "expected " + (state.sequence + 1) + ", found " + sequence);
+            }
+            state.apply(sequence, Credits.of(rs.getBigDecimal(3)));
+            verification.events++;
+
+            Deque<CreditBalanceSnapshot> pending = snapshots.get(userId);
+            while (pending != null && !pending.isEmpty() && pending.peekFirst().getSequenceNumber() <= sequence) {
+                CreditBalanceSnapshot snapshot = pending.pollFirst();
+                verification.snapshots++;
+                if (snapshot.getSequenceNumber() != sequence) {
+                    verification.mismatch(userId, "SNAPSHOT_WITHOUT_EVENT", "snapshot at sequence " + snapshot.getSequenceNumber());
+                } else if (!state.matches(snapshot)) {
+                    verification.mismatch(userId, "SNAPSHOT", "sequence " + sequence + ": snapshot balance "
+                            + snapshot.getBalance() + ", events " + state.balance);
+                }
+            }
+        }, userIds.get(0), userIds.get(userIds.size() - 1));
+
+        snapshots.forEach((userId, pending) -> {
+            for (CreditBalanceSnapshot snapshot : pending) {
+                verification.snapshots++;
+                verification.mismatch(userId, "SNAPSHOT_WITHOUT_EVENT", "snapshot at sequence " + snapshot.getSequenceNumber());
+            }
+        });
+        verification.users += states.size();
+
+        Map<Long, Credits> materialized = new HashMap<>();
+        jdbcTemplate.query(MATERIALIZED_BALANCES_SQL, rs -> {
+            materialized.put(rs.getLong(1), Credits.of(rs.getBigDecimal(2)));
+        }, userIds.get(0), userIds.get(userIds.size() - 1));
+
+        List<Long> candidates = new ArrayList<>();
+        states.forEach((userId, state) -> {
+            Credits balance = materialized.get(userId);
+            if (balance != null && !balance.equals(state.balance)) {
+                candidates.add(userId);
+            }
+        });
+        return candidates;
+    }
+
+    private void verifyMaterialized(Long userId, Verification verification) {
+        List<Object[]> locked = userCreditsRepository.lockBalancesByUserIds(List.of(userId));
+        if (locked.isEmpty()) {
+            return;
+        }
+        Credits materialized = Credits.fromNumber(locked.get(0)[1]);
+        Credits events = Credits.fromNumber(eventRepository.summarizeRange(userId, 0L, Long.MAX_VALUE).get(0)[0]);
+        if (!materialized.equals(events)) {
+            verification.mismatch(userId, "MATERIALIZED_BALANCE", "user_credits " + materialized + ", events " + events);
+        }
+    }
+
+    private int seedMissing(List<Long> userIds) {
+        Set<Long> missing = new TreeSet<>(userIds);
+        missing.removeAll(eventRepository.findUserIdsWithEvents(userIds));
+        if (missing.isEmpty()) {
+            return 0;
+        }
+        // Con los balances bloqueados ningún movimiento puede sembrar a la vez
+        userCreditsRepository.lockBalancesByUserIds(missing);
+        missing.removeAll(eventRepository.findUserIdsWithEvents(missing));
+        missing.forEach(this::seedFromLedger);
+        return missing.size();
+    }
+
+    private int thinSnapshots(List<Long> userIds, LocalDateTime before) {
+        // Filas en orden de usuario y secuencia: la última de cada mes sustituye a las anteriores
+        Map<String, Long> keep = new HashMap<>();
+        List<Long> candidates = new ArrayList<>();
+        for (Object[] row : snapshotRepository.findOlderThan(userIds, before)) {
+            Long id = (Long) row[0];
+            String month = row[1] + ":" + YearMonth.from((LocalDateTime) row[2]);
+            Long previous = keep.put(month, id);
+            if (previous != null) {
+                candidates.add(previous);
+            }
+        }
+        return candidates.isEmpty() ? 0 : snapshotRepository.deleteByIds(candidates);
+    }
+
+    // Lecturas sobre un usuario aún sin eventos: sembrar antes con su balance bloqueado
+    private void ensureSeeded(Long userId) {
+        if (eventRepository.findLastSequence(userId).isPresent()) {
+            return;
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> seedMissing(List.of(userId)));
+    }
+
+    // Eventos y instantáneas de todo el ledger del usuario, en orden de inserción
+    private void seedFromLedger(Long userId) {
+        State state = new State();
+        LocalDateTime lastEventAt = null;
+        long afterId = 0;
+        while (true) {
+            List<Object[]> entries = creditTransactionRepository.findLedgerEntriesAfter(userId, afterId,
+                    PageRequest.of(0, SEED_PAGE_SIZE));
+            if (entries.isEmpty()) {
+                break;
+            }
+            List<Object[]> eventRows = new ArrayList<>(entries.size());
+            List<Object[]> snapshotRows = new ArrayList<>();
+            for (Object[] entry : entries) {
+                Long transactionId = (Long) entry[0];
+                Credits amount = Credits.fromNumber(entry[2]);
+                lastEventAt = entry[3] != null ? (LocalDateTime) entry[3] : LocalDateTime.now();
+                state.apply(state.sequence + 1, amount);
+                eventRows.add(new Object[]{userId, state.sequence, ((CreditTransaction.TransactionType) entry[1]).name(),
+                        amount.toBigDecimal(), transactionId, Timestamp.valueOf(lastEventAt)});
+                if (state.sequence % snapshotEvery == 0) {
+                    snapshotRows.add(state.snapshotParams(userId, lastEventAt));
+                }
+                afterId = transactionId;
+            }
+            jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, eventRows);
+            jdbcTemplate.batchUpdate(INSERT_SNAPSHOT_SQL, snapshotRows);
+        }
+        if (state.sequence > 0) {
+            logger.info("Seeded credit event log for user {}: {} events", userId, state.sequence);
+        }
+    }
+
+    // Instantánea en una secuencia: la anterior más los eventos intermedios
+    private void writeSnapshot(Long userId, long sequence) {
+        CreditBalanceSnapshot base = snapshotRepository
+                .findFirstByUserIdAndSequenceNumberLessThanOrderBySequenceNumberDesc(userId, sequence)
+                .orElse(null);
+        State state = State.of(base);
+        Object[] range = eventRepository.summarizeRange(userId, state.sequence, sequence).get(0);
+        state.balance = state.balance.plus(Credits.fromNumber(range[0]));
+        state.earned = state.earned.plus(Credits.fromNumber(range[1]));
+        state.spent = state.spent.plus(Credits.fromNumber(range[2]));
+        state.sequence = sequence;
+        LocalDateTime eventAt = range[3] != null ? (LocalDateTime) range[3] : LocalDateTime.now();
+        jdbcTemplate.update(INSERT_SNAPSHOT_SQL, state.snapshotParams(userId, eventAt));
+    }
+
+    /**
+     * Evento pendiente de numerar
+     */
+    record PendingEvent(String type, Credits amount, Long transactionId, LocalDateTime occurredAt) {
+    }
+
+    /**
+     * Estado acumulado durante una reproducción
+     */
+    private static class State {
+
+        private long sequence;
+        private Credits balance = Credits.ZERO;
+        private Credits earned = Credits.ZERO;
+        private Credits spent = Credits.ZERO;
+
+        static State of(CreditBalanceSnapshot snapshot) {
+            State state = new State();
+            if (snapshot != null) {
+                state.sequence = snapshot.getSequenceNumber();
+                state.balance = Credits.of(snapshot.getBalance());
+                state.earned = Credits.of(snapshot.getTotalEarned());
+                state.spent = Credits.of(snapshot.getTotalSpent());
+            }
+            return state;
+        }
+
+        void apply(long sequence, Credits amount) {
+            this.sequence = sequence;
+            this.balance = balance.plus(amount);
+            this.earned = earned.plus(amount.earned());
+            this.spent = spent.plus(amount.spent());
+        }
+
+        boolean matches(CreditBalanceSnapshot snapshot) {
+            return balance.equals(Credits.of(snapshot.getBalance()))
+                    && earned.equals(Credits.of(snapshot.getTotalEarned()))
+                    && spent.equals(Credits.of(snapshot.getTotalSpent()));
+        }
+
+        Object[] snapshotParams(Long userId, LocalDateTime eventAt) {
+            return new Object[]{userId, sequence, balance.toBigDecimal(), earned.toBigDecimal(), spent.toBigDecimal(),
+                    Timestamp.valueOf(eventAt), Timestamp.valueOf(LocalDateTime.now())};
+        }
+    }
+
+    /**
+     * Resultado de la verificación
+     */
+    private static class Verification {
+
+        private long users;
+        private long events;
+        private long snapshots;
+        private long mismatched;
+        private final Set<Long> mismatchedUsers = new HashSet<>();
+        private final List<Map<String, Object>> mismatches = new ArrayList<>();
+
+        void mismatch(Long userId, String kind, String detail) {
+            mismatched++;
+            mismatchedUsers.add(userId);
+            logger.warn("Credit event log mismatch for user {} ({}): {}", userId, kind, detail);
+            if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                Map<String, Object> mismatch = new LinkedHashMap<>();
+                mismatch.put("userId", userId);
+                mismatch.put("kind", kind);
+                mismatch.put("detail", detail);
+                mismatches.add(mismatch);
+            }
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("checkedUsers", users);
+            report.put("checkedEvents", events);
+            report.put("checkedSnapshots", snapshots);
+            report.put("mismatched", mismatched);
+            report.put("mismatchedUsers", mismatchedUsers.size());
+            report.put("mismatches", mismatches);
+            report.put("completedAt", LocalDateTime.now());
+            return report;
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.model.CreditExpirationCheckpoint;
+import com.skillswap.backend.model.CreditExpirationRun;
+import com.skillswap.backend.model.CreditTransaction;
+import com.skillswap.backend.repository.CreditExpirationCheckpointRepository;
+import com.skillswap.backend.repository.CreditExpirationRunRepository;
+import com.skillswap.backend.repository.CreditLotRepository;
+import com.skillswap.backend.repository.CreditTransactionRepository;
+import com.skillswap.backend.repository.UserCreditsRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Expiración de créditos por bloques.
+ * Los usuarios se reparten en particiones (id de usuario módulo el número de particiones), cada una
+ * con su propio hilo. Cada partición recorre por clave los lotes de créditos cuyo mes ya cerró (solo
+ * existen lotes con saldo pendiente) y procesa cada bloque en una transacción: bloquea los balances
+ * afectados en orden de usuario, inserta las filas de expiración por lo que queda sin gastar con un
+ * batch JDBC, borra los lotes, actualiza una sola vez el balance de cada usuario y avanza su checkpoint.
+ * Los créditos reservados por sesiones aceptadas no expiran: el balance nunca baja de las reservas y la
+ * parte retenida queda en su lote hasta que la sesión se liquida o la reserva se libera.
+ * Si el nodo cae, la ejecución se reanuda desde el último bloque confirmado de cada partición.
+ */
+@Service
+public class CreditExpirationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreditExpirationService.class);
+
+    private static final String INSERT_EXPIRATION_SQL =
+            "INSERT INTO credit_transaction (user_id, amount, type, status, description, reference_id, reference_type, " +
+            "balance_before, balance_after, processed_at, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_BALANCE_SQL =
+            "UPDATE user_credits SET current_balance = current_balance - ?, total_spent = total_spent + ?, " +
+            "last_transaction_at = ?, updated_at = ? WHERE user_id = ?";
+
+    private static final String SHRINK_LOT_SQL =
+            "UPDATE credit_lot SET remaining_amount = remaining_amount - ?, updated_at = ? WHERE id = ?";
+
+    private static final String MARK_EXPIRED_SQL =
+            "UPDATE credit_transaction SET status = ?, updated_at = ? WHERE user_id = ? AND status = 'COMPLETED' " +
+            "AND amount > 0 AND expires_at >= ? AND expires_at < ?";
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    @Autowired
+    private CreditTransactionRepository creditTransactionRepository;
+
+    @Autowired
+    private CreditLotRepository creditLotRepository;
+
+    @Autowired
+    private UserCreditsRepository userCreditsRepository;
+
+    @Autowired
+    private CreditExpirationRunRepository runRepository;
+
+    @Autowired
+    private CreditExpirationCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private CreditService creditService;
+
+    @Autowired
+    private CreditRollupService creditRollupService;
+
+    @Autowired
+    private CreditEventService creditEventService;
+
+    @Autowired
+    private CreditStatisticsService creditStatisticsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${skillswap.credits.expiration.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${skillswap.credits.expiration.workers:4}")
+    private int workers;
+
+    @Value("${skillswap.credits.expiration.stale-after-minutes:10}")
+    private int staleAfterMinutes;
+
+    @Value("${skillswap.credits.expiration.heartbeat-seconds:30}")
+    private int heartbeatSeconds;
+
+    // Una ejecución a la vez por nodo; los hilos de las particiones se crean por ejecución
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "credit-expiration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Procesar expiración de créditos (tarea programada)
+    @Scheduled(cron = "${skillswap.credits.expiration.cron:0 0 2 * * ?}") // Ejecutar diariamente a las 2 AM
+    public void processExpiredCredits() {
+        coordinator.submit(this::startOrResume);
+    }
+
+    /**
+     * Reanudar ejecuciones abandonadas por un nodo caído
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingRuns() {
+        try {
+            List<Long> ids = runRepository.findResumableIds(LocalDateTime.now().minusMinutes(staleAfterMinutes));
+            for (Long id : ids) {
+                logger.info("Resuming credit expiration run {}", id);
+                coordinator.submit(() -> run(id));
+            }
+        } catch (Exception e) {
+            logger.error("Error resuming credit expiration runs", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+    }
+
+    private void startOrResume() {
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            LocalDateTime staleBefore = LocalDateTime.now().minusMinutes(staleAfterMinutes);
+            List<Long> resumable = runRepository.findResumableIds(staleBefore);
+            if (!resumable.isEmpty()) {
+                resumable.forEach(this::run);
+                return;
+            }
+            if (runRepository.existsActiveRun(staleBefore)) {
+                logger.info("Credit expiration already running on another node");
+                return;
+            }
+
+            // La fecha de corte y las particiones quedan fijadas para toda la ejecución
+            Long runId = transactionTemplate.execute(status -> {
+                CreditExpirationRun created = runRepository.save(
+                        new CreditExpirationRun(LocalDateTime.now(), Math.max(workers, 1)));
+                for (int partition = 0; partition < created.getPartitions(); partition++) {
+                    checkpointRepository.save(new CreditExpirationCheckpoint(created.getId(), partition));
+                }
+                return created.getId();
+            });
+            run(runId);
+        } catch (Exception e) {
+            logger.error("Error starting credit expiration", e);
+        }
+    }
+
+    private void run(Long runId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status ->
+                runRepository.claim(runId, now, now.minusMinutes(staleAfterMinutes)));
+        if (claimed == null || claimed == 0) {
+            logger.debug("Credit expiration run {} already claimed or finished", runId);
+            return;
+        }
+
+        CreditExpirationRun run = runRepository.findById(runId).orElseThrow();
+        List<CreditExpirationCheckpoint> pending = checkpointRepository.findByRunIdOrderByPartitionIndexAsc(runId)
+                .stream()
+                .filter(checkpoint -> !checkpoint.getCompleted())
+                .toList();
+        logger.info("Credit expiration run {} (cutoff {}): {} of {} partitions pending",
+                   runId, run.getCutoff(), pending.size(), run.getPartitions());
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService partitionExecutor = Executors.newFixedThreadPool(Math.max(pending.size(), 1), runnable -> {
+            Thread thread = new Thread(runnable, "credit-expiration-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (CreditExpirationCheckpoint checkpoint : pending) {
+                futures.add(partitionExecutor.submit(() -> processPartition(run, checkpoint)));
+            }
+            // Mientras las particiones trabajan, el coordinador mantiene vivo el heartbeat
+            for (Future<Long> future : futures) {
+                while (true) {
+                    try {
+                        future.get(heartbeatSeconds, TimeUnit.SECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        transactionTemplate.execute(status -> runRepository.heartbeat(runId, LocalDateTime.now()));
+                    }
+                }
+            }
+
+            long expired = checkpointRepository.sumExpiredByRunId(runId);
+            transactionTemplate.executeWithoutResult(status -> {
+                CreditExpirationRun finished = runRepository.findById(runId).orElseThrow();
+                finished.setStatus(CreditExpirationRun.RunStatus.COMPLETED);
+                finished.setExpiredCount(expired);
+                finished.setCompletedAt(LocalDateTime.now());
+                runRepository.save(finished);
+            });
+            logger.info("Credit expiration run {} completed: {} credit lots expired", runId, expired);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("Credit expiration run {} interrupted, it will resume from its checkpoints", runId);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            logger.error("Credit expiration run {} failed", runId, cause);
+            transactionTemplate.executeWithoutResult(status -> runRepository.findById(runId).ifPresent(failed -> {
+                failed.setStatus(CreditExpirationRun.RunStatus.FAILED);
+                failed.setErrorMessage(cause.getMessage() != null && cause.getMessage().length() > 500
+                        ? cause.getMessage().substring(0, 500) : cause.getMessage());
+                runRepository.save(failed);
+            }));
+        } finally {
+            partitionExecutor.shutdownNow();
+        }
+    }
+
+    private long processPartition(CreditExpirationRun run, CreditExpirationCheckpoint checkpoint) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long lastTransactionId = checkpoint.getLastTransactionId();
+        long expired = 0;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            final long cursor = lastTransactionId;
+            // Créditos, balances y checkpoint se confirman juntos
+            long[] result = transactionTemplate.execute(status -> processChunk(run, checkpoint, cursor));
+            if (result == null) {
+                transactionTemplate.execute(status -> checkpointRepository.markCompleted(checkpoint.getId(), LocalDateTime.now()));
+                break;
+            }
+            lastTransactionId = result[0];
+            expired += result[1];
+        }
+        return expired;
+    }
+
+    /**
+     * Procesar un bloque de la partición; devuelve [último id de lote recorrido, lotes expirados] o null si no quedan
+     */
+    private long[] processChunk(CreditExpirationRun run, CreditExpirationCheckpoint checkpoint, long afterId) {
+        LocalDate cutoffMonth = run.getCutoff().toLocalDate().withDayOfMonth(1);
+        List<Object[]> candidates = creditLotRepository.findExpiredChunk(cutoffMonth, afterId,
+                run.getPartitions(), checkpoint.getPartitionIndex(), PageRequest.of(0, chunkSize));
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        long chunkLastId = (Long) candidates.get(candidates.size() - 1)[0];
+
+        List<Long> ids = new ArrayList<>(candidates.size());
+        TreeSet<Long> userIds = new TreeSet<>();
+        for (Object[] candidate : candidates) {
+            ids.add((Long) candidate[0]);
+            userIds.add((Long) candidate[1]);
+        }
+
+        // Con los balances bloqueados nadie más puede consumir ni expirar estos lotes: se releen
+        Map<Long, LockedBalance> balances = lockBalances(userIds);
+        List<Object[]> lots = creditLotRepository.findPendingByIds(ids);
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<Object[]> expirationRows = new ArrayList<>(lots.size());
+        List<Object[]> expiredRows = new ArrayList<>(lots.size());
+        List<Long> expiredLotIds = new ArrayList<>(lots.size());
+        List<Object[]> shrunkLotRows = new ArrayList<>();
+        Map<Long, Credits> expiredByUser = new HashMap<>();
+        Map<Long, Integer> expiredCountByUser = new HashMap<>();
+
+        for (Object[] lot : lots) {
+            Long lotId = (Long) lot[0];
+            Long userId = (Long) lot[1];
+            LocalDate expiryMonth = (LocalDate) lot[2];
+            Credits remaining = Credits.fromNumber(lot[3]);
+
+            // Lo que cubre reservas no expira: como mucho el disponible (balance menos reservas)
+            LockedBalance locked = balances.get(userId);
+            Credits expirable = locked.available().signum() > 0 ? locked.available() : Credits.ZERO;
+            Credits amount = remaining.isLessThan(expirable) ? remaining : expirable;
+            if (amount.isLessThan(remaining)) {
+                // El lote sigue con la parte reservada; otra ejecución lo retoma si la reserva se libera
+                if (amount.signum() > 0) {
+                    shrunkLotRows.add(new Object[]{amount.toBigDecimal(), timestamp, lotId});
+                }
+            } else {
+                expiredLotIds.add(lotId);
+            }
+
+            // Los abonos del mes quedan como expirados en el ledger aunque ya se hubieran gastado
+            expiredRows.add(new Object[]{CreditTransaction.TransactionStatus.EXPIRED.name(), timestamp, userId,
+                    Timestamp.valueOf(expiryMonth.atStartOfDay()), Timestamp.valueOf(CreditLotService.expiresAtOf(expiryMonth))});
+            if (amount.signum() <= 0) {
+                continue;
+            }
+
+            Credits balanceBefore = locked.balance();
+            Credits balanceAfter = balanceBefore.minus(amount);
+            balances.put(userId, new LockedBalance(balanceAfter, locked.reserved()));
+            expiredByUser.merge(userId, amount, Credits::plus);
+            expiredCountByUser.merge(userId, 1, Integer::sum);
+
+            expirationRows.add(new Object[]{userId, amount.negate().toBigDecimal(), CreditTransaction.TransactionType.EXPIRATION.name(),
+                    CreditTransaction.TransactionStatus.COMPLETED.name(),
+                    "Expiración de créditos no gastados de " + expiryMonth.format(MONTH_FORMAT),
+                    lotId.toString(), "CREDIT_LOT", balanceBefore.toBigDecimal(), balanceAfter.toBigDecimal(),
+                    timestamp, timestamp, timestamp});
+        }
+
+        if (!expiredRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(MARK_EXPIRED_SQL, expiredRows);
+        }
+        if (!expiredLotIds.isEmpty()) {
+            creditLotRepository.deleteByIds(expiredLotIds);
+        }
+        if (!shrunkLotRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(SHRINK_LOT_SQL, shrunkLotRows);
+        }
+
+        if (!expirationRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_EXPIRATION_SQL, expirationRows);
+
+            // Un solo UPDATE por usuario y bloque
+            List<Object[]> balanceRows = new ArrayList<>(expiredByUser.size());
+            expiredByUser.forEach((userId, amount) -> balanceRows.add(
+                    new Object[]{amount.toBigDecimal(), amount.toBigDecimal(), timestamp, timestamp, userId}));
+            jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, balanceRows);
+
+            // Agregados diarios y mensuales: una fila por usuario y bloque
+            expiredByUser.forEach((userId, amount) -> creditRollupService.record(userId, now.toLocalDate(),
+                    new CreditRollupService.Totals(Credits.ZERO, amount, Credits.ZERO, expiredCountByUser.get(userId))));
+            appendExpirationEvents(expirationRows, now);
+            expiredByUser.keySet().forEach(creditStatisticsService::invalidate);
+        }
+
+        checkpointRepository.advance(checkpoint.getId(), chunkLastId, expiredLotIds.size(), now);
+        meterRegistry.counter("skillswap.credits.expiration.expired").increment(expiredLotIds.size());
+        logger.debug("Credit expiration run {} partition {}: expired {} credit lots for {} users up to lot {}",
+                    run.getId(), checkpoint.getPartitionIndex(), expiredLotIds.size(), expiredByUser.size(), chunkLastId);
+        return new long[]{chunkLastId, expiredLotIds.size()};
+    }
+
+    // Eventos de las filas de expiración del bloque, en orden de inserción y con su id generado
+    private void appendExpirationEvents(List<Object[]> expirationRows, LocalDateTime now) {
+        Set<Long> userIds = new HashSet<>();
+        List<String> referenceIds = new ArrayList<>(expirationRows.size());
+        for (Object[] row : expirationRows) {
+            userIds.add((Long) row[0]);
+            referenceIds.add((String) row[5]);
+        }
+        Map<Long, List<CreditEventService.PendingEvent>> eventsByUser = new TreeMap<>();
+        for (Object[] entry : creditTransactionRepository.findExpirationEntries(userIds, referenceIds)) {
+            eventsByUser.computeIfAbsent((Long) entry[1], id -> new ArrayList<>()).add(new CreditEventService.PendingEvent(
+                    CreditTransaction.TransactionType.EXPIRATION.name(), Credits.fromNumber(entry[3]), (Long) entry[0], now));
+        }
+        eventsByUser.forEach(creditEventService::appendAll);
+    }
+
+    private Map<Long, LockedBalance> lockBalances(TreeSet<Long> userIds) {
+        // Usuarios sin fila materializada: se siembran desde el ledger antes del bloqueo
+        creditService.ensureBalances(userIds);
+        Map<Long, LockedBalance> balances = new HashMap<>();
+        for (Object[] row : userCreditsRepository.lockBalancesByUserIds(userIds)) {
+            balances.put(((Number) row[0]).longValue(), new LockedBalance(Credits.fromNumber(row[1]), Credits.fromNumber(row[2])));
+        }
+        return balances;
+    }
+
+    private record LockedBalance(Credits balance, Credits reserved) {
+
+        Credits available() {
+            return balance.minus(reserved);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.model.CreditHold;
+import com.skillswap.backend.model.SkillMatch;
+import com.skillswap.backend.model.User;
+import com.skillswap.backend.model.VideoSession;
+import com.skillswap.backend.repository.CreditHoldRepository;
+import com.skillswap.backend.repository.UserCreditsRepository;
+import com.skillswap.backend.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Reservas de créditos para sesiones de video.
+ * Al aceptar una sesión se reserva el costo previsto del aprendiz (balance bloqueado, disponible comprobado
+ * y reservedCredits incrementado en la misma transacción); al terminarla la liquidación captura el costo real
+ * hasta el importe reservado, y al cancelarla o rechazarla se libera. Las reservas que vencen sin resolverse se
+ * liberan por bloques recorriendo el índice (status, expires_at).
+ */
+@Service
+@Transactional
+public class CreditHoldService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreditHoldService.class);
+
+    @Autowired
+    private CreditHoldRepository creditHoldRepository;
+
+    @Autowired
+    private UserCreditsRepository userCreditsRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditService creditService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${skillswap.credits.holds.default-duration-minutes:60}")
+    private int defaultDurationMinutes;
+
+    @Value("${skillswap.credits.holds.expire-after-hours:24}")
+    private int expireAfterHours;
+
+    @Value("${skillswap.credits.holds.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Reservar los créditos del aprendiz al aceptar la sesión
+     */
+    public CreditHold placeHold(VideoSession videoSession) {
+        SkillMatch skillMatch = videoSession.getSkillMatch();
+        User learner = skillMatch != null ? skillMatch.getLearnerUser() : null;
+        if (learner == null) {
+            return null;
+        }
+
+        Credits amount = creditService.calculateLearningCost(expectedDurationMinutes(skillMatch));
+        // Con el balance bloqueado, el disponible no cambia hasta confirmar la reserva
+        Credits available = creditService.lockAvailableBalances(learner).get(learner.getId());
+        if (available.isLessThan(amount)) {
+            throw new RuntimeException("Créditos insuficientes para reservar la sesión. Balance disponible: "
+                    + available + ", Reserva requerida: " + amount);
+        }
+
+        LocalDateTime start = videoSession.getScheduledStartTime() != null
+                ? videoSession.getScheduledStartTime() : LocalDateTime.now();
+        CreditHold hold = creditHoldRepository.save(
+                new CreditHold(learner, videoSession, amount.toBigDecimal(), start.plusHours(expireAfterHours)));
+        userCreditsRepository.adjustReserved(learner.getId(), amount.toBigDecimal(), LocalDateTime.now());
+
+        meterRegistry.counter("skillswap.credits.holds", "result", "placed").increment();
+        logger.info("Placed credit hold {} of {} for user {} on video session {}",
+                   hold.getId(), amount, learner.getId(), videoSession.getId());
+        return hold;
+    }
+
+    /**
+     * Capturar la reserva al liquidar la sesión. La reserva cubre la duración prevista; si la sesión
+     * se alarga, el exceso se cobra del disponible del aprendiz y, si tampoco alcanza, solo se facturan
+     * los minutos que puede pagar. Devuelve los minutos facturados o vacío si la sesión no tenía reserva
+     * activa; el balance del aprendiz ya está bloqueado por la liquidación y available es su disponible
+     * con esta reserva todavía descontada
+     */
+    Optional<Integer> captureForSettlement(VideoSession videoSession, int minutes, Credits available) {
+        Optional<CreditHold> active = creditHoldRepository.findByVideoSessionId(videoSession.getId())
+                .filter(CreditHold::isActive);
+        return active.map(hold -> {
+            Credits reserved = Credits.of(hold.getAmount());
+            int billedMinutes = creditService.billableMinutes(minutes, available.plus(reserved));
+            Credits charged = creditService.calculateLearningCost(billedMinutes);
+
+            userCreditsRepository.adjustReserved(hold.getUser().getId(), reserved.negate().toBigDecimal(), LocalDateTime.now());
+            hold.resolve(CreditHold.HoldStatus.CAPTURED);
+            hold.setCapturedAmount(charged.toBigDecimal());
+            creditHoldRepository.save(hold);
+
+            meterRegistry.counter("skillswap.credits.holds", "result", "captured").increment();
+            if (billedMinutes < minutes) {
+                meterRegistry.counter("skillswap.credits.holds", "result", "capped").increment();
+                logger.warn("Credit hold {} on video session {} does not cover the session: billing {} of {} minutes",
+                           hold.getId(), videoSession.getId(), billedMinutes, minutes);
+            }
+            logger.info("Captured credit hold {} on video session {}: charging {} against {} reserved",
+                       hold.getId(), videoSession.getId(), charged, reserved);
+            return billedMinutes;
+        });
+    }
+
+    /**
+     * Liberar la reserva al cancelar o rechazar la sesión
+     */
+    public Optional<CreditHold> release(VideoSession videoSession) {
+        Optional<CreditHold> active = lockActiveHold(videoSession);
+        active.ifPresent(hold -> {
+            userCreditsRepository.adjustReserved(hold.getUser().getId(), hold.getAmount().negate(), LocalDateTime.now());
+            hold.resolve(CreditHold.HoldStatus.RELEASED);
+            creditHoldRepository.save(hold);
+            meterRegistry.counter("skillswap.credits.holds", "result", "released").increment();
+            logger.info("Released credit hold {} on video session {}", hold.getId(), videoSession.getId());
+        });
+        return active;
+    }
+
+    @Transactional(readOnly = true)
+    public List<CreditHold> getActiveHolds(User user) {
+        return creditHoldRepository.findActiveByUserId(user.getId());
+    }
+
+    /**
+     * Liberar en bloque las reservas vencidas (tarea programada)
+     */
+    @Scheduled(fixedDelayString = "${skillswap.credits.holds.expiry-check-ms:300000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void releaseExpiredHolds() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        LocalDateTime now = LocalDateTime.now();
+        int released = 0;
+        try {
+            while (true) {
+                Integer chunk = transactionTemplate.execute(status -> releaseExpiredChunk(now));
+                if (chunk == null || chunk < 0) {
+                    break;
+                }
+                released += chunk;
+            }
+            if (released > 0) {
+                logger.info("Released {} expired credit holds", released);
+            }
+        } catch (Exception e) {
+            logger.error("Error releasing expired credit holds after {} holds", released, e);
+        }
+    }
+
+    /**
+     * Un bloque de reservas vencidas; devuelve las liberadas o -1 si no quedan
+     */
+    private int releaseExpiredChunk(LocalDateTime now) {
+        List<Object[]> candidates = creditHoldRepository.findExpiredActiveChunk(now, PageRequest.of(0, chunkSize));
+        if (candidates.isEmpty()) {
+            return -1;
+        }
+
+        List<Long> ids = new ArrayList<>(candidates.size());
+        TreeSet<Long> userIds = new TreeSet<>();
+        for (Object[] candidate : candidates) {
+            ids.add((Long) candidate[0]);
+            userIds.add((Long) candidate[1]);
+        }
+
+        // Capturas y liberaciones también bloquean el balance del aprendiz: tras el bloqueo el estado es definitivo
+        userCreditsRepository.lockBalancesByUserIds(userIds);
+        List<Object[]> active = creditHoldRepository.findActiveByIds(ids);
+        if (active.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> expiredIds = new ArrayList<>(active.size());
+        Map<Long, Credits> releasedByUser = new TreeMap<>();
+        for (Object[] hold : active) {
+            expiredIds.add((Long) hold[0]);
+            releasedByUser.merge((Long) hold[1], Credits.fromNumber(hold[2]), Credits::plus);
+        }
+
+        creditHoldRepository.markExpired(expiredIds, now);
+        // Un solo UPDATE por usuario y bloque
+        LocalDateTime updatedAt = LocalDateTime.now();
+        releasedByUser.forEach((userId, amount) ->
+                userCreditsRepository.adjustReserved(userId, amount.negate().toBigDecimal(), updatedAt));
+
+        meterRegistry.counter("skillswap.credits.holds", "result", "expired").increment(expiredIds.size());
+        logger.debug("Expired {} credit holds for {} users", expiredIds.size(), releasedByUser.size());
+        return expiredIds.size();
+    }
+
+    // Bloquear el balance del aprendiz antes de cargar la reserva, igual que el proceso de vencimiento
+    private Optional<CreditHold> lockActiveHold(VideoSession videoSession) {
+        Optional<Long> userId = creditHoldRepository.findUserIdByVideoSessionId(videoSession.getId());
+        if (userId.isEmpty()) {
+            return Optional.empty();
+        }
+        creditService.lockAvailableBalances(userRepository.getReferenceById(userId.get()));
+        return creditHoldRepository.findByVideoSessionId(videoSession.getId())
+                .filter(CreditHold::isActive);
+    }
+
+    private int expectedDurationMinutes(SkillMatch skillMatch) {
+        if (skillMatch.getLearnerPreferredDuration() != null) {
+            return skillMatch.getLearnerPreferredDuration();
+        }
+        if (skillMatch.getTeacherPreferredDuration() != null) {
+            return skillMatch.getTeacherPreferredDuration();
+        }
+        return defaultDurationMinutes;
+    }
+}
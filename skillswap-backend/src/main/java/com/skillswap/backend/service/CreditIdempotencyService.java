@@ -0,0 +1,232 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.model.CreditIdempotencyKey;
+import com.skillswap.backend.model.CreditTransaction;
+import com.skillswap.backend.repository.CreditIdempotencyKeyRepository;
+import com.skillswap.backend.repository.CreditTransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Idempotencia de compras y transferencias de créditos (cabecera Idempotency-Key).
+ * La primera petición con una clave inserta la clave y el movimiento en la misma transacción;
+ * los reintentos devuelven el movimiento original sin volver a tocar balances ni ledger.
+ * Una caché acotada con TTL resuelve los reintentos habituales sin ir a la base de datos para
+ * buscar la clave; el índice único de credit_idempotency_key cubre otros nodos y reinicios.
+ */
+@Service
+public class CreditIdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreditIdempotencyService.class);
+
+    public static final String PURCHASE = "PURCHASE";
+    public static final String TRANSFER = "TRANSFER";
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    @Autowired
+    private CreditIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private CreditTransactionRepository creditTransactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${skillswap.credits.idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${skillswap.credits.idempotency.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${skillswap.credits.idempotency.retention-days:7}")
+    private int retentionDays;
+
+    private DedupeCache cache;
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        cache = new DedupeCache(cacheSize, ttlMinutes * 60_000L);
+        hits = Counter.builder("skillswap.credits.idempotency.requests")
+                .description("Credit operations carrying an Idempotency-Key")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        misses = Counter.builder("skillswap.credits.idempotency.requests")
+                .description("Credit operations carrying an Idempotency-Key")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("skillswap.credits.idempotency.hit_ratio", this, CreditIdempotencyService::hitRatio)
+                .description("Share of keyed credit operations answered from a previous result")
+                .register(meterRegistry);
+        Gauge.builder("skillswap.credits.idempotency.cache.size", cache, DedupeCache::size)
+                .description("Idempotency keys held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ejecutar la operación una sola vez por clave; si la clave ya se usó, devolver el movimiento original
+     *
+     * @param operation  PURCHASE o TRANSFER
+     * @param fingerprint datos de la petición; la misma clave con datos distintos se rechaza
+     */
+    public IdempotentResult execute(String operation, Long userId, String idempotencyKey, String fingerprint,
+                                    Supplier<CreditTransaction> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            throw new RuntimeException("La clave de idempotencia no puede estar vacía");
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("La clave de idempotencia supera los " + MAX_KEY_LENGTH + " caracteres");
+        }
+
+        String referenceId = userId + ":" + idempotencyKey;
+        String cacheKey = operation + "|" + referenceId;
+        String requestHash = sha256(fingerprint);
+
+        // 1. Reintento reciente en este nodo
+        DedupeCache.Entry cached = cache.get(cacheKey);
+        if (cached != null) {
+            return replay(cacheKey, cached.requestHash(), cached.transactionId(), requestHash);
+        }
+
+        // 2. Clave confirmada por otro nodo o antes de un reinicio
+        CreditIdempotencyKey existing = idempotencyKeyRepository
+                .findByReferenceTypeAndReferenceId(operation, referenceId).orElse(null);
+        if (existing != null) {
+            return replay(cacheKey, existing.getRequestHash(), existing.getTransactionId(), requestHash);
+        }
+
+        // 3. Primera vez: la clave se inserta antes que el movimiento para que un duplicado concurrente
+        //    espere en el índice único y no llegue a bloquear balances
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            CreditTransaction transaction = transactionTemplate.execute(status -> {
+                CreditIdempotencyKey key = idempotencyKeyRepository.saveAndFlush(
+                        new CreditIdempotencyKey(operation, referenceId, userId, requestHash));
+                CreditTransaction created = action.get();
+                key.setTransactionId(created.getId());
+                return created;
+            });
+            misses.increment();
+            cache.put(cacheKey, new DedupeCache.Entry(requestHash, transaction.getId()));
+            return new IdempotentResult(transaction, false);
+        } catch (DataIntegrityViolationException e) {
+            // Otra petición con la misma clave se confirmó mientras tanto
+            CreditIdempotencyKey winner = idempotencyKeyRepository
+                    .findByReferenceTypeAndReferenceId(operation, referenceId)
+                    .orElseThrow(() -> e);
+            logger.info("Concurrent duplicate {} for user {} resolved to transaction {}",
+                       operation, userId, winner.getTransactionId());
+            return replay(cacheKey, winner.getRequestHash(), winner.getTransactionId(), requestHash);
+        }
+    }
+
+    // Purgar claves antiguas (tarea programada)
+    @Scheduled(cron = "${skillswap.credits.idempotency.purge-cron:0 15 4 * * ?}") // Diariamente a las 4:15 AM
+    public void purgeExpiredKeys() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Integer deleted = transactionTemplate.execute(status ->
+                idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minusDays(retentionDays)));
+        logger.info("Purged {} credit idempotency keys older than {} days", deleted, retentionDays);
+    }
+
+    private IdempotentResult replay(String cacheKey, String originalHash, Long transactionId, String requestHash) {
+        if (!originalHash.equals(requestHash)) {
+            throw new RuntimeException("La clave de idempotencia ya se usó con otros datos");
+        }
+        CreditTransaction original = creditTransactionRepository.findByIdWithUser(transactionId)
+                .orElseThrow(() -> new RuntimeException("Transacción original no encontrada: " + transactionId));
+        hits.increment();
+        cache.put(cacheKey, new DedupeCache.Entry(originalHash, transactionId));
+        return new IdempotentResult(original, true);
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Resultado de una operación idempotente; replayed indica que se devolvió el movimiento original
+     */
+    public record IdempotentResult(CreditTransaction transaction, boolean replayed) {
+    }
+
+    /**
+     * Caché LRU acotada con caducidad por entrada
+     */
+    static class DedupeCache {
+
+        record Entry(String requestHash, Long transactionId) {
+        }
+
+        private record Timed(Entry entry, long expiresAt) {
+        }
+
+        private final long ttlMillis;
+        private final Map<String, Timed> entries;
+
+        DedupeCache(int maxEntries, long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Timed> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        synchronized Entry get(String key) {
+            Timed timed = entries.get(key);
+            if (timed == null) {
+                return null;
+            }
+            if (timed.expiresAt() < System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return timed.entry();
+        }
+
+        synchronized void put(String key, Entry entry) {
+            entries.put(key, new Timed(entry, System.currentTimeMillis() + ttlMillis));
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
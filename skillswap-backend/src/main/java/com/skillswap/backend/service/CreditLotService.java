@@ -0,0 +1,427 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.model.CreditLot;
+import com.skillswap.backend.model.CreditTransaction;
+import com.skillswap.backend.model.User;
+import com.skillswap.backend.repository.CreditLotRepository;
+import com.skillswap.backend.repository.UserCreditsRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lotes de créditos por mes de expiración.
+ * Cada abono con fecha de expiración suma al lote de su mes y cada cargo consume primero los lotes que
+ * vencen antes; lo que no cubren los lotes sale de los créditos sin caducidad. Así la expiración solo
+ * retira lo que queda sin gastar. Las escrituras se hacen en la misma transacción que el movimiento del
+ * ledger y con el balance del usuario bloqueado: un usuario tiene como mucho un lote por mes, así que
+ * leer y reescribir sus lotes cuesta O(meses).
+ * El backfill construye los lotes de los usuarios existentes reproduciendo su ledger.
+ */
+@Service
+public class CreditLotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreditLotService.class);
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private static final String INSERT_LOT_SQL =
+            "INSERT INTO credit_lot (user_id, expiry_month, granted_amount, remaining_amount, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_LOT_SQL =
+            "UPDATE credit_lot SET granted_amount = granted_amount + ?, remaining_amount = ?, updated_at = ? WHERE id = ?";
+
+    private static final String DELETE_LOT_SQL = "DELETE FROM credit_lot WHERE id = ?";
+
+    private static final String GRANT_LOT_SQL =
+            "UPDATE credit_lot SET granted_amount = granted_amount + ?, remaining_amount = remaining_amount + ?, " +
+            "updated_at = ? WHERE user_id = ? AND expiry_month = ?";
+
+    @Autowired
+    private CreditLotRepository creditLotRepository;
+
+    @Autowired
+    private UserCreditsRepository userCreditsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${skillswap.credits.lots.backfill-chunk-size:200}")
+    private int backfillChunkSize;
+
+    // Un backfill a la vez por nodo
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "credit-lot-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final BackfillProgress backfill = new BackfillProgress();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("skillswap.credits.lots.backfill.users", backfill.processedUsers, AtomicLong::get)
+                .description("Users whose credit lots were rebuilt by the current or last backfill")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillExecutor.shutdownNow();
+    }
+
+    // Mes del lote de un crédito que vence en expiresAt
+    static LocalDate bucketOf(LocalDateTime expiresAt) {
+        return expiresAt.toLocalDate().withDayOfMonth(1);
+    }
+
+    // Un lote vence al cierre de su mes
+    static LocalDateTime expiresAtOf(LocalDate expiryMonth) {
+        return expiryMonth.plusMonths(1).atStartOfDay();
+    }
+
+    /**
+     * Aplicar a los lotes de un usuario sus movimientos recién registrados, en orden; se llama dentro
+     * de la transacción del ledger con el balance del usuario bloqueado
+     */
+    void apply(Long userId, List<LotMovement> movements) {
+        if (movements.stream().noneMatch(LotMovement::affectsLots)) {
+            return;
+        }
+
+        TreeMap<LocalDate, Bucket> buckets = new TreeMap<>();
+        for (Object[] row : creditLotRepository.findBucketsByUserId(userId)) {
+            buckets.put((LocalDate) row[1], new Bucket((Long) row[0], Credits.fromNumber(row[2])));
+        }
+
+        for (LotMovement movement : movements) {
+            if (movement.amount().signum() > 0 && movement.expiresAt() != null) {
+                Bucket bucket = buckets.computeIfAbsent(bucketOf(movement.expiresAt()), month -> new Bucket(null, Credits.ZERO));
+                bucket.grant(movement.amount());
+            } else if (movement.amount().signum() < 0) {
+                consume(buckets, movement.amount().negate());
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        buckets.forEach((month, bucket) -> {
+            if (!bucket.changed) {
+                return;
+            }
+            if (bucket.id == null) {
+                if (bucket.remaining.signum() > 0) {
+                    inserts.add(new Object[]{userId, Date.valueOf(month), bucket.granted.toBigDecimal(),
+                            bucket.remaining.toBigDecimal(), now, now});
+                }
+            } else if (bucket.remaining.signum() > 0) {
+                updates.add(new Object[]{bucket.granted.toBigDecimal(), bucket.remaining.toBigDecimal(), now, bucket.id});
+            } else {
+                // Lote agotado: se borra para que la expiración no lo recorra
+                deletes.add(new Object[]{bucket.id});
+            }
+        });
+        jdbcTemplate.batchUpdate(INSERT_LOT_SQL, inserts);
+        jdbcTemplate.batchUpdate(UPDATE_LOT_SQL, updates);
+        jdbcTemplate.batchUpdate(DELETE_LOT_SQL, deletes);
+    }
+
+    /**
+     * Sumar el mismo abono al lote de su mes para un bloque de usuarios (abonos masivos): un batch de
+     * UPDATE y otro de INSERT para quienes aún no tenían lote ese mes; balances bloqueados por quien llama
+     */
+    void grantAll(List<Long> userIds, Credits amount, LocalDateTime expiresAt) {
+        if (userIds.isEmpty() || amount.signum() <= 0 || expiresAt == null) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Date month = Date.valueOf(bucketOf(expiresAt));
+        List<Object[]> updates = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            updates.add(new Object[]{amount.toBigDecimal(), amount.toBigDecimal(), now, userId, month});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(GRANT_LOT_SQL, updates);
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                inserts.add(new Object[]{userIds.get(i), month, amount.toBigDecimal(), amount.toBigDecimal(), now, now});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_LOT_SQL, inserts);
+    }
+
+    /**
+     * Créditos del usuario que vencen en los próximos días, por lote
+     */
+    public Map<String, Object> getExpiringCredits(User user, int days) {
+        LocalDateTime now = LocalDateTime.now();
+        // Lotes que aún no han vencido y vencen antes del final de la ventana
+        List<CreditLot> lots = creditLotRepository.findExpiring(user.getId(),
+                now.toLocalDate().withDayOfMonth(1), now.plusDays(days).toLocalDate().withDayOfMonth(1));
+
+        Credits total = Credits.ZERO;
+        List<Map<String, Object>> buckets = new ArrayList<>(lots.size());
+        for (CreditLot lot : lots) {
+            Credits remaining = Credits.of(lot.getRemainingAmount());
+            total = total.plus(remaining);
+
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("month", lot.getExpiryMonth().format(MONTH_FORMAT));
+            bucket.put("expiresAt", expiresAtOf(lot.getExpiryMonth()));
+            bucket.put("amount", remaining.toBigDecimal());
+            buckets.add(bucket);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("days", days);
+        result.put("expiringAmount", total.toBigDecimal());
+        result.put("lots", buckets);
+        return result;
+    }
+
+    /**
+     * Construir los lotes de todos los usuarios desde el ledger en segundo plano
+     */
+    public Map<String, Object> startBackfill() {
+        if (!backfill.start()) {
+            throw new RuntimeException("El backfill de lotes de créditos ya está en curso");
+        }
+        backfillExecutor.submit(this::runBackfill);
+        return getBackfillStatus();
+    }
+
+    public Map<String, Object> getBackfillStatus() {
+        return backfill.toMap();
+    }
+
+    private void runBackfill() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long afterId = 0;
+        logger.info("Backfilling credit lots from the ledger");
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final long cursor = afterId;
+                List<Long> userIds = transactionTemplate.execute(status ->
+                        creditLotRepository.findUserIdsWithExpiringCreditsAfter(cursor, PageRequest.of(0, backfillChunkSize)));
+                if (userIds == null || userIds.isEmpty()) {
+                    break;
+                }
+                transactionTemplate.executeWithoutResult(status -> rebuildUsers(new TreeSet<>(userIds)));
+                afterId = userIds.get(userIds.size() - 1);
+                backfill.advance(userIds.size(), afterId);
+            }
+            backfill.finish(null);
+            logger.info("Credit lot backfill completed: {} users", backfill.processedUsers.get());
+        } catch (Exception e) {
+            logger.error("Credit lot backfill failed after user {}", afterId, e);
+            backfill.finish(e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstruir los lotes de un bloque de usuarios con sus balances bloqueados.
+     * Se reproduce el ledger en orden igual que se habría aplicado en vivo: los abonos con expiración
+     * suman a su lote, los cargos consumen los lotes que vencen antes y cada fila de expiración retira
+     * lo que retiró entonces (el crédito referenciado con el esquema anterior, o los lotes de meses ya
+     * cerrados). El total de los lotes nunca supera el balance del usuario
+     */
+    private void rebuildUsers(TreeSet<Long> userIds) {
+        userCreditsRepository.lockBalancesByUserIds(userIds);
+        creditLotRepository.deleteByUserIds(userIds);
+
+        Map<Long, TreeMap<LocalDate, Bucket>> bucketsByUser = new TreeMap<>();
+        Map<Long, Credits> balances = new TreeMap<>();
+        Map<String, LocalDate> creditBuckets = new HashMap<>();
+        for (Object[] entry : creditLotRepository.findReplayEntries(userIds)) {
+            Long userId = (Long) entry[0];
+            Long id = (Long) entry[1];
+            CreditTransaction.TransactionType type = (CreditTransaction.TransactionType) entry[2];
+            Credits amount = Credits.fromNumber(entry[3]);
+            LocalDateTime expiresAt = (LocalDateTime) entry[4];
+            String referenceType = (String) entry[5];
+            String referenceId = (String) entry[6];
+            LocalDateTime createdAt = (LocalDateTime) entry[7];
+
+            TreeMap<LocalDate, Bucket> buckets = bucketsByUser.computeIfAbsent(userId, key -> new TreeMap<>());
+            balances.merge(userId, amount, Credits::plus);
+            if (type == CreditTransaction.TransactionType.EXPIRATION) {
+                if ("CREDIT_LOT".equals(referenceType)) {
+                    // La tarea nocturna retiró lo expirado de los lotes de meses ya cerrados; la parte
+                    // retenida por reservas siguió en su lote
+                    Credits pending = amount.negate();
+                    for (Map.Entry<LocalDate, Bucket> bucket : buckets.entrySet()) {
+                        if (pending.signum() <= 0) {
+                            break;
+                        }
+                        if (createdAt != null && !expiresAtOf(bucket.getKey()).isAfter(createdAt)) {
+                            pending = pending.minus(bucket.getValue().take(pending));
+                        }
+                    }
+                } else {
+                    LocalDate month = creditBuckets.get(referenceId);
+                    if (month != null && buckets.containsKey(month)) {
+                        buckets.get(month).take(amount.negate());
+                    }
+                }
+            } else if (amount.signum() > 0 && expiresAt != null) {
+                LocalDate month = bucketOf(expiresAt);
+                buckets.computeIfAbsent(month, key -> new Bucket(null, Credits.ZERO)).grant(amount);
+                creditBuckets.put(id.toString(), month);
+            } else if (amount.signum() < 0) {
+                consume(buckets, amount.negate());
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> inserts = new ArrayList<>();
+        bucketsByUser.forEach((userId, buckets) -> {
+            Credits lotsTotal = Credits.sum(buckets.values().stream().map(bucket -> bucket.remaining).toList());
+            Credits balance = balances.get(userId).signum() > 0 ? balances.get(userId) : Credits.ZERO;
+            if (balance.isLessThan(lotsTotal)) {
+                consume(buckets, lotsTotal.minus(balance));
+            }
+            buckets.forEach((month, bucket) -> {
+                if (bucket.remaining.signum() > 0) {
+                    inserts.add(new Object[]{userId, Date.valueOf(month), bucket.granted.toBigDecimal(),
+                            bucket.remaining.toBigDecimal(), now, now});
+                }
+            });
+        });
+        jdbcTemplate.batchUpdate(INSERT_LOT_SQL, inserts);
+    }
+
+    // Consumir un cargo de los lotes que vencen antes (FIFO por mes de expiración)
+    private static void consume(TreeMap<LocalDate, Bucket> buckets, Credits amount) {
+        Credits pending = amount;
+        for (Bucket bucket : buckets.values()) {
+            if (pending.signum() <= 0) {
+                break;
+            }
+            pending = pending.minus(bucket.take(pending));
+        }
+    }
+
+    /**
+     * Movimiento del ledger visto desde los lotes: abonos con expiración y cargos
+     */
+    record LotMovement(Credits amount, LocalDateTime expiresAt) {
+
+        boolean affectsLots() {
+            return amount.signum() < 0 || (amount.signum() > 0 && expiresAt != null);
+        }
+    }
+
+    /**
+     * Lote en memoria mientras se aplican los movimientos; granted acumula lo abonado en esta pasada
+     */
+    private static class Bucket {
+
+        private final Long id;
+        private Credits remaining;
+        private Credits granted = Credits.ZERO;
+        private boolean changed;
+
+        Bucket(Long id, Credits remaining) {
+            this.id = id;
+            this.remaining = remaining;
+        }
+
+        void grant(Credits amount) {
+            remaining = remaining.plus(amount);
+            granted = granted.plus(amount);
+            changed = true;
+        }
+
+        Credits take(Credits amount) {
+            Credits taken = remaining.isLessThan(amount) ? remaining : amount;
+            if (taken.signum() > 0) {
+                remaining = remaining.minus(taken);
+                changed = true;
+            }
+            return taken;
+        }
+    }
+
+    /**
+     * Estado del backfill en este nodo
+     */
+    private static class BackfillProgress {
+
+        private final AtomicLong processedUsers = new AtomicLong();
+        private String status = "IDLE";
+        private Long lastUserId;
+        private LocalDateTime startedAt;
+        private LocalDateTime completedAt;
+        private String errorMessage;
+
+        synchronized boolean start() {
+            if ("RUNNING".equals(status)) {
+                return false;
+            }
+            status = "RUNNING";
+            processedUsers.set(0);
+            lastUserId = null;
+            startedAt = LocalDateTime.now();
+            completedAt = null;
+            errorMessage = null;
+            return true;
+        }
+
+        synchronized void advance(int users, Long lastUserId) {
+            processedUsers.addAndGet(users);
+            this.lastUserId = lastUserId;
+        }
+
+        synchronized void finish(String errorMessage) {
+            this.status = errorMessage == null ? "COMPLETED" : "FAILED";
+            this.errorMessage = errorMessage;
+            this.completedAt = LocalDateTime.now();
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("status", status);
+            map.put("processedUsers", processedUsers.get());
+            map.put("lastUserId", lastUserId);
+            map.put("startedAt", startedAt);
+            map.put("completedAt", completedAt);
+            map.put("errorMessage", errorMessage);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.model.UserCredits;
+import com.skillswap.backend.repository.CreditTransactionRepository;
+import com.skillswap.backend.repository.UserCreditsRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Conciliación del balance materializado (user_credits) contra el ledger de transacciones.
+ * Se recorre user_credits por bloques comparando con los totales agregados del ledger; las
+ * diferencias se vuelven a comprobar con la fila bloqueada para descartar movimientos en curso.
+ */
+@Service
+public class CreditReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreditReconciliationService.class);
+
+    private static final int MAX_REPORTED_MISMATCHES = 100;
+
+    @Autowired
+    private UserCreditsRepository userCreditsRepository;
+
+    @Autowired
+    private CreditTransactionRepository creditTransactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${skillswap.credits.reconciliation.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${skillswap.credits.reconciliation.repair:false}")
+    private boolean repair;
+
+    @Scheduled(cron = "${skillswap.credits.reconciliation.cron:0 30 3 * * ?}") // Diariamente a las 3:30 AM
+    public void scheduledReconciliation() {
+        reconcile();
+    }
+
+    /**
+     * Verificar todos los balances materializados; con repair=true se corrigen desde el ledger
+     */
+    public Map<String, Object> reconcile() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Map<String, Object>> mismatches = new ArrayList<>();
+        long checked = 0;
+        long mismatched = 0;
+        long afterId = 0;
+
+        logger.info("Reconciling materialized credit balances against the ledger (repair={})", repair);
+        while (true) {
+            final long cursor = afterId;
+            List<UserCredits> chunk = transactionTemplate.execute(status ->
+                userCreditsRepository.findChunkAfter(cursor, PageRequest.of(0, chunkSize)));
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
+            checked += chunk.size();
+
+            Map<Long, Credits[]> ledger = ledgerTotals(
+                chunk.stream().map(credits -> credits.getUser().getId()).collect(Collectors.toList()));
+
+            for (UserCredits credits : chunk) {
+                Long userId = credits.getUser().getId();
+                if (matches(credits, ledger.get(userId))) {
+                    continue;
+                }
+                // Posible movimiento en curso: confirmar con la fila bloqueada
+                Map<String, Object> mismatch = transactionTemplate.execute(status -> verifyLocked(userId));
+                if (mismatch != null) {
+                    mismatched++;
+                    if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                        mismatches.add(mismatch);
+                    }
+                }
+            }
+        }
+
+        meterRegistry.counter("skillswap.credits.reconciliation.mismatches").increment(mismatched);
+        if (mismatched > 0) {
+            logger.warn("Credit reconciliation found {} mismatched balances out of {} (repair={})",
+                       mismatched, checked, repair);
+        } else {
+            logger.info("Credit reconciliation checked {} balances, all match the ledger", checked);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("checked", checked);
+        report.put("mismatched", mismatched);
+        report.put("repaired", repair ? mismatched : 0);
+        report.put("mismatches", mismatches);
+        report.put("completedAt", LocalDateTime.now());
+        return report;
+    }
+
+    private Map<String, Object> verifyLocked(Long userId) {
+        UserCredits credits = userCreditsRepository.findByUserIdForUpdate(userId).orElse(null);
+        if (credits == null) {
+            return null;
+        }
+        Credits[] totals = ledgerTotals(List.of(userId)).get(userId);
+        if (matches(credits, totals)) {
+            return null;
+        }
+
+        BigDecimal[] expected = totals != null
+            ? new BigDecimal[]{totals[0].toBigDecimal(), totals[1].toBigDecimal(), totals[2].toBigDecimal()}
+            : new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO};
+        Map<String, Object> mismatch = new LinkedHashMap<>();
+        mismatch.put("userId", userId);
+        mismatch.put("materializedBalance", credits.getCurrentBalance());
+        mismatch.put("ledgerBalance", expected[0]);
+        mismatch.put("materializedEarned", credits.getTotalEarned());
+        mismatch.put("ledgerEarned", expected[1]);
+        mismatch.put("materializedSpent", credits.getTotalSpent());
+        mismatch.put("ledgerSpent", expected[2]);
+        logger.warn("Credit balance mismatch for user {}: materialized {}, ledger {}",
+                   userId, credits.getCurrentBalance(), expected[0]);
+
+        if (repair) {
+            credits.setCurrentBalance(expected[0]);
+            credits.setTotalEarned(expected[1]);
+            credits.setTotalSpent(expected[2]);
+        }
+        return mismatch;
+    }
+
+    private boolean matches(UserCredits credits, Credits[] totals) {
+        if (totals == null) {
+            return credits.getCurrentBalance().signum() == 0
+                && credits.getTotalEarned().signum() == 0
+                && credits.getTotalSpent().signum() == 0;
+        }
+        return Credits.of(credits.getCurrentBalance()).equals(totals[0])
+            && Credits.of(credits.getTotalEarned()).equals(totals[1])
+            && Credits.of(credits.getTotalSpent()).equals(totals[2]);
+    }
+
+    private Map<Long, Credits[]> ledgerTotals(List<Long> userIds) {
+        Map<Long, Credits[]> totals = new HashMap<>();
+        for (Object[] row : creditTransactionRepository.summarizeLedgerByUserIds(userIds)) {
+            totals.put((Long) row[0], new Credits[]{
+                Credits.fromNumber(row[1]),
+                Credits.fromNumber(row[2]),
+                Credits.fromNumber(row[3])
+            });
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,493 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.model.CreditDailyRollup;
+import com.skillswap.backend.model.CreditEarnerTotal;
+import com.skillswap.backend.model.CreditMonthlyRollup;
+import com.skillswap.backend.model.CreditTransaction;
+import com.skillswap.backend.model.User;
+import com.skillswap.backend.repository.CreditRollupRepository;
+import com.skillswap.backend.repository.UserCreditsRepository;
+import com.skillswap.backend.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Agregados incrementales de créditos para paneles y rankings.
+ * Cada movimiento del ledger suma su importe a la fila diaria y mensual del usuario, y al total de
+ * créditos ganados enseñando, en la misma transacción y con el balance del usuario ya bloqueado: las
+ * filas de un usuario no tienen escritores concurrentes. El ranking global se mantiene en memoria
+ * (top-N) y se actualiza al confirmar cada transacción; se recarga periódicamente desde
+ * credit_earner_total para recoger lo escrito por otros nodos.
+ * El backfill recalcula los agregados desde el ledger por bloques de usuarios.
+ */
+@Service
+public class CreditRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreditRollupService.class);
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private static final String UPDATE_DAILY_SQL =
+            "UPDATE credit_daily_rollup SET earned = earned + ?, spent = spent + ?, net = net + ?, " +
+            "teaching_earned = teaching_earned + ?, transaction_count = transaction_count + ?, updated_at = ? " +
+            "WHERE user_id = ? AND rollup_date = ?";
+
+    private static final String INSERT_DAILY_SQL =
+            "INSERT INTO credit_daily_rollup (earned, spent, net, teaching_earned, transaction_count, updated_at, " +
+            "user_id, rollup_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_MONTHLY_SQL =
+            "UPDATE credit_monthly_rollup SET earned = earned + ?, spent = spent + ?, net = net + ?, " +
+            "teaching_earned = teaching_earned + ?, transaction_count = transaction_count + ?, updated_at = ? " +
+            "WHERE user_id = ? AND rollup_month = ?";
+
+    private static final String INSERT_MONTHLY_SQL =
+            "INSERT INTO credit_monthly_rollup (earned, spent, net, teaching_earned, transaction_count, updated_at, " +
+            "user_id, rollup_month) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_EARNER_SQL =
+            "UPDATE credit_earner_total SET teaching_earned = teaching_earned + ?, updated_at = ? WHERE user_id = ?";
+
+    private static final String INSERT_EARNER_SQL =
+            "INSERT INTO credit_earner_total (teaching_earned, updated_at, user_id) VALUES (?, ?, ?)";
+
+    @Autowired
+    private CreditRollupRepository rollupRepository;
+
+    @Autowired
+    private UserCreditsRepository userCreditsRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${skillswap.credits.rollups.top-earners:100}")
+    private int topEarnersCapacity;
+
+    @Value("${skillswap.credits.rollups.backfill-chunk-size:200}")
+    private int backfillChunkSize;
+
+    private TopEarners topEarners;
+    private volatile boolean topEarnersLoaded;
+
+    // Un backfill a la vez por nodo
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "credit-rollup-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final BackfillProgress backfill = new BackfillProgress();
+
+    @PostConstruct
+    public void init() {
+        topEarners = new TopEarners(topEarnersCapacity);
+        Gauge.builder("skillswap.credits.rollups.backfill.users", backfill.processedUsers, AtomicLong::get)
+                .description("Users whose credit rollups were rebuilt by the current or last backfill")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillExecutor.shutdownNow();
+    }
+
+    /**
+     * Sumar un movimiento recién confirmado a los agregados; se llama dentro de su transacción
+     */
+    void record(CreditTransaction transaction) {
+        if (transaction.getStatus() != CreditTransaction.TransactionStatus.COMPLETED) {
+            return;
+        }
+        Credits amount = Credits.of(transaction.getAmount());
+        Credits teaching = transaction.getType() == CreditTransaction.TransactionType.EARNED_TEACHING
+                ? amount.earned() : Credits.ZERO;
+        LocalDateTime at = transaction.getCreatedAt() != null ? transaction.getCreatedAt() : LocalDateTime.now();
+        record(transaction.getUser().getId(), at.toLocalDate(), new Totals(amount.earned(), amount.spent(), teaching, 1));
+    }
+
+    /**
+     * Sumar movimientos ya agregados de un usuario y un día (p. ej. un bloque de expiración)
+     */
+    void record(Long userId, LocalDate day, Totals totals) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        upsert(UPDATE_DAILY_SQL, INSERT_DAILY_SQL, totals.rollupParams(now, userId, Date.valueOf(day)));
+        upsert(UPDATE_MONTHLY_SQL, INSERT_MONTHLY_SQL, totals.rollupParams(now, userId, Date.valueOf(day.withDayOfMonth(1))));
+
+        if (totals.teachingEarned().signum() > 0) {
+            upsert(UPDATE_EARNER_SQL, INSERT_EARNER_SQL, new Object[]{totals.teachingEarned().toBigDecimal(), now, userId});
+            Credits lifetime = Credits.of(jdbcTemplate.queryForObject(
+                    "SELECT teaching_earned FROM credit_earner_total WHERE user_id = ?", BigDecimal.class, userId));
+            // El ranking en memoria solo ve movimientos confirmados
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        topEarners.offer(userId, lifetime);
+                    }
+                });
+            } else {
+                topEarners.offer(userId, lifetime);
+            }
+        }
+    }
+
+    /**
+     * Sumar los movimientos de un día de un bloque de usuarios (p. ej. un abono masivo) con un batch
+     * por tabla en lugar de dos sentencias por usuario; balances bloqueados por quien llama
+     */
+    void recordAll(LocalDate day, Map<Long, Totals> totalsByUser) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> dailyRows = new ArrayList<>(totalsByUser.size());
+        List<Object[]> monthlyRows = new ArrayList<>(totalsByUser.size());
+        totalsByUser.forEach((userId, totals) -> {
+            if (totals.teachingEarned().signum() > 0) {
+                // Lo ganado enseñando también mueve el ranking: por el camino de un usuario
+                record(userId, day, totals);
+                return;
+            }
+            dailyRows.add(totals.rollupParams(now, userId, Date.valueOf(day)));
+            monthlyRows.add(totals.rollupParams(now, userId, Date.valueOf(day.withDayOfMonth(1))));
+        });
+        upsertAll(UPDATE_DAILY_SQL, INSERT_DAILY_SQL, dailyRows);
+        upsertAll(UPDATE_MONTHLY_SQL, INSERT_MONTHLY_SQL, monthlyRows);
+    }
+
+    // Estadísticas mensuales del usuario, del mes más reciente al más antiguo
+    public List<Map<String, Object>> getMonthlyStatistics(User user, int months) {
+        return rollupRepository.findMonthly(user.getId(), PageRequest.of(0, Math.max(months, 1))).stream()
+                .map(this::toMonthlyEntry)
+                .toList();
+    }
+
+    /**
+     * Balance al cierre de cada uno de los últimos días con movimientos.
+     * Se parte del balance materializado y se descuenta hacia atrás el neto de cada día
+     */
+    public List<Map<String, Object>> getDailyBalanceHistory(User user, int days) {
+        LocalDate from = LocalDate.now().minusDays(Math.max(days, 1) - 1L);
+        Credits balance = Credits.of(userCreditsRepository.findCurrentBalanceByUserId(user.getId()).orElse(null));
+
+        List<Map<String, Object>> history = new ArrayList<>();
+        for (CreditDailyRollup day : rollupRepository.findDailySince(user.getId(), from)) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("date", day.getRollupDate());
+            entry.put("net", day.getNet());
+            entry.put("balance", balance.toBigDecimal());
+            history.add(entry);
+            balance = balance.minus(Credits.of(day.getNet()));
+        }
+        return history;
+    }
+
+    // Ranking global por créditos ganados enseñando
+    public List<Map<String, Object>> getTopEarners(int limit) {
+        int size = Math.max(limit, 1);
+        List<Map.Entry<Long, Credits>> ranking;
+        if (size > topEarnersCapacity) {
+            ranking = rollupRepository.findTopEarners(PageRequest.of(0, size)).stream()
+                    .map(total -> Map.entry(total.getUserId(), Credits.of(total.getTeachingEarned())))
+                    .toList();
+        } else {
+            if (!topEarnersLoaded) {
+                refreshTopEarners();
+            }
+            ranking = topEarners.top(size);
+        }
+
+        Map<Long, User> users = userRepository.findAllById(ranking.stream().map(Map.Entry::getKey).toList()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<Map<String, Object>> result = new ArrayList<>(ranking.size());
+        for (Map.Entry<Long, Credits> earner : ranking) {
+            User user = users.get(earner.getKey());
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("userId", earner.getKey());
+            entry.put("name", user != null ? user.getFirstName() + " " + user.getLastName() : null);
+            entry.put("totalEarned", earner.getValue().toBigDecimal());
+            result.add(entry);
+        }
+        return result;
+    }
+
+    // Recargar el ranking desde la tabla (recoge lo escrito por otros nodos)
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${skillswap.credits.rollups.top-earners-refresh-ms:60000}",
+               initialDelayString = "${skillswap.credits.rollups.top-earners-refresh-ms:60000}")
+    public void refreshTopEarners() {
+        try {
+            List<CreditEarnerTotal> totals = rollupRepository.findTopEarners(PageRequest.of(0, topEarnersCapacity));
+            topEarners.reset(totals.stream()
+                    .collect(Collectors.toMap(CreditEarnerTotal::getUserId, total -> Credits.of(total.getTeachingEarned()))));
+            topEarnersLoaded = true;
+        } catch (Exception e) {
+            logger.error("Error refreshing top credit earners", e);
+        }
+    }
+
+    /**
+     * Recalcular todos los agregados desde el ledger en segundo plano
+     */
+    public Map<String, Object> startBackfill() {
+        if (!backfill.start()) {
+            throw new RuntimeException("El backfill de agregados de créditos ya está en curso");
+        }
+        backfillExecutor.submit(this::runBackfill);
+        return getBackfillStatus();
+    }
+
+    public Map<String, Object> getBackfillStatus() {
+        return backfill.toMap();
+    }
+
+    private void runBackfill() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long afterId = 0;
+        logger.info("Backfilling credit rollups from the ledger");
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final long cursor = afterId;
+                List<Long> userIds = transactionTemplate.execute(status ->
+                        rollupRepository.findLedgerUserIdsAfter(cursor, PageRequest.of(0, backfillChunkSize)));
+                if (userIds == null || userIds.isEmpty()) {
+                    break;
+                }
+                transactionTemplate.executeWithoutResult(status -> rebuildUsers(new TreeSet<>(userIds)));
+                afterId = userIds.get(userIds.size() - 1);
+                backfill.advance(userIds.size(), afterId);
+            }
+            refreshTopEarners();
+            backfill.finish(null);
+            logger.info("Credit rollup backfill completed: {} users", backfill.processedUsers.get());
+        } catch (Exception e) {
+            logger.error("Credit rollup backfill failed after user {}", afterId, e);
+            backfill.finish(e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstruir los agregados de un bloque de usuarios con sus balances bloqueados: los movimientos
+     * en curso de esos usuarios esperan y se suman después sobre las filas ya reconstruidas
+     */
+    private void rebuildUsers(TreeSet<Long> userIds) {
+        userCreditsRepository.lockBalancesByUserIds(userIds);
+        rollupRepository.deleteDailyByUserIds(userIds);
+        rollupRepository.deleteMonthlyByUserIds(userIds);
+        rollupRepository.deleteEarnerTotalsByUserIds(userIds);
+
+        Map<Long, Map<LocalDate, Totals>> daily = new TreeMap<>();
+        for (Object[] row : rollupRepository.summarizeLedgerByUserAndDay(userIds)) {
+            LocalDate day = LocalDate.of(((Number) row[1]).intValue(), ((Number) row[2]).intValue(), ((Number) row[3]).intValue());
+            Totals totals = new Totals(Credits.fromNumber(row[4]), Credits.fromNumber(row[5]),
+                    Credits.fromNumber(row[6]), ((Number) row[7]).longValue());
+            daily.computeIfAbsent((Long) row[0], id -> new TreeMap<>()).merge(day, totals, Totals::plus);
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> dailyRows = new ArrayList<>();
+        List<Object[]> monthlyRows = new ArrayList<>();
+        List<Object[]> earnerRows = new ArrayList<>();
+        daily.forEach((userId, days) -> {
+            Map<LocalDate, Totals> monthly = new TreeMap<>();
+            Credits teaching = Credits.ZERO;
+            for (Map.Entry<LocalDate, Totals> day : days.entrySet()) {
+                dailyRows.add(day.getValue().rollupParams(now, userId, Date.valueOf(day.getKey())));
+                monthly.merge(day.getKey().withDayOfMonth(1), day.getValue(), Totals::plus);
+                teaching = teaching.plus(day.getValue().teachingEarned());
+            }
+            monthly.forEach((month, totals) -> monthlyRows.add(totals.rollupParams(now, userId, Date.valueOf(month))));
+            if (teaching.signum() > 0) {
+                earnerRows.add(new Object[]{teaching.toBigDecimal(), now, userId});
+            }
+        });
+
+        jdbcTemplate.batchUpdate(INSERT_DAILY_SQL, dailyRows);
+        jdbcTemplate.batchUpdate(INSERT_MONTHLY_SQL, monthlyRows);
+        jdbcTemplate.batchUpdate(INSERT_EARNER_SQL, earnerRows);
+    }
+
+    // Las filas de un usuario solo se escriben con su balance bloqueado: UPDATE y, si no existe, INSERT
+    private void upsert(String updateSql, String insertSql, Object[] params) {
+        if (jdbcTemplate.update(updateSql, params) == 0) {
+            jdbcTemplate.update(insertSql, params);
+        }
+    }
+
+    // Versión por lotes: un batch de UPDATE y otro de INSERT con las filas que no existían
+    private void upsertAll(String updateSql, String insertSql, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(updateSql, rows);
+        List<Object[]> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missing.add(rows.get(i));
+            }
+        }
+        jdbcTemplate.batchUpdate(insertSql, missing);
+    }
+
+    private Map<String, Object> toMonthlyEntry(CreditMonthlyRollup rollup) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("month", rollup.getRollupMonth().format(MONTH_FORMAT));
+        entry.put("earned", rollup.getEarned());
+        entry.put("spent", rollup.getSpent());
+        entry.put("net", rollup.getNet());
+        entry.put("transactions", rollup.getTransactionCount());
+        return entry;
+    }
+
+    /**
+     * Importes agregados de un usuario en un día o mes
+     */
+    record Totals(Credits earned, Credits spent, Credits teachingEarned, long count) {
+
+        Totals plus(Totals other) {
+            return new Totals(earned.plus(other.earned), spent.plus(other.spent),
+                    teachingEarned.plus(other.teachingEarned), count + other.count);
+        }
+
+        // Mismo orden de parámetros para el UPDATE y el INSERT de las tablas diaria y mensual
+        Object[] rollupParams(Timestamp now, Long userId, Date period) {
+            return new Object[]{earned.toBigDecimal(), spent.toBigDecimal(), earned.minus(spent).toBigDecimal(),
+                    teachingEarned.toBigDecimal(), count, now, userId, period};
+        }
+    }
+
+    /**
+     * Los N usuarios con más créditos ganados enseñando.
+     * Los totales solo crecen, así que basta con conservar los N mayores: un usuario fuera del
+     * ranking entra cuando su nuevo total supera al último
+     */
+    static class TopEarners {
+
+        private static final Comparator<Map.Entry<Long, Credits>> RANKING =
+                Map.Entry.<Long, Credits>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+        private final int capacity;
+        private final Map<Long, Credits> totals = new HashMap<>();
+        private final TreeSet<Map.Entry<Long, Credits>> ranking = new TreeSet<>(RANKING);
+
+        TopEarners(int capacity) {
+            this.capacity = Math.max(capacity, 1);
+        }
+
+        synchronized void offer(Long userId, Credits total) {
+            Credits previous = totals.get(userId);
+            if (previous != null) {
+                if (!previous.isLessThan(total)) {
+                    return;
+                }
+                ranking.remove(Map.entry(userId, previous));
+            } else if (ranking.size() >= capacity && !ranking.last().getValue().isLessThan(total)) {
+                return;
+            }
+            totals.put(userId, total);
+            ranking.add(Map.entry(userId, total));
+            if (ranking.size() > capacity) {
+                totals.remove(ranking.pollLast().getKey());
+            }
+        }
+
+        synchronized void reset(Map<Long, Credits> loaded) {
+            totals.clear();
+            ranking.clear();
+            loaded.forEach(this::offer);
+        }
+
+        synchronized List<Map.Entry<Long, Credits>> top(int limit) {
+            return ranking.stream().limit(limit).toList();
+        }
+    }
+
+    /**
+     * Estado del backfill en este nodo
+     */
+    private static class BackfillProgress {
+
+        private final AtomicLong processedUsers = new AtomicLong();
+        private String status = "IDLE";
+        private Long lastUserId;
+        private LocalDateTime startedAt;
+        private LocalDateTime completedAt;
+        private String errorMessage;
+
+        synchronized boolean start() {
+            if ("RUNNING".equals(status)) {
+                return false;
+            }
+            status = "RUNNING";
+            processedUsers.set(0);
+            lastUserId = null;
+            startedAt = LocalDateTime.now();
+            completedAt = null;
+            errorMessage = null;
+            return true;
+        }
+
+        synchronized void advance(int users, Long lastUserId) {
+            processedUsers.addAndGet(users);
+            this.lastUserId = lastUserId;
+        }
+
+        synchronized void finish(String errorMessage) {
+            this.status = errorMessage == null ? "COMPLETED" : "FAILED";
+            this.errorMessage = errorMessage;
+            this.completedAt = LocalDateTime.now();
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("status", status);
+            map.put("processedUsers", processedUsers.get());
+            map.put("lastUserId", lastUserId);
+            map.put("startedAt", startedAt);
+            map.put("completedAt", completedAt);
+            map.put("errorMessage", errorMessage);
+            return map;
+        }
+    }
+}
@@ -2,22 +2,29 @@ package com.skillswap.backend.service;
 
 import com.skillswap.backend.model.CreditTransaction;
 import com.skillswap.backend.model.User;
-import com.skillswap.backend.model.SkillMatch;
 import com.skillswap.backend.model.VideoSession;
 import com.skillswap.backend.repository.CreditTransactionRepository;
+import com.skillswap.backend.repository.UserCreditsRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 
 @Service
 @Transactional
@@ -26,24 +33,42 @@ public class CreditService {
     private static final Logger logger = LoggerFactory.getLogger(CreditService.class);
 
     // Configuración de créditos
-    private static final BigDecimal REGISTRATION_BONUS = new BigDecimal("10.00");
-    private static final BigDecimal REFERRAL_BONUS = new BigDecimal("5.00");
-    private static final BigDecimal SESSION_COMPLETION_BONUS = new BigDecimal("2.00");
-    private static final BigDecimal TEACHING_RATE_PER_HOUR = new BigDecimal("10.00");
-    private static final BigDecimal LEARNING_COST_PER_HOUR = new BigDecimal("8.00");
-    private static final BigDecimal CANCELLATION_PENALTY = new BigDecimal("-2.00");
-    private static final int CREDIT_EXPIRATION_MONTHS = 12;
+    private static final Credits REGISTRATION_BONUS = Credits.of("10.00");
+    private static final Credits REFERRAL_BONUS = Credits.of("5.00");
+    static final Credits SESSION_COMPLETION_BONUS = Credits.of("2.00");
+    private static final Credits TEACHING_RATE_PER_HOUR = Credits.of("10.00");
+    private static final Credits LEARNING_COST_PER_HOUR = Credits.of("8.00");
+    private static final Credits CANCELLATION_PENALTY = Credits.of("-2.00");
+    static final int CREDIT_EXPIRATION_MONTHS = 12;
 
     @Autowired
     private CreditTransactionRepository creditTransactionRepository;
 
+    @Autowired
+    private UserCreditsRepository userCreditsRepository;
+
+    @Autowired
+    private CreditRollupService creditRollupService;
+
+    @Autowired
+    private CreditEventService creditEventService;
+
+    @Autowired
+    private CreditStatisticsService creditStatisticsService;
+
+    @Autowired
+    private CreditLotService creditLotService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     // Otorgar bono de registro
     public CreditTransaction grantRegistrationBonus(User user) {
         logger.info("Granting registration bonus to user {}", user.getId());
         
         CreditTransaction transaction = new CreditTransaction(
             user, 
-            REGISTRATION_BONUS, 
+            REGISTRATION_BONUS.toBigDecimal(), 
             CreditTransaction.TransactionType.BONUS_REGISTRATION,
             "Bono de bienvenida por registrarse en SkillSwap"
         );
@@ -59,7 +84,7 @@ public class CreditService {
         
         CreditTransaction transaction = new CreditTransaction(
             referrer,
-            REFERRAL_BONUS,
+            REFERRAL_BONUS.toBigDecimal(),
             CreditTransaction.TransactionType.BONUS_REFERRAL,
             "Bono por referir a " + referred.getFirstName()
         );
@@ -71,83 +96,13 @@ public class CreditService {
         return processTransaction(transaction);
     }
 
-    // Procesar créditos por enseñar (ganados)
-    public CreditTransaction processTeachingEarnings(User teacher, SkillMatch skillMatch, VideoSession videoSession) {
-        logger.info("Processing teaching earnings for user {} from skill match {}", teacher.getId(), skillMatch.getId());
-        
-        // Calcular créditos basado en duración de la sesión
-        BigDecimal credits = calculateTeachingCredits(videoSession.getDurationMinutes());
-        
-        CreditTransaction transaction = new CreditTransaction(
-            teacher,
-            credits,
-            CreditTransaction.TransactionType.EARNED_TEACHING,
-            "Créditos ganados por enseñar " + skillMatch.getTeacherSkill().getSkill().getName()
-        );
-        
-        transaction.setSkillMatch(skillMatch);
-        transaction.setVideoSession(videoSession);
-        transaction.setReferenceId(videoSession.getId().toString());
-        transaction.setReferenceType("VIDEO_SESSION");
-        transaction.setExpiresAt(LocalDateTime.now().plusMonths(CREDIT_EXPIRATION_MONTHS));
-        
-        return processTransaction(transaction);
-    }
-
-    // Procesar gasto de créditos por aprender
-    public CreditTransaction processLearningCost(User learner, SkillMatch skillMatch, VideoSession videoSession) {
-        logger.info("Processing learning cost for user {} from skill match {}", learner.getId(), skillMatch.getId());
-        
-        // Calcular costo basado en duración de la sesión
-        BigDecimal cost = calculateLearningCost(videoSession.getDurationMinutes());
-        
-        // Verificar que el usuario tenga suficientes créditos
-        BigDecimal currentBalance = getUserBalance(learner);
-        if (currentBalance.compareTo(cost) < 0) {
-            throw new RuntimeException("Créditos insuficientes. Balance actual: " + currentBalance + ", Costo requerido: " + cost);
-        }
-        
-        CreditTransaction transaction = new CreditTransaction(
-            learner,
-            cost.negate(), // Monto negativo para gasto
-            CreditTransaction.TransactionType.SPENT_LEARNING,
-            "Créditos gastados por aprender " + skillMatch.getLearnerSkill().getSkill().getName()
-        );
-        
-        transaction.setSkillMatch(skillMatch);
-        transaction.setVideoSession(videoSession);
-        transaction.setReferenceId(videoSession.getId().toString());
-        transaction.setReferenceType("VIDEO_SESSION");
-        
-        return processTransaction(transaction);
-    }
-
-    // Otorgar bono por completar sesión
-    public CreditTransaction grantSessionCompletionBonus(User user, VideoSession videoSession) {
-        logger.info("Granting session completion bonus to user {} for video session {}", user.getId(), videoSession.getId());
-        
-        CreditTransaction transaction = new CreditTransaction(
-            user,
-            SESSION_COMPLETION_BONUS,
-            CreditTransaction.TransactionType.BONUS_COMPLETION,
-            "Bono por completar sesión de video exitosamente"
-        );
-        
-        transaction.setVideoSession(videoSession);
-        transaction.setReferenceId(videoSession.getId().toString());
-        transaction.setReferenceType("VIDEO_SESSION_COMPLETION");
-        transaction.setExpiresAt(LocalDateTime.now().plusMonths(CREDIT_EXPIRATION_MONTHS));
-        
-        return processTransaction(transaction);
-    }
-
     // Aplicar penalización por cancelación tardía
     public CreditTransaction applyCancellationPenalty(User user, VideoSession videoSession) {
         logger.info("Applying cancellation penalty to user {} for video session {}", user.getId(), videoSession.getId());
         
         CreditTransaction transaction = new CreditTransaction(
             user,
-            CANCELLATION_PENALTY,
+            CANCELLATION_PENALTY.toBigDecimal(),
             CreditTransaction.TransactionType.PENALTY,
             "Penalización por cancelación tardía de sesión"
         );
@@ -161,48 +116,165 @@ public class CreditService {
 
     // Procesar transacción y actualizar balance
     private CreditTransaction processTransaction(CreditTransaction transaction) {
-        BigDecimal balanceBefore = getUserBalance(transaction.getUser());
-        BigDecimal balanceAfter = balanceBefore.add(transaction.getAmount());
+        Credits amount = Credits.of(transaction.getAmount());
+        Credits balanceAfter = applyToBalance(transaction.getUser(), amount);
+        Credits balanceBefore = balanceAfter.minus(amount);
         
-        transaction.markAsCompleted(balanceBefore, balanceAfter);
+        transaction.setAmount(amount.toBigDecimal());
+        transaction.markAsCompleted(balanceBefore.toBigDecimal(), balanceAfter.toBigDecimal());
         
         CreditTransaction savedTransaction = creditTransactionRepository.save(transaction);
+        creditLotService.apply(transaction.getUser().getId(),
+            List.of(new CreditLotService.LotMovement(amount, transaction.getExpiresAt())));
+        creditRollupService.record(savedTransaction);
+        creditEventService.append(savedTransaction);
+        creditStatisticsService.invalidate(savedTransaction.getUser().getId());
         logger.info("Transaction processed successfully: {} credits for user {}", 
                    transaction.getAmount(), transaction.getUser().getId());
         
         return savedTransaction;
     }
 
+    // Bloquear las filas de user_credits (SELECT ... FOR UPDATE) hasta el fin de la transacción
+    // Siempre en orden de ID de usuario para que dos operaciones cruzadas no se interbloqueen;
+    // usuarios distintos no comparten bloqueo y avanzan en paralelo. Devuelve el disponible
+    // (balance menos reservas), que es lo que se puede gastar
+    Map<Long, Credits> lockAvailableBalances(User... users) {
+        TreeSet<Long> userIds = new TreeSet<>();
+        for (User user : users) {
+            userIds.add(user.getId());
+        }
+        ensureBalances(userIds);
+
+        // Lectura escalar: la entidad en contexto no refleja los UPDATE ya aplicados
+        Map<Long, Credits> balances = new HashMap<>();
+        for (Object[] row : userCreditsRepository.lockBalancesByUserIds(userIds)) {
+            balances.put(((Number) row[0]).longValue(), Credits.fromNumber(row[1]).minus(Credits.fromNumber(row[2])));
+        }
+        return balances;
+    }
+
+    // Aplicar el movimiento a user_credits en la misma transacción que la fila del ledger
+    // Con la fila bloqueada, el balance leído después es exactamente el de este movimiento
+    private Credits applyToBalance(User user, Credits amount) {
+        lockAvailableBalances(user);
+        LocalDateTime now = LocalDateTime.now();
+
+        userCreditsRepository.applyMovement(user.getId(), amount.toBigDecimal(),
+            amount.earned().toBigDecimal(), amount.spent().toBigDecimal(), now);
+        return Credits.of(userCreditsRepository.findCurrentBalanceByUserId(user.getId())
+            .orElseThrow(() -> new RuntimeException("No se pudo actualizar el balance del usuario " + user.getId())));
+    }
+
+    // Usuarios sin fila materializada todavía: se siembran desde el ledger antes de bloquear.
+    // Un SELECT ... FOR UPDATE sobre una fila inexistente no bloquea nada, así que dos primeros
+    // movimientos simultáneos chocarían en la clave única; las filas se crean en una transacción propia
+    // (el perdedor de la carrera la encuentra hecha) y quien llama bloquea después con la fila ya presente.
+    // Sin fila no hay movimientos en curso del usuario: el ledger confirmado es su balance completo
+    void ensureBalances(Collection<Long> userIds) {
+        List<Long> missing = new ArrayList<>(userIds);
+        missing.removeAll(userCreditsRepository.findUserIdsIn(userIds));
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertBalances(missing));
+        } catch (DataIntegrityViolationException e) {
+            // Otra transacción sembró alguno a la vez: uno por uno, saltando los que ya existen
+            for (Long userId : missing) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insertBalances(List.of(userId)));
+                } catch (DataIntegrityViolationException duplicate) {
+                    logger.debug("Credit balance for user {} already materialized", userId);
+                }
+            }
+        }
+    }
+
+    private void insertBalances(List<Long> userIds) {
+        Map<Long, Credits[]> totals = new HashMap<>();
+        for (Object[] row : creditTransactionRepository.summarizeLedgerByUserIds(userIds)) {
+            totals.put((Long) row[0], new Credits[]{Credits.fromNumber(row[1]), Credits.fromNumber(row[2]),
+                Credits.fromNumber(row[3])});
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Long userId : userIds) {
+            Credits[] userTotals = totals.getOrDefault(userId, new Credits[]{Credits.ZERO, Credits.ZERO, Credits.ZERO});
+            if (userCreditsRepository.insertIfAbsent(userId, userTotals[0].toBigDecimal(),
+                    userTotals[1].toBigDecimal(), userTotals[2].toBigDecimal(), now) > 0) {
+                logger.info("Materialized credit balance for user {}: {}", userId, userTotals[0]);
+            }
+        }
+    }
+
+    // Balance, ganado y gastado según el ledger
+    private Credits[] ledgerTotals(Long userId) {
+        List<Object[]> rows = creditTransactionRepository.summarizeLedgerByUserIds(List.of(userId));
+        if (rows.isEmpty()) {
+            return new Credits[]{Credits.ZERO, Credits.ZERO, Credits.ZERO};
+        }
+        Object[] row = rows.get(0);
+        return new Credits[]{Credits.fromNumber(row[1]), Credits.fromNumber(row[2]), Credits.fromNumber(row[3])};
+    }
+
     // Calcular créditos ganados por enseñar
-    private BigDecimal calculateTeachingCredits(Integer durationMinutes) {
+    Credits calculateTeachingCredits(Integer durationMinutes) {
         if (durationMinutes == null || durationMinutes <= 0) {
-            return BigDecimal.ZERO;
+            return Credits.ZERO;
         }
         
-        BigDecimal hours = new BigDecimal(durationMinutes).divide(new BigDecimal(60), 2, RoundingMode.HALF_UP);
-        return TEACHING_RATE_PER_HOUR.multiply(hours);
+        return TEACHING_RATE_PER_HOUR.perHour(durationMinutes);
     }
 
     // Calcular costo por aprender
-    private BigDecimal calculateLearningCost(Integer durationMinutes) {
+    Credits calculateLearningCost(Integer durationMinutes) {
         if (durationMinutes == null || durationMinutes <= 0) {
-            return BigDecimal.ZERO;
+            return Credits.ZERO;
         }
         
-        BigDecimal hours = new BigDecimal(durationMinutes).divide(new BigDecimal(60), 2, RoundingMode.HALF_UP);
-        return LEARNING_COST_PER_HOUR.multiply(hours);
+        return LEARNING_COST_PER_HOUR.perHour(durationMinutes);
     }
 
-    // Obtener balance actual del usuario
+    // Minutos que cubre un presupuesto: la mayor duración (hasta minutes) cuyo costo no lo supera
+    int billableMinutes(int minutes, Credits budget) {
+        if (!budget.isLessThan(calculateLearningCost(minutes))) {
+            return minutes;
+        }
+        if (budget.signum() <= 0) {
+            return 0;
+        }
+        // costo(low) <= presupuesto < costo(high); el costo crece con la duración
+        int low = 0;
+        int high = minutes;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (budget.isLessThan(calculateLearningCost(mid))) {
+                high = mid;
+            } else {
+                low = mid;
+            }
+        }
+        return low;
+    }
+
+    // Obtener balance actual del usuario (lectura de una fila de user_credits)
     public BigDecimal getUserBalance(User user) {
-        BigDecimal balance = creditTransactionRepository.calculateUserBalance(user);
-        return balance != null ? balance : BigDecimal.ZERO;
+        return userCreditsRepository.findCurrentBalanceByUserId(user.getId())
+            .orElseGet(() -> ledgerTotals(user.getId())[0].toBigDecimal());
+    }
+
+    // Créditos disponibles: balance menos reservas activas (lectura de una fila de user_credits)
+    public BigDecimal getAvailableBalance(User user) {
+        return userCreditsRepository.findAvailableBalanceByUserId(user.getId())
+            .orElseGet(() -> ledgerTotals(user.getId())[0].toBigDecimal());
     }
 
-    // Verificar si el usuario tiene suficientes créditos
+    // Verificar si el usuario tiene suficientes créditos disponibles
     public boolean hasSufficientCredits(User user, BigDecimal requiredAmount) {
-        BigDecimal currentBalance = getUserBalance(user);
-        return currentBalance.compareTo(requiredAmount) >= 0;
+        return !Credits.of(getAvailableBalance(user)).isLessThan(Credits.of(requiredAmount));
     }
 
     // Obtener historial de transacciones
@@ -212,35 +284,30 @@ public class CreditService {
 
     // Obtener estadísticas del usuario
     public CreditStatistics getUserCreditStatistics(User user) {
-        BigDecimal totalEarned = creditTransactionRepository.getTotalEarnedCredits(user);
-        BigDecimal totalSpent = creditTransactionRepository.getTotalSpentCredits(user);
-        BigDecimal currentBalance = getUserBalance(user);
-        
-        List<CreditTransaction> expiringCredits = creditTransactionRepository.findExpiringCredits(
-            user, LocalDateTime.now(), LocalDateTime.now().plusDays(30)
-        );
-        
-        BigDecimal expiringAmount = expiringCredits.stream()
-            .map(CreditTransaction::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        return new CreditStatistics(totalEarned, totalSpent, currentBalance, expiringAmount, expiringCredits.size());
+        return creditStatisticsService.getStatistics(user.getId());
     }
 
-    // Transferir créditos entre usuarios
-    public void transferCredits(User fromUser, User toUser, BigDecimal amount, String description) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+    // Transferir créditos entre usuarios; devuelve el movimiento de salida
+    public CreditTransaction transferCredits(User fromUser, User toUser, BigDecimal requestedAmount, String description) {
+        Credits amount = Credits.of(requestedAmount);
+        if (amount.signum() <= 0) {
             throw new RuntimeException("El monto de transferencia debe ser positivo");
         }
         
-        if (!hasSufficientCredits(fromUser, amount)) {
+        if (fromUser.getId().equals(toUser.getId())) {
+            throw new RuntimeException("No se pueden transferir créditos a uno mismo");
+        }
+        
+        // Ambos balances quedan bloqueados hasta el commit: sin doble gasto ni interbloqueos
+        Credits fromAvailable = lockAvailableBalances(fromUser, toUser).get(fromUser.getId());
+        if (fromAvailable.isLessThan(amount)) {
             throw new RuntimeException("Créditos insuficientes para la transferencia");
         }
         
         // Crear transacción de salida
         CreditTransaction outTransaction = new CreditTransaction(
             fromUser,
-            amount.negate(),
+            amount.negate().toBigDecimal(),
             CreditTransaction.TransactionType.TRANSFER_OUT,
             "Transferencia enviada a " + toUser.getFirstName() + ": " + description
         );
@@ -250,7 +317,7 @@ public class CreditService {
         // Crear transacción de entrada
         CreditTransaction inTransaction = new CreditTransaction(
             toUser,
-            amount,
+            amount.toBigDecimal(),
             CreditTransaction.TransactionType.TRANSFER_IN,
             "Transferencia recibida de " + fromUser.getFirstName() + ": " + description
         );
@@ -259,40 +326,12 @@ public class CreditService {
         inTransaction.setExpiresAt(LocalDateTime.now().plusMonths(CREDIT_EXPIRATION_MONTHS));
         
         // Procesar ambas transacciones
-        processTransaction(outTransaction);
+        CreditTransaction savedOut = processTransaction(outTransaction);
         processTransaction(inTransaction);
         
         logger.info("Credit transfer completed: {} credits from user {} to user {}", 
                    amount, fromUser.getId(), toUser.getId());
-    }
-
-    // Procesar expiración de créditos (tarea programada)
-    @Scheduled(cron = "0 0 2 * * ?") // Ejecutar diariamente a las 2 AM
-    public void processExpiredCredits() {
-        logger.info("Processing expired credits...");
-        
-        List<CreditTransaction> expiredCredits = creditTransactionRepository.findExpiredCredits(LocalDateTime.now());
-        
-        for (CreditTransaction expiredCredit : expiredCredits) {
-            // Crear transacción de expiración
-            CreditTransaction expirationTransaction = new CreditTransaction(
-                expiredCredit.getUser(),
-                expiredCredit.getAmount().negate(),
-                CreditTransaction.TransactionType.EXPIRATION,
-                "Expiración de créditos del " + expiredCredit.getCreatedAt().toLocalDate()
-            );
-            
-            expirationTransaction.setReferenceId(expiredCredit.getId().toString());
-            expirationTransaction.setReferenceType("CREDIT_EXPIRATION");
-            
-            processTransaction(expirationTransaction);
-            
-            // Marcar el crédito original como expirado
-            expiredCredit.setStatus(CreditTransaction.TransactionStatus.EXPIRED);
-            creditTransactionRepository.save(expiredCredit);
-        }
-        
-        logger.info("Processed {} expired credit transactions", expiredCredits.size());
+        return savedOut;
     }
 
     // Comprar créditos (integración con sistema de pagos)
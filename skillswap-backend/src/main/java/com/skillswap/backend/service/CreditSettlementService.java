@@ -0,0 +1,282 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.model.CreditTransaction;
+import com.skillswap.backend.model.SkillMatch;
+import com.skillswap.backend.model.VideoSession;
+import com.skillswap.backend.repository.CreditTransactionRepository;
+import com.skillswap.backend.repository.UserCreditsRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Liquidación de sesiones de video en lote.
+ * Todos los movimientos de una sesión (ganancia del profesor, gasto del aprendiz y bonos) se aplican en
+ * una sola transacción: un único SELECT ... FOR UPDATE sobre los balances de los participantes, los
+ * balances intermedios calculados en memoria, un batch JDBC para las filas del ledger y un solo UPDATE
+ * por usuario. Si cualquier movimiento falla no se aplica ninguno.
+ */
+@Service
+@Transactional
+public class CreditSettlementService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreditSettlementService.class);
+
+    private static final String INSERT_LEG_SQL =
+            "INSERT INTO credit_transaction (user_id, amount, type, status, description, reference_id, reference_type, " +
+            "skill_match_id, video_session_id, balance_before, balance_after, expires_at, processed_at, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_BALANCE_SQL =
+            "UPDATE user_credits SET current_balance = current_balance + ?, total_earned = total_earned + ?, " +
+            "lifetime_earnings = lifetime_earnings + ?, total_spent = total_spent + ?, " +
+            "last_transaction_at = ?, updated_at = ? WHERE user_id = ?";
+
+    @Autowired
+    private CreditTransactionRepository creditTransactionRepository;
+
+    @Autowired
+    private UserCreditsRepository userCreditsRepository;
+
+    @Autowired
+    private CreditService creditService;
+
+    @Autowired
+    private CreditHoldService creditHoldService;
+
+    @Autowired
+    private CreditRollupService creditRollupService;
+
+    @Autowired
+    private CreditEventService creditEventService;
+
+    @Autowired
+    private CreditStatisticsService creditStatisticsService;
+
+    @Autowired
+    private CreditLotService creditLotService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Liquidar una sesión terminada: el aprendiz paga contra su reserva y, si la sesión se alargó, el
+     * exceso contra su disponible; profesor y aprendiz usan la misma duración facturada, que solo se
+     * queda corta si el aprendiz no puede pagar la real. Ambos reciben el bono por completarla
+     */
+    public SettlementResult settleVideoSession(VideoSession videoSession) {
+        SkillMatch skillMatch = videoSession.getSkillMatch();
+        Integer minutes = videoSession.getDurationMinutes();
+        if (skillMatch == null || minutes == null || minutes <= 0) {
+            // Sin duración no hay nada que cobrar; la reserva se libera para no dejarla colgada
+            creditHoldService.release(videoSession);
+            return new SettlementResult(videoSession.getId(), List.of(), Map.of());
+        }
+
+        long start = System.nanoTime();
+        Long teacherId = skillMatch.getTeacherUser().getId();
+        Long learnerId = skillMatch.getLearnerUser().getId();
+        Map<Long, LockedBalance> balances = lockBalances(Set.of(teacherId, learnerId));
+
+        Credits available = balances.get(learnerId).available();
+        Integer billedMinutes = creditHoldService.captureForSettlement(videoSession, minutes, available).orElse(null);
+        if (billedMinutes == null) {
+            // Sesión sin reserva: igual que con ella, se facturan los minutos que cubre el disponible. La
+            // sesión ya terminó y rechazar el cobro desharía también su cierre
+            billedMinutes = creditService.billableMinutes(minutes, available);
+            if (billedMinutes < minutes) {
+                meterRegistry.counter("skillswap.credits.settlement.capped").increment();
+                logger.warn("Video session {} has no credit hold and learner {} cannot pay it: billing {} of {} minutes",
+                           videoSession.getId(), learnerId, billedMinutes, minutes);
+            }
+        }
+        Credits charged = creditService.calculateLearningCost(billedMinutes);
+
+        // Nombres de las habilidades en una sola consulta en lugar de recorrer las relaciones perezosas
+        List<Object[]> names = creditTransactionRepository.findSkillNamesBySkillMatchId(skillMatch.getId());
+        String teacherSkill = names.isEmpty() ? "" : (String) names.get(0)[0];
+        String learnerSkill = names.isEmpty() ? "" : (String) names.get(0)[1];
+        LocalDateTime expiresAt = LocalDateTime.now().plusMonths(CreditService.CREDIT_EXPIRATION_MONTHS);
+
+        List<SettlementLeg> legs = new ArrayList<>();
+        legs.add(new SettlementLeg(teacherId, CreditTransaction.TransactionType.EARNED_TEACHING,
+                creditService.calculateTeachingCredits(billedMinutes).toBigDecimal(),
+                "Créditos ganados por enseñar " + teacherSkill, "VIDEO_SESSION", expiresAt));
+        legs.add(new SettlementLeg(learnerId, CreditTransaction.TransactionType.SPENT_LEARNING,
+                charged.negate().toBigDecimal(),
+                "Créditos gastados por aprender " + learnerSkill, "VIDEO_SESSION", null));
+        for (Long userId : List.of(teacherId, learnerId)) {
+            legs.add(new SettlementLeg(userId, CreditTransaction.TransactionType.BONUS_COMPLETION,
+                    CreditService.SESSION_COMPLETION_BONUS.toBigDecimal(),
+                    "Bono por completar sesión de video exitosamente", "VIDEO_SESSION_COMPLETION", expiresAt));
+        }
+
+        // El gasto del aprendiz ya está limitado arriba a lo que cubren su reserva capturada y su disponible
+        SettlementResult result = apply(videoSession, skillMatch.getId(), legs, balances, false);
+        meterRegistry.timer("skillswap.credits.settlement.duration").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    /**
+     * Liquidar un conjunto arbitrario de movimientos de una sesión; todos o ninguno.
+     * Los cargos de cada usuario se comprueban contra su disponible (balance menos reservas)
+     */
+    public SettlementResult settle(VideoSession videoSession, List<SettlementLeg> legs) {
+        if (legs.isEmpty()) {
+            return new SettlementResult(videoSession.getId(), List.of(), Map.of());
+        }
+        Set<Long> userIds = new HashSet<>();
+        for (SettlementLeg leg : legs) {
+            if (leg.userId() == null || leg.type() == null || leg.amount() == null) {
+                throw new RuntimeException("Movimiento de liquidación incompleto");
+            }
+            userIds.add(leg.userId());
+        }
+        Map<Long, LockedBalance> balances = lockBalances(userIds);
+        Long skillMatchId = videoSession.getSkillMatch() != null ? videoSession.getSkillMatch().getId() : null;
+        return apply(videoSession, skillMatchId, legs, balances, true);
+    }
+
+    private SettlementResult apply(VideoSession videoSession, Long skillMatchId, List<SettlementLeg> legs,
+                                   Map<Long, LockedBalance> balances, boolean checkFunds) {
+        // Con los balances bloqueados, una segunda liquidación concurrente espera y ve los movimientos de la primera
+        List<Object[]> existing = creditTransactionRepository.findSessionEntries(videoSession.getId());
+        Set<Long> existingIds = new HashSet<>();
+        Set<String> existingLegs = new HashSet<>();
+        for (Object[] entry : existing) {
+            existingIds.add((Long) entry[0]);
+            existingLegs.add(entry[1] + ":" + entry[2]);
+        }
+        for (SettlementLeg leg : legs) {
+            if (existingLegs.contains(leg.userId() + ":" + leg.type())) {
+                throw new RuntimeException("La sesión ya fue liquidada: " + videoSession.getId());
+            }
+        }
+
+        if (checkFunds) {
+            Map<Long, Credits> debits = new TreeMap<>();
+            for (SettlementLeg leg : legs) {
+                debits.merge(leg.userId(), Credits.of(leg.amount()).spent(), Credits::plus);
+            }
+            debits.forEach((userId, debit) -> {
+                Credits available = balances.get(userId).available();
+                if (available.isLessThan(debit)) {
+                    throw new RuntimeException("Créditos insuficientes. Balance disponible: " + available + ", Costo requerido: " + debit);
+                }
+            });
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+        String referenceId = videoSession.getId().toString();
+        Map<Long, Credits> running = new HashMap<>();
+        balances.forEach((userId, balance) -> running.put(userId, balance.balance()));
+        Map<Long, CreditRollupService.Totals> totalsByUser = new TreeMap<>();
+        Map<Long, List<CreditLotService.LotMovement>> lotMovements = new TreeMap<>();
+
+        List<Object[]> rows = new ArrayList<>(legs.size());
+        for (SettlementLeg leg : legs) {
+            Credits amount = Credits.of(leg.amount());
+            Credits balanceBefore = running.get(leg.userId());
+            Credits balanceAfter = balanceBefore.plus(amount);
+            running.put(leg.userId(), balanceAfter);
+
+            Credits teaching = leg.type() == CreditTransaction.TransactionType.EARNED_TEACHING ? amount.earned() : Credits.ZERO;
+            totalsByUser.merge(leg.userId(), new CreditRollupService.Totals(amount.earned(), amount.spent(), teaching, 1),
+                    CreditRollupService.Totals::plus);
+            lotMovements.computeIfAbsent(leg.userId(), userId -> new ArrayList<>())
+                    .add(new CreditLotService.LotMovement(amount, leg.expiresAt()));
+
+            rows.add(new Object[]{leg.userId(), amount.toBigDecimal(), leg.type().name(),
+                    CreditTransaction.TransactionStatus.COMPLETED.name(), leg.description(), referenceId, leg.referenceType(),
+                    skillMatchId, videoSession.getId(), balanceBefore.toBigDecimal(), balanceAfter.toBigDecimal(),
+                    leg.expiresAt() != null ? Timestamp.valueOf(leg.expiresAt()) : null, timestamp, timestamp, timestamp});
+        }
+        jdbcTemplate.batchUpdate(INSERT_LEG_SQL, rows);
+
+        // Un solo UPDATE por usuario con el neto de sus movimientos
+        List<Object[]> balanceRows = new ArrayList<>(totalsByUser.size());
+        totalsByUser.forEach((userId, totals) -> balanceRows.add(new Object[]{
+                totals.earned().minus(totals.spent()).toBigDecimal(), totals.earned().toBigDecimal(),
+                totals.earned().toBigDecimal(), totals.spent().toBigDecimal(), timestamp, timestamp, userId}));
+        jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, balanceRows);
+        lotMovements.forEach(creditLotService::apply);
+
+        // Agregados y eventos con los ids generados, en orden de inserción
+        totalsByUser.forEach((userId, totals) -> creditRollupService.record(userId, now.toLocalDate(), totals));
+        Map<Long, List<CreditEventService.PendingEvent>> eventsByUser = new TreeMap<>();
+        List<Long> transactionIds = new ArrayList<>(legs.size());
+        for (Object[] entry : creditTransactionRepository.findSessionEntries(videoSession.getId())) {
+            Long id = (Long) entry[0];
+            if (existingIds.contains(id)) {
+                continue;
+            }
+            transactionIds.add(id);
+            eventsByUser.computeIfAbsent((Long) entry[1], userId -> new ArrayList<>()).add(new CreditEventService.PendingEvent(
+                    entry[2].toString(), Credits.fromNumber(entry[3]), id, now));
+        }
+        eventsByUser.forEach(creditEventService::appendAll);
+        totalsByUser.keySet().forEach(creditStatisticsService::invalidate);
+
+        Map<Long, BigDecimal> balancesAfter = new LinkedHashMap<>();
+        totalsByUser.keySet().forEach(userId -> balancesAfter.put(userId, running.get(userId).toBigDecimal()));
+
+        meterRegistry.counter("skillswap.credits.settlement.legs").increment(rows.size());
+        logger.info("Settled video session {}: {} transactions for users {}",
+                   videoSession.getId(), rows.size(), balancesAfter.keySet());
+        return new SettlementResult(videoSession.getId(), transactionIds, balancesAfter);
+    }
+
+    // Bloquear todos los balances de la liquidación con una sola consulta, en orden de usuario
+    private Map<Long, LockedBalance> lockBalances(Set<Long> userIds) {
+        TreeSet<Long> ordered = new TreeSet<>(userIds);
+        // Usuarios sin fila materializada: se siembran desde el ledger antes del bloqueo
+        creditService.ensureBalances(ordered);
+        Map<Long, LockedBalance> balances = new HashMap<>();
+        for (Object[] row : userCreditsRepository.lockBalancesByUserIds(ordered)) {
+            balances.put(((Number) row[0]).longValue(), new LockedBalance(Credits.fromNumber(row[1]), Credits.fromNumber(row[2])));
+        }
+        return balances;
+    }
+
+    private record LockedBalance(Credits balance, Credits reserved) {
+
+        Credits available() {
+            return balance.minus(reserved);
+        }
+    }
+
+    /**
+     * Movimiento de una liquidación; amount positivo para abonos y negativo para cargos
+     */
+    public record SettlementLeg(Long userId, CreditTransaction.TransactionType type, BigDecimal amount,
+                                String description, String referenceType, LocalDateTime expiresAt) {
+    }
+
+    /**
+     * Resultado de una liquidación: ids de los movimientos creados y balance final de cada usuario
+     */
+    public record SettlementResult(Long videoSessionId, List<Long> transactionIds, Map<Long, BigDecimal> balances) {
+    }
+}
@@ -0,0 +1,171 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.repository.CreditTransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Estadísticas de créditos por usuario.
+ * Se calculan con una sola consulta de sumas condicionales sobre el ledger del usuario (más su balance
+ * materializado y sus lotes por expirar) y se guardan en una caché acotada. Cada escritura en el ledger
+ * invalida la entrada del usuario al confirmarse; el TTL acota la deriva de la ventana de expiración y
+ * las escrituras de otros nodos.
+ */
+@Service
+@Transactional(readOnly = true)
+public class CreditStatisticsService {
+
+    private static final int EXPIRING_WINDOW_DAYS = 30;
+
+    @Autowired
+    private CreditTransactionRepository creditTransactionRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${skillswap.credits.stats.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${skillswap.credits.stats.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private StatisticsCache cache;
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        cache = new StatisticsCache(cacheSize, ttlSeconds * 1000L);
+        hits = Counter.builder("skillswap.credits.stats.cache")
+                .description("Credit statistics lookups")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        misses = Counter.builder("skillswap.credits.stats.cache")
+                .description("Credit statistics lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("skillswap.credits.stats.cache.size", cache, StatisticsCache::size)
+                .description("Users with credit statistics held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Estadísticas del usuario: de la caché o con una sola ida a la base de datos
+     */
+    public CreditService.CreditStatistics getStatistics(Long userId) {
+        CreditService.CreditStatistics cached = cache.get(userId);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        // La versión se lee antes de consultar: si una escritura se confirma entretanto, no se cachea
+        long version = cache.version(userId);
+        // Lotes que aún no han vencido y vencen dentro de la ventana: una lectura por mes, no por crédito
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = creditTransactionRepository.summarizeUserStatistics(userId,
+                now.toLocalDate().withDayOfMonth(1), now.plusDays(EXPIRING_WINDOW_DAYS).toLocalDate().withDayOfMonth(1));
+        Object[] row = rows.get(0);
+
+        // Sin fila materializada, el balance es el del ledger
+        Credits balance = row[5] != null ? Credits.fromNumber(row[5]) : Credits.fromNumber(row[2]);
+        CreditService.CreditStatistics statistics = new CreditService.CreditStatistics(
+                Credits.fromNumber(row[0]).toBigDecimal(), Credits.fromNumber(row[1]).toBigDecimal(),
+                balance.toBigDecimal(), Credits.fromNumber(row[3]).toBigDecimal(), ((Number) row[4]).intValue());
+        cache.putIfUnchanged(userId, statistics, version);
+        return statistics;
+    }
+
+    /**
+     * Invalidar las estadísticas de un usuario tras una escritura en su ledger; se llama dentro de la
+     * transacción de la escritura y surte efecto al confirmarse
+     */
+    void invalidate(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(userId);
+                }
+            });
+        } else {
+            cache.invalidate(userId);
+        }
+    }
+
+    /**
+     * Caché LRU acotada con caducidad por entrada y versiones por franja de usuarios: una lectura
+     * iniciada antes de una invalidación no puede volver a guardar un valor antiguo
+     */
+    static class StatisticsCache {
+
+        private static final int VERSION_STRIPES = 1024;
+
+        private record Timed(CreditService.CreditStatistics statistics, long expiresAt) {
+        }
+
+        private final long ttlMillis;
+        private final Map<Long, Timed> entries;
+        private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+        StatisticsCache(int maxEntries, long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Timed> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        synchronized CreditService.CreditStatistics get(Long userId) {
+            Timed timed = entries.get(userId);
+            if (timed == null) {
+                return null;
+            }
+            if (timed.expiresAt() < System.currentTimeMillis()) {
+                entries.remove(userId);
+                return null;
+            }
+            return timed.statistics();
+        }
+
+        long version(Long userId) {
+            return versions.get(stripe(userId));
+        }
+
+        synchronized void putIfUnchanged(Long userId, CreditService.CreditStatistics statistics, long version) {
+            if (versions.get(stripe(userId)) == version) {
+                entries.put(userId, new Timed(statistics, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+
+        synchronized void invalidate(Long userId) {
+            versions.incrementAndGet(stripe(userId));
+            entries.remove(userId);
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        private static int stripe(Long userId) {
+            return (int) Math.floorMod(userId, (long) VERSION_STRIPES);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.skillswap.backend.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Cantidad de créditos en centésimas sobre un long.
+ * Toda la aritmética del servicio de créditos se hace con este tipo; la conversión a BigDecimal
+ * queda en los bordes (entidades JPA, parámetros JDBC y JSON). Las operaciones comprueban el
+ * desbordamiento y lanzan ArithmeticException en lugar de dar la vuelta.
+ */
+final class Credits implements Comparable<Credits> {
+
+    static final Credits ZERO = new Credits(0);
+
+    private static final int SCALE = 2;
+    private static final long MINUTES_PER_HOUR = 60;
+
+    private final long hundredths;
+
+    private Credits(long hundredths) {
+        this.hundredths = hundredths;
+    }
+
+    static Credits ofHundredths(long hundredths) {
+        return hundredths == 0 ? ZERO : new Credits(hundredths);
+    }
+
+    // Mismo redondeo que las columnas DECIMAL(10,2)
+    static Credits of(BigDecimal amount) {
+        if (amount == null) {
+            return ZERO;
+        }
+        return ofHundredths(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    static Credits of(String amount) {
+        return of(new BigDecimal(amount));
+    }
+
+    // Resultado de un SUM o de una columna leída sin tipar (BigDecimal, Long, Double o null)
+    static Credits fromNumber(Object value) {
+        if (value == null) {
+            return ZERO;
+        }
+        if (value instanceof BigDecimal decimal) {
+            return of(decimal);
+        }
+        if (value instanceof Long || value instanceof Integer) {
+            return ofHundredths(Math.multiplyExact(((Number) value).longValue(), 100L));
+        }
+        return of(new BigDecimal(value.toString()));
+    }
+
+    // Suma acumulada sobre el long: un solo objeto por agregación
+    static Credits sum(Iterable<Credits> amounts) {
+        long total = 0;
+        for (Credits amount : amounts) {
+            total = Math.addExact(total, amount.hundredths);
+        }
+        return ofHundredths(total);
+    }
+
+    long hundredths() {
+        return hundredths;
+    }
+
+    Credits plus(Credits other) {
+        return other.hundredths == 0 ? this : ofHundredths(Math.addExact(hundredths, other.hundredths));
+    }
+
+    Credits minus(Credits other) {
+        return other.hundredths == 0 ? this : ofHundredths(Math.subtractExact(hundredths, other.hundredths));
+    }
+
+    Credits negate() {
+        return ofHundredths(Math.negateExact(hundredths));
+    }
+
+    Credits abs() {
+        return hundredths < 0 ? negate() : this;
+    }
+
+    // El mismo importe repetido n veces (p. ej. el coste total de un abono masivo)
+    Credits times(long n) {
+        return ofHundredths(Math.multiplyExact(hundredths, n));
+    }
+
+    /**
+     * Tarifa por hora aplicada a una duración: las horas se redondean a centésimas (HALF_UP)
+     * y el producto también, igual que el cálculo original con BigDecimal
+     */
+    Credits perHour(int minutes) {
+        long hourHundredths = divideHalfUp(Math.multiplyExact((long) minutes, 100L), MINUTES_PER_HOUR);
+        return ofHundredths(divideHalfUp(Math.multiplyExact(hundredths, hourHundredths), 100L));
+    }
+
+    int signum() {
+        return Long.signum(hundredths);
+    }
+
+    boolean isZero() {
+        return hundredths == 0;
+    }
+
+    boolean isLessThan(Credits other) {
+        return hundredths < other.hundredths;
+    }
+
+    // Parte positiva (ganado) y valor absoluto de la negativa (gastado)
+    Credits earned() {
+        return hundredths > 0 ? this : ZERO;
+    }
+
+    Credits spent() {
+        return hundredths < 0 ? negate() : ZERO;
+    }
+
+    BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(hundredths, SCALE);
+    }
+
+    @Override
+    public int compareTo(Credits other) {
+        return Long.compare(hundredths, other.hundredths);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Credits other && hundredths == other.hundredths);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hundredths);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= divisor) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+}
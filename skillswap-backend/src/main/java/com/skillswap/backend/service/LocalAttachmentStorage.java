@@ -0,0 +1,123 @@
+package com.skillswap.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Almacenamiento de adjuntos en el sistema de ficheros local.
+ * El cuerpo se vuelca a un fichero temporal con FileChannel.transferFrom mientras se
+ * calcula el hash; después se renombra a su ruta por contenido o se descarta si ya existía.
+ */
+@Service
+@ConditionalOnProperty(name = "skillswap.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalAttachmentStorage implements AttachmentStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalAttachmentStorage.class);
+
+    private static final long TRANSFER_CHUNK_BYTES = 1024 * 1024;
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    @Value("${skillswap.storage.upload-dir:./uploads}")
+    private String uploadDir;
+
+    @Override
+    public StoredAttachment store(InputStream content, long maxBytes) throws IOException {
+        Path root = attachmentsRoot();
+        Files.createDirectories(root);
+        Path temp = Files.createTempFile(root, "upload-", ".tmp");
+
+        MessageDigest digest = sha256();
+        long size = 0;
+        try {
+            try (ReadableByteChannel source = Channels.newChannel(new DigestInputStream(content, digest));
+                 FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long transferred;
+                while ((transferred = target.transferFrom(source, size, TRANSFER_CHUNK_BYTES)) > 0) {
+                    size += transferred;
+                    if (size > maxBytes) {
+                        throw new RuntimeException("Attachment exceeds maximum size of " + maxBytes + " bytes");
+                    }
+                }
+                target.force(false);
+            }
+
+            String id = HexFormat.of().formatHex(digest.digest());
+            Path data = dataFile(id);
+            Files.createDirectories(data.getParent());
+            boolean deduplicated = Files.exists(data);
+            if (deduplicated) {
+                // Mismo contenido ya almacenado: se reutiliza
+                Files.delete(temp);
+                logger.debug("Attachment {} already stored, upload deduplicated", id);
+            } else {
+                // Dos subidas simultáneas del mismo contenido escriben los mismos bytes
+                Files.move(temp, data, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredAttachment(id, size, deduplicated);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<StoredAttachment> find(String id) throws IOException {
+        if (!ID_PATTERN.matcher(id).matches() || !Files.exists(dataFile(id))) {
+            return Optional.empty();
+        }
+        return Optional.of(new StoredAttachment(id, Files.size(dataFile(id)), false));
+    }
+
+    @Override
+    public long transferTo(String id, long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel source = FileChannel.open(dataFile(id), StandardOpenOption.READ)) {
+            long sent = 0;
+            while (sent < count) {
+                long transferred = source.transferTo(position + sent, count - sent, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                sent += transferred;
+            }
+            return sent;
+        }
+    }
+
+    private Path attachmentsRoot() {
+        return Paths.get(uploadDir, "attachments");
+    }
+
+    private Path dataFile(String id) {
+        // Reparto por los dos primeros caracteres del hash
+        return attachmentsRoot().resolve(id.substring(0, 2)).resolve(id);
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
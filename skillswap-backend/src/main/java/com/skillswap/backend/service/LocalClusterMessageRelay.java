@@ -0,0 +1,29 @@
+package com.skillswap.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+
+/**
+ * Relay para despliegues de un solo nodo: entrega directamente al broker local
+ */
+@Service
+@ConditionalOnProperty(name = "skillswap.cluster.relay", havingValue = "local", matchIfMissing = true)
+public class LocalClusterMessageRelay implements ClusterMessageRelay {
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private SimpUserRegistry userRegistry;
+
+    @Override
+    public void convertAndSendToUser(String user, String destination, Object payload) {
+        // Evitar serializar mensajes para usuarios sin sesión en este nodo
+        if (userRegistry.getUser(user) != null) {
+            messagingTemplate.convertAndSendToUser(user, destination, payload);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.service.PresenceService.PresenceStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Registro para despliegues de un solo nodo: no hay otros nodos, las sesiones locales son toda la presencia
+ */
+@Service
+@ConditionalOnProperty(name = "skillswap.cluster.relay", havingValue = "local", matchIfMissing = true)
+public class LocalClusterPresenceRegistry implements ClusterPresenceRegistry {
+
+    private static final RemotePresence NO_OTHER_NODES = new RemotePresence(PresenceStatus.OFFLINE, null);
+
+    @Override
+    public RemotePresence update(Long userId, PresenceStatus localStatus, long version, long timestamp) {
+        return NO_OTHER_NODES;
+    }
+
+    @Override
+    public Map<Long, RemotePresence> lookup(Collection<Long> userIds) {
+        return Map.of();
+    }
+}
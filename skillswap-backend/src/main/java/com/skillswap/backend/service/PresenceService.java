@@ -0,0 +1,512 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.repository.ChatMessageRepository;
+import com.skillswap.backend.repository.SkillMatchRepository;
+import com.skillswap.backend.service.ClusterPresenceRegistry.RemotePresence;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servicio de presencia de usuarios.
+ * Rastrea las sesiones STOMP conectadas por usuario en una estructura particionada
+ * (shards con lock propio) y expira sesiones sin heartbeat con una rueda de tiempo. El estado de
+ * cada usuario en este nodo se publica en el registro del cluster, y las consultas combinan las
+ * sesiones locales con las de los demás nodos; un cambio solo se anuncia si cambia en todo el cluster.
+ * Los cambios de estado solo se publican a usuarios relacionados (match o conversación), y solo
+ * ellos pueden consultar la presencia. Los contactos de cada usuario se guardan en una caché acotada
+ * con caducidad para que una avalancha de reconexiones no recorra el historial de chat por cada cambio.
+ */
+@Service
+public class PresenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    private static final int SHARD_COUNT = 64;
+    private static final int WHEEL_SLOTS = 128;
+
+    public enum PresenceStatus {
+        ONLINE, AWAY, OFFLINE;
+
+        // Estado combinado de dos nodos: basta una sesión activa en uno para estar online
+        PresenceStatus combine(PresenceStatus other) {
+            return ordinal() <= other.ordinal() ? this : other;
+        }
+    }
+
+    @Autowired
+    private SkillMatchRepository skillMatchRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private ClusterMessageRelay messageRelay;
+
+    @Autowired
+    private ClusterPresenceRegistry presenceRegistry;
+
+    @Value("${skillswap.presence.heartbeat-timeout-ms:45000}")
+    private long heartbeatTimeoutMillis;
+
+    @Value("${skillswap.presence.wheel-tick-ms:1000}")
+    private long wheelTickMillis;
+
+    @Value("${skillswap.presence.contact-cache-size:50000}")
+    private int contactCacheSize;
+
+    @Value("${skillswap.presence.contact-ttl-seconds:300}")
+    private long contactTtlSeconds;
+
+    private final Shard[] shards = new Shard[SHARD_COUNT];
+    private final Map<String, SessionEntry> sessions = new ConcurrentHashMap<>();
+    private volatile HeartbeatWheel wheel;
+    private volatile ContactCache contactCache;
+
+    // Versiones de las escrituras de este nodo en el registro; parten de la hora de arranque para
+    // superar las que dejó el nodo antes de reiniciarse con el mismo id
+    private final AtomicLong versions = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    public PresenceService() {
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Registrar una nueva sesión STOMP para el usuario.
+     * El registro de la sesión y el del shard se hacen bajo el lock del shard, el mismo que toma la
+     * desconexión, para que una desconexión no pueda colarse entre ambos
+     */
+    public void sessionConnected(Long userId, String sessionId) {
+        long now = System.currentTimeMillis();
+        SessionEntry entry = new SessionEntry(userId, now + heartbeatTimeoutMillis);
+
+        long version = 0;
+        Shard shard = shardFor(userId);
+        synchronized (shard) {
+            if (sessions.putIfAbsent(sessionId, entry) != null) {
+                return;
+            }
+            UserPresence presence = shard.users.computeIfAbsent(userId, id -> new UserPresence());
+            presence.sessionIds.add(sessionId);
+            presence.lastSeen = now;
+            if (presence.status == PresenceStatus.OFFLINE) {
+                presence.status = PresenceStatus.ONLINE;
+                version = versions.incrementAndGet();
+            }
+        }
+        wheel().schedule(sessionId, entry.deadline);
+
+        if (version != 0) {
+            // Solo se anuncia si el usuario no tenía sesiones en ningún otro nodo
+            RemotePresence others = presenceRegistry.update(userId, PresenceStatus.ONLINE, version, now);
+            if (others != null && others.status() == PresenceStatus.OFFLINE) {
+                publishPresenceChange(userId, PresenceStatus.ONLINE, now);
+            }
+        }
+    }
+
+    /**
+     * Eliminar una sesión STOMP (desconexión explícita o heartbeat expirado)
+     */
+    public void sessionDisconnected(String sessionId) {
+        SessionEntry entry = sessions.get(sessionId);
+        if (entry == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long version = 0;
+        Shard shard = shardFor(entry.userId);
+        synchronized (shard) {
+            if (!sessions.remove(sessionId, entry)) {
+                return;
+            }
+            UserPresence presence = shard.users.get(entry.userId);
+            if (presence != null) {
+                presence.sessionIds.remove(sessionId);
+                presence.lastSeen = now;
+                if (presence.sessionIds.isEmpty() && presence.status != PresenceStatus.OFFLINE) {
+                    presence.status = PresenceStatus.OFFLINE;
+                    version = versions.incrementAndGet();
+                }
+            }
+        }
+
+        if (version != 0) {
+            // Solo se anuncia si tampoco le quedan sesiones en otros nodos
+            RemotePresence others = presenceRegistry.update(entry.userId, PresenceStatus.OFFLINE, version, now);
+            if (others != null && others.status() == PresenceStatus.OFFLINE) {
+                publishPresenceChange(entry.userId, PresenceStatus.OFFLINE, now);
+            }
+        }
+    }
+
+    /**
+     * Registrar actividad (heartbeat o cualquier frame) de una sesión.
+     * Solo actualiza la fecha límite; la rueda re-encola la sesión de forma perezosa.
+     */
+    public void heartbeat(String sessionId) {
+        SessionEntry entry = sessions.get(sessionId);
+        if (entry != null) {
+            entry.deadline = System.currentTimeMillis() + heartbeatTimeoutMillis;
+        }
+    }
+
+    /**
+     * Cambiar el estado explícito del usuario (online/away)
+     */
+    public void updateStatus(Long userId, PresenceStatus status) {
+        if (status == PresenceStatus.OFFLINE) {
+            throw new RuntimeException("Offline status is derived from connected sessions");
+        }
+
+        long now = System.currentTimeMillis();
+        long version = 0;
+        Shard shard = shardFor(userId);
+        synchronized (shard) {
+            UserPresence presence = shard.users.get(userId);
+            if (presence != null && !presence.sessionIds.isEmpty() && presence.status != status) {
+                presence.status = status;
+                presence.lastSeen = now;
+                version = versions.incrementAndGet();
+            }
+        }
+
+        if (version != 0) {
+            // Con sesiones en otros nodos el estado combinado puede no cambiar (p. ej. away aquí, online allí)
+            RemotePresence others = presenceRegistry.update(userId, status, version, now);
+            if (others != null && status.combine(others.status()) == status) {
+                publishPresenceChange(userId, status, now);
+            }
+        }
+    }
+
+    /**
+     * Obtener presencia de un usuario
+     */
+    public Map<String, Object> getPresence(Long userId) {
+        return getPresence(List.of(userId)).get(userId);
+    }
+
+    /**
+     * Obtener presencia de una lista de usuarios en una sola llamada.
+     * Agrupa los ids por shard para tomar cada lock una sola vez y combina el resultado con el
+     * estado de los demás nodos, leído del registro del cluster en una sola consulta.
+     */
+    public Map<Long, Map<String, Object>> getPresence(Collection<Long> userIds) {
+        Map<Integer, List<Long>> idsByShard = new HashMap<>();
+        for (Long userId : userIds) {
+            idsByShard.computeIfAbsent(shardIndex(userId), i -> new ArrayList<>()).add(userId);
+        }
+
+        Map<Long, RemotePresence> remote = presenceRegistry.lookup(userIds);
+
+        Map<Long, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Map.Entry<Integer, List<Long>> group : idsByShard.entrySet()) {
+            Shard shard = shards[group.getKey()];
+            synchronized (shard) {
+                for (Long userId : group.getValue()) {
+                    UserPresence presence = shard.users.get(userId);
+                    PresenceStatus status = presence != null ? presence.status : PresenceStatus.OFFLINE;
+                    Long lastSeen = presence != null ? presence.lastSeen : null;
+                    RemotePresence others = remote.get(userId);
+                    if (others != null) {
+                        status = status.combine(others.status());
+                        if (others.lastSeen() != null && (lastSeen == null || others.lastSeen() > lastSeen)) {
+                            lastSeen = others.lastSeen();
+                        }
+                    }
+                    result.put(userId, toPayload(userId, status, lastSeen));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Presencia de los usuarios de la lista que son contactos del solicitante (o él mismo);
+     * los demás se omiten
+     */
+    public Map<Long, Map<String, Object>> getContactPresence(Long viewerId, Collection<Long> userIds) {
+        Set<Long> contacts = contactsOf(viewerId);
+        List<Long> visible = userIds.stream()
+                .filter(userId -> userId.equals(viewerId) || contacts.contains(userId))
+                .distinct()
+                .toList();
+        return getPresence(visible);
+    }
+
+    public boolean isContact(Long viewerId, Long userId) {
+        return viewerId.equals(userId) || contactsOf(viewerId).contains(userId);
+    }
+
+    /**
+     * Registrar una relación nueva (p. ej. el primer mensaje entre dos usuarios) en los contactos
+     * cacheados de este nodo; en los demás nodos aparece al caducar la entrada
+     */
+    public void recordContact(Long userId, Long otherUserId) {
+        if (userId == null || otherUserId == null || userId.equals(otherUserId)) {
+            return;
+        }
+        contactCache().addIfCached(userId, otherUserId);
+        contactCache().addIfCached(otherUserId, userId);
+    }
+
+    public boolean isOnline(Long userId) {
+        return !PresenceStatus.OFFLINE.name().toLowerCase().equals(getPresence(userId).get("status"));
+    }
+
+    public int getConnectedSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Avanzar la rueda de tiempo y expirar sesiones sin heartbeat
+     */
+    @Scheduled(fixedDelayString = "${skillswap.presence.wheel-tick-ms:1000}")
+    public void expireStaleSessions() {
+        long now = System.currentTimeMillis();
+        List<String> expired = wheel().advance(now, sessionId -> {
+            SessionEntry entry = sessions.get(sessionId);
+            return entry == null ? -1L : entry.deadline;
+        });
+
+        for (String sessionId : expired) {
+            logger.debug("Session {} expired after missing heartbeats", sessionId);
+            sessionDisconnected(sessionId);
+        }
+    }
+
+    /**
+     * Al parar el nodo, retirar del registro a sus usuarios conectados para que no sigan
+     * apareciendo online si el nodo vuelve con el mismo id
+     */
+    @PreDestroy
+    public void shutdown() {
+        long now = System.currentTimeMillis();
+        for (Shard shard : shards) {
+            List<Long> online = new ArrayList<>();
+            synchronized (shard) {
+                shard.users.forEach((userId, presence) -> {
+                    if (presence.status != PresenceStatus.OFFLINE) {
+                        online.add(userId);
+                    }
+                });
+            }
+            for (Long userId : online) {
+                presenceRegistry.update(userId, PresenceStatus.OFFLINE, versions.incrementAndGet(), now);
+            }
+        }
+    }
+
+    private void publishPresenceChange(Long userId, PresenceStatus status, long timestamp) {
+        try {
+            Set<Long> contacts = contactsOf(userId);
+            Map<String, Object> payload = toPayload(userId, status, timestamp);
+            for (Long contactId : contacts) {
+                // El relay descarta sin serializar a los contactos sin sesión en el cluster
+                messageRelay.convertAndSendToUser(contactId.toString(), "/queue/presence", payload);
+            }
+        } catch (Exception e) {
+            logger.error("Error publishing presence change for user {}", userId, e);
+        }
+    }
+
+    // Contactos del usuario: de la caché o con las consultas de relación (match y conversación)
+    private Set<Long> contactsOf(Long userId) {
+        ContactCache cache = contactCache();
+        Set<Long> cached = cache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        Set<Long> contacts = new HashSet<>(skillMatchRepository.findMatchPartnerIds(userId));
+        contacts.addAll(chatMessageRepository.findConversationPartnerIds(userId));
+        contacts.remove(userId);
+        cache.put(userId, contacts);
+        return contacts;
+    }
+
+    private ContactCache contactCache() {
+        ContactCache current = contactCache;
+        if (current == null) {
+            synchronized (this) {
+                if (contactCache == null) {
+                    contactCache = new ContactCache(contactCacheSize, contactTtlSeconds * 1000L);
+                }
+                current = contactCache;
+            }
+        }
+        return current;
+    }
+
+    private Map<String, Object> toPayload(Long userId, PresenceStatus status, Long lastSeen) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("userId", userId);
+        payload.put("status", status.name().toLowerCase());
+        payload.put("lastSeen", lastSeen);
+        return payload;
+    }
+
+    private HeartbeatWheel wheel() {
+        HeartbeatWheel current = wheel;
+        if (current == null) {
+            synchronized (this) {
+                if (wheel == null) {
+                    wheel = new HeartbeatWheel(WHEEL_SLOTS, wheelTickMillis, System.currentTimeMillis());
+                }
+                current = wheel;
+            }
+        }
+        return current;
+    }
+
+    private Shard shardFor(Long userId) {
+        return shards[shardIndex(userId)];
+    }
+
+    private int shardIndex(Long userId) {
+        int h = Long.hashCode(userId);
+        h ^= (h >>> 16);
+        return h & (SHARD_COUNT - 1);
+    }
+
+    private static class Shard {
+        private final Map<Long, UserPresence> users = new HashMap<>();
+    }
+
+    private static class UserPresence {
+        private final Set<String> sessionIds = new HashSet<>(2);
+        private PresenceStatus status = PresenceStatus.OFFLINE;
+        private long lastSeen;
+    }
+
+    /**
+     * Caché LRU acotada de contactos por usuario con caducidad por entrada; los conjuntos devueltos
+     * son copias inmutables
+     */
+    private static class ContactCache {
+
+        private record Timed(Set<Long> contacts, long expiresAt) {
+        }
+
+        private final long ttlMillis;
+        private final Map<Long, Timed> entries;
+
+        ContactCache(int maxEntries, long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Timed> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        synchronized Set<Long> get(Long userId) {
+            Timed timed = entries.get(userId);
+            if (timed == null) {
+                return null;
+            }
+            if (timed.expiresAt() < System.currentTimeMillis()) {
+                entries.remove(userId);
+                return null;
+            }
+            return timed.contacts();
+        }
+
+        synchronized void put(Long userId, Set<Long> contacts) {
+            entries.put(userId, new Timed(Set.copyOf(contacts), System.currentTimeMillis() + ttlMillis));
+        }
+
+        synchronized void addIfCached(Long userId, Long contactId) {
+            Timed timed = entries.get(userId);
+            if (timed != null && !timed.contacts().contains(contactId)) {
+                Set<Long> contacts = new HashSet<>(timed.contacts());
+                contacts.add(contactId);
+                entries.put(userId, new Timed(Set.copyOf(contacts), timed.expiresAt()));
+            }
+        }
+    }
+
+    private static class SessionEntry {
+        private final Long userId;
+        private volatile long deadline;
+
+        SessionEntry(Long userId, long deadline) {
+            this.userId = userId;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * Hashed timing wheel para vencimiento de heartbeats.
+     * Cada slot cubre un tick; un heartbeat solo mueve la fecha límite de la sesión y
+     * al vencer el slot las sesiones todavía vigentes se re-encolan en su nuevo slot.
+     */
+    private static class HeartbeatWheel {
+        private final Set<String>[] slots;
+        private final long tickMillis;
+        private final int mask;
+        private long currentTick;
+
+        @SuppressWarnings("unchecked")
+        HeartbeatWheel(int slotCount, long tickMillis, long startMillis) {
+            this.slots = new Set[slotCount];
+            for (int i = 0; i < slotCount; i++) {
+                slots[i] = new HashSet<>();
+            }
+            this.tickMillis = tickMillis;
+            this.mask = slotCount - 1;
+            this.currentTick = startMillis / tickMillis;
+        }
+
+        synchronized void schedule(String sessionId, long deadlineMillis) {
+            long tick = Math.max(deadlineMillis / tickMillis, currentTick + 1);
+            slots[(int) (tick & mask)].add(sessionId);
+        }
+
+        synchronized List<String> advance(long nowMillis, java.util.function.ToLongFunction<String> deadlineOf) {
+            List<String> expired = new ArrayList<>();
+            long targetTick = nowMillis / tickMillis;
+            while (currentTick < targetTick) {
+                currentTick++;
+                Set<String> slot = slots[(int) (currentTick & mask)];
+                if (slot.isEmpty()) {
+                    continue;
+                }
+                List<String> due = new ArrayList<>(slot);
+                slot.clear();
+                for (String sessionId : due) {
+                    long deadline = deadlineOf.applyAsLong(sessionId);
+                    if (deadline < 0) {
+                        continue; // sesión ya desconectada
+                    }
+                    if (deadline <= nowMillis) {
+                        expired.add(sessionId);
+                    } else {
+                        long tick = Math.max(deadline / tickMillis, currentTick + 1);
+                        slots[(int) (tick & mask)].add(sessionId);
+                    }
+                }
+            }
+            return expired;
+        }
+    }
+}
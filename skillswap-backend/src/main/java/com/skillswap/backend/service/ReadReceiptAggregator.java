@@ -0,0 +1,61 @@
+package com.skillswap.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Acumulador de confirmaciones de lectura.
+ * Las lecturas recibidas por WebSocket se agrupan por par remitente/receptor durante una
+ * ventana corta; en cada flush se ejecuta un único UPDATE por par hasta el mayor id leído
+ * y se envía una sola notificación al remitente.
+ */
+@Service
+public class ReadReceiptAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReceiptAggregator.class);
+
+    @Autowired
+    private ChatService chatService;
+
+    // Mayor id de mensaje leído pendiente por par (Long.MAX_VALUE = toda la conversación)
+    private final Map<ConversationPair, Long> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Registrar que el receptor leyó los mensajes del remitente hasta upToMessageId
+     */
+    public void markAsRead(Long senderId, Long receiverId, Long upToMessageId) {
+        long bound = upToMessageId != null ? upToMessageId : Long.MAX_VALUE;
+        pending.merge(new ConversationPair(senderId, receiverId), bound, Math::max);
+    }
+
+    /**
+     * Aplicar las lecturas acumuladas durante la ventana
+     */
+    @Scheduled(fixedDelayString = "${skillswap.chat.read-receipt-window-ms:250}")
+    public void flush() {
+        for (ConversationPair pair : pending.keySet()) {
+            Long upToMessageId = pending.remove(pair);
+            if (upToMessageId == null) {
+                continue;
+            }
+            try {
+                chatService.applyReadReceipts(pair.senderId(), pair.receiverId(), upToMessageId);
+            } catch (Exception e) {
+                logger.error("Error applying read receipts from {} to {}", pair.senderId(), pair.receiverId(), e);
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private record ConversationPair(Long senderId, Long receiverId) {
+    }
+}
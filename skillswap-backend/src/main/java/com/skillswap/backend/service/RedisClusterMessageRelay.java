@@ -0,0 +1,265 @@
+package com.skillswap.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Relay de mensajes entre nodos mediante Redis pub/sub.
+ * Cada nodo registra en Redis los usuarios que tiene conectados; los mensajes para
+ * usuarios de otros nodos se encolan por nodo destino y se publican en lotes por tick
+ * en el canal propio de ese nodo, de modo que cada mensaje cruza la red una sola vez
+ * por nodo propietario.
+ */
+@Service
+@ConditionalOnProperty(name = "skillswap.cluster.relay", havingValue = "redis")
+public class RedisClusterMessageRelay implements ClusterMessageRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisClusterMessageRelay.class);
+
+    private static final String NODES_KEY = "skillswap:cluster:nodes";
+    private static final String USER_NODES_KEY_PREFIX = "skillswap:cluster:user:";
+    private static final String NODE_CHANNEL_PREFIX = "skillswap:cluster:node:";
+    private static final String OWNERSHIP_CHANNEL = "skillswap:cluster:ownership";
+    private static final long NODE_TTL_MILLIS = 30_000;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${skillswap.cluster.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${skillswap.cluster.max-batch-size:500}")
+    private int maxBatchSize;
+
+    private String nodeId;
+
+    // Sesiones locales por usuario (principal name)
+    private final Map<String, AtomicInteger> localSessions = new ConcurrentHashMap<>();
+
+    // Caché de nodos propietarios por usuario, invalidada vía OWNERSHIP_CHANNEL
+    private final Map<String, Set<String>> ownerCache = new ConcurrentHashMap<>();
+
+    // Mensajes pendientes de publicar por nodo destino
+    private final Map<String, Queue<JsonNode>> pending = new ConcurrentHashMap<>();
+
+    private volatile Set<String> liveNodes = Set.of();
+
+    @PostConstruct
+    public void start() {
+        nodeId = configuredNodeId == null || configuredNodeId.isBlank()
+                ? UUID.randomUUID().toString().substring(0, 8)
+                : configuredNodeId;
+
+        listenerContainer.addMessageListener(this::onNodeMessage, new ChannelTopic(NODE_CHANNEL_PREFIX + nodeId));
+        listenerContainer.addMessageListener(this::onOwnershipChange, new ChannelTopic(OWNERSHIP_CHANNEL));
+        refreshMembership();
+
+        logger.info("Cluster relay started on node {}", nodeId);
+    }
+
+    @PreDestroy
+    public void stop() {
+        try {
+            for (String user : localSessions.keySet()) {
+                redisTemplate.opsForSet().remove(USER_NODES_KEY_PREFIX + user, nodeId);
+                redisTemplate.convertAndSend(OWNERSHIP_CHANNEL, user);
+            }
+            redisTemplate.opsForZSet().remove(NODES_KEY, nodeId);
+        } catch (Exception e) {
+            logger.warn("Error deregistering cluster node {}", nodeId, e);
+        }
+    }
+
+    @Override
+    public void convertAndSendToUser(String user, String destination, Object payload) {
+        if (localSessions.containsKey(user)) {
+            messagingTemplate.convertAndSendToUser(user, destination, payload);
+        }
+
+        Set<String> owners = ownersOf(user);
+        if (owners.isEmpty() || (owners.size() == 1 && owners.contains(nodeId))) {
+            return;
+        }
+
+        // Serializar una sola vez aunque el usuario esté en varios nodos
+        JsonNode envelope = objectMapper.createObjectNode()
+                .put("u", user)
+                .put("d", destination)
+                .set("p", objectMapper.valueToTree(payload));
+
+        for (String owner : owners) {
+            if (!owner.equals(nodeId) && liveNodes.contains(owner)) {
+                pending.computeIfAbsent(owner, n -> new ConcurrentLinkedQueue<>()).add(envelope);
+            }
+        }
+    }
+
+    /**
+     * Publicar los mensajes acumulados en el tick, un mensaje Redis por nodo y lote.
+     * Un lote que Redis rechaza no se reintenta (entrega como máximo una vez): sus mensajes se
+     * cuentan en skillswap.cluster.relay.dropped
+     */
+    @Scheduled(fixedDelayString = "${skillswap.cluster.flush-interval-ms:10}")
+    public void flush() {
+        for (Map.Entry<String, Queue<JsonNode>> entry : pending.entrySet()) {
+            Queue<JsonNode> queue = entry.getValue();
+            while (!queue.isEmpty()) {
+                ArrayNode batch = objectMapper.createArrayNode();
+                JsonNode envelope;
+                while (batch.size() < maxBatchSize && (envelope = queue.poll()) != null) {
+                    batch.add(envelope);
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                try {
+                    redisTemplate.convertAndSend(NODE_CHANNEL_PREFIX + entry.getKey(), batch.toString());
+                } catch (Exception e) {
+                    meterRegistry.counter("skillswap.cluster.relay.dropped", "node", entry.getKey()).increment(batch.size());
+                    logger.error("Error publishing {} relayed messages to node {}", batch.size(), entry.getKey(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Renovar el registro de este nodo y la lista de nodos vivos
+     */
+    @Scheduled(fixedDelay = 10_000)
+    public void refreshMembership() {
+        try {
+            long now = System.currentTimeMillis();
+            redisTemplate.opsForZSet().add(NODES_KEY, nodeId, now);
+            redisTemplate.opsForZSet().removeRangeByScore(NODES_KEY, 0, now - NODE_TTL_MILLIS);
+            Set<String> nodes = redisTemplate.opsForZSet().rangeByScore(NODES_KEY, now - NODE_TTL_MILLIS, Double.MAX_VALUE);
+            liveNodes = nodes != null ? Set.copyOf(nodes) : Set.of(nodeId);
+            ownerCache.clear();
+        } catch (Exception e) {
+            logger.error("Error refreshing cluster membership for node {}", nodeId, e);
+        }
+    }
+
+    /**
+     * Identificador de este nodo en el cluster
+     */
+    String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Si el nodo renovó su registro en el último intervalo de vida
+     */
+    boolean isLive(String node) {
+        return liveNodes.contains(node);
+    }
+
+    @EventListener
+    public void onSessionConnected(SessionConnectedEvent event) {
+        Principal principal = event.getUser();
+        if (principal == null) {
+            return;
+        }
+
+        String user = principal.getName();
+        if (localSessions.computeIfAbsent(user, u -> new AtomicInteger()).incrementAndGet() == 1) {
+            redisTemplate.opsForSet().add(USER_NODES_KEY_PREFIX + user, nodeId);
+            redisTemplate.convertAndSend(OWNERSHIP_CHANNEL, user);
+        }
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        Principal principal = event.getUser();
+        if (principal == null) {
+            return;
+        }
+
+        String user = principal.getName();
+        AtomicInteger count = localSessions.get(user);
+        if (count != null && count.decrementAndGet() <= 0) {
+            localSessions.remove(user, count);
+            redisTemplate.opsForSet().remove(USER_NODES_KEY_PREFIX + user, nodeId);
+            redisTemplate.convertAndSend(OWNERSHIP_CHANNEL, user);
+        }
+    }
+
+    private Set<String> ownersOf(String user) {
+        return ownerCache.computeIfAbsent(user, u -> {
+            Set<String> members = redisTemplate.opsForSet().members(USER_NODES_KEY_PREFIX + u);
+            return members != null ? Set.copyOf(members) : Set.of();
+        });
+    }
+
+    private void onOwnershipChange(Message message, byte[] pattern) {
+        ownerCache.remove(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void onNodeMessage(Message message, byte[] pattern) {
+        try {
+            JsonNode batch = objectMapper.readTree(message.getBody());
+            for (JsonNode envelope : batch) {
+                deliverLocally(envelope.get("u").asText(), envelope.get("d").asText(),
+                        objectMapper.writeValueAsBytes(envelope.get("p")));
+            }
+        } catch (Exception e) {
+            logger.error("Error processing relayed message batch", e);
+        }
+    }
+
+    private void deliverLocally(String user, String destination, byte[] json) {
+        // El payload ya viene serializado: enviarlo sin pasar por los conversores
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+
+        String prefix = messagingTemplate.getUserDestinationPrefix();
+        String target = prefix + user.replace("/", "%2F") + (destination.startsWith("/") ? destination : "/" + destination);
+        messagingTemplate.send(target, MessageBuilder.createMessage(json, accessor.getMessageHeaders()));
+    }
+}
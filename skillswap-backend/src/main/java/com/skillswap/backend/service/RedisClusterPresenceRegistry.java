@@ -0,0 +1,122 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.service.PresenceService.PresenceStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Presencia compartida en Redis.
+ * Cada usuario tiene un hash con un campo por nodo (versión y estado en ese nodo) y su última
+ * actividad. La escritura y la lectura de los demás nodos son un solo script atómico, de modo que
+ * si dos nodos cambian a la vez el último en escribir ve al otro y solo uno anuncia el cambio.
+ * Los campos de nodos caídos se ignoran con la lista de nodos vivos del relay.
+ */
+@Service
+@ConditionalOnProperty(name = "skillswap.cluster.relay", havingValue = "redis")
+public class RedisClusterPresenceRegistry implements ClusterPresenceRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisClusterPresenceRegistry.class);
+
+    private static final String PRESENCE_KEY_PREFIX = "skillswap:cluster:presence:";
+    private static final String NODE_FIELD_PREFIX = "n:";
+    private static final String LAST_SEEN_FIELD = "lastSeen";
+
+    // KEYS[1] hash del usuario; ARGV: campo del nodo, versión, estado, timestamp.
+    // Ignora escrituras más antiguas que la guardada (lista vacía) y devuelve el hash completo tras escribir
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> UPDATE_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('HGET', KEYS[1], ARGV[1]) " +
+            "if current and tonumber(string.match(current, '^(%d+)')) >= tonumber(ARGV[2]) then return {} end " +
+            "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2] .. ':' .. ARGV[3]) " +
+            "local lastSeen = redis.call('HGET', KEYS[1], '" + LAST_SEEN_FIELD + "') " +
+            "if not lastSeen or tonumber(lastSeen) < tonumber(ARGV[4]) then " +
+            "redis.call('HSET', KEYS[1], '" + LAST_SEEN_FIELD + "', ARGV[4]) end " +
+            "return redis.call('HGETALL', KEYS[1])",
+            List.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisClusterMessageRelay messageRelay;
+
+    @Override
+    public RemotePresence update(Long userId, PresenceStatus localStatus, long version, long timestamp) {
+        try {
+            List<?> hash = redisTemplate.execute(UPDATE_SCRIPT, List.of(PRESENCE_KEY_PREFIX + userId),
+                    NODE_FIELD_PREFIX + messageRelay.getNodeId(), Long.toString(version), localStatus.name(),
+                    Long.toString(timestamp));
+            if (hash == null || hash.isEmpty()) {
+                return null;
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i + 1 < hash.size(); i += 2) {
+                fields.put(String.valueOf(hash.get(i)), String.valueOf(hash.get(i + 1)));
+            }
+            return otherNodes(fields);
+        } catch (Exception e) {
+            // Sin Redis la presencia se degrada a la de este nodo
+            logger.error("Error publishing presence of user {} to the cluster", userId, e);
+            return new RemotePresence(PresenceStatus.OFFLINE, null);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, RemotePresence> lookup(Collection<Long> userIds) {
+        List<Long> ids = new ArrayList<>(userIds);
+        Map<Long, RemotePresence> result = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+        try {
+            List<Object> hashes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Long userId : ids) {
+                    connection.hashCommands().hGetAll((PRESENCE_KEY_PREFIX + userId).getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+            for (int i = 0; i < ids.size(); i++) {
+                Map<String, String> fields = (Map<String, String>) hashes.get(i);
+                if (fields != null && !fields.isEmpty()) {
+                    result.put(ids.get(i), otherNodes(fields));
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error reading cluster presence of {} users", ids.size(), e);
+        }
+        return result;
+    }
+
+    // Estado combinado de los nodos vivos distintos de este
+    private RemotePresence otherNodes(Map<String, String> fields) {
+        String ownField = NODE_FIELD_PREFIX + messageRelay.getNodeId();
+        PresenceStatus status = PresenceStatus.OFFLINE;
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            String name = field.getKey();
+            if (!name.startsWith(NODE_FIELD_PREFIX) || name.equals(ownField)
+                    || !messageRelay.isLive(name.substring(NODE_FIELD_PREFIX.length()))) {
+                continue;
+            }
+            String value = field.getValue();
+            status = status.combine(PresenceStatus.valueOf(value.substring(value.indexOf(':') + 1)));
+        }
+        String lastSeen = fields.get(LAST_SEEN_FIELD);
+        return new RemotePresence(status, lastSeen != null ? Long.valueOf(lastSeen) : null);
+    }
+}
@@ -0,0 +1,424 @@
+package com.skillswap.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skillswap.backend.dto.ChatMessageDTO;
+import com.skillswap.backend.model.ChatChangeLog;
+import com.skillswap.backend.model.ChatMessage;
+import com.skillswap.backend.model.SystemBroadcast;
+import com.skillswap.backend.model.User;
+import com.skillswap.backend.monitoring.ChatMetricsService;
+import com.skillswap.backend.repository.SystemBroadcastRepository;
+import com.skillswap.backend.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Difusión masiva de mensajes del sistema.
+ * Recorre el segmento de usuarios por bloques (paginación por id), inserta los mensajes de
+ * cada bloque con un batch JDBC en la misma transacción que avanza el checkpoint y después
+ * los notifica por el broker en oleadas con límite de mensajes por segundo. Si el nodo cae,
+ * otro nodo la reanuda desde el último bloque confirmado en su siguiente escaneo periódico.
+ */
+@Service
+public class SystemBroadcastService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SystemBroadcastService.class);
+
+    private static final String INSERT_MESSAGE_SQL =
+            "INSERT INTO chat_message (sender_id, receiver_id, content, message_type, is_read, sent_at, is_edited) " +
+            "VALUES (?, ?, ?, ?, false, ?, false)";
+
+    private static final String INSERT_CHANGE_SQL =
+            "INSERT INTO chat_change_log (user_id, sequence, change_type, message_id, counterpart_id, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private SystemBroadcastRepository broadcastRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ClusterMessageRelay messageRelay;
+
+    @Autowired
+    private ChatSyncService chatSyncService;
+
+    @Autowired
+    private ChatMetricsService chatMetricsService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${skillswap.chat.system-sender-id:#{null}}")
+    private Long systemSenderId;
+
+    @Value("${skillswap.chat.broadcast.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${skillswap.chat.broadcast.messages-per-second:5000}")
+    private int messagesPerSecond;
+
+    @Value("${skillswap.chat.broadcast.stale-after-minutes:5}")
+    private int staleAfterMinutes;
+
+    // Una difusión a la vez por nodo: el límite de ritmo es global para el broker local
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "system-broadcast");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Difusiones encoladas o en curso en este nodo: el escaneo periódico no las vuelve a encolar
+    private final Set<Long> scheduled = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Crear una difusión para una lista de ids o un segmento por filtros y lanzarla en segundo plano
+     */
+    public Map<String, Object> createBroadcast(String content, BroadcastSegment segment, Long createdBy) {
+        if (systemSenderId == null) {
+            throw new RuntimeException("System sender not configured (skillswap.chat.system-sender-id)");
+        }
+        if (content == null || content.isBlank()) {
+            throw new RuntimeException("Broadcast content cannot be empty");
+        }
+
+        String segmentJson;
+        try {
+            segmentJson = objectMapper.writeValueAsString(segment);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Invalid broadcast segment", e);
+        }
+
+        SystemBroadcast broadcast = broadcastRepository.save(new SystemBroadcast(content, segmentJson, createdBy));
+        logger.info("System broadcast {} created by user {}", broadcast.getId(), createdBy);
+
+        submit(broadcast.getId());
+        return getProgress(broadcast.getId());
+    }
+
+    /**
+     * Progreso de una difusión
+     */
+    public Map<String, Object> getProgress(Long broadcastId) {
+        SystemBroadcast broadcast = broadcastRepository.findById(broadcastId)
+                .orElseThrow(() -> new RuntimeException("Broadcast not found: " + broadcastId));
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("id", broadcast.getId());
+        progress.put("status", broadcast.getStatus());
+        progress.put("deliveredCount", broadcast.getDeliveredCount());
+        progress.put("lastUserId", broadcast.getLastUserId());
+        progress.put("createdAt", broadcast.getCreatedAt());
+        progress.put("completedAt", broadcast.getCompletedAt());
+        progress.put("errorMessage", broadcast.getErrorMessage());
+        return progress;
+    }
+
+    /**
+     * Reanudar difusiones pendientes o abandonadas por un nodo caído, al arrancar y periódicamente
+     * mientras el nodo sigue vivo
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${skillswap.chat.broadcast.resume-interval-ms:60000}",
+               fixedDelayString = "${skillswap.chat.broadcast.resume-interval-ms:60000}")
+    public void resumePendingBroadcasts() {
+        try {
+            List<Long> ids = broadcastRepository.findResumableIds(LocalDateTime.now().minusMinutes(staleAfterMinutes));
+            for (Long id : ids) {
+                if (submit(id)) {
+                    logger.info("Resuming system broadcast {}", id);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error resuming system broadcasts", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private boolean submit(Long broadcastId) {
+        if (!scheduled.add(broadcastId)) {
+            return false;
+        }
+        try {
+            executor.submit(() -> {
+                try {
+                    run(broadcastId);
+                } finally {
+                    scheduled.remove(broadcastId);
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            scheduled.remove(broadcastId);
+            throw e;
+        }
+    }
+
+    private void run(Long broadcastId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status ->
+                broadcastRepository.claim(broadcastId, now, now.minusMinutes(staleAfterMinutes)));
+        if (claimed == null || claimed == 0) {
+            logger.debug("System broadcast {} already claimed or finished", broadcastId);
+            return;
+        }
+
+        try {
+            SystemBroadcast broadcast = broadcastRepository.findById(broadcastId).orElseThrow();
+            BroadcastSegment segment = objectMapper.readValue(broadcast.getSegment(), BroadcastSegment.class);
+            long lastUserId = broadcast.getLastUserId();
+            TreeSet<Long> explicitIds = segment.getUserIds() != null && !segment.getUserIds().isEmpty()
+                    ? new TreeSet<>(segment.getUserIds()) : null;
+
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Long> recipients = nextRecipients(segment, explicitIds, lastUserId);
+                if (recipients.isEmpty()) {
+                    break;
+                }
+                long chunkLastUserId = recipients.get(recipients.size() - 1);
+                LocalDateTime sentAt = LocalDateTime.now();
+
+                // Mensajes, registro de cambios (con la secuencia reservada a cada destinatario) y checkpoint
+                // se confirman juntos; si el checkpoint ya no es el nuestro, el bloque se deshace entero
+                long afterUserId = lastUserId;
+                List<Long> messageIds = transactionTemplate.execute(status -> {
+                    List<Long> ids = insertMessages(broadcast.getContent(), recipients, sentAt);
+                    insertChangeLog(recipients, ids, sentAt);
+                    if (broadcastRepository.advanceCheckpoint(broadcastId, afterUserId, chunkLastUserId,
+                            recipients.size(), LocalDateTime.now()) == 0) {
+                        throw new CheckpointLostException();
+                    }
+                    return ids;
+                });
+
+                fanOut(broadcast.getContent(), recipients, messageIds, sentAt);
+                lastUserId = chunkLastUserId;
+            }
+
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            long finalUserId = lastUserId;
+            Integer completed = transactionTemplate.execute(status ->
+                    broadcastRepository.complete(broadcastId, finalUserId, LocalDateTime.now()));
+            if (completed == null || completed == 0) {
+                throw new CheckpointLostException();
+            }
+            logger.info("System broadcast {} completed", broadcastId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("System broadcast {} interrupted, it will resume from its checkpoint", broadcastId);
+        } catch (CheckpointLostException e) {
+            // Otro nodo la reclamó por heartbeat vencido y la sigue él: ni fallo ni reintento aquí
+            logger.warn("System broadcast {} was taken over by another node, stopping here", broadcastId);
+        } catch (Exception e) {
+            logger.error("System broadcast {} failed", broadcastId, e);
+            transactionTemplate.executeWithoutResult(status -> broadcastRepository.findById(broadcastId).ifPresent(failed -> {
+                failed.setStatus(SystemBroadcast.BroadcastStatus.FAILED);
+                failed.setErrorMessage(e.getMessage() != null && e.getMessage().length() > 500
+                        ? e.getMessage().substring(0, 500) : e.getMessage());
+                broadcastRepository.save(failed);
+            }));
+        }
+    }
+
+    private List<Long> nextRecipients(BroadcastSegment segment, TreeSet<Long> explicitIds, long afterUserId) {
+        if (explicitIds == null) {
+            return userRepository.findSegmentUserIds(afterUserId, segment.getUserType(), segment.getCountry(),
+                    segment.getLanguage(), segment.isPremiumOnly(), segment.getActiveSince(), PageRequest.of(0, chunkSize));
+        }
+
+        long cursor = afterUserId;
+        while (true) {
+            List<Long> candidates = new ArrayList<>(chunkSize);
+            for (Long userId : explicitIds.tailSet(cursor, false)) {
+                candidates.add(userId);
+                if (candidates.size() == chunkSize) {
+                    break;
+                }
+            }
+            if (candidates.isEmpty()) {
+                return candidates;
+            }
+            List<Long> active = userRepository.findActiveIdsIn(candidates);
+            if (!active.isEmpty()) {
+                return active;
+            }
+            // Ningún id del bloque está activo: seguir con el siguiente
+            cursor = candidates.get(candidates.size() - 1);
+        }
+    }
+
+    private List<Long> insertMessages(String content, List<Long> recipients, LocalDateTime sentAt) {
+        return jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            List<Long> ids = new ArrayList<>(recipients.size());
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_MESSAGE_SQL, new String[]{"id"})) {
+                Timestamp timestamp = Timestamp.valueOf(sentAt);
+                for (Long receiverId : recipients) {
+                    statement.setLong(1, systemSenderId);
+                    statement.setLong(2, receiverId);
+                    statement.setString(3, content);
+                    statement.setString(4, ChatMessage.MessageType.SYSTEM.name());
+                    statement.setTimestamp(5, timestamp);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getLong(1));
+                    }
+                }
+            }
+            if (ids.size() != recipients.size()) {
+                throw new IllegalStateException("Expected " + recipients.size() + " generated ids, got " + ids.size());
+            }
+            return ids;
+        });
+    }
+
+    private void insertChangeLog(List<Long> recipients, List<Long> messageIds, LocalDateTime sentAt) {
+        Timestamp timestamp = Timestamp.valueOf(sentAt);
+        Map<Long, Long> sequences = chatSyncService.reserveNextSequences(recipients);
+        List<Object[]> rows = new ArrayList<>(recipients.size());
+        for (int i = 0; i < recipients.size(); i++) {
+            rows.add(new Object[]{recipients.get(i), sequences.get(recipients.get(i)), ChatChangeLog.ChangeType.MESSAGE_CREATED.name(),
+                    messageIds.get(i), systemSenderId, timestamp});
+        }
+        jdbcTemplate.batchUpdate(INSERT_CHANGE_SQL, rows);
+    }
+
+    /**
+     * Notificar el bloque ya confirmado respetando el ritmo máximo configurado
+     */
+    private void fanOut(String content, List<Long> recipients, List<Long> messageIds, LocalDateTime sentAt)
+            throws InterruptedException {
+        long waveStart = System.nanoTime();
+        for (int i = 0; i < recipients.size(); i++) {
+            ChatMessageDTO message = new ChatMessageDTO();
+            message.setId(messageIds.get(i));
+            message.setSenderId(systemSenderId);
+            message.setReceiverId(recipients.get(i));
+            message.setContent(content);
+            message.setMessageType(ChatMessage.MessageType.SYSTEM);
+            message.setIsRead(false);
+            message.setIsEdited(false);
+            message.setSentAt(sentAt);
+
+            messageRelay.convertAndSendToUser(recipients.get(i).toString(), "/queue/messages", message);
+            chatMetricsService.recordMessageSent(null, recipients.get(i), System.currentTimeMillis());
+        }
+
+        long minWaveNanos = TimeUnit.SECONDS.toNanos(recipients.size()) / Math.max(messagesPerSecond, 1);
+        long remaining = minWaveNanos - (System.nanoTime() - waveStart);
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    /**
+     * Segmento de destinatarios: lista explícita de ids o filtros sobre usuarios activos
+     */
+    public static class BroadcastSegment {
+        private List<Long> userIds;
+        private User.UserType userType;
+        private String country;
+        private String language;
+        private boolean premiumOnly;
+        private LocalDateTime activeSince;
+
+        public List<Long> getUserIds() {
+            return userIds;
+        }
+
+        public void setUserIds(List<Long> userIds) {
+            this.userIds = userIds;
+        }
+
+        public User.UserType getUserType() {
+            return userType;
+        }
+
+        public void setUserType(User.UserType userType) {
+            this.userType = userType;
+        }
+
+        public String getCountry() {
+            return country;
+        }
+
+        public void setCountry(String country) {
+            this.country = country;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        public void setLanguage(String language) {
+            this.language = language;
+        }
+
+        public boolean isPremiumOnly() {
+            return premiumOnly;
+        }
+
+        public void setPremiumOnly(boolean premiumOnly) {
+            this.premiumOnly = premiumOnly;
+        }
+
+        public LocalDateTime getActiveSince() {
+            return activeSince;
+        }
+
+        public void setActiveSince(LocalDateTime activeSince) {
+            this.activeSince = activeSince;
+        }
+    }
+
+    // El checkpoint avanzó o se cerró desde otro nodo mientras este procesaba el bloque
+    private static class CheckpointLostException extends RuntimeException {
+        CheckpointLostException() {
+            super("Broadcast checkpoint moved by another node");
+        }
+    }
+}
@@ -10,7 +10,6 @@ import com.skillswap.backend.repository.SkillMatchRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -33,7 +32,13 @@ public class VideoSessionService {
     private SkillMatchRepository skillMatchRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ClusterMessageRelay messageRelay;
+
+    @Autowired
+    private CreditHoldService creditHoldService;
+
+    @Autowired
+    private CreditSettlementService creditSettlementService;
 
     // Crear nueva sesión de video
     public VideoSessionDTO createVideoSession(Long skillMatchId, Long initiatorId, Long participantId,
@@ -84,6 +89,9 @@ public class VideoSessionService {
         videoSession.setStatus(VideoSession.SessionStatus.ACCEPTED);
         videoSession = videoSessionRepository.save(videoSession);
 
+        // Reservar los créditos del aprendiz; sin disponible suficiente la sesión no se acepta
+        creditHoldService.placeHold(videoSession);
+
         // Notificar al iniciador
         notifyVideoSessionAccepted(videoSession.getInitiator(), videoSession);
 
@@ -101,6 +109,7 @@ public class VideoSessionService {
 
         videoSession.setStatus(VideoSession.SessionStatus.REJECTED);
         videoSession = videoSessionRepository.save(videoSession);
+        creditHoldService.release(videoSession);
 
         // Notificar al iniciador
         notifyVideoSessionRejected(videoSession.getInitiator(), videoSession);
@@ -146,6 +155,9 @@ public class VideoSessionService {
         videoSession.endSession();
         videoSession = videoSessionRepository.save(videoSession);
 
+        // Liquidar la sesión en un solo lote: ganancia, gasto contra la reserva y bonos
+        creditSettlementService.settleVideoSession(videoSession);
+
         // Notificar finalización
         notifyVideoSessionEnded(videoSession);
 
@@ -167,6 +179,7 @@ public class VideoSessionService {
 
         videoSession.cancelSession();
         videoSession = videoSessionRepository.save(videoSession);
+        creditHoldService.release(videoSession);
 
         // Notificar cancelación
         User otherUser = videoSession.getOtherParticipant(userRepository.findById(userId).orElse(null));
@@ -266,7 +279,7 @@ public class VideoSessionService {
 
     // Métodos de notificación WebSocket
     private void notifyVideoSessionInvitation(User participant, VideoSession videoSession) {
-        messagingTemplate.convertAndSendToUser(
+        messageRelay.convertAndSendToUser(
             participant.getEmail(),
             "/queue/video-session-invitation",
             new VideoSessionDTO(videoSession)
@@ -274,7 +287,7 @@ public class VideoSessionService {
     }
 
     private void notifyVideoSessionAccepted(User initiator, VideoSession videoSession) {
-        messagingTemplate.convertAndSendToUser(
+        messageRelay.convertAndSendToUser(
             initiator.getEmail(),
             "/queue/video-session-accepted",
             new VideoSessionDTO(videoSession)
@@ -282,7 +295,7 @@ public class VideoSessionService {
     }
 
     private void notifyVideoSessionRejected(User initiator, VideoSession videoSession) {
-        messagingTemplate.convertAndSendToUser(
+        messageRelay.convertAndSendToUser(
             initiator.getEmail(),
             "/queue/video-session-rejected",
             new VideoSessionDTO(videoSession)
@@ -292,13 +305,13 @@ public class VideoSessionService {
     private void notifyVideoSessionStarted(VideoSession videoSession) {
         VideoSessionDTO dto = new VideoSessionDTO(videoSession);
         
-        messagingTemplate.convertAndSendToUser(
+        messageRelay.convertAndSendToUser(
             videoSession.getInitiator().getEmail(),
             "/queue/video-session-started",
             dto
         );
         
-        messagingTemplate.convertAndSendToUser(
+        messageRelay.convertAndSendToUser(
             videoSession.getParticipant().getEmail(),
             "/queue/video-session-started",
             dto
@@ -308,13 +321,13 @@ public class VideoSessionService {
     private void notifyVideoSessionEnded(VideoSession videoSession) {
         VideoSessionDTO dto = new VideoSessionDTO(videoSession);
         
-        messagingTemplate.convertAndSendToUser(
+        messageRelay.convertAndSendToUser(
             videoSession.getInitiator().getEmail(),
             "/queue/video-session-ended",
             dto
         );
         
-        messagingTemplate.convertAndSendToUser(
+        messageRelay.convertAndSendToUser(
             videoSession.getParticipant().getEmail(),
             "/queue/video-session-ended",
             dto
@@ -322,7 +335,7 @@ public class VideoSessionService {
     }
 
     private void notifyVideoSessionCancelled(User user, VideoSession videoSession) {
-        messagingTemplate.convertAndSendToUser(
+        messageRelay.convertAndSendToUser(
             user.getEmail(),
             "/queue/video-session-cancelled",
             new VideoSessionDTO(videoSession)
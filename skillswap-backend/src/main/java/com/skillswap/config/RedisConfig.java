@@ -1,6 +1,7 @@
 package com.skillswap.config;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -8,12 +9,13 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
  * Redis Configuration for SkillSwap Backend
- * Handles caching and session management
+ * Handles caching, session management and cluster messaging
  * 
  * @author SkillSwap Team
  */
@@ -60,4 +62,16 @@ public class RedisConfig {
         
         return template;
     }
+
+    /**
+     * Listener container for cluster fan-out over Redis pub/sub
+     * Only needed when the Redis message relay is enabled
+     */
+    @Bean
+    @ConditionalOnProperty(name = "skillswap.cluster.relay", havingValue = "redis")
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
 }
@@ -0,0 +1,131 @@
+package com.skillswap.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.skillswap.backend.dto.ChatMessageDTO;
+import com.skillswap.backend.model.ChatMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmark of the outbound chat frame codecs: plain JSON (before) vs the compact CBOR path (after)
+ * The JSON frame is serialized once per send by the template or the cluster relay; every compact session
+ * then pays encodeCompact on top of it (JSON parse, field removal, CBOR encode). directCbor is the cost of
+ * encoding the DTO as CBOR without the JSON round trip, for reference.
+ *
+ * Frame sizes (bytes on the wire per codec) are printed before the run; CPU and allocation per frame
+ * come from JMH with the GC profiler (gc.alloc.rate.norm, bytes/op):
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.skillswap.backend.config.CompactCodecBenchmark
+ * Extra JMH options are passed through, e.g. "-p contentLength=2000 -f 2".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompactCodecBenchmark {
+
+    @Param({"40", "400"})
+    private int contentLength;
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper cborMapper;
+    private CompactCodecInterceptor codec;
+    private ChatMessageDTO message;
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = jsonMapper();
+        cborMapper = new CBORMapper().registerModule(new JavaTimeModule());
+        codec = new CompactCodecInterceptor(new SimpleMeterRegistry(), objectMapper);
+        message = sampleMessage(contentLength);
+        json = objectMapper.writeValueAsBytes(message);
+    }
+
+    // JSON path: one serialization per send, shared by every session
+    @Benchmark
+    public byte[] jsonFrame() throws IOException {
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    // Compact path for one session: the shared JSON serialization plus its re-encoding
+    @Benchmark
+    public byte[] compactFrame() throws IOException {
+        return codec.encodeCompact(objectMapper.writeValueAsBytes(message));
+    }
+
+    // Extra cost per compact session once the JSON frame exists
+    @Benchmark
+    public byte[] compactReencode() throws IOException {
+        return codec.encodeCompact(json);
+    }
+
+    @Benchmark
+    public byte[] directCbor() throws IOException {
+        return cborMapper.writeValueAsBytes(message);
+    }
+
+    // Same JSON configuration as the application's ObjectMapper (ISO dates)
+    private static ObjectMapper jsonMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    private static ChatMessageDTO sampleMessage(int contentLength) {
+        ChatMessageDTO dto = new ChatMessageDTO();
+        dto.setId(987_654L);
+        dto.setSenderId(12_345L);
+        dto.setSenderName("María Fernanda González");
+        dto.setSenderAvatar("https://cdn.skillswap.com/avatars/12345/profile-640x640.jpg");
+        dto.setReceiverId(67_890L);
+        dto.setReceiverName("Juan Pablo Martínez");
+        dto.setSkillMatchId(4_321L);
+        dto.setContent("x".repeat(contentLength));
+        dto.setMessageType(ChatMessage.MessageType.TEXT);
+        dto.setIsRead(false);
+        dto.setIsEdited(false);
+        dto.setSentAt(LocalDateTime.of(2024, 5, 17, 10, 30, 15));
+        return dto;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ObjectMapper objectMapper = jsonMapper();
+        CompactCodecInterceptor codec = new CompactCodecInterceptor(new SimpleMeterRegistry(), objectMapper);
+        for (int contentLength : new int[]{40, 400}) {
+            byte[] json = objectMapper.writeValueAsBytes(sampleMessage(contentLength));
+            byte[] cbor = codec.encodeCompact(json);
+            System.out.printf("contentLength=%d: json=%d bytes, cbor=%d bytes (%.0f%%)%n",
+                    contentLength, json.length, cbor.length, cbor.length * 100.0 / json.length);
+        }
+
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(CompactCodecBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,474 @@
+package com.skillswap.backend.performance;
+
+import com.skillswap.backend.config.CborMessageConverter;
+import com.skillswap.backend.config.CompactCodecInterceptor;
+import com.skillswap.backend.config.OutboundBackpressureInterceptor;
+import com.skillswap.backend.config.PresenceChannelInterceptor;
+import com.skillswap.backend.config.WebSocketConfig;
+import com.skillswap.backend.controller.ChatWebSocketController;
+import com.skillswap.backend.dto.ChatMessageDTO;
+import com.skillswap.backend.service.ChatService;
+import com.skillswap.backend.service.ClusterMessageRelay;
+import com.skillswap.backend.service.LocalClusterMessageRelay;
+import com.skillswap.backend.service.PresenceService;
+import com.skillswap.backend.service.ReadReceiptAggregator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketMessagingAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.lang.reflect.Type;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Load tests for the WebSocket chat
+ * Drives simulated STOMP clients against an embedded server running the real broker configuration
+ * (interceptors, codec, backpressure, ChatWebSocketController) and reports end-to-end delivery latency.
+ *
+ * Persistence is replaced by an in-memory ChatService that relays like the real one, so the numbers
+ * isolate the messaging path. Scale it from the command line, e.g.
+ * mvn test -Dtest=ChatLoadTest -Dskillswap.load.clients=5000 -Dskillswap.load.duration-seconds=60
+ */
+@SpringBootTest(
+        classes = ChatLoadTest.LoadTestServer.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        // Keeps the dev profile's DEBUG web logging and per-message INFO logs out of the measurement
+        properties = {"spring.profiles.active=load-test", "logging.level.[com.skillswap]=WARN", "logging.file.name="})
+@DisplayName("SkillSwap Chat Load Tests")
+class ChatLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("skillswap.load.clients", 200);
+    private static final int WARMUP_SECONDS = Integer.getInteger("skillswap.load.warmup-seconds", 2);
+    private static final int DURATION_SECONDS = Integer.getInteger("skillswap.load.duration-seconds", 10);
+    private static final double ACTIONS_PER_CLIENT_PER_SECOND =
+            Double.parseDouble(System.getProperty("skillswap.load.rate", "1"));
+    private static final String MIX = System.getProperty("skillswap.load.mix", "send=70,typing=20,read=10");
+    private static final String CODEC = System.getProperty("skillswap.load.codec", "json");
+    private static final long MAX_P99_MS = Long.getLong("skillswap.load.max-p99-ms", 1000);
+
+    private static final String CONTENT_PREFIX = "load:";
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${server.servlet.context-path:}")
+    private String contextPath;
+
+    @Autowired
+    private ClusterMessageRelay messageRelay;
+
+    @Autowired
+    private SimpUserRegistry userRegistry;
+
+    @MockBean
+    private ChatService chatService;
+
+    @MockBean
+    private PresenceService presenceService;
+
+    @MockBean
+    private ReadReceiptAggregator readReceiptAggregator;
+
+    private final AtomicLong messageIds = new AtomicLong();
+    private final Recorder deliveryLatency = new Recorder(MAX_LATENCY_MICROS, 3);
+
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong messagesDelivered = new AtomicLong();
+    private final AtomicLong sendConfirmations = new AtomicLong();
+    private final AtomicLong typingSent = new AtomicLong();
+    private final AtomicLong readsSent = new AtomicLong();
+    private final AtomicLong readReceiptsDelivered = new AtomicLong();
+    private final AtomicLong clientErrors = new AtomicLong();
+    private final AtomicReference<Throwable> firstClientError = new AtomicReference<>();
+
+    private final List<LoadClient> clients = new ArrayList<>();
+    private WebSocketStompClient stompClient;
+    private ScheduledExecutorService pacer;
+
+    @BeforeEach
+    void setUp() {
+        // Same notifications ChatService sends after persisting a message
+        when(chatService.sendMessage(anyLong(), anyLong(), anyString(), any(), any())).thenAnswer(invocation -> {
+            ChatMessageDTO message = new ChatMessageDTO();
+            message.setId(messageIds.incrementAndGet());
+            message.setSenderId(invocation.getArgument(0));
+            message.setReceiverId(invocation.getArgument(1));
+            message.setContent(invocation.getArgument(2));
+            message.setMessageType(invocation.getArgument(3));
+            message.setIsRead(false);
+            messageRelay.convertAndSendToUser(message.getReceiverId().toString(), "/queue/messages", message);
+            messageRelay.convertAndSendToUser(message.getSenderId().toString(), "/queue/message-sent", message);
+            return message;
+        });
+
+        // Read receipts go straight to the sender instead of waiting for the aggregation window
+        doAnswer(invocation -> {
+            Long senderId = invocation.getArgument(0);
+            Long receiverId = invocation.getArgument(1);
+            messageRelay.convertAndSendToUser(senderId.toString(), "/queue/read-receipts",
+                    Map.of("readerId", receiverId, "timestamp", System.currentTimeMillis()));
+            return null;
+        }).when(readReceiptAggregator).markAsRead(any(), any(), any());
+
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new CompositeMessageConverter(
+                List.of(new CborMessageConverter(), new MappingJackson2MessageConverter())));
+        pacer = Executors.newScheduledThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pacer.shutdownNow();
+        for (LoadClient client : clients) {
+            if (client.session != null && client.session.isConnected()) {
+                client.session.disconnect();
+            }
+        }
+        stompClient.stop();
+        pacer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Load Test - Simulated STOMP Clients")
+    void loadTestSimulatedStompClients() throws Exception {
+        ActionMix mix = ActionMix.parse(MIX);
+
+        // Connect every client and wait until all subscriptions are registered with the broker
+        long connectStart = System.nanoTime();
+        List<CompletableFuture<StompSession>> connections = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            LoadClient client = new LoadClient(i + 1, (i + 1) % CLIENTS + 1);
+            clients.add(client);
+            connections.add(client.connect());
+        }
+        CompletableFuture.allOf(connections.toArray(new CompletableFuture[0])).get(2, TimeUnit.MINUTES);
+        awaitSubscriptions();
+        long connectMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStart);
+
+        // Each client acts at a fixed rate, starting at a random offset so the load is spread out
+        long periodMicros = Math.max(1, (long) (1_000_000 / ACTIONS_PER_CLIENT_PER_SECOND));
+        List<ScheduledFuture<?>> schedules = new ArrayList<>(CLIENTS);
+        for (LoadClient client : clients) {
+            long offset = ThreadLocalRandom.current().nextLong(periodMicros);
+            schedules.add(pacer.scheduleAtFixedRate(() -> client.act(mix), offset, periodMicros, TimeUnit.MICROSECONDS));
+        }
+
+        TimeUnit.SECONDS.sleep(WARMUP_SECONDS);
+        deliveryLatency.reset();
+        long deliveredBeforeRun = messagesDelivered.get();
+        long sentBeforeRun = messagesSent.get();
+
+        long runStart = System.nanoTime();
+        TimeUnit.SECONDS.sleep(DURATION_SECONDS);
+        schedules.forEach(schedule -> schedule.cancel(false));
+        double runSeconds = (System.nanoTime() - runStart) / 1_000_000_000.0;
+        long sentInRun = messagesSent.get() - sentBeforeRun;
+        long deliveredInRun = messagesDelivered.get() - deliveredBeforeRun;
+
+        // Drain: every message sent must reach its receiver
+        long drainDeadline = System.currentTimeMillis() + 10_000;
+        while (messagesDelivered.get() < messagesSent.get() && System.currentTimeMillis() < drainDeadline) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        Histogram latency = deliveryLatency.getIntervalHistogram();
+
+        System.out.printf("Chat load test: %d clients, %.1f actions/client/s, mix %s, codec %s%n",
+                CLIENTS, ACTIONS_PER_CLIENT_PER_SECOND, MIX, CODEC);
+        System.out.printf("- Connected and subscribed in %d ms%n", connectMillis);
+        System.out.printf("- Sent: %d messages, %d typing, %d read%n",
+                messagesSent.get(), typingSent.get(), readsSent.get());
+        System.out.printf("- Delivered: %d messages, %d confirmations, %d read receipts%n",
+                messagesDelivered.get(), sendConfirmations.get(), readReceiptsDelivered.get());
+        System.out.printf("- Sustained throughput (single node): %.0f msgs/s sent, %.0f msgs/s delivered%n",
+                sentInRun / runSeconds, deliveredInRun / runSeconds);
+        System.out.printf("- Delivery latency: p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms (%d samples)%n",
+                millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(99)),
+                millis(latency.getValueAtPercentile(99.9)), millis(latency.getMaxValue()),
+                latency.getTotalCount());
+
+        assertThat(clientErrors.get())
+            .describedAs("STOMP clients should not see transport or protocol errors, first: %s", firstClientError.get())
+            .isZero();
+
+        assertThat(messagesDelivered.get())
+            .describedAs("Every message sent should be delivered to its receiver")
+            .isEqualTo(messagesSent.get());
+
+        assertThat(millis(latency.getValueAtPercentile(99)))
+            .describedAs("p99 delivery latency should be under %d ms", MAX_P99_MS)
+            .isLessThan(MAX_P99_MS);
+    }
+
+    private void awaitSubscriptions() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (System.currentTimeMillis() < deadline) {
+            int subscribed = userRegistry.findSubscriptions(
+                    subscription -> subscription.getDestination().endsWith("/queue/messages")).size();
+            if (subscribed >= CLIENTS) {
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+        fail("Not all load clients subscribed within 30 seconds");
+    }
+
+    private void recordError(Throwable error) {
+        clientErrors.incrementAndGet();
+        firstClientError.compareAndSet(null, error);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * One simulated user: a STOMP session that chats with a fixed partner
+     */
+    private class LoadClient extends StompSessionHandlerAdapter {
+        private final long userId;
+        private final long partnerId;
+        private volatile StompSession session;
+
+        LoadClient(long userId, long partnerId) {
+            this.userId = userId;
+            this.partnerId = partnerId;
+        }
+
+        CompletableFuture<StompSession> connect() {
+            String url = "ws://localhost:" + port + contextPath + "/ws-load?userId=" + userId;
+            StompHeaders connectHeaders = new StompHeaders();
+            if (CompactCodecInterceptor.CODEC_CBOR.equals(CODEC)) {
+                connectHeaders.add(CompactCodecInterceptor.CODEC_HEADER, CompactCodecInterceptor.CODEC_CBOR);
+            }
+            return stompClient.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders, this);
+        }
+
+        @Override
+        public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+            this.session = session;
+            session.subscribe("/user/queue/messages", new CountingHandler(payload -> {
+                messagesDelivered.incrementAndGet();
+                Object content = payload.get("content");
+                if (content != null && content.toString().startsWith(CONTENT_PREFIX)) {
+                    long sentAt = Long.parseLong(content.toString().substring(CONTENT_PREFIX.length()));
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt);
+                    deliveryLatency.recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+                }
+            }));
+            session.subscribe("/user/queue/message-sent", new CountingHandler(payload -> sendConfirmations.incrementAndGet()));
+            session.subscribe("/user/queue/read-receipts", new CountingHandler(payload -> readReceiptsDelivered.incrementAndGet()));
+        }
+
+        void act(ActionMix mix) {
+            StompSession current = session;
+            if (current == null || !current.isConnected()) {
+                return;
+            }
+            try {
+                switch (mix.next()) {
+                    case SEND -> {
+                        messagesSent.incrementAndGet();
+                        current.send("/app/chat.send", Map.of(
+                                "receiverId", partnerId,
+                                "content", CONTENT_PREFIX + System.nanoTime()));
+                    }
+                    case TYPING -> {
+                        typingSent.incrementAndGet();
+                        current.send("/app/chat.typing", Map.of("receiverId", partnerId, "isTyping", true));
+                    }
+                    case READ -> {
+                        readsSent.incrementAndGet();
+                        current.send("/app/chat.read", Map.of("senderId", partnerId));
+                    }
+                }
+            } catch (Exception e) {
+                recordError(e);
+            }
+        }
+
+        @Override
+        public void handleException(StompSession session, StompCommand command, StompHeaders headers,
+                                    byte[] payload, Throwable exception) {
+            recordError(exception);
+        }
+
+        @Override
+        public void handleTransportError(StompSession session, Throwable exception) {
+            recordError(exception);
+        }
+    }
+
+    private static class CountingHandler implements StompFrameHandler {
+        private final Consumer<Map<String, Object>> onFrame;
+
+        CountingHandler(Consumer<Map<String, Object>> onFrame) {
+            this.onFrame = onFrame;
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return Map.class;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void handleFrame(StompHeaders headers, Object payload) {
+            onFrame.accept((Map<String, Object>) payload);
+        }
+    }
+
+    private enum Action {
+        SEND, TYPING, READ
+    }
+
+    /**
+     * Weighted action mix, e.g. "send=70,typing=20,read=10"
+     */
+    private static class ActionMix {
+        private final Action[] actions;
+        private final int[] cumulativeWeights;
+
+        private ActionMix(Action[] actions, int[] cumulativeWeights) {
+            this.actions = actions;
+            this.cumulativeWeights = cumulativeWeights;
+        }
+
+        static ActionMix parse(String spec) {
+            String[] parts = spec.split(",");
+            Action[] actions = new Action[parts.length];
+            int[] weights = new int[parts.length];
+            int total = 0;
+            int i = 0;
+            for (String part : parts) {
+                String[] entry = part.trim().split("=");
+                actions[i] = Action.valueOf(entry[0].trim().toUpperCase());
+                total += Integer.parseInt(entry[1].trim());
+                weights[i++] = total;
+            }
+            if (total <= 0) {
+                throw new IllegalArgumentException("Action mix needs a positive total weight: " + spec);
+            }
+            return new ActionMix(actions, weights);
+        }
+
+        Action next() {
+            int roll = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (roll < cumulativeWeights[i]) {
+                    return actions[i];
+                }
+            }
+            return actions[actions.length - 1];
+        }
+    }
+
+    /**
+     * Embedded server with the production WebSocket stack and no database or security
+     */
+    @Configuration
+    @ImportAutoConfiguration({
+            ServletWebServerFactoryAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class,
+            WebSocketServletAutoConfiguration.class,
+            WebSocketMessagingAutoConfiguration.class,
+            JacksonAutoConfiguration.class
+    })
+    @Import({
+            WebSocketConfig.class,
+            PresenceChannelInterceptor.class,
+            CompactCodecInterceptor.class,
+            OutboundBackpressureInterceptor.class,
+            LocalClusterMessageRelay.class,
+            ChatWebSocketController.class,
+            LoadTestEndpoint.class
+    })
+    static class LoadTestServer {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    /**
+     * Extra STOMP endpoint whose principal comes from the userId query parameter,
+     * so simulated clients can connect without issuing JWTs
+     */
+    @Configuration
+    static class LoadTestEndpoint implements WebSocketMessageBrokerConfigurer {
+
+        @Override
+        public void registerStompEndpoints(StompEndpointRegistry registry) {
+            registry.addEndpoint("/ws-load")
+                    .setAllowedOriginPatterns("*")
+                    .setHandshakeHandler(new DefaultHandshakeHandler() {
+                        @Override
+                        protected Principal determineUser(ServerHttpRequest request, WebSocketHandler wsHandler,
+                                                          Map<String, Object> attributes) {
+                            String userId = UriComponentsBuilder.fromUri(request.getURI()).build()
+                                    .getQueryParams().getFirst("userId");
+                            return userId != null ? new LoadTestPrincipal(userId) : null;
+                        }
+                    });
+        }
+    }
+
+    private record LoadTestPrincipal(String name) implements Principal {
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
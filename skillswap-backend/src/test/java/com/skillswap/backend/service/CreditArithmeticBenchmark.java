@@ -0,0 +1,164 @@
+package com.skillswap.backend.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmark of the credit arithmetic hot path: BigDecimal (before) vs Credits (after)
+ * Each operation is one session-priced transfer as CreditService does it: price the session from its
+ * duration, check funds, debit and credit both balances and produce the before/after ledger values.
+ * The ledger benchmarks sum a user's history the way the aggregation code folds SUM rows.
+ *
+ * Run with the GC profiler so allocation (gc.alloc.rate.norm, bytes/op) is reported next to latency:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.skillswap.backend.service.CreditArithmeticBenchmark
+ * Extra JMH options are passed through, e.g. "-p accounts=10000 -f 2".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CreditArithmeticBenchmark {
+
+    private static final BigDecimal LEGACY_RATE_PER_HOUR = new BigDecimal("8.00");
+    private static final Credits RATE_PER_HOUR = Credits.of("8.00");
+
+    private static final int OPERATIONS = 1024;
+
+    @Param({"1000"})
+    private int accounts;
+
+    private BigDecimal[] legacyBalances;
+    private Credits[] balances;
+
+    private int[] from;
+    private int[] to;
+    private int[] durations;
+    private BigDecimal[] legacyLedger;
+    private Credits[] ledger;
+    private List<Credits> ledgerView;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        legacyBalances = new BigDecimal[accounts];
+        balances = new Credits[accounts];
+        for (int i = 0; i < accounts; i++) {
+            long hundredths = 10_000 + random.nextInt(100_000);
+            legacyBalances[i] = BigDecimal.valueOf(hundredths, 2);
+            balances[i] = Credits.ofHundredths(hundredths);
+        }
+
+        from = new int[OPERATIONS];
+        to = new int[OPERATIONS];
+        durations = new int[OPERATIONS];
+        legacyLedger = new BigDecimal[OPERATIONS];
+        ledger = new Credits[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            from[i] = random.nextInt(accounts);
+            to[i] = (from[i] + 1 + random.nextInt(accounts - 1)) % accounts;
+            durations[i] = 15 + random.nextInt(105);
+            long amount = random.nextInt(20_000) - 10_000;
+            legacyLedger[i] = BigDecimal.valueOf(amount, 2);
+            ledger[i] = Credits.ofHundredths(amount);
+        }
+        ledgerView = Arrays.asList(ledger);
+    }
+
+    @Benchmark
+    public void transferBigDecimal(Blackhole blackhole) {
+        int op = nextOperation();
+        BigDecimal hours = new BigDecimal(durations[op]).divide(new BigDecimal(60), 2, RoundingMode.HALF_UP);
+        BigDecimal amount = LEGACY_RATE_PER_HOUR.multiply(hours);
+
+        BigDecimal fromBalance = legacyBalances[from[op]];
+        if (fromBalance.compareTo(amount) < 0) {
+            blackhole.consume(fromBalance);
+            return;
+        }
+        BigDecimal fromAfter = fromBalance.add(amount.negate());
+        BigDecimal toBefore = legacyBalances[to[op]];
+        BigDecimal toAfter = toBefore.add(amount);
+        // Same derivation as processTransaction: before = after - amount
+        blackhole.consume(fromAfter.subtract(amount.negate()));
+        blackhole.consume(toAfter.subtract(amount));
+
+        legacyBalances[from[op]] = fromAfter;
+        legacyBalances[to[op]] = toAfter;
+    }
+
+    @Benchmark
+    public void transferCredits(Blackhole blackhole) {
+        int op = nextOperation();
+        Credits amount = RATE_PER_HOUR.perHour(durations[op]);
+
+        Credits fromBalance = balances[from[op]];
+        if (fromBalance.isLessThan(amount)) {
+            blackhole.consume(fromBalance);
+            return;
+        }
+        Credits fromAfter = fromBalance.plus(amount.negate());
+        Credits toBefore = balances[to[op]];
+        Credits toAfter = toBefore.plus(amount);
+        blackhole.consume(fromAfter.minus(amount.negate()));
+        blackhole.consume(toAfter.minus(amount));
+
+        balances[from[op]] = fromAfter;
+        balances[to[op]] = toAfter;
+    }
+
+    @Benchmark
+    public BigDecimal ledgerSumBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal amount : legacyLedger) {
+            total = total.add(amount);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Credits ledgerSumCredits() {
+        return Credits.sum(ledgerView);
+    }
+
+    private int nextOperation() {
+        int op = next;
+        next = (op + 1) & (OPERATIONS - 1);
+        return op;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(CreditArithmeticBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,448 @@
+package com.skillswap.backend.service;
+
+import com.skillswap.backend.model.CreditExpirationRun;
+import com.skillswap.backend.model.CreditTransaction;
+import com.skillswap.backend.model.User;
+import com.skillswap.backend.model.UserCredits;
+import com.skillswap.backend.repository.CreditBalanceSnapshotRepository;
+import com.skillswap.backend.repository.CreditEventRepository;
+import com.skillswap.backend.repository.CreditExpirationCheckpointRepository;
+import com.skillswap.backend.repository.CreditExpirationRunRepository;
+import com.skillswap.backend.repository.CreditLotRepository;
+import com.skillswap.backend.repository.CreditRollupRepository;
+import com.skillswap.backend.repository.CreditTransactionRepository;
+import com.skillswap.backend.repository.UserCreditsRepository;
+import com.skillswap.backend.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Concurrency tests for CreditService
+ * 64 writers hit the same balances at once; the ledger and user_credits must never lose an update
+ */
+@SpringBootTest(
+        classes = CreditServiceConcurrencyTest.CreditTestConfig.class,
+        properties = {
+                "spring.profiles.active=credit-test",
+                "spring.datasource.url=jdbc:h2:mem:credit-concurrency;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+                // A first movement seeds the missing balance row in its own transaction: up to two connections per writer
+                "spring.datasource.hikari.maximum-pool-size=" + 2 * CreditServiceConcurrencyTest.WRITERS,
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "skillswap.credits.expiration.chunk-size=5",
+                "skillswap.credits.expiration.workers=2",
+                "spring.jpa.show-sql=false",
+                "logging.level.[com.skillswap]=WARN",
+                "logging.level.[org.hibernate.SQL]=WARN",
+                "logging.level.[org.hibernate.type.descriptor.sql.BasicBinder]=WARN",
+                "logging.file.name="
+        })
+@DisplayName("SkillSwap Credit Concurrency Tests")
+class CreditServiceConcurrencyTest {
+
+    static final int WRITERS = 64;
+    private static final int OPERATIONS_PER_WRITER = 10;
+
+    @Autowired
+    private CreditService creditService;
+
+    @Autowired
+    private CreditExpirationService creditExpirationService;
+
+    @Autowired
+    private CreditLotService creditLotService;
+
+    @Autowired
+    private CreditTransactionRepository creditTransactionRepository;
+
+    @Autowired
+    private CreditLotRepository creditLotRepository;
+
+    @Autowired
+    private CreditExpirationRunRepository creditExpirationRunRepository;
+
+    @Autowired
+    private UserCreditsRepository userCreditsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    @DisplayName("Concurrent purchases on one user lose no updates")
+    void concurrentPurchasesLoseNoUpdates() throws Exception {
+        User user = createUser(BigDecimal.ZERO);
+
+        runWriters(writer -> {
+            for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+                creditService.purchaseCredits(user, BigDecimal.ONE, "pay-" + writer + "-" + i);
+            }
+            return null;
+        });
+
+        BigDecimal expected = BigDecimal.valueOf(WRITERS * OPERATIONS_PER_WRITER);
+        assertThat(materializedBalance(user)).isEqualByComparingTo(expected);
+        assertThat(ledgerBalance(user)).isEqualByComparingTo(expected);
+
+        // Each movement saw the previous one: balanceAfter values form an unbroken 1..N chain
+        List<BigDecimal> balancesAfter = creditTransactionRepository
+                .findByUserAndStatusOrderByCreatedAtAsc(user, CreditTransaction.TransactionStatus.COMPLETED)
+                .stream()
+                .map(CreditTransaction::getBalanceAfter)
+                .sorted()
+                .toList();
+        assertThat(balancesAfter).hasSize(WRITERS * OPERATIONS_PER_WRITER);
+        for (int i = 0; i < balancesAfter.size(); i++) {
+            assertThat(balancesAfter.get(i)).isEqualByComparingTo(BigDecimal.valueOf(i + 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent first movements on a user without a balance row seed it once")
+    void concurrentFirstMovementsSeedBalanceOnce() throws Exception {
+        User user = createLegacyUser(new BigDecimal("5.00"));
+        assertThat(userCreditsRepository.findCurrentBalanceByUserId(user.getId())).isEmpty();
+
+        runWriters(writer -> {
+            for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+                creditService.purchaseCredits(user, BigDecimal.ONE, "first-" + writer + "-" + i);
+            }
+            return null;
+        });
+
+        BigDecimal expected = BigDecimal.valueOf(5 + WRITERS * OPERATIONS_PER_WRITER);
+        assertThat(materializedBalance(user)).isEqualByComparingTo(expected);
+        assertThat(ledgerBalance(user)).isEqualByComparingTo(expected);
+    }
+
+    @Test
+    @DisplayName("Concurrent transfers from one user never double-spend")
+    void concurrentTransfersNeverDoubleSpend() throws Exception {
+        User payer = createUser(new BigDecimal("100.00"));
+        List<User> recipients = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            recipients.add(createUser(BigDecimal.ZERO));
+        }
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        runWriters(writer -> {
+            try {
+                creditService.transferCredits(payer, recipients.get(writer), new BigDecimal("10.00"), "stress");
+                succeeded.incrementAndGet();
+            } catch (RuntimeException e) {
+                rejected.incrementAndGet();
+            }
+            return null;
+        });
+
+        assertThat(succeeded.get()).isEqualTo(10);
+        assertThat(rejected.get()).isEqualTo(WRITERS - 10);
+        assertThat(materializedBalance(payer)).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(ledgerBalance(payer)).isEqualByComparingTo(BigDecimal.ZERO);
+
+        BigDecimal received = BigDecimal.ZERO;
+        for (User recipient : recipients) {
+            assertThat(materializedBalance(recipient)).isEqualByComparingTo(ledgerBalance(recipient));
+            received = received.add(materializedBalance(recipient));
+        }
+        assertThat(received).isEqualByComparingTo(new BigDecimal("100.00"));
+    }
+
+    @Test
+    @DisplayName("Opposite transfers between two users neither deadlock nor lose credits")
+    void oppositeTransfersConserveCredits() throws Exception {
+        User alice = createUser(new BigDecimal("1000.00"));
+        User bob = createUser(new BigDecimal("1000.00"));
+
+        runWriters(writer -> {
+            for (int i = 0; i < OPERATIONS_PER_WRITER; i++) {
+                if (writer % 2 == 0) {
+                    creditService.transferCredits(alice, bob, BigDecimal.ONE, "ping");
+                } else {
+                    creditService.transferCredits(bob, alice, BigDecimal.ONE, "pong");
+                }
+            }
+            return null;
+        });
+
+        // Same number of writers in each direction: both end where they started
+        assertThat(materializedBalance(alice)).isEqualByComparingTo("1000.00");
+        assertThat(materializedBalance(bob)).isEqualByComparingTo("1000.00");
+        assertThat(ledgerBalance(alice)).isEqualByComparingTo("1000.00");
+        assertThat(ledgerBalance(bob)).isEqualByComparingTo("1000.00");
+    }
+
+    @Test
+    @DisplayName("Writers on unrelated users run in parallel")
+    void unrelatedUsersProceedInParallel() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            users.add(createUser(BigDecimal.ZERO));
+        }
+
+        // Each writer holds its own user's row lock until every writer has locked its own;
+        // with any shared lock the barrier would never open
+        CountDownLatch allLocked = new CountDownLatch(WRITERS);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        runWriters(writer -> transactionTemplate.execute(status -> {
+            creditService.purchaseCredits(users.get(writer), BigDecimal.TEN, "parallel-" + writer);
+            allLocked.countDown();
+            try {
+                assertThat(allLocked.await(30, TimeUnit.SECONDS))
+                        .describedAs("All writers should hold their locks at the same time")
+                        .isTrue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            return null;
+        }));
+
+        for (User user : users) {
+            assertThat(materializedBalance(user)).isEqualByComparingTo(BigDecimal.TEN);
+        }
+    }
+
+    @Test
+    @DisplayName("Expiration racing with reservations never takes reserved credits")
+    void expirationKeepsReservedCredits() throws Exception {
+        Credits hold = Credits.of("6.00");
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            users.add(createUserWithExpiredLot(new BigDecimal("10.00")));
+        }
+        // Half the users reserve before the run starts, the other half while it runs
+        for (int i = 0; i < WRITERS; i += 2) {
+            assertThat(reserve(users.get(i), hold)).isTrue();
+        }
+
+        runWriters(writer -> {
+            if (writer == 0) {
+                creditExpirationService.processExpiredCredits();
+            }
+            if (writer % 2 == 1) {
+                reserve(users.get(writer), hold);
+            }
+            return null;
+        });
+        awaitExpirationRun();
+
+        for (int i = 0; i < WRITERS; i++) {
+            User user = users.get(i);
+            BigDecimal reserved = reservedCredits(user);
+            if (i % 2 == 0) {
+                assertThat(reserved).isEqualByComparingTo("6.00");
+            }
+            // Whatever the interleaving: only the unreserved credits expired, the reserved part stays in its lot
+            assertThat(materializedBalance(user)).isEqualByComparingTo(reserved);
+            assertThat(lotsRemaining(user)).isEqualByComparingTo(reserved);
+            assertThat(ledgerBalance(user)).isEqualByComparingTo(reserved);
+        }
+    }
+
+    private void runWriters(WriterTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> futures = new ArrayList<>();
+        try {
+            for (int writer = 0; writer < WRITERS; writer++) {
+                int id = writer;
+                Callable<Object> callable = () -> {
+                    start.await();
+                    return task.run(id);
+                };
+                futures.add(executor.submit(callable));
+            }
+            start.countDown();
+            for (Future<Object> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private User createUser(BigDecimal initialBalance) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        User user = transactionTemplate.execute(status -> {
+            User created = new User();
+            created.setEmail(UUID.randomUUID() + "@skillswap.test");
+            created.setPasswordHash("hash");
+            created.setFirstName("Load");
+            created.setLastName("Tester");
+            entityManager.persist(created);
+            entityManager.persist(new UserCredits(created));
+            return created;
+        });
+        if (initialBalance.signum() > 0) {
+            creditService.purchaseCredits(user, initialBalance, "seed-" + user.getId());
+        }
+        return user;
+    }
+
+    // User from before balances were materialized: ledger history but no user_credits row
+    private User createLegacyUser(BigDecimal ledgerBalance) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return transactionTemplate.execute(status -> {
+            User created = new User();
+            created.setEmail(UUID.randomUUID() + "@skillswap.test");
+            created.setPasswordHash("hash");
+            created.setFirstName("Legacy");
+            created.setLastName("Tester");
+            entityManager.persist(created);
+            CreditTransaction purchase = new CreditTransaction(created, ledgerBalance,
+                    CreditTransaction.TransactionType.PURCHASE, "legacy purchase");
+            purchase.markAsCompleted(BigDecimal.ZERO, ledgerBalance);
+            entityManager.persist(purchase);
+            return created;
+        });
+    }
+
+    // Credits granted last month: already past their expiry month
+    private User createUserWithExpiredLot(BigDecimal amount) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return transactionTemplate.execute(status -> {
+            User created = new User();
+            created.setEmail(UUID.randomUUID() + "@skillswap.test");
+            created.setPasswordHash("hash");
+            created.setFirstName("Expiring");
+            created.setLastName("Tester");
+            entityManager.persist(created);
+            UserCredits credits = new UserCredits(created);
+            credits.setCurrentBalance(amount);
+            credits.setTotalEarned(amount);
+            credits.setLifetimeEarnings(amount);
+            entityManager.persist(credits);
+            LocalDateTime expiresAt = LocalDateTime.now().minusMonths(1);
+            CreditTransaction bonus = new CreditTransaction(created, amount,
+                    CreditTransaction.TransactionType.BONUS_COMPLETION, "expiring bonus");
+            bonus.markAsCompleted(BigDecimal.ZERO, amount);
+            bonus.setExpiresAt(expiresAt);
+            entityManager.persist(bonus);
+            entityManager.flush();
+            creditLotService.apply(created.getId(), List.of(new CreditLotService.LotMovement(Credits.of(amount), expiresAt)));
+            return created;
+        });
+    }
+
+    // Same steps as CreditHoldService.placeHold: lock the balance, check what is available, raise reserved_credits
+    private boolean reserve(User user, Credits amount) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            Credits available = creditService.lockAvailableBalances(user).get(user.getId());
+            if (available.isLessThan(amount)) {
+                return false;
+            }
+            userCreditsRepository.adjustReserved(user.getId(), amount.toBigDecimal(), LocalDateTime.now());
+            return true;
+        }));
+    }
+
+    private void awaitExpirationRun() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        while (System.currentTimeMillis() < deadline) {
+            List<CreditExpirationRun> runs = creditExpirationRunRepository.findAll();
+            if (!runs.isEmpty() && runs.get(0).getStatus() != CreditExpirationRun.RunStatus.RUNNING
+                    && runs.get(0).getStatus() != CreditExpirationRun.RunStatus.PENDING) {
+                assertThat(runs.get(0).getStatus()).isEqualTo(CreditExpirationRun.RunStatus.COMPLETED);
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("Credit expiration run did not finish");
+    }
+
+    private BigDecimal reservedCredits(User user) {
+        return userCreditsRepository.findCurrentBalanceByUserId(user.getId()).orElseThrow()
+                .subtract(userCreditsRepository.findAvailableBalanceByUserId(user.getId()).orElseThrow());
+    }
+
+    private BigDecimal lotsRemaining(User user) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Object[] lot : creditLotRepository.findBucketsByUserId(user.getId())) {
+            total = total.add((BigDecimal) lot[2]);
+        }
+        return total;
+    }
+
+    private BigDecimal materializedBalance(User user) {
+        return userCreditsRepository.findCurrentBalanceByUserId(user.getId()).orElseThrow();
+    }
+
+    private BigDecimal ledgerBalance(User user) {
+        List<Object[]> rows = creditTransactionRepository.summarizeLedgerByUserIds(List.of(user.getId()));
+        return rows.isEmpty() ? BigDecimal.ZERO : Credits.fromNumber(rows.get(0)[1]).toBigDecimal();
+    }
+
+    @FunctionalInterface
+    private interface WriterTask {
+        Object run(int writer) throws Exception;
+    }
+
+    /**
+     * JPA slice with only the credit repositories, CreditService, the services it writes through and the expiration job
+     */
+    @Configuration
+    @ImportAutoConfiguration({
+            DataSourceAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class,
+            JdbcTemplateAutoConfiguration.class
+    })
+    @EntityScan(basePackageClasses = User.class)
+    @EnableJpaRepositories(
+            basePackageClasses = CreditTransactionRepository.class,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
+                    classes = {CreditTransactionRepository.class, UserCreditsRepository.class,
+                            CreditRollupRepository.class, CreditEventRepository.class,
+                            CreditBalanceSnapshotRepository.class, CreditLotRepository.class, UserRepository.class,
+                            CreditExpirationRunRepository.class, CreditExpirationCheckpointRepository.class}))
+    @EnableJpaAuditing
+    @Import({CreditService.class, CreditRollupService.class, CreditEventService.class, CreditStatisticsService.class,
+            CreditLotService.class, CreditExpirationService.class})
+    static class CreditTestConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.skillswap.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+
+/**
+ * Two (or three) RedisClusterMessageRelay nodes wired against one real Redis: user→node ownership
+ * routing, one Redis publish per destination node and tick, and a single delivery per owner node.
+ * Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RedisClusterMessageRelayTest {
+
+    private static final String NODE_CHANNEL_PREFIX = "skillswap:cluster:node:";
+    private static final String DESTINATION = "/queue/messages";
+
+    @Container
+    static final GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379);
+
+    private LettuceConnectionFactory connectionFactory;
+    private final List<Node> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(redis.getHost(), redis.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.getConnection().serverCommands().flushAll();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (Node node : nodes) {
+            node.relay.stop();
+            node.container.destroy();
+        }
+        nodes.clear();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void routesToTheOwningNodeOnly() {
+        Node a = startNode("a", 500);
+        Node b = startNode("b", 500);
+        Node c = startNode("c", 500);
+        b.connect("alice");
+        refreshAll();
+
+        a.relay.convertAndSendToUser("alice", DESTINATION, Map.of("content", "hola"));
+        a.relay.flush();
+
+        awaitTrue(() -> b.deliveries("alice").size() == 1);
+        assertEquals("{\"content\":\"hola\"}", b.deliveries("alice").get(0));
+        assertTrue(a.deliveries("alice").isEmpty(), "node a has no session for alice");
+        assertEquals(0, c.published.get(), "node c does not own alice");
+    }
+
+    @Test
+    void publishesOneRedisMessagePerNodeAndTick() {
+        Node a = startNode("a", 20);
+        Node b = startNode("b", 20);
+        b.connect("alice");
+        b.connect("bob");
+        refreshAll();
+
+        for (int i = 0; i < 25; i++) {
+            a.relay.convertAndSendToUser("alice", DESTINATION, Map.of("n", i));
+            a.relay.convertAndSendToUser("bob", DESTINATION, Map.of("n", i));
+        }
+        a.relay.flush();
+
+        // 50 envelopes for node b, split at max-batch-size 20
+        awaitTrue(() -> b.deliveries("alice").size() == 25 && b.deliveries("bob").size() == 25);
+        assertEquals(3, b.published.get());
+        for (int i = 0; i < 25; i++) {
+            assertEquals("{\"n\":" + i + "}", b.deliveries("alice").get(i));
+        }
+    }
+
+    @Test
+    void crossesOncePerOwnerNode() throws Exception {
+        Node a = startNode("a", 500);
+        Node b = startNode("b", 500);
+        Node c = startNode("c", 500);
+        a.connect("alice");
+        b.connect("alice");
+        b.connect("alice");
+        c.connect("alice");
+        refreshAll();
+
+        a.relay.convertAndSendToUser("alice", DESTINATION, Map.of("content", "hola"));
+        a.relay.flush();
+        a.relay.flush();
+
+        awaitTrue(() -> b.deliveries("alice").size() == 1 && c.deliveries("alice").size() == 1);
+        Thread.sleep(200);
+        assertEquals(1, a.localSends.size(), "local session served directly, not through Redis");
+        assertEquals(0, a.published.get());
+        assertEquals(1, b.published.get());
+        assertEquals(1, c.published.get());
+        // Two sessions on node b still mean a single relayed message; the broker fans it out locally
+        assertEquals(1, b.deliveries("alice").size());
+        assertEquals(1, c.deliveries("alice").size());
+    }
+
+    @Test
+    void countsBatchesThatFailToPublish() {
+        Node a = startNode("a", 500);
+        Node b = startNode("b", 500);
+        b.connect("alice");
+        refreshAll();
+
+        StringRedisTemplate failing = Mockito.spy(a.redisTemplate);
+        Mockito.doThrow(new IllegalStateException("redis down"))
+                .when(failing).convertAndSend(startsWith(NODE_CHANNEL_PREFIX), anyString());
+        ReflectionTestUtils.setField(a.relay, "redisTemplate", failing);
+
+        a.relay.convertAndSendToUser("alice", DESTINATION, Map.of("n", 1));
+        a.relay.convertAndSendToUser("alice", DESTINATION, Map.of("n", 2));
+        a.relay.flush();
+        a.relay.flush();
+
+        assertEquals(2.0, a.meterRegistry.counter("skillswap.cluster.relay.dropped", "node", "b").count());
+        assertEquals(0, b.published.get());
+    }
+
+    private Node startNode(String nodeId, int maxBatchSize) {
+        Node node = new Node(nodeId, maxBatchSize);
+        nodes.add(node);
+        return node;
+    }
+
+    private void refreshAll() {
+        nodes.forEach(node -> node.relay.refreshMembership());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met within 5s");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private final class Node {
+
+        final RedisClusterMessageRelay relay = new RedisClusterMessageRelay();
+        final StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // Messages handed to this node's broker channel, split by origin
+        final List<Message<?>> brokerMessages = new CopyOnWriteArrayList<>();
+        final List<Message<?>> localSends = new CopyOnWriteArrayList<>();
+        // Redis messages received on this node's channel
+        final AtomicInteger published = new AtomicInteger();
+
+        Node(String nodeId, int maxBatchSize) {
+            SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> {
+                (message.getPayload() instanceof byte[] ? brokerMessages : localSends).add(message);
+                return true;
+            }) {
+                @Override
+                public void convertAndSendToUser(String user, String destination, Object payload) {
+                    localSends.add(MessageBuilder.withPayload(payload).build());
+                }
+            };
+
+            container.setConnectionFactory(connectionFactory);
+            container.afterPropertiesSet();
+            container.addMessageListener((message, pattern) -> published.incrementAndGet(),
+                    new ChannelTopic(NODE_CHANNEL_PREFIX + nodeId));
+
+            ReflectionTestUtils.setField(relay, "redisTemplate", redisTemplate);
+            ReflectionTestUtils.setField(relay, "listenerContainer", container);
+            ReflectionTestUtils.setField(relay, "messagingTemplate", messagingTemplate);
+            ReflectionTestUtils.setField(relay, "objectMapper", new ObjectMapper());
+            ReflectionTestUtils.setField(relay, "meterRegistry", meterRegistry);
+            ReflectionTestUtils.setField(relay, "configuredNodeId", nodeId);
+            ReflectionTestUtils.setField(relay, "maxBatchSize", maxBatchSize);
+            relay.start();
+            container.start();
+        }
+
+        void connect(String user) {
+            Principal principal = () -> user;
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT_ACK);
+            Message<byte[]> connectAck = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+            relay.onSessionConnected(new SessionConnectedEvent(this, connectAck, principal));
+        }
+
+        List<String> deliveries(String user) {
+            return brokerMessages.stream()
+                    .filter(message -> ("/user/" + user + DESTINATION).equals(
+                            SimpMessageHeaderAccessor.getDestination(message.getHeaders())))
+                    .map(message -> new String((byte[]) message.getPayload(), StandardCharsets.UTF_8))
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.skillswap.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skillswap.backend.repository.ChatMessageRepository;
+import com.skillswap.backend.repository.SkillMatchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
+/**
+ * PresenceService nodes sharing presence through RedisClusterPresenceRegistry against one real Redis:
+ * lookups see sessions on other nodes and a user's online/offline change is announced once per cluster.
+ * Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RedisClusterPresenceRegistryTest {
+
+    private static final Long ALICE = 1L;
+    private static final Long BOB = 2L;
+
+    @Container
+    static final GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379);
+
+    private LettuceConnectionFactory connectionFactory;
+    private final List<Node> nodes = new ArrayList<>();
+
+    // Presence payloads announced to alice's contact bob, from any node
+    private final List<Map<String, Object>> announced = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(redis.getHost(), redis.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.getConnection().serverCommands().flushAll();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (Node node : nodes) {
+            node.relay.stop();
+            node.container.destroy();
+        }
+        nodes.clear();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void lookupSeesSessionsOnOtherNodes() {
+        Node a = startNode("a");
+        Node b = startNode("b");
+        refreshAll();
+
+        b.presence.sessionConnected(ALICE, "b-1");
+
+        assertEquals("online", a.presence.getPresence(ALICE).get("status"));
+        assertEquals("offline", a.presence.getPresence(List.of(ALICE, BOB)).get(BOB).get("status"));
+        assertTrue(a.presence.isOnline(ALICE));
+
+        b.presence.updateStatus(ALICE, PresenceService.PresenceStatus.AWAY);
+        assertEquals("away", a.presence.getPresence(ALICE).get("status"));
+
+        b.presence.sessionDisconnected("b-1");
+        Map<String, Object> offline = a.presence.getPresence(ALICE);
+        assertEquals("offline", offline.get("status"));
+        assertTrue(offline.get("lastSeen") != null, "last seen comes from node b");
+    }
+
+    @Test
+    void announcesOnlyClusterWideChanges() {
+        Node a = startNode("a");
+        Node b = startNode("b");
+        refreshAll();
+
+        b.presence.sessionConnected(ALICE, "b-1");
+        a.presence.sessionConnected(ALICE, "a-1");
+        assertEquals(List.of("online"), statuses());
+
+        // Away on one node while online on the other is still online for the cluster
+        a.presence.updateStatus(ALICE, PresenceService.PresenceStatus.AWAY);
+        a.presence.sessionDisconnected("a-1");
+        assertEquals(List.of("online"), statuses());
+
+        b.presence.sessionDisconnected("b-1");
+        assertEquals(List.of("online", "offline"), statuses());
+        assertFalse(a.presence.isOnline(ALICE));
+    }
+
+    @Test
+    void concurrentLastDisconnectsAnnounceOfflineOnce() throws Exception {
+        Node a = startNode("a");
+        Node b = startNode("b");
+        refreshAll();
+
+        for (int round = 0; round < 20; round++) {
+            announced.clear();
+            a.presence.sessionConnected(ALICE, "a-" + round);
+            b.presence.sessionConnected(ALICE, "b-" + round);
+
+            String aSession = "a-" + round;
+            String bSession = "b-" + round;
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                Future<?> first = executor.submit(() -> {
+                    start.await();
+                    a.presence.sessionDisconnected(aSession);
+                    return null;
+                });
+                Future<?> second = executor.submit(() -> {
+                    start.await();
+                    b.presence.sessionDisconnected(bSession);
+                    return null;
+                });
+                start.countDown();
+                first.get();
+                second.get();
+            } finally {
+                executor.shutdownNow();
+            }
+
+            assertEquals(1, statuses().stream().filter("offline"::equals).count(), "round " + round);
+        }
+    }
+
+    private List<Object> statuses() {
+        return announced.stream().map(payload -> payload.get("status")).toList();
+    }
+
+    private Node startNode(String nodeId) {
+        Node node = new Node(nodeId);
+        nodes.add(node);
+        return node;
+    }
+
+    private void refreshAll() {
+        nodes.forEach(node -> node.relay.refreshMembership());
+    }
+
+    private final class Node {
+
+        final RedisClusterMessageRelay relay = new RedisClusterMessageRelay();
+        final RedisClusterPresenceRegistry registry = new RedisClusterPresenceRegistry();
+        final PresenceService presence = new PresenceService();
+        final StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+
+        @SuppressWarnings("unchecked")
+        Node(String nodeId) {
+            container.setConnectionFactory(connectionFactory);
+            container.afterPropertiesSet();
+
+            ReflectionTestUtils.setField(relay, "redisTemplate", redisTemplate);
+            ReflectionTestUtils.setField(relay, "listenerContainer", container);
+            ReflectionTestUtils.setField(relay, "messagingTemplate", Mockito.mock(SimpMessagingTemplate.class));
+            ReflectionTestUtils.setField(relay, "objectMapper", new ObjectMapper());
+            ReflectionTestUtils.setField(relay, "meterRegistry", new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(relay, "configuredNodeId", nodeId);
+            ReflectionTestUtils.setField(relay, "maxBatchSize", 500);
+            relay.start();
+            container.start();
+
+            ReflectionTestUtils.setField(registry, "redisTemplate", redisTemplate);
+            ReflectionTestUtils.setField(registry, "messageRelay", relay);
+
+            SkillMatchRepository skillMatchRepository = Mockito.mock(SkillMatchRepository.class);
+            Mockito.when(skillMatchRepository.findMatchPartnerIds(anyLong())).thenReturn(List.of());
+            Mockito.when(skillMatchRepository.findMatchPartnerIds(ALICE)).thenReturn(List.of(BOB));
+            ChatMessageRepository chatMessageRepository = Mockito.mock(ChatMessageRepository.class);
+            Mockito.when(chatMessageRepository.findConversationPartnerIds(anyLong())).thenReturn(List.of());
+
+            ClusterMessageRelay announcements = Mockito.mock(ClusterMessageRelay.class);
+            Mockito.doAnswer(invocation -> announced.add((Map<String, Object>) invocation.getArgument(2)))
+                    .when(announcements).convertAndSendToUser(eq(BOB.toString()), eq("/queue/presence"), any());
+
+            ReflectionTestUtils.setField(presence, "skillMatchRepository", skillMatchRepository);
+            ReflectionTestUtils.setField(presence, "chatMessageRepository", chatMessageRepository);
+            ReflectionTestUtils.setField(presence, "messageRelay", announcements);
+            ReflectionTestUtils.setField(presence, "presenceRegistry", registry);
+            ReflectionTestUtils.setField(presence, "heartbeatTimeoutMillis", 45_000L);
+            ReflectionTestUtils.setField(presence, "wheelTickMillis", 1_000L);
+            ReflectionTestUtils.setField(presence, "contactCacheSize", 100);
+            ReflectionTestUtils.setField(presence, "contactTtlSeconds", 300L);
+        }
+    }
+}
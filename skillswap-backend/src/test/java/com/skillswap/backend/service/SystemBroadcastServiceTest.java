@@ -0,0 +1,194 @@
+package com.skillswap.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skillswap.backend.dto.ChatMessageDTO;
+import com.skillswap.backend.model.ChatMessage;
+import com.skillswap.backend.model.SystemBroadcast;
+import com.skillswap.backend.model.User;
+import com.skillswap.backend.monitoring.ChatMetricsService;
+import com.skillswap.backend.repository.ChatChangeLogRepository;
+import com.skillswap.backend.repository.ChatMessageRepository;
+import com.skillswap.backend.repository.SystemBroadcastRepository;
+import com.skillswap.backend.repository.UserChatSequenceRepository;
+import com.skillswap.backend.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * System broadcasts against the real chat schema
+ * Every chunk writes messages, change log entries and sequences together, so sync must see each broadcast
+ */
+@SpringBootTest(
+        classes = SystemBroadcastServiceTest.BroadcastTestConfig.class,
+        properties = {
+                "spring.profiles.active=broadcast-test",
+                "spring.datasource.url=jdbc:h2:mem:system-broadcast;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                // Several chunks per broadcast and no pacing between waves
+                "skillswap.chat.broadcast.chunk-size=3",
+                "skillswap.chat.broadcast.messages-per-second=1000000",
+                "spring.jpa.show-sql=false",
+                "logging.level.[com.skillswap]=WARN",
+                "logging.level.[org.hibernate.SQL]=WARN",
+                "logging.file.name="
+        })
+@DisplayName("SkillSwap System Broadcast Tests")
+class SystemBroadcastServiceTest {
+
+    private static final int RECIPIENTS = 7;
+
+    @Autowired
+    private SystemBroadcastService systemBroadcastService;
+
+    @Autowired
+    private ChatSyncService chatSyncService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @MockBean
+    private ClusterMessageRelay messageRelay;
+
+    @MockBean
+    private ChatMetricsService chatMetricsService;
+
+    private List<Long> recipients;
+
+    @BeforeEach
+    void createUsers() {
+        User sender = createUser();
+        ReflectionTestUtils.setField(systemBroadcastService, "systemSenderId", sender.getId());
+        recipients = new ArrayList<>();
+        for (int i = 0; i < RECIPIENTS; i++) {
+            recipients.add(createUser().getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Broadcasts complete and every recipient syncs the new messages")
+    void broadcastsAreVisibleToSync() throws Exception {
+        // First broadcast creates the recipients' sequence counters
+        awaitCompleted(broadcast("maintenance tonight"));
+        for (Long recipient : recipients) {
+            Map<String, Object> reset = chatSyncService.sync(recipient, 0, 50);
+            assertThat(reset.get("resetRequired")).isEqualTo(true);
+            assertThat(reset.get("sequence")).isEqualTo(1L);
+        }
+
+        // Second broadcast advances the existing counters: a client at sequence 1 receives it incrementally
+        awaitCompleted(broadcast("maintenance finished"));
+        for (Long recipient : recipients) {
+            Map<String, Object> changes = chatSyncService.sync(recipient, 1, 50);
+            assertThat(changes.get("resetRequired")).isEqualTo(false);
+            assertThat(changes.get("sequence")).isEqualTo(2L);
+            @SuppressWarnings("unchecked")
+            List<ChatMessageDTO> messages = (List<ChatMessageDTO>) changes.get("messages");
+            assertThat(messages).hasSize(1);
+            assertThat(messages.get(0).getReceiverId()).isEqualTo(recipient);
+            assertThat(messages.get(0).getContent()).isEqualTo("maintenance finished");
+            assertThat(messages.get(0).getMessageType()).isEqualTo(ChatMessage.MessageType.SYSTEM);
+        }
+
+        verify(messageRelay, times(2 * RECIPIENTS)).convertAndSendToUser(anyString(), eq("/queue/messages"), any());
+    }
+
+    private Long broadcast(String content) {
+        SystemBroadcastService.BroadcastSegment segment = new SystemBroadcastService.BroadcastSegment();
+        segment.setUserIds(recipients);
+        return (Long) systemBroadcastService.createBroadcast(content, segment, null).get("id");
+    }
+
+    private void awaitCompleted(Long broadcastId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        while (System.currentTimeMillis() < deadline) {
+            Map<String, Object> progress = systemBroadcastService.getProgress(broadcastId);
+            Object status = progress.get("status");
+            if (status == SystemBroadcast.BroadcastStatus.FAILED) {
+                fail("System broadcast failed: " + progress.get("errorMessage"));
+            }
+            if (status == SystemBroadcast.BroadcastStatus.COMPLETED) {
+                assertThat(progress.get("deliveredCount")).isEqualTo((long) RECIPIENTS);
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("System broadcast did not finish");
+    }
+
+    private User createUser() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return transactionTemplate.execute(status -> {
+            User created = new User();
+            created.setEmail(UUID.randomUUID() + "@skillswap.test");
+            created.setPasswordHash("hash");
+            created.setFirstName("Broadcast");
+            created.setLastName("Tester");
+            entityManager.persist(created);
+            return created;
+        });
+    }
+
+    /**
+     * JPA slice with the chat sync and broadcast repositories; the broker relay and chat metrics are mocked
+     */
+    @Configuration
+    @ImportAutoConfiguration({
+            DataSourceAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class,
+            JdbcTemplateAutoConfiguration.class
+    })
+    @EntityScan(basePackageClasses = User.class)
+    @EnableJpaRepositories(
+            basePackageClasses = UserRepository.class,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
+                    classes = {UserRepository.class, ChatMessageRepository.class, ChatChangeLogRepository.class,
+                            UserChatSequenceRepository.class, SystemBroadcastRepository.class}))
+    @EnableJpaAuditing
+    @Import({ChatSyncService.class, SystemBroadcastService.class})
+    static class BroadcastTestConfig {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+    }
+}